@@ -24,4 +24,21 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * 📮 Диспетчер outbox (вызовы API Новой Почты): один поток и одно ожидающее задание.
+     * Лишние запуски отбрасываются — работающий цикл или следующий опрос заберут события,
+     * а запрос оформления заказа никогда не выполняет диспетчер сам (как при CallerRunsPolicy).
+     */
+    @Bean(name = "outboxExecutor")
+    public Executor outboxExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("Outbox-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.initialize();
+        return executor;
+    }
 }
\ No newline at end of file
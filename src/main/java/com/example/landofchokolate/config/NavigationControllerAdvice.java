@@ -1,44 +1,97 @@
 package com.example.landofchokolate.config;
 
 import com.example.landofchokolate.dto.category.CategoryNavDto;
-import com.example.landofchokolate.service.CartService;
+import com.example.landofchokolate.enums.CachedFragment;
 import com.example.landofchokolate.service.CategoryService;
-import com.example.landofchokolate.service.WishlistService;
+import com.example.landofchokolate.service.HtmlFragmentCacheService;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpEntity;
+import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.thymeleaf.context.LazyContextVariable;
 
-import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Slf4j
 @ControllerAdvice
 @RequiredArgsConstructor
 public class NavigationControllerAdvice {
-    private final CartService cartService;
-    private final WishlistService wishlistService;
     private final CategoryService categoryService;
+    private final NavigationState navigationState;
+    private final HtmlFragmentCacheService htmlFragmentCacheService;
 
 
     /**
-     * Добавляет список категорий для мобильной навигации во все представления
+     * Добавляет во все HTML-представления:
+     * navigationCategories и готовый HTML меню категорий (мобильная навигация), currentURI,
+     * cartCount, cartTotal и favoritesCount.
+     * Для JSON/AJAX обработчиков модель не рендерится — корзину и избранное там не трогаем вовсе.
+     *
+     * Advice выполняется до обработчика, то есть до проверки условного GET (ConditionalGetService):
+     * значения ленивые и считаются, только когда их читает шаблон. Ответ 304 не рендерится —
+     * меню категорий, его HTML и счётчики шапки для него не загружаются
      */
-    @ModelAttribute("navigationCategories")
-    public List<CategoryNavDto> addNavigationCategories() {
-        return categoryService.getNavigationCategories(20);
+    @ModelAttribute
+    public void addNavigationAttributes(Model model, HttpServletRequest request) {
+        if (!rendersView(request)) {
+            return;
+        }
+
+        String currentURI = getCurrentURI(request);
+        LazyContextVariable<List<CategoryNavDto>> navigationCategories =
+                lazy(() -> categoryService.getNavigationCategories(20));
+        model.addAttribute("navigationCategories", navigationCategories);
+        model.addAttribute("currentURI", currentURI);
+        model.addAttribute("navigationCategoriesHtml", lazy(() -> {
+            List<CategoryNavDto> categories = navigationCategories.getValue();
+            return htmlFragmentCacheService.render(
+                    CachedFragment.NAVIGATION_CATEGORIES,
+                    activeCategoriesVariant(categories, currentURI),
+                    () -> Map.of("navigationCategories", categories, "currentURI", currentURI));
+        }));
+
+        // Корзина и избранное читаются по одному разу за запрос
+        model.addAttribute("cartCount", lazy(navigationState::getCartCount));
+        model.addAttribute("cartTotal", lazy(navigationState::getCartTotal));
+        model.addAttribute("favoritesCount", lazy(navigationState::getFavoritesCount));
     }
 
+    /**
+     * Значение для шаблона, которое загружается при первом чтении и дальше не пересчитывается
+     */
+    private static <T> LazyContextVariable<T> lazy(Supplier<T> loader) {
+        return new LazyContextVariable<>() {
+            @Override
+            protected T loadValue() {
+                return loader.get();
+            }
+        };
+    }
 
-    @ModelAttribute("currentURI")
-    public String getCurrentURI(HttpServletRequest request) {
-        if (request == null) {
-            log.warn("HttpServletRequest is null, returning default URI");
-            return "/";
-        }
 
+    /**
+     * Меню категорий зависит от URI только подсветкой активных ссылок — вариант кеша описывает именно её,
+     * теми же условиями, что и шаблон
+     */
+    private static String activeCategoriesVariant(List<CategoryNavDto> categories, String currentURI) {
+        String activeSlugs = categories.stream()
+                .map(CategoryNavDto::getSlug)
+                .filter(slug -> slug != null && currentURI.contains(slug))
+                .collect(Collectors.joining(","));
+        return ("/categories".equals(currentURI) ? "all|" : "|") + activeSlugs;
+    }
+
+    private String getCurrentURI(HttpServletRequest request) {
         String uri = request.getRequestURI();
         if (uri == null || uri.isEmpty()) {
             log.warn("Request URI is null or empty, returning default URI");
@@ -49,43 +102,22 @@ public class NavigationControllerAdvice {
         return uri;
     }
 
-
-    @ModelAttribute("cartCount")
-    public Integer getCartCount(HttpSession session) {
-        try {
-            return cartService.getCartItemCount(session);
-        } catch (Exception e) {
-            log.warn("Ошибка при получении количества товаров в корзине: {}", e.getMessage());
-            return 0;
-        }
-    }
-
     /**
-     * Добавляет общую сумму корзины во все модели
-     * Доступно в шаблонах как ${cartTotal}
+     * true — обработчик отдаёт HTML-страницу; false — @ResponseBody, ResponseEntity или AJAX-запрос
      */
-    @ModelAttribute("cartTotal")
-    public BigDecimal getCartTotal(HttpSession session) {
-        try {
-            return cartService.getCartTotal(session);
-        } catch (Exception e) {
-            log.warn("Ошибка при получении общей суммы корзины: {}", e.getMessage());
-            return BigDecimal.ZERO;
+    static boolean rendersView(HttpServletRequest request) {
+        if ("XMLHttpRequest".equals(request.getHeader("X-Requested-With"))) {
+            return false;
         }
-    }
-
-    @ModelAttribute("favoritesCount")
-    public Integer getFavoritesCount(HttpSession session) {
-     try {
-         return wishlistService.getWishlistItemCount(session);
-     }catch (Exception e) {
-         log.warn("Ошибка при получении количества товаров в избраном: {}", e.getMessage());
 
-     }
-        return 0;
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (handler instanceof HandlerMethod handlerMethod) {
+            if (handlerMethod.hasMethodAnnotation(ResponseBody.class)
+                    || AnnotatedElementUtils.hasAnnotation(handlerMethod.getBeanType(), ResponseBody.class)) {
+                return false;
+            }
+            return !HttpEntity.class.isAssignableFrom(handlerMethod.getReturnType().getParameterType());
+        }
+        return true;
     }
-
-
-
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,64 @@
+package com.example.landofchokolate.config;
+
+import com.example.landofchokolate.dto.card.CartSummary;
+import com.example.landofchokolate.service.CartService;
+import com.example.landofchokolate.service.WishlistService;
+import jakarta.servlet.http.HttpSession;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.math.BigDecimal;
+
+/**
+ * 🧭 Счётчики шапки сайта в рамках одного запроса.
+ *
+ * Корзина и избранное читаются не больше одного раза за запрос, количество и сумма корзины
+ * считаются за один проход. Повторные обращения (advice, контроллер) берут готовые значения.
+ */
+@Slf4j
+@Component
+@RequestScope
+@RequiredArgsConstructor
+public class NavigationState {
+
+    private final CartService cartService;
+    private final WishlistService wishlistService;
+    private final HttpSession session;
+
+    private CartSummary cartSummary;
+    private Integer favoritesCount;
+
+    public int getCartCount() {
+        return cartSummary().getItemCount();
+    }
+
+    public BigDecimal getCartTotal() {
+        return cartSummary().getTotal();
+    }
+
+    public int getFavoritesCount() {
+        if (favoritesCount == null) {
+            try {
+                favoritesCount = wishlistService.getWishlistItemCount(session);
+            } catch (Exception e) {
+                log.warn("Ошибка при получении количества товаров в избраном: {}", e.getMessage());
+                favoritesCount = 0;
+            }
+        }
+        return favoritesCount;
+    }
+
+    private CartSummary cartSummary() {
+        if (cartSummary == null) {
+            try {
+                cartSummary = cartService.getCartSummary(session);
+            } catch (Exception e) {
+                log.warn("Ошибка при получении корзины: {}", e.getMessage());
+                cartSummary = CartSummary.empty();
+            }
+        }
+        return cartSummary;
+    }
+}
@@ -4,6 +4,7 @@ package com.example.landofchokolate.config.caffeine;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
@@ -16,70 +17,70 @@ import java.time.Duration;
 public class BrandCacheConfig {
 
     @Bean("brandCacheManager")
-    public CacheManager brandCacheManager() {  // Изменили название метода!
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    public CacheManager brandCacheManager(CacheDataVersions cacheDataVersions, CacheMetrics cacheMetrics,
+                                          RefreshAheadCaches refreshAheadCaches,
+                                          @Value("${app.cache.refresh-ahead.brand-limit:PT10M}") Duration brandLimitRefresh) {  // Изменили название метода!
+        CaffeineCacheManager cacheManager = new VersionedCaffeineCacheManager(cacheDataVersions, cacheMetrics);
 
         // Кеш для брендов по ID - долгоживущий
         Cache<Object, Object> brandByIdCache = Caffeine.newBuilder()
-                .maximumSize(500)  // Достаточно для всех брендов
+                .maximumWeight(CacheMemoryRegistry.initialBytes(500))  // Достаточно для всех брендов
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofHours(6))  // Обновляются редко
                 .expireAfterAccess(Duration.ofHours(2)) // Если не используется
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("Brand cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("brandById"))
                 .build();
         cacheManager.registerCustomCache("brandById", brandByIdCache);
 
         // Кеш для брендов по slug
         Cache<Object, Object> brandBySlugCache = Caffeine.newBuilder()
-                .maximumSize(500)
+                .maximumWeight(CacheMemoryRegistry.initialBytes(500))
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofHours(6))
                 .expireAfterAccess(Duration.ofHours(2))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("BrandBySlug cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("brandBySlug"))
                 .build();
         cacheManager.registerCustomCache("brandBySlug", brandBySlugCache);
 
         // Кеш для списка всех брендов
         Cache<Object, Object> allBrandsCache = Caffeine.newBuilder()
-                .maximumSize(50)
+                .maximumWeight(CacheMemoryRegistry.initialBytes(50))
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(30))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("AllBrands cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("allBrands"))
                 .build();
         cacheManager.registerCustomCache("allBrands", allBrandsCache);
 
         // Кеш для фильтров брендов
         Cache<Object, Object> brandFiltersCache = Caffeine.newBuilder()
-                .maximumSize(10)
+                .maximumWeight(CacheMemoryRegistry.initialBytes(10))
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(15))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("BrandFilters cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("brandFilters"))
                 .build();
         cacheManager.registerCustomCache("brandFilters", brandFiltersCache);
 
         // Кеш для продуктов бренда
         Cache<Object, Object> brandProductsCache = Caffeine.newBuilder()
-                .maximumSize(200)
+                .maximumWeight(CacheMemoryRegistry.initialBytes(200))
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(20))
                 .expireAfterAccess(Duration.ofMinutes(10))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("BrandProducts cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("brandProducts"))
                 .build();
         cacheManager.registerCustomCache("brandProducts", brandProductsCache);
 
         // Кеш для лимитированных списков брендов
-        Cache<Object, Object> brandLimitCache = Caffeine.newBuilder()
-                .maximumSize(20)
-                .expireAfterWrite(Duration.ofMinutes(45))
+        Cache<Object, Object> brandLimitCache = refreshAheadCaches.build("brandLimit", Caffeine.newBuilder()
+                .maximumWeight(CacheMemoryRegistry.initialBytes(20))
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("BrandLimit cache eviction: key={}, cause={}", key, cause))
-                .build();
+                .evictionListener(cacheMetrics.evictionListener("brandLimit")), brandLimitRefresh);
         cacheManager.registerCustomCache("brandLimit", brandLimitCache);
 
         log.info("Brand cache manager configured with {} caches",
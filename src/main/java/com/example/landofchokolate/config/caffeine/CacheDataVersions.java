@@ -0,0 +1,57 @@
+package com.example.landofchokolate.config.caffeine;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🔢 Версии данных по имени кеша (или другого источника, например снимка рекомендаций).
+ *
+ * Версия растёт при каждом evict/clear кеша в {@link VersionedCaffeineCacheManager}, версии отдельных
+ * товаров, категорий и брендов (product:{id}, category:{id}, brand:{id}) — при сбросе по тегам в ProductCacheTags.
+ * Производные кеши (готовый HTML фрагментов) включают версии своих источников в ключ —
+ * после сброса источника старые записи просто перестают запрашиваться и уходят по TTL.
+ * Время последнего сброса служит Last-Modified для страниц, собранных из этих кешей.
+ */
+@Component
+public class CacheDataVersions {
+
+    private final ConcurrentHashMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> changedAt = new ConcurrentHashMap<>();
+
+    public void bump(String name) {
+        versions.computeIfAbsent(name, k -> new AtomicLong()).incrementAndGet();
+        changedAt.put(name, System.currentTimeMillis());
+    }
+
+    public long version(String name) {
+        AtomicLong version = versions.get(name);
+        return version != null ? version.get() : 0;
+    }
+
+    /**
+     * Время последнего сброса любого из источников; 0 — с момента старта не сбрасывались
+     */
+    public long lastChangeMillis(String... names) {
+        long last = 0;
+        for (String name : names) {
+            last = Math.max(last, changedAt.getOrDefault(name, 0L));
+        }
+        return last;
+    }
+
+    /**
+     * Версии нескольких источников одной строкой — для ключа производного кеша
+     */
+    public String stamp(String... names) {
+        StringBuilder stamp = new StringBuilder();
+        for (String name : names) {
+            if (!stamp.isEmpty()) {
+                stamp.append('.');
+            }
+            stamp.append(version(name));
+        }
+        return stamp.toString();
+    }
+}
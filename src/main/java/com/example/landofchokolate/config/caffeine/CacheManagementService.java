@@ -1,40 +1,58 @@
 package com.example.landofchokolate.config.caffeine;
 
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * 🗂️ Управление и статистика кешей всех CacheManager (категории, товары, бренды, Нова Пошта, отзывы, аналитика).
+ *
+ * Раз в app.cache.metrics.sample-interval-ms снимается точка временного ряда по каждому кешу:
+ * попадания, промахи, загрузки и их время, вытеснения за интервал, занятые байты.
+ * Хранится app.cache.metrics.history-size последних точек.
+ */
 @Service
 @Slf4j
 public class CacheManagementService {
 
     @Autowired
-    private CacheManager cacheManager;
+    private Map<String, CacheManager> cacheManagers;
+
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    @Value("${app.cache.metrics.history-size:60}")
+    private int historySize;
+
+    private final Map<String, Deque<Map<String, Object>>> history = new ConcurrentHashMap<>();
+    private final Map<String, Totals> lastTotals = new ConcurrentHashMap<>();
 
     /**
      * МЕТОД 1: Очистить ВСЕ кэши разом
      */
     public void clearAllCaches() {
-        cacheManager.getCacheNames().forEach(cacheName -> {
-            Cache cache = cacheManager.getCache(cacheName);
-            if (cache != null) {
-                cache.clear();
-                log.info("Cache '{}' cleared", cacheName);
-            }
+        forEachCache((managerName, cache) -> {
+            cache.clear();
+            log.info("Cache '{}' cleared", cache.getName());
         });
         log.info("All caches cleared successfully");
     }
 
     /**
-     * МЕТОД 2: Очистить конкретный кэш по имени
+     * МЕТОД 2: Очистить конкретный кэш по имени (в любом CacheManager)
      */
     public void clearCache(String cacheName) {
-        Cache cache = cacheManager.getCache(cacheName);
+        Cache cache = findCache(cacheName);
         if (cache != null) {
             cache.clear();
             log.info("Cache '{}' cleared", cacheName);
@@ -47,7 +65,7 @@ public class CacheManagementService {
      * МЕТОД 3: Очистить конкретный ключ в кэше
      */
     public void evictCacheEntry(String cacheName, Object key) {
-        Cache cache = cacheManager.getCache(cacheName);
+        Cache cache = findCache(cacheName);
         if (cache != null) {
             cache.evict(key);
             log.info("Cache entry '{}' evicted from cache '{}'", key, cacheName);
@@ -55,33 +73,143 @@ public class CacheManagementService {
     }
 
     /**
-     * МЕТОД 4: Получить информацию о всех кэшах
+     * МЕТОД 4: Получить информацию о всех кэшах всех CacheManager (накопленные значения)
      */
     public Map<String, Object> getCacheStats() {
-        Map<String, Object> stats = new HashMap<>();
-
-        cacheManager.getCacheNames().forEach(cacheName -> {
-            Cache cache = cacheManager.getCache(cacheName);
-            if (cache != null) {
-                // Для Caffeine кэша можем получить статистику
-                Object nativeCache = cache.getNativeCache();
-                if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache) {
-                    com.github.benmanes.caffeine.cache.stats.CacheStats caffeineStats =
-                            ((com.github.benmanes.caffeine.cache.Cache<?, ?>) nativeCache).stats();
-
-                    Map<String, Object> cacheInfo = new HashMap<>();
-                    cacheInfo.put("hitCount", caffeineStats.hitCount());
-                    cacheInfo.put("missCount", caffeineStats.missCount());
-                    cacheInfo.put("hitRate", String.format("%.2f%%", caffeineStats.hitRate() * 100));
-                    cacheInfo.put("evictionCount", caffeineStats.evictionCount());
-
-                    stats.put(cacheName, cacheInfo);
-                } else {
-                    stats.put(cacheName, "Active");
-                }
+        Map<String, Object> stats = new TreeMap<>();
+
+        forEachCache((managerName, cache) -> {
+            Object nativeCache = cache.getNativeCache();
+            if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache) {
+                CacheStats caffeineStats = caffeineCache.stats();
+                long loads = cacheMetrics.loadCount(cache.getName());
+
+                Map<String, Object> cacheInfo = new LinkedHashMap<>();
+                cacheInfo.put("manager", managerName);
+                cacheInfo.put("hitCount", caffeineStats.hitCount());
+                cacheInfo.put("missCount", caffeineStats.missCount());
+                cacheInfo.put("hitRate", String.format("%.2f%%", caffeineStats.hitRate() * 100));
+                cacheInfo.put("loadCount", loads);
+                cacheInfo.put("avgLoadMillis", loads > 0
+                        ? TimeUnit.NANOSECONDS.toMillis(cacheMetrics.loadNanos(cache.getName()) / loads) : 0);
+                cacheInfo.put("evictionCount", caffeineStats.evictionCount());
+                cacheInfo.put("evictionsByCause", cacheMetrics.evictionsByCause(cache.getName()));
+                cacheInfo.put("entries", caffeineCache.estimatedSize());
+                cacheInfo.put("estimatedBytes", estimatedBytes(caffeineCache));
+
+                stats.put(cache.getName(), cacheInfo);
+            } else {
+                stats.put(cache.getName(), "Active");
             }
         });
 
         return stats;
     }
-}
\ No newline at end of file
+
+    /**
+     * 📈 Точка временного ряда: значения за прошедший интервал по каждому кешу
+     */
+    @Scheduled(initialDelayString = "${app.cache.metrics.sample-interval-ms:60000}",
+            fixedDelayString = "${app.cache.metrics.sample-interval-ms:60000}")
+    public void sampleMetrics() {
+        long now = System.currentTimeMillis();
+        forEachCache((managerName, cache) -> {
+            if (!(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache)) {
+                return;
+            }
+            String name = cache.getName();
+            CacheStats stats = caffeineCache.stats();
+            Totals current = new Totals(stats.hitCount(), stats.missCount(), stats.evictionCount(),
+                    cacheMetrics.loadCount(name), cacheMetrics.loadNanos(name));
+            Totals previous = lastTotals.put(name, current);
+            if (previous == null) {
+                // Первый замер — только точка отсчёта
+                return;
+            }
+
+            long hits = current.hits() - previous.hits();
+            long misses = current.misses() - previous.misses();
+            long loads = current.loads() - previous.loads();
+
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("timestamp", now);
+            point.put("hits", hits);
+            point.put("misses", misses);
+            point.put("hitRate", hits + misses > 0 ? Math.round(hits * 10000.0 / (hits + misses)) / 100.0 : null);
+            point.put("loads", loads);
+            point.put("avgLoadMillis", loads > 0
+                    ? TimeUnit.NANOSECONDS.toMillis((current.loadNanos() - previous.loadNanos()) / loads) : 0);
+            point.put("evictions", current.evictions() - previous.evictions());
+            point.put("entries", caffeineCache.estimatedSize());
+            point.put("estimatedBytes", estimatedBytes(caffeineCache));
+
+            Deque<Map<String, Object>> series = history.computeIfAbsent(name, n -> new ArrayDeque<>());
+            synchronized (series) {
+                series.addLast(point);
+                while (series.size() > historySize) {
+                    series.removeFirst();
+                }
+            }
+        });
+    }
+
+    /**
+     * 📈 Временные ряды по всем кешам или по одному (cacheName != null)
+     */
+    public Map<String, Object> getMetricsHistory(String cacheName) {
+        Map<String, Object> result = new TreeMap<>();
+        history.forEach((name, series) -> {
+            if (cacheName == null || cacheName.equals(name)) {
+                synchronized (series) {
+                    result.put(name, List.copyOf(series));
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 🐢 Самые дорогие ключи по суммарному времени загрузки
+     */
+    public List<Map<String, Object>> getTopKeysByLoadCost(String cacheName, int limit) {
+        return cacheMetrics.topKeysByLoadCost(cacheName, limit);
+    }
+
+    private Cache findCache(String cacheName) {
+        // getCacheNames, а не getCache: CaffeineCacheManager создал бы пустой кеш с незнакомым именем
+        for (CacheManager cacheManager : cacheManagers.values()) {
+            if (cacheManager.getCacheNames().contains(cacheName)) {
+                return cacheManager.getCache(cacheName);
+            }
+        }
+        return null;
+    }
+
+    private void forEachCache(CacheConsumer consumer) {
+        cacheManagers.forEach((managerName, cacheManager) -> {
+            for (String cacheName : cacheManager.getCacheNames()) {
+                Cache cache = cacheManager.getCache(cacheName);
+                if (cache != null) {
+                    consumer.accept(managerName, cache);
+                }
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long estimatedBytes(com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache) {
+        // Вес кешей считает CacheSizeEstimator (байты); у кешей без веса — неизвестно
+        return ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) caffeineCache).policy().eviction()
+                .filter(Policy.Eviction::isWeighted)
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(-1L);
+    }
+
+    @FunctionalInterface
+    private interface CacheConsumer {
+        void accept(String managerName, Cache cache);
+    }
+
+    private record Totals(long hits, long misses, long evictions, long loads, long loadNanos) {
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.landofchokolate.config.caffeine;
+
+import com.example.landofchokolate.config.system.RenderMemoryMonitoringService;
+import com.example.landofchokolate.enums.MemoryPressure;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 🧮 Общий бюджет памяти для всех Caffeine-кешей всех CacheManager.
+ *
+ * Кеши в конфигурациях ограничены весом в байтах ({@link CacheSizeEstimator#WEIGHER}), а не числом записей.
+ * Начальный лимит — maximumSize старой конфигурации × {@link #INITIAL_ENTRY_BYTES}, он же служит
+ * базовой долей кеша. Раз в app.cache.memory.rebalance-interval-ms бюджет app.cache.memory.budget-mb
+ * делится заново: каждому кешу минимум, остальное — наполовину по базовой доле, наполовину по
+ * сглаженному числу попаданий за интервал. Кеш, который реально отдаёт данные, получает больше места,
+ * простаивающий — отдаёт своё.
+ *
+ * При WARNING / CRITICAL от {@link RenderMemoryMonitoringService} бюджет умножается на
+ * warning-factor / critical-factor, и лимиты уменьшаются сразу — Caffeine вытесняет лишнее.
+ * Возврат к большему бюджету — только после recovery-checks проверок подряд с меньшим уровнем,
+ * чтобы не раскачивать кеши на пиках heap до сборки мусора.
+ */
+@Slf4j
+@Component
+public class CacheMemoryRegistry {
+
+    private static final long INITIAL_ENTRY_BYTES = 4 * 1024;
+    // Вес нового интервала в сглаженном числе попаданий
+    private static final double HITS_SMOOTHING = 0.5;
+
+    private final Map<String, CacheManager> cacheManagers;
+    private final RenderMemoryMonitoringService memoryMonitoringService;
+
+    @Value("${app.cache.memory.budget-mb:64}")
+    private long budgetMb;
+
+    @Value("${app.cache.memory.min-cache-kb:64}")
+    private long minCacheKb;
+
+    @Value("${app.cache.memory.warning-factor:0.5}")
+    private double warningFactor;
+
+    @Value("${app.cache.memory.critical-factor:0.2}")
+    private double criticalFactor;
+
+    @Value("${app.cache.memory.recovery-checks:3}")
+    private int recoveryChecks;
+
+    private final List<BudgetedCache> caches = new ArrayList<>();
+    private final List<String> unmanagedCaches = new ArrayList<>();
+
+    private MemoryPressure appliedPressure = MemoryPressure.NORMAL;
+    private int lowerPressureChecks;
+    private long rebalanceCount;
+
+    public CacheMemoryRegistry(Map<String, CacheManager> cacheManagers,
+                               RenderMemoryMonitoringService memoryMonitoringService) {
+        this.cacheManagers = cacheManagers;
+        this.memoryMonitoringService = memoryMonitoringService;
+    }
+
+    /**
+     * Начальный лимит в байтах для кеша, рассчитанного раньше на maxEntries записей
+     */
+    public static long initialBytes(long maxEntries) {
+        return maxEntries * INITIAL_ENTRY_BYTES;
+    }
+
+    @PostConstruct
+    public void init() {
+        cacheManagers.forEach((managerName, cacheManager) -> {
+            for (String cacheName : cacheManager.getCacheNames()) {
+                Cache cache = cacheManager.getCache(cacheName);
+                if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+                    register(managerName, cacheName, nativeCache);
+                }
+            }
+        });
+        log.info("🧮 Бюджет кешей {} MB на {} кешей (без бюджета: {})", budgetMb, caches.size(), unmanagedCaches);
+        rebalance();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void register(String managerName, String cacheName, com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+        String name = managerName + ":" + cacheName;
+        Optional<Policy.Eviction<Object, Object>> eviction =
+                ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache).policy().eviction();
+        if (eviction.isEmpty() || !eviction.get().isWeighted()) {
+            // Ограничен числом записей или не ограничен вовсе — в байтах не управляется
+            unmanagedCaches.add(name);
+            return;
+        }
+        caches.add(new BudgetedCache(name, nativeCache, eviction.get(), eviction.get().getMaximum()));
+    }
+
+    @Scheduled(initialDelayString = "${app.cache.memory.rebalance-interval-ms:30000}",
+            fixedDelayString = "${app.cache.memory.rebalance-interval-ms:30000}")
+    public synchronized void rebalance() {
+        if (caches.isEmpty()) {
+            return;
+        }
+        updatePressure(memoryMonitoringService.getMemoryPressure());
+
+        long budget = effectiveBudgetBytes();
+        long floor = Math.min(minCacheKb * 1024, budget / (2L * caches.size()));
+        long distributable = budget - floor * caches.size();
+
+        double totalBase = 0;
+        double totalHits = 0;
+        for (BudgetedCache cache : caches) {
+            long hits = cache.nativeCache.stats().hitCount();
+            cache.smoothedHits = cache.smoothedHits * (1 - HITS_SMOOTHING) + (hits - cache.lastHitCount) * HITS_SMOOTHING;
+            cache.lastHitCount = hits;
+            totalBase += cache.baseBytes;
+            totalHits += cache.smoothedHits;
+        }
+
+        for (BudgetedCache cache : caches) {
+            double share = cache.baseBytes / totalBase;
+            if (totalHits > 0) {
+                share = share / 2 + cache.smoothedHits / totalHits / 2;
+            }
+            long limit = floor + (long) (distributable * share);
+            cache.eviction.setMaximum(limit);
+        }
+        rebalanceCount++;
+        log.debug("🧮 Бюджет кешей пересчитан: {} байт, давление {}", budget, appliedPressure);
+    }
+
+    private void updatePressure(MemoryPressure current) {
+        if (current.compareTo(appliedPressure) > 0) {
+            log.warn("🧮 Память {}: бюджет кешей уменьшается", current);
+            appliedPressure = current;
+            lowerPressureChecks = 0;
+        } else if (current.compareTo(appliedPressure) < 0) {
+            if (++lowerPressureChecks >= recoveryChecks) {
+                log.info("🧮 Память {}: бюджет кешей восстанавливается", current);
+                appliedPressure = current;
+                lowerPressureChecks = 0;
+            }
+        } else {
+            lowerPressureChecks = 0;
+        }
+    }
+
+    private long effectiveBudgetBytes() {
+        long budget = budgetMb * 1024 * 1024;
+        return switch (appliedPressure) {
+            case NORMAL -> budget;
+            case WARNING -> (long) (budget * warningFactor);
+            case CRITICAL -> (long) (budget * criticalFactor);
+        };
+    }
+
+    /**
+     * 📊 Бюджет, уровень памяти и по каждому кешу: лимит, занято, попадания
+     */
+    public synchronized Map<String, Object> getStats() {
+        long usedBytes = 0;
+        Map<String, Object> perCache = new LinkedHashMap<>();
+        for (BudgetedCache cache : caches) {
+            long weighted = cache.eviction.weightedSize().orElse(0);
+            usedBytes += weighted;
+            CacheStats stats = cache.nativeCache.stats();
+
+            Map<String, Object> cacheStats = new LinkedHashMap<>();
+            cacheStats.put("limitBytes", cache.eviction.getMaximum());
+            cacheStats.put("usedBytes", weighted);
+            cacheStats.put("entries", cache.nativeCache.estimatedSize());
+            cacheStats.put("hitRate", String.format("%.2f%%", stats.hitRate() * 100));
+            cacheStats.put("hitsPerInterval", Math.round(cache.smoothedHits));
+            cacheStats.put("evictionCount", stats.evictionCount());
+            perCache.put(cache.name, cacheStats);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("budgetBytes", budgetMb * 1024 * 1024);
+        result.put("effectiveBudgetBytes", effectiveBudgetBytes());
+        result.put("usedBytes", usedBytes);
+        result.put("memoryPressure", appliedPressure);
+        result.put("rebalanceCount", rebalanceCount);
+        result.put("unmanagedCaches", unmanagedCaches);
+        result.put("caches", perCache);
+        return result;
+    }
+
+    private static final class BudgetedCache {
+        final String name;
+        final com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache;
+        final Policy.Eviction<Object, Object> eviction;
+        final long baseBytes;
+        long lastHitCount;
+        double smoothedHits;
+
+        BudgetedCache(String name, com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache,
+                      Policy.Eviction<Object, Object> eviction, long baseBytes) {
+            this.name = name;
+            this.nativeCache = nativeCache;
+            this.eviction = eviction;
+            this.baseBytes = baseBytes;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.landofchokolate.config.caffeine;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 📈 Счётчики кешей, которых нет в статистике Caffeine.
+ *
+ * <ul>
+ *     <li>время загрузки при промахе @Cacheable (промах → put в том же потоке) —
+ *     Caffeine считает загрузки только для get(key, loader);</li>
+ *     <li>самые дорогие по суммарному времени загрузки ключи;</li>
+ *     <li>вытеснения по причинам (SIZE, EXPIRED...) — вместо INFO-лога на каждое вытеснение.</li>
+ * </ul>
+ * Заполняется кешами {@link InstrumentedCaffeineCacheManager}; ряды по времени собирает CacheManagementService.
+ */
+@Component
+public class CacheMetrics {
+
+    private static final int MAX_KEY_LENGTH = 120;
+
+    private final ConcurrentHashMap<String, CacheCounters> counters = new ConcurrentHashMap<>();
+
+    // Частые ключи остаются, редкие вытесняются — без роста памяти на уникальных ключах
+    private final Cache<KeyRef, KeyLoadCost> loadCostByKey = Caffeine.newBuilder()
+            .maximumSize(2_000)
+            .build();
+
+    public void recordLoad(String cacheName, Object key, long nanos) {
+        CacheCounters cacheCounters = counters(cacheName);
+        cacheCounters.loads.increment();
+        cacheCounters.loadNanos.add(nanos);
+
+        KeyLoadCost cost = loadCostByKey.get(new KeyRef(cacheName, describe(key)), ref -> new KeyLoadCost());
+        cost.loads.increment();
+        cost.loadNanos.add(nanos);
+    }
+
+    /**
+     * Слушатель вытеснений для Caffeine.newBuilder().evictionListener(...)
+     */
+    public RemovalListener<Object, Object> evictionListener(String cacheName) {
+        CacheCounters cacheCounters = counters(cacheName);
+        return (key, value, cause) -> cacheCounters.evictions
+                .computeIfAbsent(cause, c -> new LongAdder())
+                .increment();
+    }
+
+    public long loadCount(String cacheName) {
+        CacheCounters cacheCounters = counters.get(cacheName);
+        return cacheCounters != null ? cacheCounters.loads.sum() : 0;
+    }
+
+    public long loadNanos(String cacheName) {
+        CacheCounters cacheCounters = counters.get(cacheName);
+        return cacheCounters != null ? cacheCounters.loadNanos.sum() : 0;
+    }
+
+    public Map<RemovalCause, Long> evictionsByCause(String cacheName) {
+        CacheCounters cacheCounters = counters.get(cacheName);
+        Map<RemovalCause, Long> result = new EnumMap<>(RemovalCause.class);
+        if (cacheCounters != null) {
+            cacheCounters.evictions.forEach((cause, count) -> result.put(cause, count.sum()));
+        }
+        return result;
+    }
+
+    /**
+     * Ключи с наибольшим суммарным временем загрузки; cacheName == null — по всем кешам
+     */
+    public List<Map<String, Object>> topKeysByLoadCost(String cacheName, int limit) {
+        return loadCostByKey.asMap().entrySet().stream()
+                .filter(entry -> cacheName == null || entry.getKey().cacheName().equals(cacheName))
+                .sorted(Comparator.comparingLong((Map.Entry<KeyRef, KeyLoadCost> entry) ->
+                        entry.getValue().loadNanos.sum()).reversed())
+                .limit(limit)
+                .map(entry -> {
+                    long loads = entry.getValue().loads.sum();
+                    long nanos = entry.getValue().loadNanos.sum();
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("cache", entry.getKey().cacheName());
+                    row.put("key", entry.getKey().key());
+                    row.put("loads", loads);
+                    row.put("totalLoadMillis", TimeUnit.NANOSECONDS.toMillis(nanos));
+                    row.put("avgLoadMillis", loads > 0 ? TimeUnit.NANOSECONDS.toMillis(nanos / loads) : 0);
+                    return row;
+                })
+                .toList();
+    }
+
+    private CacheCounters counters(String cacheName) {
+        return counters.computeIfAbsent(cacheName, name -> new CacheCounters());
+    }
+
+    private static String describe(Object key) {
+        String text = String.valueOf(key);
+        return text.length() <= MAX_KEY_LENGTH ? text : text.substring(0, MAX_KEY_LENGTH) + "…";
+    }
+
+    private static final class CacheCounters {
+        final LongAdder loads = new LongAdder();
+        final LongAdder loadNanos = new LongAdder();
+        final ConcurrentHashMap<RemovalCause, LongAdder> evictions = new ConcurrentHashMap<>();
+    }
+
+    private static final class KeyLoadCost {
+        final LongAdder loads = new LongAdder();
+        final LongAdder loadNanos = new LongAdder();
+    }
+
+    private record KeyRef(String cacheName, String key) {
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.landofchokolate.config.caffeine;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.hibernate.Hibernate;
+import org.hibernate.proxy.HibernateProxy;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.Temporal;
+import java.util.*;
+
+/**
+ * ⚖️ Оценка удерживаемого объёма записи кеша в байтах — weigher для кешей под общим бюджетом памяти.
+ *
+ * Граф значения обходится по полям (без вызова геттеров). Незагруженные lazy-коллекции и прокси Hibernate
+ * не инициализируются — считаются как пустая обёртка. Оценка приблизительная (заголовок 12 байт,
+ * сжатые ссылки по 4), её задача — отличать список из тысячи сущностей от одного DTO, а не считать точно.
+ * Обход ограничен {@link #MAX_OBJECTS} объектами, дальше оценка экстраполируется.
+ */
+public final class CacheSizeEstimator {
+
+    // Узел Caffeine с метаданными истечения и статистики
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int MAX_OBJECTS = 50_000;
+    private static final int OPAQUE_OBJECT = 32;
+
+    public static final Weigher<Object, Object> WEIGHER = (key, value) ->
+            (int) Math.min(Integer.MAX_VALUE, ENTRY_OVERHEAD + estimate(key) + estimate(value));
+
+    private static final ClassValue<ClassLayout> LAYOUTS = new ClassValue<>() {
+        @Override
+        protected ClassLayout computeValue(Class<?> type) {
+            return ClassLayout.of(type);
+        }
+    };
+
+    private CacheSizeEstimator() {
+    }
+
+    public static long estimate(Object root) {
+        if (root == null) {
+            return 0;
+        }
+
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(root);
+        long bytes = 0;
+        int objects = 0;
+
+        while (!pending.isEmpty()) {
+            Object current = pending.pop();
+            if (!visited.add(current)) {
+                continue;
+            }
+            if (++objects > MAX_OBJECTS) {
+                // Непройденный остаток считаем таким же по среднему размеру объекта
+                return bytes + bytes / objects * (pending.size() + 1);
+            }
+            bytes += shallowSize(current, pending);
+        }
+        return bytes;
+    }
+
+    /**
+     * Собственный размер объекта; дочерние объекты, которые нужно обойти, кладутся в pending
+     */
+    private static long shallowSize(Object object, Deque<Object> pending) {
+        if (object instanceof String string) {
+            // Кириллица хранится в UTF-16
+            return 40 + 2L * string.length();
+        }
+        if (object instanceof Number || object instanceof Boolean || object instanceof Character) {
+            return object instanceof BigDecimal || object instanceof BigInteger ? 48 : 16;
+        }
+        if (object instanceof Enum<?> || object instanceof Class<?>) {
+            // Общие для всего приложения
+            return 0;
+        }
+        if (object instanceof Temporal || object instanceof Date) {
+            return 32;
+        }
+
+        if (object instanceof HibernateProxy proxy) {
+            if (!Hibernate.isInitialized(proxy)) {
+                return OPAQUE_OBJECT;
+            }
+            push(pending, proxy.getHibernateLazyInitializer().getImplementation());
+            return OPAQUE_OBJECT;
+        }
+
+        Class<?> type = object.getClass();
+        if (type.isArray()) {
+            int length = Array.getLength(object);
+            if (type.getComponentType().isPrimitive()) {
+                return align(16 + (long) length * primitiveSize(type.getComponentType()));
+            }
+            for (Object element : (Object[]) object) {
+                push(pending, element);
+            }
+            return align(16 + 4L * length);
+        }
+        if (object instanceof Collection<?> collection) {
+            if (!Hibernate.isInitialized(collection)) {
+                return OPAQUE_OBJECT;
+            }
+            collection.forEach(element -> push(pending, element));
+            return 40 + 24L * collection.size();
+        }
+        if (object instanceof Map<?, ?> map) {
+            if (!Hibernate.isInitialized(map)) {
+                return OPAQUE_OBJECT;
+            }
+            map.forEach((k, v) -> {
+                push(pending, k);
+                push(pending, v);
+            });
+            return 48 + 40L * map.size();
+        }
+        if (object instanceof Optional<?> optional) {
+            optional.ifPresent(value -> push(pending, value));
+            return 16;
+        }
+
+        ClassLayout layout = LAYOUTS.get(type);
+        for (Field field : layout.references()) {
+            try {
+                push(pending, field.get(object));
+            } catch (IllegalAccessException e) {
+                // Поле недоступно — остаётся только собственный размер
+            }
+        }
+        return layout.shallowSize();
+    }
+
+    private static void push(Deque<Object> pending, Object object) {
+        // ArrayDeque не принимает null
+        if (object != null) {
+            pending.push(object);
+        }
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * Собственный размер экземпляров класса и поля-ссылки для обхода.
+     * Классы JDK (именованные модули) не раскрываются — считаются непрозрачными
+     */
+    private record ClassLayout(long shallowSize, List<Field> references) {
+
+        static ClassLayout of(Class<?> type) {
+            if (type.getModule().isNamed() || type.getName().startsWith("org.hibernate.")) {
+                return new ClassLayout(OPAQUE_OBJECT, List.of());
+            }
+
+            long size = 12;
+            List<Field> references = new ArrayList<>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    if (field.getType().isPrimitive()) {
+                        size += primitiveSize(field.getType());
+                        continue;
+                    }
+                    size += 4;
+                    if (field.trySetAccessible()) {
+                        references.add(field);
+                    }
+                }
+            }
+            return new ClassLayout(align(size), List.copyOf(references));
+        }
+    }
+}
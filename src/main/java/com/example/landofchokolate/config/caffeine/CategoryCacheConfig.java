@@ -2,6 +2,7 @@ package com.example.landofchokolate.config.caffeine;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
@@ -18,93 +19,91 @@ public class CategoryCacheConfig {
 
     @Bean("categoryCacheManager")
     @Primary
-    public CacheManager categoryCacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    public CacheManager categoryCacheManager(CacheDataVersions cacheDataVersions, CacheMetrics cacheMetrics,
+                                             RefreshAheadCaches refreshAheadCaches,
+                                             @Value("${app.cache.refresh-ahead.top-categories:PT5M}") Duration topCategoriesRefresh,
+                                             @Value("${app.cache.refresh-ahead.navigation-categories:PT5M}") Duration navigationRefresh) {
+        CaffeineCacheManager cacheManager = new VersionedCaffeineCacheManager(cacheDataVersions, cacheMetrics);
 
         // Кеш для категорий по ID
         Cache<Object, Object> categoryByIdCache = Caffeine.newBuilder()
-                .maximumSize(300)
+                .maximumWeight(CacheMemoryRegistry.initialBytes(300))
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofHours(4))
                 .expireAfterAccess(Duration.ofHours(1))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("CategoryById cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("categoryById"))
                 .build();
         cacheManager.registerCustomCache("categoryById", categoryByIdCache);
 
         // Кеш для категорий по slug
         Cache<Object, Object> categoryBySlugCache = Caffeine.newBuilder()
-                .maximumSize(300)
+                .maximumWeight(CacheMemoryRegistry.initialBytes(300))
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofHours(4))
                 .expireAfterAccess(Duration.ofHours(1))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("CategoryBySlug cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("categoryBySlug"))
                 .build();
         cacheManager.registerCustomCache("categoryBySlug", categoryBySlugCache);
 
         // Кеш для всех категорий
         Cache<Object, Object> allCategoriesCache = Caffeine.newBuilder()
-                .maximumSize(20)
+                .maximumWeight(CacheMemoryRegistry.initialBytes(20))
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(45))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("AllCategories cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("allCategories"))
                 .build();
         cacheManager.registerCustomCache("allCategories", allCategoriesCache);
 
         // Кеш для публичных категорий
         Cache<Object, Object> publicCategoriesCache = Caffeine.newBuilder()
-                .maximumSize(100)
+                .maximumWeight(CacheMemoryRegistry.initialBytes(100))
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(30))
                 .expireAfterAccess(Duration.ofMinutes(15))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("PublicCategories cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("publicCategories"))
                 .build();
         cacheManager.registerCustomCache("publicCategories", publicCategoriesCache);
 
-        // Кеш для топ категорий
-        Cache<Object, Object> topCategoriesCache = Caffeine.newBuilder()
-                .maximumSize(10)
-                .expireAfterWrite(Duration.ofMinutes(20))
+        // Кеш для топ категорий (главная) — обновляется в фоне, запросы не ждут БД
+        Cache<Object, Object> topCategoriesCache = refreshAheadCaches.build("topCategories", Caffeine.newBuilder()
+                .maximumWeight(CacheMemoryRegistry.initialBytes(10))
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("TopCategories cache eviction: key={}, cause={}", key, cause))
-                .build();
+                .evictionListener(cacheMetrics.evictionListener("topCategories")), topCategoriesRefresh);
         cacheManager.registerCustomCache("topCategories", topCategoriesCache);
 
         // Кеш для поиска категорий по имени
         Cache<Object, Object> categoriesByNameCache = Caffeine.newBuilder()
-                .maximumSize(50)
+                .maximumWeight(CacheMemoryRegistry.initialBytes(50))
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(25))
                 .expireAfterAccess(Duration.ofMinutes(10))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("CategoriesByName cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("categoriesByName"))
                 .build();
         cacheManager.registerCustomCache("categoriesByName", categoriesByNameCache);
 
 
-        // НОВЫЙ: Кеш для навигационных категорий
-        Cache<Object, Object> navigationCategoriesCache = Caffeine.newBuilder()
-                .maximumSize(5) // Максимум 5 разных лимитов (обычно будет 1-2)
-                .expireAfterWrite(Duration.ofMinutes(15)) // Обновляем каждые 15 минут
-                .expireAfterAccess(Duration.ofMinutes(10)) // Если не используется 10 минут - удаляем
+        // НОВЫЙ: Кеш для навигационных категорий — нужен каждой странице, обновляется в фоне
+        Cache<Object, Object> navigationCategoriesCache = refreshAheadCaches.build("navigationCategories", Caffeine.newBuilder()
+                .maximumWeight(CacheMemoryRegistry.initialBytes(5)) // Максимум 5 разных лимитов (обычно будет 1-2)
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("NavigationCategories cache eviction: key={}, cause={}", key, cause))
-                .build();
+                .evictionListener(cacheMetrics.evictionListener("navigationCategories")), navigationRefresh);
         cacheManager.registerCustomCache("navigationCategories", navigationCategoriesCache);
 
 
         // Кеш для данных редактирования категории
         Cache<Object, Object> categoryEditDataCache = Caffeine.newBuilder()
-                .maximumSize(50)
+                .maximumWeight(CacheMemoryRegistry.initialBytes(50))
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(10))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("CategoryEditData cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("categoryEditData"))
                 .build();
         cacheManager.registerCustomCache("categoryEditData", categoryEditDataCache);
 
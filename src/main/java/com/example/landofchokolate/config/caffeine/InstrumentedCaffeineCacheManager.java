@@ -0,0 +1,82 @@
+package com.example.landofchokolate.config.caffeine;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * CaffeineCacheManager, кеши которого измеряют время загрузки значений в {@link CacheMetrics}.
+ *
+ * @Cacheable без sync работает как get → вызов метода → put, поэтому загрузка — это время
+ * от промаха до put того же ключа в том же потоке.
+ */
+public class InstrumentedCaffeineCacheManager extends CaffeineCacheManager {
+
+    private final CacheMetrics cacheMetrics;
+
+    public InstrumentedCaffeineCacheManager(CacheMetrics cacheMetrics) {
+        this.cacheMetrics = cacheMetrics;
+    }
+
+    @Override
+    protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+        return new InstrumentedCaffeineCache(name, cache, isAllowNullValues(), cacheMetrics);
+    }
+
+    static class InstrumentedCaffeineCache extends CaffeineCache {
+
+        // Промахи потока, ждущие put: вложенные @Cacheable дают несколько одновременно
+        private static final ThreadLocal<Map<MissRef, Long>> PENDING_MISSES = ThreadLocal.withInitial(HashMap::new);
+        private static final int MAX_PENDING_MISSES = 16;
+
+        private final CacheMetrics cacheMetrics;
+
+        InstrumentedCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                                  boolean allowNullValues, CacheMetrics cacheMetrics) {
+            super(name, cache, allowNullValues);
+            this.cacheMetrics = cacheMetrics;
+        }
+
+        @Override
+        protected Object lookup(Object key) {
+            Object value = super.lookup(key);
+            if (value == null) {
+                Map<MissRef, Long> pending = PENDING_MISSES.get();
+                if (pending.size() >= MAX_PENDING_MISSES) {
+                    // Промахи, после которых put так и не было (исключение, unless)
+                    pending.clear();
+                }
+                pending.put(new MissRef(getName(), key), System.nanoTime());
+            }
+            return value;
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            super.put(key, value);
+            Long missedAt = PENDING_MISSES.get().remove(new MissRef(getName(), key));
+            if (missedAt != null) {
+                cacheMetrics.recordLoad(getName(), key, System.nanoTime() - missedAt);
+            }
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return super.get(key, () -> {
+                long startedAt = System.nanoTime();
+                try {
+                    return valueLoader.call();
+                } finally {
+                    cacheMetrics.recordLoad(getName(), key, System.nanoTime() - startedAt);
+                }
+            });
+        }
+
+        private record MissRef(String cacheName, Object key) {
+        }
+    }
+}
@@ -16,17 +16,17 @@ public class NovaPoshtaCacheConfig {
 
 
     @Bean("novaPoshtaCacheManager")
-    public CacheManager novaPoshtaCacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    public CacheManager novaPoshtaCacheManager(CacheMetrics cacheMetrics) {
+        CaffeineCacheManager cacheManager = new InstrumentedCaffeineCacheManager(cacheMetrics);
 
         // Кеш для трекинга посылок
         Cache<Object, Object> trackingCache = Caffeine.newBuilder()
-                .maximumSize(1000)
+                .maximumWeight(CacheMemoryRegistry.initialBytes(1000))
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(60))
                 .expireAfterAccess(Duration.ofMinutes(30))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("Видалення з кешу Nova Poshta трекінгу: ключ={}, причина={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("novaPoshtaTracking"))
                 .build();
         cacheManager.registerCustomCache("novaPoshtaTracking", trackingCache);
 
@@ -15,112 +15,91 @@ import java.time.Duration;
 public class ProductCacheConfig {
 
     @Bean("productCacheManager")
-    public CacheManager productCacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    public CacheManager productCacheManager(CacheDataVersions cacheDataVersions, CacheMetrics cacheMetrics) {
+        CaffeineCacheManager cacheManager = new VersionedCaffeineCacheManager(cacheDataVersions, cacheMetrics);
 
         // Кеш для продуктов по ID - средней продолжительности
         Cache<Object, Object> productByIdCache = Caffeine.newBuilder()
-                .maximumSize(2000)  // Много продуктов
+                .maximumWeight(CacheMemoryRegistry.initialBytes(2000))  // Много продуктов
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(20))  // Продукты изменяются чаще
                 .expireAfterAccess(Duration.ofMinutes(10)) // Популярные продукты остаются дольше
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("ProductById cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("productById"))
                 .build();
         cacheManager.registerCustomCache("productById", productByIdCache);
 
         // Кеш для продуктов по slug - такой же как по ID
         Cache<Object, Object> productBySlugCache = Caffeine.newBuilder()
-                .maximumSize(2000)
+                .maximumWeight(CacheMemoryRegistry.initialBytes(2000))
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(20))
                 .expireAfterAccess(Duration.ofMinutes(10))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("ProductBySlug cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("productBySlug"))
                 .build();
         cacheManager.registerCustomCache("productBySlug", productBySlugCache);
 
         // Кеш для списков продуктов без фильтров - короткое время жизни
         Cache<Object, Object> allProductsCache = Caffeine.newBuilder()
-                .maximumSize(50)   // Разные страницы и сортировки
+                .maximumWeight(CacheMemoryRegistry.initialBytes(50))   // Разные страницы и сортировки
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(10))  // Быстро устаревает
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("AllProducts cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("allProducts"))
                 .build();
         cacheManager.registerCustomCache("allProducts", allProductsCache);
 
-        // Кеш для фильтрованных списков продуктов - очень короткое время
-        Cache<Object, Object> filteredProductsCache = Caffeine.newBuilder()
-                .maximumSize(300)  // Много комбинаций фильтров
-                .expireAfterWrite(Duration.ofMinutes(5))   // Очень быстро устаревает
-                .expireAfterAccess(Duration.ofMinutes(3))  // Еще быстрее если не используется
-                .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("FilteredProducts cache eviction: key={}, cause={}", key, cause))
-                .build();
-        cacheManager.registerCustomCache("filteredProducts", filteredProductsCache);
-
         // Кеш для продуктов по категории - средней продолжительности
         Cache<Object, Object> productsByCategoryCache = Caffeine.newBuilder()
-                .maximumSize(100)  // Разные категории и страницы
+                .maximumWeight(CacheMemoryRegistry.initialBytes(100))  // Разные категории и страницы
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(15))
                 .expireAfterAccess(Duration.ofMinutes(8))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("ProductsByCategory cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("productsByCategory"))
                 .build();
         cacheManager.registerCustomCache("productsByCategory", productsByCategoryCache);
 
         // Кеш для продуктов по бренду - средней продолжительности
         Cache<Object, Object> productsByBrandCache = Caffeine.newBuilder()
-                .maximumSize(100)  // Разные бренды и страницы
+                .maximumWeight(CacheMemoryRegistry.initialBytes(100))  // Разные бренды и страницы
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(15))
                 .expireAfterAccess(Duration.ofMinutes(8))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("ProductsByBrand cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("productsByBrand"))
                 .build();
         cacheManager.registerCustomCache("productsByBrand", productsByBrandCache);
 
-        // Кеш для популярных/рекомендуемых продуктов
-        Cache<Object, Object> popularProductsCache = Caffeine.newBuilder()
-                .maximumSize(20)   // Разные лимиты
-                .expireAfterWrite(Duration.ofMinutes(30))  // Дольше живет
-                .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("PopularProducts cache eviction: key={}, cause={}", key, cause))
-                .build();
-        cacheManager.registerCustomCache("popularProducts", popularProductsCache);
-
         // Кеш для поиска продуктов - короткое время
         Cache<Object, Object> searchProductsCache = Caffeine.newBuilder()
-                .maximumSize(200)  // Много поисковых запросов
+                .maximumWeight(CacheMemoryRegistry.initialBytes(200))  // Много поисковых запросов
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(8))
                 .expireAfterAccess(Duration.ofMinutes(5))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("SearchProducts cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("searchProducts"))
                 .build();
         cacheManager.registerCustomCache("searchProducts", searchProductsCache);
 
         // Кеш для похожих продуктов
         Cache<Object, Object> relatedProductsCache = Caffeine.newBuilder()
-                .maximumSize(500)  // Много продуктов со схожими
+                .maximumWeight(CacheMemoryRegistry.initialBytes(500))  // Много продуктов со схожими
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(25))  // Средней продолжительности
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("RelatedProducts cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("relatedProducts"))
                 .build();
         cacheManager.registerCustomCache("relatedProducts", relatedProductsCache);
 
         // Кеш для статистики продуктов (количество в категории и т.д.)
         Cache<Object, Object> productStatsCache = Caffeine.newBuilder()
-                .maximumSize(100)
+                .maximumWeight(CacheMemoryRegistry.initialBytes(100))
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(15))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("ProductStats cache eviction: key={}, cause={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("productStats"))
                 .build();
         cacheManager.registerCustomCache("productStats", productStatsCache);
 
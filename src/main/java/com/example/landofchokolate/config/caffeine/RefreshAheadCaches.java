@@ -0,0 +1,207 @@
+package com.example.landofchokolate.config.caffeine;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 🔄 Горячие кеши каталога с обновлением заранее (stale-while-revalidate).
+ *
+ * Запись старше refreshAfter не удаляется: запрос сразу получает текущее значение, а загрузчик ключа
+ * запускается в фоне — по ключу одновременно идёт не больше одной перезагрузки, сколько бы запросов ни пришло.
+ * Загрузчики ({@link Supplier}) регистрирует сервис при чтении через {@link #get}, ключи те же, что у @Cacheable,
+ * поэтому @CacheEvict и ручной сброс работают как раньше.
+ *
+ * Ждать приходится только первому запросу к ключу (его закрывает прогрев при старте) и после явного сброса.
+ * Жёсткий предел возраста — app.cache.refresh-ahead.max-stale: запись, которую никто не читал так долго, удаляется.
+ * Ошибка фоновой загрузки оставляет прежнее значение до следующего интервала; перезагрузки идут
+ * не больше чем в app.cache.refresh-ahead.concurrency потоков — пул соединений на Render всего 5.
+ */
+@Slf4j
+@Component
+public class RefreshAheadCaches {
+
+    private final CacheMetrics cacheMetrics;
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+    private final Duration maxStale;
+    private final ExecutorService refreshExecutor;
+
+    private final Map<String, RefreshAheadCache> caches = new ConcurrentHashMap<>();
+
+    // Загрузчики по ключам; лимит — страховка от неожиданно большого числа разных ключей
+    private final Cache<LoaderRef, Supplier<?>> loaders = Caffeine.newBuilder()
+            .maximumSize(1_000)
+            .build();
+
+    private volatile TransactionTemplate readOnlyTransaction;
+
+    public RefreshAheadCaches(CacheMetrics cacheMetrics,
+                              ObjectProvider<PlatformTransactionManager> transactionManager,
+                              @Value("${app.cache.refresh-ahead.max-stale:PT24H}") Duration maxStale,
+                              @Value("${app.cache.refresh-ahead.concurrency:2}") int concurrency) {
+        this.cacheMetrics = cacheMetrics;
+        this.transactionManager = transactionManager;
+        this.maxStale = maxStale;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.refreshExecutor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "CacheRefresh-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Собирает кеш с обновлением заранее. Сроки жизни задаются здесь — в builder их быть не должно
+     */
+    public LoadingCache<Object, Object> build(String cacheName, Caffeine<Object, Object> builder, Duration refreshAfter) {
+        RefreshAheadCache refreshAheadCache = new RefreshAheadCache(cacheName, refreshAfter);
+        refreshAheadCache.cache = builder
+                .refreshAfterWrite(refreshAfter)
+                .expireAfterWrite(maxStale)
+                .build(refreshAheadCache);
+        caches.put(cacheName, refreshAheadCache);
+        log.info("🔄 Кеш {}: обновление в фоне каждые {}", cacheName, refreshAfter);
+        return refreshAheadCache.cache;
+    }
+
+    /**
+     * Значение из кеша; при промахе загружается loader в текущем потоке, он же потом обновляет запись в фоне
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String cacheName, Object key, Supplier<T> loader) {
+        RefreshAheadCache refreshAheadCache = caches.get(cacheName);
+        if (refreshAheadCache == null) {
+            throw new IllegalStateException("Cache '" + cacheName + "' is not a refresh-ahead cache");
+        }
+        loaders.get(new LoaderRef(cacheName, key), ref -> loader);
+        return (T) refreshAheadCache.cache.get(key);
+    }
+
+    @PreDestroy
+    public void shutdownRefreshExecutor() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 📊 Интервалы и счётчики фоновых обновлений по кешам
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("maxStale", maxStale.toString());
+        Map<String, Object> perCache = new LinkedHashMap<>();
+        caches.forEach((name, cache) -> {
+            Map<String, Object> cacheStats = new LinkedHashMap<>();
+            cacheStats.put("refreshAfter", cache.refreshAfter.toString());
+            cacheStats.put("entries", cache.cache.estimatedSize());
+            cacheStats.put("loads", cache.loads.sum());
+            cacheStats.put("refreshes", cache.refreshes.sum());
+            cacheStats.put("refreshFailures", cache.refreshFailures.sum());
+            cacheStats.put("lastRefreshMillis", cache.lastRefreshMillis.get());
+            perCache.put(name, cacheStats);
+        });
+        result.put("caches", perCache);
+        return result;
+    }
+
+    private Object invoke(String cacheName, Object key, Supplier<?> loader) {
+        long startedAt = System.nanoTime();
+        try {
+            TransactionTemplate transaction = readOnlyTransaction();
+            // В фоновом потоке нет транзакции запроса — маппер DTO должен видеть ленивые связи
+            return transaction != null ? transaction.execute(status -> loader.get()) : loader.get();
+        } finally {
+            cacheMetrics.recordLoad(cacheName, key, System.nanoTime() - startedAt);
+        }
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        if (readOnlyTransaction == null) {
+            PlatformTransactionManager manager = transactionManager.getIfAvailable();
+            if (manager == null) {
+                return null;
+            }
+            TransactionTemplate template = new TransactionTemplate(manager);
+            template.setReadOnly(true);
+            readOnlyTransaction = template;
+        }
+        return readOnlyTransaction;
+    }
+
+    private final class RefreshAheadCache implements CacheLoader<Object, Object> {
+        final String name;
+        final Duration refreshAfter;
+        final LongAdder loads = new LongAdder();
+        final LongAdder refreshes = new LongAdder();
+        final LongAdder refreshFailures = new LongAdder();
+        final AtomicLong lastRefreshMillis = new AtomicLong();
+        LoadingCache<Object, Object> cache;
+
+        RefreshAheadCache(String name, Duration refreshAfter) {
+            this.name = name;
+            this.refreshAfter = refreshAfter;
+        }
+
+        @Override
+        public Object load(Object key) {
+            Supplier<?> loader = loaders.getIfPresent(new LoaderRef(name, key));
+            if (loader == null) {
+                // Spring CaffeineCache.lookup у LoadingCache тоже вызывает get(key): Cache.get / @Cacheable
+                // по ключу без загрузчика — обычный промах (null не кешируется), дальше метод и put
+                return null;
+            }
+            loads.increment();
+            return invoke(name, key, loader);
+        }
+
+        @Override
+        public Object reload(Object key, Object oldValue) {
+            Supplier<?> loader = loaders.getIfPresent(new LoaderRef(name, key));
+            if (loader == null) {
+                // Загрузчик вытеснен — запись уходит, следующий запрос загрузит её заново
+                return null;
+            }
+            try {
+                Object value = invoke(name, key, loader);
+                refreshes.increment();
+                lastRefreshMillis.set(System.currentTimeMillis());
+                return value;
+            } catch (RuntimeException e) {
+                refreshFailures.increment();
+                log.warn("🔄 Фоновое обновление {}[{}] не удалось, остаётся прежнее значение: {}",
+                        name, key, e.getMessage());
+                // Прежнее значение с новым временем записи: следующая попытка — через refreshAfter, а не на каждом чтении
+                return oldValue;
+            }
+        }
+
+        @Override
+        public CompletableFuture<Object> asyncReload(Object key, Object oldValue, Executor executor) {
+            return CompletableFuture.supplyAsync(() -> reload(key, oldValue), refreshExecutor);
+        }
+    }
+
+    private record LoaderRef(String cacheName, Object key) {
+    }
+}
@@ -3,6 +3,7 @@ package com.example.landofchokolate.config.caffeine;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
@@ -15,29 +16,28 @@ import java.time.Duration;
 public class StoreReviewCacheConfig {
 
     @Bean("storeReviewCacheManager")
-    public CacheManager storeReviewCacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    public CacheManager storeReviewCacheManager(CacheDataVersions cacheDataVersions, CacheMetrics cacheMetrics,
+                                                RefreshAheadCaches refreshAheadCaches,
+                                                @Value("${app.cache.refresh-ahead.store-reviews-main-page:PT2M}") Duration mainPageRefresh) {
+        CaffeineCacheManager cacheManager = new VersionedCaffeineCacheManager(cacheDataVersions, cacheMetrics);
 
         // Кеш для пагинированных списков отзывов
         Cache<Object, Object> reviewsListCache = Caffeine.newBuilder()
-                .maximumSize(500)
+                .maximumWeight(CacheMemoryRegistry.initialBytes(500))
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(30))
                 .expireAfterAccess(Duration.ofMinutes(15))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("Видалення з кешу списку відгуків: ключ={}, причина={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("storeReviewsList"))
                 .build();
         cacheManager.registerCustomCache("storeReviewsList", reviewsListCache);
 
-        // Кеш для главной страницы (последние отзывы с лимитом)
-        Cache<Object, Object> reviewsMainPageCache = Caffeine.newBuilder()
-                .maximumSize(50) // Мало записей, т.к. обычно только разные лимиты (3, 5, 10)
-                .expireAfterWrite(Duration.ofMinutes(20)) // Главная страница должна быть свежей
-                .expireAfterAccess(Duration.ofMinutes(10))
+        // Кеш для главной страницы (последние отзывы с лимитом) — свежесть держит фоновое обновление
+        Cache<Object, Object> reviewsMainPageCache = refreshAheadCaches.build("storeReviewsMainPage", Caffeine.newBuilder()
+                .maximumWeight(CacheMemoryRegistry.initialBytes(50)) // Мало записей, т.к. обычно только разные лимиты (3, 5, 10)
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("Видалення з кешу головної сторінки: ключ={}, причина={}", key, cause))
-                .build();
+                .evictionListener(cacheMetrics.evictionListener("storeReviewsMainPage")), mainPageRefresh);
         cacheManager.registerCustomCache("storeReviewsMainPage", reviewsMainPageCache);
 
         return cacheManager;
@@ -0,0 +1,66 @@
+package com.example.landofchokolate.config.caffeine;
+
+import org.springframework.cache.Cache;
+
+/**
+ * CaffeineCacheManager, кеши которого сообщают о сбросе в {@link CacheDataVersions}.
+ *
+ * Все @CacheEvict и ручные clear() проходят через Spring Cache, поэтому версия кеша
+ * меняется ровно тогда, когда меняются данные за ним. Истечение по TTL версию не трогает.
+ * Время загрузки измеряется, как и в {@link InstrumentedCaffeineCacheManager}.
+ */
+public class VersionedCaffeineCacheManager extends InstrumentedCaffeineCacheManager {
+
+    private final CacheDataVersions cacheDataVersions;
+    private final CacheMetrics cacheMetrics;
+
+    public VersionedCaffeineCacheManager(CacheDataVersions cacheDataVersions, CacheMetrics cacheMetrics) {
+        super(cacheMetrics);
+        this.cacheDataVersions = cacheDataVersions;
+        this.cacheMetrics = cacheMetrics;
+    }
+
+    @Override
+    protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+        return new VersionedCaffeineCache(name, cache, isAllowNullValues(), cacheDataVersions, cacheMetrics);
+    }
+
+    private static final class VersionedCaffeineCache extends InstrumentedCaffeineCache {
+
+        private final CacheDataVersions cacheDataVersions;
+
+        VersionedCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                               boolean allowNullValues, CacheDataVersions cacheDataVersions, CacheMetrics cacheMetrics) {
+            super(name, cache, allowNullValues, cacheMetrics);
+            this.cacheDataVersions = cacheDataVersions;
+        }
+
+        // Версия меняется после сброса: кто успел прочитать старую версию, сохранит результат под старым ключом
+
+        @Override
+        public void evict(Object key) {
+            super.evict(key);
+            cacheDataVersions.bump(getName());
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            boolean evicted = super.evictIfPresent(key);
+            cacheDataVersions.bump(getName());
+            return evicted;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            cacheDataVersions.bump(getName());
+        }
+
+        @Override
+        public boolean invalidate() {
+            boolean invalidated = super.invalidate();
+            cacheDataVersions.bump(getName());
+            return invalidated;
+        }
+    }
+}
@@ -15,83 +15,83 @@ import java.time.Duration;
 public class VisitorAnalyticsCacheConfig {
 
     @Bean("visitorAnalyticsCacheManager")
-    public CacheManager visitorAnalyticsCacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    public CacheManager visitorAnalyticsCacheManager(CacheMetrics cacheMetrics) {
+        CaffeineCacheManager cacheManager = new InstrumentedCaffeineCacheManager(cacheMetrics);
 
         // 📊 Кеш для базовой статистики (главный дашборд)
         Cache<Object, Object> basicStatsCache = Caffeine.newBuilder()
-                .maximumSize(10) // Небольшой кеш, т.к. базовая статистика одна
+                .maximumWeight(CacheMemoryRegistry.initialBytes(10)) // Небольшой кеш, т.к. базовая статистика одна
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(5)) // Обновляем каждые 5 минут
                 .expireAfterAccess(Duration.ofMinutes(3))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("🗑️ Видалення базової статистики з кешу: ключ={}, причина={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("visitorBasicStats"))
                 .build();
         cacheManager.registerCustomCache("visitorBasicStats", basicStatsCache);
 
         // 🌍 Кеш для статистики по странам
         Cache<Object, Object> countryStatsCache = Caffeine.newBuilder()
-                .maximumSize(100) // Разные периоды (1, 7, 30, 90 дней)
+                .maximumWeight(CacheMemoryRegistry.initialBytes(100)) // Разные периоды (1, 7, 30, 90 дней)
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(15)) // Обновляем каждые 15 минут
                 .expireAfterAccess(Duration.ofMinutes(10))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("🌍 Видалення статистики країн з кешу: ключ={}, причина={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("visitorCountryStats"))
                 .build();
         cacheManager.registerCustomCache("visitorCountryStats", countryStatsCache);
 
         // 👥 Кеш для топ IP адресов
         Cache<Object, Object> topIpsCache = Caffeine.newBuilder()
-                .maximumSize(50) // Разные периоды
+                .maximumWeight(CacheMemoryRegistry.initialBytes(50)) // Разные периоды
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(10)) // Обновляем каждые 10 минут
                 .expireAfterAccess(Duration.ofMinutes(8))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("👥 Видалення топ IP з кешу: ключ={}, причина={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("visitorTopIPs"))
                 .build();
         cacheManager.registerCustomCache("visitorTopIPs", topIpsCache);
 
         // 🔍 Кеш для поиска по IP (детальная статистика)
         Cache<Object, Object> ipStatsCache = Caffeine.newBuilder()
-                .maximumSize(1000) // Много IP адресов
+                .maximumWeight(CacheMemoryRegistry.initialBytes(1000)) // Много IP адресов
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(30)) // Статистика по IP меняется редко
                 .expireAfterAccess(Duration.ofMinutes(20))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("🔍 Видалення статистики IP з кешу: ключ={}, причина={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("visitorIpStats"))
                 .build();
         cacheManager.registerCustomCache("visitorIpStats", ipStatsCache);
 
         // 📄 Кеш для пагинированных списков посетителей
         Cache<Object, Object> visitorsListCache = Caffeine.newBuilder()
-                .maximumSize(200) // Разные страницы и размеры
+                .maximumWeight(CacheMemoryRegistry.initialBytes(200)) // Разные страницы и размеры
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(3)) // Часто обновляется
                 .expireAfterAccess(Duration.ofMinutes(2))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("📄 Видалення списку відвідувачів з кешу: ключ={}, причина={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("visitorsList"))
                 .build();
         cacheManager.registerCustomCache("visitorsList", visitorsListCache);
 
         // 🕐 Кеш для хронологии IP (timeline)
         Cache<Object, Object> ipTimelineCache = Caffeine.newBuilder()
-                .maximumSize(500) // Много IP с разными лимитами
+                .maximumWeight(CacheMemoryRegistry.initialBytes(500)) // Много IP с разными лимитами
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(20))
                 .expireAfterAccess(Duration.ofMinutes(15))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("🕐 Видалення хронології IP з кешу: ключ={}, причина={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("visitorIpTimeline"))
                 .build();
         cacheManager.registerCustomCache("visitorIpTimeline", ipTimelineCache);
 
         // 📈 Кеш для почасовой статистики
         Cache<Object, Object> hourlyStatsCache = Caffeine.newBuilder()
-                .maximumSize(30) // Разные периоды (1, 7, 30 дней)
+                .maximumWeight(CacheMemoryRegistry.initialBytes(30)) // Разные периоды (1, 7, 30 дней)
+                .weigher(CacheSizeEstimator.WEIGHER)
                 .expireAfterWrite(Duration.ofMinutes(60)) // Обновляем каждый час
                 .expireAfterAccess(Duration.ofMinutes(30))
                 .recordStats()
-                .evictionListener((key, value, cause) ->
-                        log.info("📈 Видалення погодинної статистики з кешу: ключ={}, причина={}", key, cause))
+                .evictionListener(cacheMetrics.evictionListener("visitorHourlyStats"))
                 .build();
         cacheManager.registerCustomCache("visitorHourlyStats", hourlyStatsCache);
 
@@ -1,5 +1,6 @@
 package com.example.landofchokolate.config.system;
 
+import com.example.landofchokolate.enums.MemoryPressure;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -7,7 +8,10 @@ import org.springframework.stereotype.Service;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.lang.management.MemoryUsage;
+import java.util.List;
 
 
 @Service
@@ -15,6 +19,7 @@ import java.lang.management.MemoryUsage;
 public class RenderMemoryMonitoringService {
 
     private final MemoryMXBean memoryBean;
+    private final List<MemoryPoolMXBean> heapPools;
 
     // Настройки из application.properties (с fallback значениями)
     @Value("${monitoring.memory.limit-mb:#{null}}")
@@ -31,6 +36,9 @@ public class RenderMemoryMonitoringService {
 
     public RenderMemoryMonitoringService() {
         this.memoryBean = ManagementFactory.getMemoryMXBean();
+        this.heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
     }
 
     @PostConstruct
@@ -143,6 +151,37 @@ public class RenderMemoryMonitoringService {
         analyzeRenderCriticalStatus(totalUsed, remainingMB);
     }
 
+    /**
+     * Текущий уровень памяти относительно порогов плана — без логирования, для частых проверок.
+     * Eden считается по занятости после последней сборки: там почти весь ещё не собранный мусор,
+     * и перед каждым GC общий used поднимается выше порогов, хотя живых данных столько нет
+     */
+    public MemoryPressure getMemoryPressure() {
+        long heapUsed = liveHeapUsed() / (1024 * 1024);
+        long nonHeapUsed = memoryBean.getNonHeapMemoryUsage().getUsed() / (1024 * 1024);
+        long totalUsed = heapUsed + nonHeapUsed;
+
+        if (totalUsed > criticalThresholdMB) {
+            return MemoryPressure.CRITICAL;
+        }
+        if (totalUsed > warningThresholdMB) {
+            return MemoryPressure.WARNING;
+        }
+        return MemoryPressure.NORMAL;
+    }
+
+    private long liveHeapUsed() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            // Старое поколение — текущая занятость: его значение после сборки Serial/Parallel
+            // обновляют только при полной сборке, а растёт оно между ними
+            boolean eden = pool.getName().contains("Eden");
+            used += eden && afterGc != null ? afterGc.getUsed() : pool.getUsage().getUsed();
+        }
+        return used;
+    }
+
     /**
      * Анализ Non-Heap памяти для Render
      */
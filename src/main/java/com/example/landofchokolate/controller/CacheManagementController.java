@@ -1,11 +1,16 @@
 package com.example.landofchokolate.controller;
 
 import com.example.landofchokolate.config.caffeine.CacheManagementService;
+import com.example.landofchokolate.config.caffeine.CacheMemoryRegistry;
+import com.example.landofchokolate.config.caffeine.RefreshAheadCaches;
+import com.example.landofchokolate.service.HtmlFragmentCacheService;
+import com.example.landofchokolate.service.ProductCacheTags;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -16,6 +21,18 @@ public class CacheManagementController {
     @Autowired
     private CacheManagementService cacheManagementService;
 
+    @Autowired
+    private HtmlFragmentCacheService htmlFragmentCacheService;
+
+    @Autowired
+    private ProductCacheTags productCacheTags;
+
+    @Autowired
+    private CacheMemoryRegistry cacheMemoryRegistry;
+
+    @Autowired
+    private RefreshAheadCaches refreshAheadCaches;
+
     /**
      * 🔥 ОЧИСТИТЬ ВСЕ КЭШИ РАЗОМ
      */
@@ -53,6 +70,66 @@ public class CacheManagementController {
     }
 
 
+    /**
+     * 📈 ВРЕМЕННЫЕ РЯДЫ ПО КЭШАМ (ВСЕ CacheManager): ПОПАДАНИЯ, ПРОМАХИ, ЗАГРУЗКИ, ВЫТЕСНЕНИЯ, БАЙТЫ
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getCacheMetrics(@RequestParam(required = false) String cache) {
+        return ResponseEntity.ok(cacheManagementService.getMetricsHistory(cache));
+    }
+
+    /**
+     * 🐢 КЛЮЧИ С САМОЙ ДОРОГОЙ ЗАГРУЗКОЙ
+     */
+    @GetMapping("/metrics/top-keys")
+    public ResponseEntity<List<Map<String, Object>>> getTopKeysByLoadCost(
+            @RequestParam(required = false) String cache,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(cacheManagementService.getTopKeysByLoadCost(cache, limit));
+    }
+
+    /**
+     * 🧮 БЮДЖЕТ ПАМЯТИ КЭШЕЙ: ЛИМИТ И ЗАНЯТЫЙ ОБЪЁМ КАЖДОГО КЭША
+     */
+    @GetMapping("/memory")
+    public ResponseEntity<Map<String, Object>> getCacheMemoryStats() {
+        return ResponseEntity.ok(cacheMemoryRegistry.getStats());
+    }
+
+    /**
+     * 🔄 ФОНОВОЕ ОБНОВЛЕНИЕ ГОРЯЧИХ КЭШЕЙ: ИНТЕРВАЛЫ, ОБНОВЛЕНИЯ И ОШИБКИ
+     */
+    @GetMapping("/refresh-ahead")
+    public ResponseEntity<Map<String, Object>> getRefreshAheadStats() {
+        return ResponseEntity.ok(refreshAheadCaches.getStats());
+    }
+
+    /**
+     * 🧩 СТАТИСТИКА КЭША HTML-ФРАГМЕНТОВ
+     */
+    @GetMapping("/fragments/stats")
+    public ResponseEntity<Map<String, Object>> getFragmentCacheStats() {
+        return ResponseEntity.ok(htmlFragmentCacheService.getStats());
+    }
+
+    /**
+     * 🧩 ОЧИСТИТЬ КЭШ HTML-ФРАГМЕНТОВ (например, после правки шаблонов)
+     */
+    @PostMapping("/fragments/clear")
+    public ResponseEntity<String> clearFragmentCache() {
+        htmlFragmentCacheService.clear();
+        return ResponseEntity.ok("✅ Fragment cache cleared!");
+    }
+
+    /**
+     * 🏷️ СБРОС КЭШЕЙ ПРОДУКТОВ ПО ТЕГАМ: СКОЛЬКО ЗАПИСЕЙ УХОДИТ НА ОДНО ИЗМЕНЕНИЕ
+     */
+    @GetMapping("/products/invalidation-stats")
+    public ResponseEntity<Map<String, Object>> getProductInvalidationStats() {
+        return ResponseEntity.ok(productCacheTags.getStats());
+    }
+
+
     // ============ БЫСТРЫЕ КНОПКИ ============
 
     /**
@@ -61,7 +138,6 @@ public class CacheManagementController {
     @PostMapping("/clear-products")
     public ResponseEntity<String> clearProductCaches() {
         cacheManagementService.clearCache("productById");
-        cacheManagementService.clearCache("popularProducts");
         return ResponseEntity.ok("✅ Product caches cleared!");
     }
 
@@ -0,0 +1,38 @@
+package com.example.landofchokolate.controller;
+
+import com.example.landofchokolate.service.CacheWarmUpService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 🚦 Готовность инстанса для health check Render: 503, пока не прогреты критические кеши
+ */
+@RestController
+@RequiredArgsConstructor
+public class ReadinessController {
+
+    private final ApplicationAvailability applicationAvailability;
+    private final CacheWarmUpService cacheWarmUpService;
+
+    @GetMapping("/health/ready")
+    public ResponseEntity<Map<String, Object>> ready() {
+        ReadinessState readiness = applicationAvailability.getReadinessState();
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("readiness", readiness);
+        body.put("warmUp", cacheWarmUpService.getReport());
+
+        // Прогрев проверяется напрямую: готовность не зависит от порядка слушателей AvailabilityChangeEvent
+        boolean ready = readiness == ReadinessState.ACCEPTING_TRAFFIC && cacheWarmUpService.isCriticalReady();
+        HttpStatus status = ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body(body);
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.landofchokolate.controller;
 
+import com.example.landofchokolate.enums.ValidatedPage;
 import com.example.landofchokolate.model.Category;
 import com.example.landofchokolate.model.Product;
 import com.example.landofchokolate.service.CategoryService;
+import com.example.landofchokolate.service.ConditionalGetService;
 import com.example.landofchokolate.service.ProductService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -11,6 +13,7 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -22,16 +25,22 @@ public class SitemapController {
 
     private final ProductService productService;
     private final CategoryService categoryService;
+    private final ConditionalGetService conditionalGetService;
 
     @GetMapping(value = "/sitemap.xml", produces = "application/xml; charset=UTF-8")
     @ResponseBody
 //    @Cacheable(value = "sitemap", key = "'sitemap_xml'")
-    public String getSitemap(HttpServletRequest request) {
-        log.info("Generating dynamic sitemap.xml");
-
+    public String getSitemap(HttpServletRequest request, WebRequest webRequest) {
         String baseUrl = getBaseUrl(request);
         LocalDate today = LocalDate.now();
 
+        // Статические страницы получают lastmod = сегодня, поэтому дата входит в ETag
+        if (conditionalGetService.isNotModified(webRequest, ValidatedPage.SITEMAP, baseUrl + "_" + today)) {
+            return null;
+        }
+
+        log.info("Generating dynamic sitemap.xml");
+
         StringBuilder sb = new StringBuilder();
         sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
         sb.append("<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\"");
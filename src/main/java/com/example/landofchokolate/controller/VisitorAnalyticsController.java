@@ -134,7 +134,10 @@
 package com.example.landofchokolate.controller;
 
 import com.example.landofchokolate.model.VisitorLog;
+import com.example.landofchokolate.model.VisitorRollup;
 import com.example.landofchokolate.repository.VisitorLogRepository;
+import com.example.landofchokolate.service.GeoLocationService;
+import com.example.landofchokolate.service.VisitorLogIngestionService;
 import com.example.landofchokolate.service.VisitorTrackingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -160,6 +163,8 @@ public class VisitorAnalyticsController {
 
     private final VisitorTrackingService visitorTrackingService;
     private final VisitorLogRepository visitorLogRepository;
+    private final VisitorLogIngestionService visitorLogIngestionService;
+    private final GeoLocationService geoLocationService;
 
     @GetMapping
     public String analyticsHome(@RequestParam(defaultValue = "0") int page,
@@ -206,15 +211,15 @@ public class VisitorAnalyticsController {
             model.addAttribute("todayVisits", todayVisits);
             model.addAttribute("todayUnique", todayUnique);
 
-            // Топ страницы за неделю
+            // Топ страницы за неделю (из суточных счётчиков)
             LocalDateTime weekAgo = LocalDateTime.now().minusWeeks(1);
-            List<Object[]> topPages = visitorLogRepository.getTopPagesByTimeBetween(
-                    weekAgo, LocalDateTime.now(), PageRequest.of(0, 10));
+            List<Object[]> topPages = visitorTrackingService.getTopSince(
+                    VisitorRollup.Dimension.PAGE, weekAgo, 10);
             model.addAttribute("topPages", topPages);
 
             // Топ страны
-            List<Object[]> topCountries = visitorLogRepository.getTopCountriesByTimeBetween(
-                    weekAgo, LocalDateTime.now(), PageRequest.of(0, 5));
+            List<Object[]> topCountries = visitorTrackingService.getTopSince(
+                    VisitorRollup.Dimension.COUNTRY, weekAgo, 5);
             model.addAttribute("topCountries", topCountries);
 
             log.info("Analytics page accessed successfully - page: {}, size: {}", page, maxSize);
@@ -292,14 +297,14 @@ public class VisitorAnalyticsController {
         try {
             LocalDateTime startDate = LocalDateTime.now().minusDays(days);
 
-            List<Object[]> countriesStats = visitorLogRepository.getTopCountriesByTimeBetween(
-                    startDate, LocalDateTime.now(), PageRequest.of(0, 50));
+            List<Object[]> countriesStats = visitorTrackingService.getTopSince(
+                    VisitorRollup.Dimension.COUNTRY, startDate, 50);
 
             model.addAttribute("countriesStats", countriesStats);
             model.addAttribute("selectedDays", days);
 
             // Общее количество за период
-            long totalVisits = visitorLogRepository.countByVisitTimeAfter(startDate);
+            long totalVisits = visitorTrackingService.getVisitsSince(startDate);
             model.addAttribute("totalVisits", totalVisits);
 
         } catch (Exception e) {
@@ -422,6 +427,24 @@ public class VisitorAnalyticsController {
 
 
 
+    /**
+     * 📥 Метрики фоновой очереди логов посещений (JSON)
+     */
+    @GetMapping("/ingestion/stats")
+    @ResponseBody
+    public Map<String, Object> getIngestionStats() {
+        return visitorLogIngestionService.getIngestionStats();
+    }
+
+    /**
+     * 🗺️ Статистика кеша геолокации и локальной базы IP (JSON)
+     */
+    @GetMapping("/geo/stats")
+    @ResponseBody
+    public Map<String, Object> getGeoStats() {
+        return geoLocationService.getStats();
+    }
+
     private Map<String, Object> createEmptyStats() {
         Map<String, Object> stats = new HashMap<>();
         stats.put("totalVisits", 0L);
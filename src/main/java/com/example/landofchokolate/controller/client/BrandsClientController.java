@@ -3,7 +3,12 @@ package com.example.landofchokolate.controller.client;
 import com.example.landofchokolate.dto.brend.BrandClientDto;
 import com.example.landofchokolate.dto.brend.BrandPageResponseDto;
 import com.example.landofchokolate.dto.brend.BrandProductsPageResponseDto;
+import com.example.landofchokolate.enums.CachedFragment;
+import com.example.landofchokolate.enums.ValidatedPage;
 import com.example.landofchokolate.service.BrandService;
+import com.example.landofchokolate.service.ConditionalGetService;
+import com.example.landofchokolate.service.HtmlFragmentCacheService;
+import com.example.landofchokolate.service.ProductCacheTags;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -12,23 +17,33 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Map;
 
 @Controller
 @RequiredArgsConstructor
 @RequestMapping("/brands")
 public class BrandsClientController {
     private final BrandService brandService;
+    private final HtmlFragmentCacheService htmlFragmentCacheService;
+    private final ConditionalGetService conditionalGetService;
 
     private static final int DEFAULT_PAGE_SIZE = 12;
     private static final int DEFAULT_PAGE_SIZE_PRODUCT = 12;
 
     @GetMapping
-    public String listBrands(Model model, Pageable pageable) {
+    public String listBrands(Model model, Pageable pageable, WebRequest webRequest) {
         // Устанавливаем размер страницы по умолчанию если не указан
         if (pageable.getPageSize() > 20) {
             pageable = PageRequest.of(pageable.getPageNumber(), DEFAULT_PAGE_SIZE, pageable.getSort());
         }
 
+        if (conditionalGetService.isNotModified(webRequest, ValidatedPage.BRAND_LIST,
+                pageable.getPageNumber() + "_" + pageable.getPageSize() + "_" + pageable.getSort())) {
+            return null;
+        }
+
         BrandPageResponseDto pageResponseDto = brandService.getBrandsForClient(pageable);
 
         // Добавляем бренды
@@ -50,22 +65,34 @@ public class BrandsClientController {
 
     // Метод для отображения конкретного бренда с продуктами
     @GetMapping("/{slug}")
-    public String brandDetail(@PathVariable String slug, Model model, Pageable pageable) {
+    public String brandDetail(@PathVariable String slug, Model model, Pageable pageable, WebRequest webRequest) {
         // Устанавливаем размер страницы для продуктов
         if (pageable.getPageSize() > 10) {
             pageable = PageRequest.of(pageable.getPageNumber(), DEFAULT_PAGE_SIZE_PRODUCT, pageable.getSort());
         }
 
-
-        // Получаем информацию о бренде
+        // Бренд из кеша — его id задаёт область версий страницы
         BrandClientDto brand = brandService.getBrandBySlug(slug);
+        String brandScope = ProductCacheTags.brand(brand.getId());
+
+        if (conditionalGetService.isNotModified(webRequest, ValidatedPage.BRAND_DETAIL,
+                slug + "_" + pageable.getPageNumber() + "_" + pageable.getPageSize() + "_" + pageable.getSort(),
+                brand.getUpdatedAt(), brandScope)) {
+            return null;
+        }
+
         model.addAttribute("brand", brand);
 
-        // Получаем продукты бренда с пагинацией
+        // Получаем продукты бренда с пагинацией (версия фрагмента — до загрузки)
+        String productsVersion = htmlFragmentCacheService.versionStamp(CachedFragment.BRAND_PRODUCTS, brandScope);
         BrandProductsPageResponseDto productsPage = brandService.getBrandDetailBySlug(slug, pageable);
 
         // Добавляем продукты
         model.addAttribute("products", productsPage.getProducts());
+        model.addAttribute("productsHtml", htmlFragmentCacheService.render(CachedFragment.BRAND_PRODUCTS,
+                slug + "_" + pageable.getPageNumber() + "_" + pageable.getPageSize() + "_" + pageable.getSort(),
+                productsVersion,
+                () -> Map.of("products", productsPage.getProducts())));
 
         // Добавляем полную информацию о пагинации
         model.addAttribute("currentPage", productsPage.getCurrentPage());
@@ -1,5 +1,6 @@
 package com.example.landofchokolate.controller.client;
 
+import com.example.landofchokolate.config.NavigationState;
 import com.example.landofchokolate.dto.card.CartDto;
 import com.example.landofchokolate.dto.card.CartItemDto;
 import com.example.landofchokolate.service.CartService;
@@ -24,17 +25,17 @@ import java.util.Map;
 public class CartController {
 
     private final CartService cartService;
+    private final NavigationState navigationState;
 
 
     @GetMapping
     public String viewCart(HttpSession session, Model model) {
         CartDto cart = cartService.getCartDto(session);
-        Integer cartItemCount = cartService.getCartItemCount(session);
-        BigDecimal cartTotal = cartService.getCartTotal(session);
 
         model.addAttribute("cart", cart);
-        model.addAttribute("cartItemCount", cartItemCount);
-        model.addAttribute("cartTotal", cartTotal);
+        // Счётчики уже посчитаны для шапки в этом же запросе
+        model.addAttribute("cartItemCount", navigationState.getCartCount());
+        model.addAttribute("cartTotal", navigationState.getCartTotal());
 
         return "client/cart/view";
     }
@@ -3,10 +3,15 @@ package com.example.landofchokolate.controller.client;
 import com.example.landofchokolate.dto.category.CategoryListPublicDto;
 import com.example.landofchokolate.dto.category.CategoryProductDto;
 import com.example.landofchokolate.dto.category.CategoryPublicDto;
+import com.example.landofchokolate.enums.CachedFragment;
+import com.example.landofchokolate.enums.ValidatedPage;
 import com.example.landofchokolate.exception.CategoryNotFoundException;
 import com.example.landofchokolate.model.Category;
 import com.example.landofchokolate.model.Product;
 import com.example.landofchokolate.service.CategoryService;
+import com.example.landofchokolate.service.ConditionalGetService;
+import com.example.landofchokolate.service.HtmlFragmentCacheService;
+import com.example.landofchokolate.service.ProductCacheTags;
 import com.example.landofchokolate.service.ProductService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,6 +22,9 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Map;
 
 @Controller
 @RequiredArgsConstructor
@@ -25,12 +33,19 @@ import org.springframework.web.bind.annotation.RequestParam;
 public class ClientCategoryController {
     private final CategoryService categoryService;
     private final ProductService productService;
+    private final HtmlFragmentCacheService htmlFragmentCacheService;
+    private final ConditionalGetService conditionalGetService;
 
 
     @GetMapping()
     public String categoriesList(@RequestParam(defaultValue = "0") int page,
                                  @RequestParam(defaultValue = "6") int size,
-                                 Model model) {
+                                 Model model,
+                                 WebRequest webRequest) {
+
+        if (conditionalGetService.isNotModified(webRequest, ValidatedPage.CATEGORY_LIST, page + "_" + size)) {
+            return null;
+        }
 
         CategoryListPublicDto categoryList = categoryService.getPublicCategories(page, size);
         model.addAttribute("categoryList", categoryList);
@@ -42,18 +57,32 @@ public class ClientCategoryController {
     public String categoryProducts(@PathVariable String categorySlug,
                                    @RequestParam(defaultValue = "0") int page,
                                    @RequestParam(defaultValue = "12") int size,
-                                   Model model) {
+                                   @RequestParam(required = false) Long after,
+                                   Model model,
+                                   WebRequest webRequest) {
 
         Category category = categoryService.findBySlug(categorySlug);
         if (category == null) {
             throw new CategoryNotFoundException("Category not found: " + categorySlug);
         }
 
+        String categoryScope = ProductCacheTags.category(category.getId());
+        if (conditionalGetService.isNotModified(webRequest, ValidatedPage.CATEGORY_PRODUCTS,
+                category.getId() + "_" + page + "_" + size + "_" + after,
+                category.getUpdatedAt(), categoryScope)) {
+            return null;
+        }
+
 
-        Page<CategoryProductDto> productPage = productService.getProductCardsByCategoryPage(category.getId(), page, size);
+        // Версия снимается до загрузки товаров — иначе HTML из старых данных мог бы лечь под новую версию
+        String productsVersion = htmlFragmentCacheService.versionStamp(CachedFragment.CATEGORY_PRODUCTS, categoryScope);
+        Page<CategoryProductDto> productPage = productService.getProductCardsByCategoryPage(category.getId(), page, size, after);
 
         model.addAttribute("category", category);
         model.addAttribute("products", productPage.getContent());
+        model.addAttribute("productsHtml", htmlFragmentCacheService.render(CachedFragment.CATEGORY_PRODUCTS,
+                category.getId() + "_" + page + "_" + size + "_" + after, productsVersion,
+                () -> Map.of("products", productPage.getContent())));
         model.addAttribute("currentPage", page);
         model.addAttribute("totalPages", productPage.getTotalPages());
 
@@ -5,9 +5,16 @@ import com.example.landofchokolate.dto.brend.BrandProjection;
 import com.example.landofchokolate.dto.brend.BrandResponseDto;
 import com.example.landofchokolate.dto.category.CategoryResponseDto;
 import com.example.landofchokolate.dto.product.*;
+import com.example.landofchokolate.enums.CachedFragment;
+import com.example.landofchokolate.enums.ProductCountMode;
+import com.example.landofchokolate.enums.ValidatedPage;
 import com.example.landofchokolate.service.BrandService;
 import com.example.landofchokolate.service.CategoryService;
 import com.example.landofchokolate.service.ClientProductService;
+import com.example.landofchokolate.service.ConditionalGetService;
+import com.example.landofchokolate.service.HtmlFragmentCacheService;
+import com.example.landofchokolate.service.ProductCacheTags;
+import com.example.landofchokolate.service.ProductClickCounterService;
 import com.example.landofchokolate.service.ProductService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,10 +27,13 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
 
 import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @Slf4j
@@ -34,6 +44,9 @@ public class ClientProductController {
     private final CategoryService categoryService;
     private final BrandService brandService;
     private final ProductService productService;
+    private final ProductClickCounterService productClickCounterService;
+    private final HtmlFragmentCacheService htmlFragmentCacheService;
+    private final ConditionalGetService conditionalGetService;
 
 
 
@@ -49,6 +62,8 @@ public class ClientProductController {
             @RequestParam(required = false) Long category,
             @RequestParam(required = false) Long brand,
             @RequestParam(required = false) String stockStatus,
+            // Курсор следующей страницы — вместо OFFSET
+            @RequestParam(required = false) String cursor,
             Model model) {
 
         // Создаем объект сортировки
@@ -71,8 +86,11 @@ public class ClientProductController {
 
         try {
             // Получаем данные через сервис с фильтрами
-            ProductListResponseDto response = clientProductService.getAllProductsWithFilters(
-                    pageable, searchName, minPrice, maxPrice, category, brand, stockStatus);
+            ProductListResponseDto response = (cursor != null && !cursor.isBlank())
+                    ? clientProductService.getProductsByCursor(cursor, page, sortBy, sortDirection,
+                            searchName, minPrice, maxPrice, category, brand, stockStatus, ProductCountMode.APPROXIMATE)
+                    : clientProductService.getAllProductsWithFilters(
+                            pageable, searchName, minPrice, maxPrice, category, brand, stockStatus);
 
             // Загружаем данные для фильтров
             List<CategoryResponseDto> categories = categoryService.getAllCategories();
@@ -115,6 +133,7 @@ public class ClientProductController {
         model.addAttribute("nextPage", response.getNextPage());
         model.addAttribute("previousPage", response.getPreviousPage());
         model.addAttribute("pageNumbers", response.getPageNumbers());
+        model.addAttribute("nextCursor", response.getNextCursor());
 
         // Данные для фильтров
         model.addAttribute("categories", categories);
@@ -190,15 +209,48 @@ public class ClientProductController {
 
 
 
+    /**
+     * Бесконечная прокрутка каталога: следующая порция по курсору, без COUNT
+     */
+    @GetMapping("/all/scroll")
+    @ResponseBody
+    public ProductListResponseDto scrollProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "price") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDirection,
+            @RequestParam(required = false) String searchName,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Long category,
+            @RequestParam(required = false) Long brand,
+            @RequestParam(required = false) String stockStatus) {
+
+        return clientProductService.getProductsByCursor(cursor, 0, sortBy, sortDirection,
+                searchName, minPrice, maxPrice, category, brand, stockStatus, ProductCountMode.NONE);
+    }
+
     @GetMapping("/{slug}")
-    public String getProductDetail(@PathVariable String slug, Model model) {
+    public String getProductDetail(@PathVariable String slug, Model model, WebRequest webRequest) {
 
         ProductDetailDto product = productService.getProductBySlug(slug);
+        productClickCounterService.record(product.getId());
+
+        // Похожие товары — из той же категории: страница зависит от версий товара и его категории
+        String productScope = ProductCacheTags.product(product.getId());
+        String categoryScope = ProductCacheTags.category(product.getCategory() != null ? product.getCategory().getId() : null);
+
+        // Страница не менялась — 304 без похожих товаров и рендера
+        if (conditionalGetService.isNotModified(webRequest, ValidatedPage.PRODUCT_DETAIL, slug,
+                product.getUpdatedAt(), productScope, categoryScope)) {
+            return null;
+        }
+
         model.addAttribute("product", product);
 
         ///похожие товары
-        List<RelatedProductDto> relatedProducts = productService.getRelatedProducts(slug, 8);
-        model.addAttribute("relatedProducts", relatedProducts);
+        model.addAttribute("relatedProductsHtml", htmlFragmentCacheService.render(CachedFragment.RELATED_PRODUCTS, slug,
+                htmlFragmentCacheService.versionStamp(CachedFragment.RELATED_PRODUCTS, categoryScope),
+                () -> Map.of("relatedProducts", productService.getRelatedProducts(slug, 8))));
         model.addAttribute("baseUrl", "https://landofchokolate.onrender.com");
 
 
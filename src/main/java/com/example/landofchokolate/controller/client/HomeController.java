@@ -1,10 +1,8 @@
 package com.example.landofchokolate.controller.client;
-import com.example.landofchokolate.dto.brend.BrandClientDto;
-import com.example.landofchokolate.dto.category.CategoryPublicDto;
-import com.example.landofchokolate.dto.product.ProductListRecommendationDto;
-import com.example.landofchokolate.dto.storeReview.StoreReviewResponseDTO;
+import com.example.landofchokolate.enums.CachedFragment;
 import com.example.landofchokolate.service.BrandService;
 import com.example.landofchokolate.service.CategoryService;
+import com.example.landofchokolate.service.HtmlFragmentCacheService;
 import com.example.landofchokolate.service.ProductService;
 import com.example.landofchokolate.service.StoreReviewService;
 import lombok.RequiredArgsConstructor;
@@ -12,7 +10,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 
-import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequiredArgsConstructor
@@ -21,27 +19,32 @@ public class HomeController {
     private final BrandService brandService;
     private final ProductService productService;
     private final StoreReviewService storeReviewService;
+    private final HtmlFragmentCacheService htmlFragmentCacheService;
 
     @GetMapping
     public String home(Model model) {
         final int BRANDS_LIMIT = 12;
         final int CATEGORIES_LIMIT = 12;
-
-
-        List<BrandClientDto> topBrands = brandService.getBrandByLimit(BRANDS_LIMIT);
-        model.addAttribute("brands", topBrands);
-
-
-        List<CategoryPublicDto> topCategories = categoryService.getTopCategories(CATEGORIES_LIMIT);
-        model.addAttribute("topCategories", topCategories);
-
-        List<ProductListRecommendationDto> recommendations =
-                productService.getProductListRecommendations( 50);
-        model.addAttribute("recommendations", recommendations);
-
-        // Получить последние 3 отзыва
-        List<StoreReviewResponseDTO> latestReviews = storeReviewService.getLatestReviews(3);
-        model.addAttribute("latestReviews", latestReviews);
+        final int RECOMMENDATIONS_LIMIT = 50;
+        final int REVIEWS_LIMIT = 3;
+
+        // Секции главной — готовый HTML из кеша фрагментов; данные загружаются только при промахе
+        model.addAttribute("brandsHtml", htmlFragmentCacheService.render(CachedFragment.HOME_BRANDS,
+                "limit_" + BRANDS_LIMIT,
+                () -> Map.of("brands", brandService.getBrandByLimit(BRANDS_LIMIT))));
+
+        model.addAttribute("topCategoriesHtml", htmlFragmentCacheService.render(CachedFragment.HOME_TOP_CATEGORIES,
+                "limit_" + CATEGORIES_LIMIT,
+                () -> Map.of("topCategories", categoryService.getTopCategories(CATEGORIES_LIMIT))));
+
+        model.addAttribute("recommendationsHtml", htmlFragmentCacheService.render(CachedFragment.HOME_RECOMMENDATIONS,
+                "limit_" + RECOMMENDATIONS_LIMIT,
+                () -> Map.of("recommendations", productService.getProductListRecommendations(RECOMMENDATIONS_LIMIT))));
+
+        // Последние 3 отзыва
+        model.addAttribute("latestReviewsHtml", htmlFragmentCacheService.render(CachedFragment.HOME_REVIEWS,
+                "limit_" + REVIEWS_LIMIT,
+                () -> Map.of("latestReviews", storeReviewService.getLatestReviews(REVIEWS_LIMIT))));
 
 
         return "homePage";
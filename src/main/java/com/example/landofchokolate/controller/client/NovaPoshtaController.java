@@ -1,7 +1,7 @@
 package com.example.landofchokolate.controller.client;
 
 import com.example.landofchokolate.dto.novaposhta.City;
-import com.example.landofchokolate.dto.novaposhta.Department;
+import com.example.landofchokolate.dto.novaposhta.DepartmentSummary;
 import com.example.landofchokolate.service.PoshtaService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,6 +20,8 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "*")
 public class NovaPoshtaController {
 
+    private static final int SEARCH_LIMIT = 50;
+
     private final PoshtaService poshtaService;
 
 
@@ -106,7 +108,7 @@ public class NovaPoshtaController {
         }
 
         try {
-            List<Department> departments = poshtaService.getDepartments(cityRef);
+            List<DepartmentSummary> departments = poshtaService.getDepartments(cityRef);
 
             if (departments == null || departments.isEmpty()) {
                 log.warn("API: No departments found for city: {}", cityRef);
@@ -199,12 +201,7 @@ public class NovaPoshtaController {
         }
 
         try {
-            List<City> cities = poshtaService.getCities();
-
-            City foundCity = cities.stream()
-                    .filter(city -> cityRef.equals(city.getRef()))
-                    .findFirst()
-                    .orElse(null);
+            City foundCity = poshtaService.findCityByRef(cityRef).orElse(null);
 
             if (foundCity != null) {
                 response.put("success", true);
@@ -266,16 +263,8 @@ public class NovaPoshtaController {
                 response.put("count", 0);
                 return ResponseEntity.badRequest().body(response);
             } else {
-                // Фильтруем по запросу
-                String searchQuery = query.trim().toLowerCase();
-                filteredCities = allCities.stream()
-                        .filter(city ->
-                                city.getDescription().toLowerCase().contains(searchQuery) ||
-                                        (city.getDescriptionRu() != null &&
-                                                city.getDescriptionRu().toLowerCase().contains(searchQuery))
-                        )
-                        .limit(50) // Ограничиваем результат
-                        .toList();
+                // Поиск по индексу, ограничиваем результат
+                filteredCities = poshtaService.searchCities(query.trim(), SEARCH_LIMIT);
             }
 
             response.put("success", true);
@@ -329,14 +318,7 @@ public class NovaPoshtaController {
                 return ResponseEntity.ok(allCities);
             }
 
-            String searchQuery = query.trim().toLowerCase();
-            List<City> filteredCities = allCities.stream()
-                    .filter(city ->
-                            city.getDescription().toLowerCase().contains(searchQuery) ||
-                                    (city.getDescriptionRu() != null && city.getDescriptionRu().toLowerCase().contains(searchQuery))
-                    )
-                    .limit(50)
-                    .toList();
+            List<City> filteredCities = poshtaService.searchCities(query.trim(), SEARCH_LIMIT);
 
             return ResponseEntity.ok(filteredCities);
 
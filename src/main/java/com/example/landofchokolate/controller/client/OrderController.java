@@ -48,6 +48,13 @@ public class OrderController {
 
         model.addAttribute("orderRequest", new CreateOrderRequest());
 
+        // 🔒 Держим товары корзины, пока покупатель заполняет форму
+        try {
+            orderService.reserveStockForCheckout(session);
+        } catch (Exception e) {
+            log.warn("Failed to reserve stock for checkout: {}", e.getMessage());
+        }
+
         return "client/order/form";
     }
 
@@ -73,10 +80,9 @@ public class OrderController {
                     redirectAttributes.addFlashAttribute("successMessage",
                             "Заказ успешно создан! Номер для отслеживания Nova Poshta: " + createdOrder.getTrackingNumber());
                 } else {
+                    // Накладная создаётся в фоне (outbox) — номер появится на странице заказа
                     redirectAttributes.addFlashAttribute("successMessage",
-                            "Заказ успешно создан! Накладная Nova Poshta будет создана позже.");
-                    redirectAttributes.addFlashAttribute("warningMessage",
-                            "Не удалось создать накладную Nova Poshta автоматически. Свяжитесь с нами для уточнения.");
+                            "Заказ успешно создан! Накладная Nova Poshta будет создана в течение нескольких минут.");
                 }
             } else {
                 redirectAttributes.addFlashAttribute("successMessage", "Заказ успешно создан!");
@@ -1,13 +1,16 @@
 package com.example.landofchokolate.controller.client;
 
 import com.example.landofchokolate.dto.product.ProductListDto;
+import com.example.landofchokolate.dto.search.SearchSuggestionDto;
 import com.example.landofchokolate.service.ProductService;
+import com.example.landofchokolate.service.search.SearchSuggestionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 import java.util.List;
 
@@ -16,6 +19,7 @@ import java.util.List;
 @RequestMapping("/search")
 public class SearchPageController {
     private final ProductService productService;
+    private final SearchSuggestionService searchSuggestionService;
 
     @GetMapping
     public String searchPage(Model model,
@@ -30,4 +34,14 @@ public class SearchPageController {
         return "client/search/index";
     }
 
+    /**
+     * Подсказки при вводе: товары, бренды и категории из индекса в памяти
+     */
+    @GetMapping("/suggest")
+    @ResponseBody
+    public List<SearchSuggestionDto> suggest(@RequestParam(name = "q", defaultValue = "") String query,
+                                             @RequestParam(defaultValue = "8") int limit) {
+        return searchSuggestionService.suggest(query, limit);
+    }
+
 }
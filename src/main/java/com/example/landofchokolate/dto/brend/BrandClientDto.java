@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -16,4 +18,5 @@ public class BrandClientDto {
     private String slug;                // 6-й параметр
     private String metaTitle;           // 7-й параметр
     private String metaDescription;     // 8-й параметр
+    private LocalDateTime updatedAt;    // 9-й параметр — для ETag / Last-Modified страницы бренда
 }
@@ -0,0 +1,177 @@
+package com.example.landofchokolate.dto.card;
+
+import com.example.landofchokolate.model.Cart;
+import com.example.landofchokolate.model.CartItem;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 🛒 Компактный снимок корзины для HttpSession.
+ *
+ * Вместо управляемой сущности Cart с CartItem и прокси Product в сессии лежат только
+ * UUID, примитивные массивы (id товара, количество, цена в копейках) и отметка версии.
+ * Снимок неизменяемый: каждое изменение корзины кладёт в сессию новый объект.
+ */
+public final class CartSnapshot implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final long[] NO_LONGS = new long[0];
+    private static final int[] NO_INTS = new int[0];
+    private static final CartSnapshot EMPTY = new CartSnapshot("", NO_LONGS, NO_INTS, NO_LONGS, 0L, 0L);
+
+    private final String cartUuid;
+    private final long[] productIds;
+    private final int[] quantities;
+    private final long[] pricesInCents;
+    // updatedAt корзины в миллисекундах — меняется при каждом сохранении
+    private final long version;
+    // 0 — без срока
+    private final long expiresAtMillis;
+
+    private CartSnapshot(String cartUuid, long[] productIds, int[] quantities, long[] pricesInCents,
+                         long version, long expiresAtMillis) {
+        this.cartUuid = cartUuid;
+        this.productIds = productIds;
+        this.quantities = quantities;
+        this.pricesInCents = pricesInCents;
+        this.version = version;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public static CartSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Снимок сохранённой корзины. У прокси Product читается только id — загрузки товара нет
+     */
+    public static CartSnapshot of(Cart cart) {
+        List<CartItem> items = cart.getItems() != null ? cart.getItems() : List.of();
+        long[] ids = new long[items.size()];
+        int[] qty = new int[items.size()];
+        long[] prices = new long[items.size()];
+
+        int size = 0;
+        for (CartItem item : items) {
+            if (item.getProduct() == null || item.getProduct().getId() == null) {
+                continue;
+            }
+            ids[size] = item.getProduct().getId();
+            qty[size] = item.getQuantity() != null ? item.getQuantity() : 0;
+            prices[size] = toCents(item.getPriceAtTime());
+            size++;
+        }
+
+        return new CartSnapshot(
+                cart.getCartUuid() != null ? cart.getCartUuid() : "",
+                size == ids.length ? ids : Arrays.copyOf(ids, size),
+                size == qty.length ? qty : Arrays.copyOf(qty, size),
+                size == prices.length ? prices : Arrays.copyOf(prices, size),
+                toMillis(cart.getUpdatedAt()),
+                toMillis(cart.getExpiresAt()));
+    }
+
+    public String getCartUuid() {
+        return cartUuid;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isPersisted() {
+        return !cartUuid.isEmpty();
+    }
+
+    public boolean isExpired() {
+        return expiresAtMillis > 0 && System.currentTimeMillis() > expiresAtMillis;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return version > 0 ? toDateTime(version) : null;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAtMillis > 0 ? toDateTime(expiresAtMillis) : null;
+    }
+
+    public int size() {
+        return productIds.length;
+    }
+
+    public boolean isEmpty() {
+        return productIds.length == 0;
+    }
+
+    public long productIdAt(int index) {
+        return productIds[index];
+    }
+
+    public int quantityAt(int index) {
+        return quantities[index];
+    }
+
+    public BigDecimal priceAt(int index) {
+        return BigDecimal.valueOf(pricesInCents[index], 2);
+    }
+
+    public int getTotalQuantity() {
+        int total = 0;
+        for (int quantity : quantities) {
+            total += quantity;
+        }
+        return total;
+    }
+
+    public BigDecimal getTotalPrice() {
+        long totalCents = 0;
+        for (int i = 0; i < pricesInCents.length; i++) {
+            totalCents += pricesInCents[i] * quantities[i];
+        }
+        return BigDecimal.valueOf(totalCents, 2);
+    }
+
+    /**
+     * id товара → количество, в порядке позиций корзины
+     */
+    public Map<Long, Integer> getQuantities() {
+        Map<Long, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < productIds.length; i++) {
+            result.merge(productIds[i], quantities[i], Integer::sum);
+        }
+        return result;
+    }
+
+    public List<Long> getProductIds() {
+        return Arrays.stream(productIds).boxed().toList();
+    }
+
+    private static long toCents(BigDecimal price) {
+        return price != null ? price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue() : 0L;
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    @Override
+    public String toString() {
+        return "CartSnapshot{uuid='" + cartUuid + "', items=" + productIds.length + ", version=" + version + "}";
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.landofchokolate.dto.card;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Счётчики корзины для шапки сайта: количество товаров и сумма, посчитанные за один проход
+ */
+@Getter
+@AllArgsConstructor
+public class CartSummary {
+    private final int itemCount;
+    private final BigDecimal total;
+
+    public static CartSummary empty() {
+        return new CartSummary(0, BigDecimal.ZERO);
+    }
+}
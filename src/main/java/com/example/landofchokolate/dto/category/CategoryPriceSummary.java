@@ -0,0 +1,39 @@
+package com.example.landofchokolate.dto.category;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Сводка цен категории: минимальная и максимальная цена и количество товаров с ценой.
+ * Неизменяемая — кеш заменяет её целиком
+ */
+@Getter
+@AllArgsConstructor
+public class CategoryPriceSummary {
+    private final Long categoryId;
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+    private final Long productCount;
+
+    /**
+     * Категория без товаров с ценой — тоже кешируется, чтобы не спрашивать БД повторно
+     */
+    public static CategoryPriceSummary empty(Long categoryId) {
+        return new CategoryPriceSummary(categoryId, null, null, 0L);
+    }
+
+    /**
+     * Сводка с ещё одним товаром — без обращения к БД
+     */
+    public CategoryPriceSummary plus(BigDecimal price) {
+        if (price == null || price.signum() <= 0) {
+            return this;
+        }
+        return new CategoryPriceSummary(categoryId,
+                minPrice == null || price.compareTo(minPrice) < 0 ? price : minPrice,
+                maxPrice == null || price.compareTo(maxPrice) > 0 ? price : maxPrice,
+                productCount + 1);
+    }
+}
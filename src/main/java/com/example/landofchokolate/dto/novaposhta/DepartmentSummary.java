@@ -0,0 +1,36 @@
+package com.example.landofchokolate.dto.novaposhta;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Отделение Новой Почты — только поля, которые нужны форме чекаута.
+ * Остальные ~40 полей ответа getWarehouses пропускаются ещё при разборе JSON,
+ * поэтому в кэше и в снимке на диске лежат маленькие объекты.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class DepartmentSummary {
+    @JsonProperty("Ref")
+    private String ref;
+
+    @JsonProperty("Number")
+    private String number;
+
+    @JsonProperty("Description")
+    private String description;
+
+    @JsonProperty("ShortAddress")
+    private String shortAddress;
+
+    @JsonProperty("CityRef")
+    private String cityRef;
+
+    @JsonProperty("TypeOfWarehouse")
+    private String typeOfWarehouse;
+}
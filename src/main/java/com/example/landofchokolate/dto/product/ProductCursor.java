@@ -0,0 +1,63 @@
+package com.example.landofchokolate.dto.product;
+
+import com.example.landofchokolate.enums.ProductSortKey;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * 🔖 Позиция в каталоге: ключ и направление сортировки, значение ключа и id последнего показанного товара.
+ * В URL передаётся как непрозрачная base64url-строка
+ */
+@Getter
+@AllArgsConstructor
+public final class ProductCursor {
+
+    private final ProductSortKey sortKey;
+    private final boolean descending;
+    private final Object lastValue;
+    private final Long lastId;
+
+    public static ProductCursor after(ProductSortKey sortKey, boolean descending, ProductListDto last) {
+        Object value = switch (sortKey) {
+            case PRICE -> last.getPrice() != null ? last.getPrice() : BigDecimal.ZERO;
+            case NAME -> last.getName() != null ? last.getName() : "";
+            case STOCK_QUANTITY -> last.getStockQuantity();
+        };
+        return new ProductCursor(sortKey, descending, value, last.getId());
+    }
+
+    public String encode() {
+        String raw = sortKey.name() + '|' + (descending ? 'd' : 'a') + '|' + lastId + '|' + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Пустой Optional для битого или подделанного курсора — листаем с начала
+     */
+    public static Optional<ProductCursor> decode(String encoded) {
+        if (encoded == null || encoded.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            // Значение последним: в названии товара может встретиться '|'
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4) {
+                return Optional.empty();
+            }
+            ProductSortKey key = ProductSortKey.valueOf(parts[0]);
+            return Optional.of(new ProductCursor(key, "d".equals(parts[1]), key.parseValue(parts[3]), Long.valueOf(parts[2])));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    public boolean matches(ProductSortKey sortKey, boolean descending) {
+        return this.sortKey == sortKey && this.descending == descending;
+    }
+}
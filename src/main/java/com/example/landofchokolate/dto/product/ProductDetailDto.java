@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -28,6 +29,7 @@ public class ProductDetailDto {
     private String metaDescription;
     private String description;
     private PriceUnit priceUnit ;
+    private LocalDateTime updatedAt;    // для ETag / Last-Modified страницы
 
     // Связанные сущности
     private CategoryInfo category;
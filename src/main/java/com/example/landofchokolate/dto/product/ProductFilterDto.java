@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 
 @Data
@@ -20,6 +21,9 @@ public class ProductFilterDto {
     private Long brandId;
     private String stockStatus;
 
+    // id товаров, найденных поисковым индексом по searchName (null — поиск не применялся)
+    private List<Long> productIds;
+
     // Вспомогательные методы для проверки
     public boolean hasSearchName() {
         return searchName != null && !searchName.trim().isEmpty();
@@ -41,7 +45,11 @@ public class ProductFilterDto {
         return stockStatus != null && !stockStatus.trim().isEmpty();
     }
 
+    public boolean hasProductIds() {
+        return productIds != null;
+    }
+
     public boolean hasAnyFilter() {
-        return hasSearchName() || hasPriceRange() || hasCategory() || hasBrand() || hasStockStatus();
+        return hasSearchName() || hasPriceRange() || hasCategory() || hasBrand() || hasStockStatus() || hasProductIds();
     }
 }
\ No newline at end of file
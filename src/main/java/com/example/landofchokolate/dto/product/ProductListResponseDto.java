@@ -23,4 +23,8 @@ public class ProductListResponseDto {
     private Integer nextPage;          // Номер следующей страницы (если есть)
     private Integer previousPage;      // Номер предыдущей страницы (если есть)
     private List<Integer> pageNumbers; // Список номеров страниц для отображения
+
+    // Курсорная пагинация
+    private String nextCursor;         // Курсор следующей страницы (если есть)
+    private Boolean approximateCount;  // totalCount взят из кеша и может немного отставать
 }
\ No newline at end of file
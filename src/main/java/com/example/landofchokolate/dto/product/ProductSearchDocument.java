@@ -0,0 +1,18 @@
+package com.example.landofchokolate.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Текстовые поля товара для поискового индекса — читаются проекцией, без сущности и изображений
+ */
+@Getter
+@AllArgsConstructor
+public class ProductSearchDocument {
+    private Long id;
+    private String name;
+    private String brandName;
+    private String categoryName;
+    private String description;
+    private String seoKeywords;
+}
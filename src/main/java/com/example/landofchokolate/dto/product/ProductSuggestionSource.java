@@ -0,0 +1,22 @@
+package com.example.landofchokolate.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Строка для индекса подсказок: товар с кликами, его бренд и категория
+ */
+@Getter
+@AllArgsConstructor
+public class ProductSuggestionSource {
+    private Long id;
+    private String name;
+    private String slug;
+    private Integer clickCount;
+    private Long brandId;
+    private String brandName;
+    private String brandSlug;
+    private Long categoryId;
+    private String categoryName;
+    private String categorySlug;
+}
@@ -0,0 +1,16 @@
+package com.example.landofchokolate.dto.search;
+
+import com.example.landofchokolate.enums.SuggestionType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Подсказка поиска: что показать, куда вести и чем она является
+ */
+@Getter
+@AllArgsConstructor
+public class SearchSuggestionDto {
+    private String text;
+    private SuggestionType type;
+    private String url;
+}
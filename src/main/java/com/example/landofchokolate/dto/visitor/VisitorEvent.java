@@ -0,0 +1,21 @@
+package com.example.landofchokolate.dto.visitor;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 📥 Сырое событие посещения, снятое с запроса в потоке Tomcat.
+ * Только то, что нельзя достать после завершения запроса — обогащение делается в фоне.
+ */
+@Getter
+@AllArgsConstructor
+public class VisitorEvent {
+    private final String ipAddress;
+    private final String userAgent;
+    private final String requestedUrl;
+    private final String refererUrl;
+    private final String sessionId;
+    private final LocalDateTime visitTime;
+}
@@ -0,0 +1,105 @@
+package com.example.landofchokolate.dto.wishlis;
+
+import com.example.landofchokolate.model.Wishlist;
+import com.example.landofchokolate.model.WishlistItem;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ❤️ Компактный снимок избранного для HttpSession: UUID, id товаров и отметка версии
+ * вместо сущности Wishlist с WishlistItem и прокси Product. Неизменяемый.
+ */
+public final class WishlistSnapshot implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final WishlistSnapshot EMPTY = new WishlistSnapshot("", new long[0], 0L, 0L);
+
+    private final String wishlistUuid;
+    // В порядке добавления
+    private final long[] productIds;
+    // updatedAt избранного в миллисекундах
+    private final long version;
+    // 0 — без срока
+    private final long expiresAtMillis;
+
+    private WishlistSnapshot(String wishlistUuid, long[] productIds, long version, long expiresAtMillis) {
+        this.wishlistUuid = wishlistUuid;
+        this.productIds = productIds;
+        this.version = version;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public static WishlistSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Снимок избранного. У прокси Product читается только id — загрузки товара нет
+     */
+    public static WishlistSnapshot of(Wishlist wishlist) {
+        List<WishlistItem> items = wishlist.getItems() != null ? wishlist.getItems() : List.of();
+        long[] ids = items.stream()
+                .filter(item -> item.getProduct() != null && item.getProduct().getId() != null)
+                .mapToLong(item -> item.getProduct().getId())
+                .toArray();
+
+        return new WishlistSnapshot(
+                wishlist.getWishlistUuid() != null ? wishlist.getWishlistUuid() : "",
+                ids,
+                toMillis(wishlist.getUpdatedAt()),
+                toMillis(wishlist.getExpiresAt()));
+    }
+
+    public String getWishlistUuid() {
+        return wishlistUuid;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isPersisted() {
+        return !wishlistUuid.isEmpty() && !wishlistUuid.startsWith("temp-");
+    }
+
+    public boolean isExpired() {
+        return expiresAtMillis > 0 && System.currentTimeMillis() > expiresAtMillis;
+    }
+
+    public int size() {
+        return productIds.length;
+    }
+
+    public boolean isEmpty() {
+        return productIds.length == 0;
+    }
+
+    public boolean contains(long productId) {
+        for (long id : productIds) {
+            if (id == productId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<Long> getProductIds() {
+        return Arrays.stream(productIds).boxed().toList();
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+    }
+
+    @Override
+    public String toString() {
+        return "WishlistSnapshot{uuid='" + wishlistUuid + "', items=" + productIds.length + ", version=" + version + "}";
+    }
+}
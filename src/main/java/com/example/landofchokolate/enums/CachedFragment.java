@@ -0,0 +1,42 @@
+package com.example.landofchokolate.enums;
+
+import lombok.Getter;
+
+/**
+ * HTML-фрагменты, готовый результат рендера которых кешируется (HtmlFragmentCacheService).
+ *
+ * dependencies — имена кешей (или других источников в CacheDataVersions), из которых фрагмент берёт данные:
+ * сброс любого из них делает сохранённый HTML неактуальным. Фрагменты с товарами дополнительно зависят от версии
+ * своей категории / бренда (HtmlFragmentCacheService.versionStamp с областью), productData — только массовые изменения
+ */
+@Getter
+public enum CachedFragment {
+    HOME_TOP_CATEGORIES("Топ категорій на головній",
+            "admin/fragments/home-sections", "top-categories", "topCategories"),
+    HOME_RECOMMENDATIONS("Рекомендовані товари на головній",
+            "admin/fragments/home-sections", "recommendations", "homeRecommendations"),  // ProductRecommendationService.DATA_VERSION
+    HOME_BRANDS("Бренди на головній",
+            "admin/fragments/home-sections", "brands", "brandLimit"),
+    HOME_REVIEWS("Останні відгуки на головній",
+            "admin/fragments/home-sections", "latest-reviews", "storeReviewsMainPage"),
+    NAVIGATION_CATEGORIES("Меню категорій мобільної навігації",
+            "admin/fragments/mobile-bottom-nav", "mobile-categories-dropdown", "navigationCategories"),
+    CATEGORY_PRODUCTS("Сітка товарів категорії",
+            "admin/fragments/catalog-sections", "category-products", "productData"),  // ProductCacheTags.DATA_VERSION
+    BRAND_PRODUCTS("Сітка товарів бренду",
+            "admin/fragments/catalog-sections", "brand-products", "brandProducts"),
+    RELATED_PRODUCTS("Схожі товари на сторінці товару",
+            "admin/fragments/catalog-sections", "related-products", "productData");
+
+    private final String description;
+    private final String template;
+    private final String selector;
+    private final String[] dependencies;
+
+    CachedFragment(String description, String template, String selector, String... dependencies) {
+        this.description = description;
+        this.template = template;
+        this.selector = selector;
+        this.dependencies = dependencies;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.landofchokolate.enums;
+
+import lombok.Getter;
+
+/**
+ * Уровень использования памяти относительно порогов плана Render (RenderMemoryMonitoringService)
+ */
+@Getter
+public enum MemoryPressure {
+    NORMAL("Норма"),
+    WARNING("Попередження"),
+    CRITICAL("Критично");
+
+    private final String description;
+
+    MemoryPressure(String description) {
+        this.description = description;
+    }
+}
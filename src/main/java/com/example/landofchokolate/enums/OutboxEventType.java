@@ -0,0 +1,14 @@
+package com.example.landofchokolate.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum OutboxEventType {
+    NOVA_POSHTA_CREATE_TTN("Створення ТТН Нова Пошта");
+
+    private final String description;
+
+    OutboxEventType(String description) {
+        this.description = description;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.landofchokolate.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum OutboxStatus {
+    PENDING("Очікує обробки"),
+    PROCESSING("Обробляється"),
+    DONE("Виконано"),
+    FAILED("Помилка після всіх спроб");
+
+    private final String description;
+
+    OutboxStatus(String description) {
+        this.description = description;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.landofchokolate.enums;
+
+import lombok.Getter;
+
+/**
+ * Что делать, когда буфер фоновой обработки заполнен
+ */
+@Getter
+public enum OverflowPolicy {
+    DROP_NEWEST("Отбросить новое событие"),
+    DROP_OLDEST("Вытеснить самое старое событие"),
+    CALLER_RUNS("Обработать в потоке запроса");
+
+    private final String displayName;
+
+    OverflowPolicy(String displayName) {
+        this.displayName = displayName;
+    }
+}
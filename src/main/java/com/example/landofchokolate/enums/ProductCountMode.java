@@ -0,0 +1,19 @@
+package com.example.landofchokolate.enums;
+
+import lombok.Getter;
+
+/**
+ * Как считать общее количество товаров при курсорной пагинации
+ */
+@Getter
+public enum ProductCountMode {
+    EXACT("Точный COUNT на каждый запрос"),
+    APPROXIMATE("COUNT из кеша, пересчёт не чаще раза в несколько минут"),
+    NONE("Без COUNT — для бесконечной прокрутки");
+
+    private final String displayName;
+
+    ProductCountMode(String displayName) {
+        this.displayName = displayName;
+    }
+}
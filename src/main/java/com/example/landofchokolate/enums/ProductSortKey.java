@@ -0,0 +1,47 @@
+package com.example.landofchokolate.enums;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/**
+ * Поля, по которым каталог умеет листаться курсором.
+ * jpqlExpression не допускает NULL — иначе seek-условие (value, id) теряет строки
+ */
+@Getter
+public enum ProductSortKey {
+    PRICE("price", "COALESCE(p.price, 0)", "За ціною"),
+    NAME("name", "COALESCE(p.name, '')", "За назвою"),
+    STOCK_QUANTITY("stockQuantity", "p.stockQuantity", "За кількістю");
+
+    private final String property;
+    private final String jpqlExpression;
+    private final String displayName;
+
+    ProductSortKey(String property, String jpqlExpression, String displayName) {
+        this.property = property;
+        this.jpqlExpression = jpqlExpression;
+        this.displayName = displayName;
+    }
+
+    public static Optional<ProductSortKey> fromProperty(String property) {
+        for (ProductSortKey key : values()) {
+            if (key.property.equals(property)) {
+                return Optional.of(key);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Значение сортировки из курсора в тип, который ожидает JPQL-параметр
+     */
+    public Object parseValue(String raw) {
+        return switch (this) {
+            case PRICE -> new BigDecimal(raw);
+            case NAME -> raw;
+            case STOCK_QUANTITY -> Integer.valueOf(raw);
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.landofchokolate.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum SuggestionType {
+    PRODUCT("Товар"),
+    BRAND("Бренд"),
+    CATEGORY("Категорія");
+
+    private final String description;
+
+    SuggestionType(String description) {
+        this.description = description;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.landofchokolate.enums;
+
+import lombok.Getter;
+
+/**
+ * Страницы с условным GET (ETag / Last-Modified, ответ 304) — ConditionalGetService.
+ *
+ * dependencies — кеши, из которых собирается страница: сброс любого из них меняет ETag.
+ * Версии самого товара, категории или бренда страницы контроллер передаёт областью (scopes) —
+ * productData здесь меняется только при массовых изменениях каталога.
+ * personalized — в странице есть счётчики корзины и избранного посетителя, они тоже входят в ETag
+ */
+@Getter
+public enum ValidatedPage {
+    PRODUCT_DETAIL("Сторінка товару", true,
+            "productData", "navigationCategories"),  // ProductCacheTags.DATA_VERSION + product:{id}, category:{id}
+    CATEGORY_LIST("Список категорій", true,
+            "publicCategories", "navigationCategories"),
+    CATEGORY_PRODUCTS("Товари категорії", true,
+            "categoryBySlug", "productData", "navigationCategories"),  // + category:{id}
+    BRAND_LIST("Список брендів", true,
+            "allBrands", "navigationCategories"),
+    BRAND_DETAIL("Сторінка бренду", true,
+            "brandBySlug", "brandProducts", "navigationCategories"),  // + brand:{id}
+    SITEMAP("sitemap.xml", false,
+            "productData", "catalog", "allCategories", "publicCategories");  // ProductCacheTags.CATALOG
+
+    private final String description;
+    private final boolean personalized;
+    private final String[] dependencies;
+
+    ValidatedPage(String description, boolean personalized, String... dependencies) {
+        this.description = description;
+        this.personalized = personalized;
+        this.dependencies = dependencies;
+    }
+}
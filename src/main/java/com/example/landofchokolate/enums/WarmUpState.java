@@ -0,0 +1,20 @@
+package com.example.landofchokolate.enums;
+
+import lombok.Getter;
+
+/**
+ * Состояние задачи прогрева кешей при старте (CacheWarmUpService)
+ */
+@Getter
+public enum WarmUpState {
+    PENDING("Очікує"),
+    RUNNING("Виконується"),
+    DONE("Готово"),
+    FAILED("Помилка");
+
+    private final String description;
+
+    WarmUpState(String description) {
+        this.description = description;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.landofchokolate.exception;
+
+public class NovaPoshtaApiException extends RuntimeException {
+    public NovaPoshtaApiException(String message) {
+        super(message);
+    }
+
+    public NovaPoshtaApiException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.landofchokolate.exception;
+
+/**
+ * Nova Пошта ответила отказом (success=false, HTTP 4xx) или запрос не ушёл из-за неполных данных —
+ * операция точно не выполнена. Таймаут и обрыв связи — обычный {@link NovaPoshtaApiException}: результат неизвестен
+ */
+public class NovaPoshtaRejectedException extends NovaPoshtaApiException {
+    public NovaPoshtaRejectedException(String message) {
+        super(message);
+    }
+
+    public NovaPoshtaRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -76,7 +76,8 @@ public class BrandMapper {
                 brand.getImageUrl(),             // ✅ 5-й параметр
                 brand.getSlug(),                 // ✅ 6-й параметр
                 brand.getMetaTitle(),            // ✅ 7-й параметр
-                brand.getMetaDescription()       // ✅ 8-й параметр
+                brand.getMetaDescription(),      // ✅ 8-й параметр
+                brand.getUpdatedAt()             // ✅ 9-й параметр
         );
     }
 
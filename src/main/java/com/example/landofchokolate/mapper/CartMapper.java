@@ -2,6 +2,8 @@ package com.example.landofchokolate.mapper;
 
 import com.example.landofchokolate.dto.card.CartDto;
 import com.example.landofchokolate.dto.card.CartItemDto;
+import com.example.landofchokolate.dto.card.CartSnapshot;
+import com.example.landofchokolate.enums.CartStatus;
 import com.example.landofchokolate.model.Cart;
 import com.example.landofchokolate.model.CartItem;
 import com.example.landofchokolate.model.Product;
@@ -14,6 +16,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 @Slf4j
@@ -50,6 +53,39 @@ public class CartMapper {
         return dto;
     }
 
+    /**
+     * Преобразование снимка корзины из сессии в CartDto. products — товары снимка по id
+     */
+    public CartDto toDto(CartSnapshot snapshot, Map<Long, Product> products) {
+        if (snapshot == null) {
+            return createEmptyCartDto();
+        }
+
+        CartDto dto = new CartDto();
+        dto.setCartUuid(snapshot.getCartUuid());
+        dto.setStatus(CartStatus.ACTIVE);
+        dto.setUpdatedAt(snapshot.getUpdatedAt());
+        dto.setLastActivityAt(snapshot.getUpdatedAt());
+        dto.setExpiresAt(snapshot.getExpiresAt());
+
+        List<CartItemDto> itemDtos = new ArrayList<>(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            Product product = products.get(snapshot.productIdAt(i));
+            if (product == null) {
+                // Товар удалён из каталога — позицию не показываем
+                continue;
+            }
+            CartItemDto itemDto = new CartItemDto();
+            itemDto.setQuantity(snapshot.quantityAt(i));
+            itemDto.setPriceAtTime(snapshot.priceAt(i));
+            itemDto.setProduct(toProductInfo(product));
+            itemDtos.add(itemDto);
+        }
+        dto.setItems(itemDtos);
+
+        return dto;
+    }
+
     /**
      * Безопасное преобразование CartItem в CartItemDto
      */
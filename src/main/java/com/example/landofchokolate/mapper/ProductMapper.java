@@ -189,6 +189,7 @@ public class ProductMapper {
         dto.setDescription(product.getDescription());
         ///new
         dto.setPriceUnit(product.getPriceUnit());
+        dto.setUpdatedAt(product.getUpdatedAt());
 
         // Маппинг категории
         if (product.getCategory() != null) {
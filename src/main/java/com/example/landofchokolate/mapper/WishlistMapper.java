@@ -1,6 +1,7 @@
 package com.example.landofchokolate.mapper;
 import com.example.landofchokolate.dto.wishlis.WishlistDto;
 import com.example.landofchokolate.dto.wishlis.WishlistItemDto;
+import com.example.landofchokolate.dto.wishlis.WishlistSnapshot;
 import com.example.landofchokolate.model.Product;
 import com.example.landofchokolate.model.ProductImage;
 import com.example.landofchokolate.model.Wishlist;
@@ -13,6 +14,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -57,6 +59,35 @@ public class WishlistMapper {
         return dto;
     }
 
+    /**
+     * Преобразование снимка избранного из сессии в WishlistDto. products — товары снимка по id
+     */
+    public WishlistDto toDto(WishlistSnapshot snapshot, Map<Long, Product> products) {
+        if (snapshot == null) {
+            return createEmptyWishlistDto();
+        }
+
+        WishlistDto dto = new WishlistDto();
+        dto.setWishlistUuid(snapshot.getWishlistUuid());
+
+        List<WishlistItemDto> itemDtos = new ArrayList<>(snapshot.size());
+        for (Long productId : snapshot.getProductIds()) {
+            Product product = products.get(productId);
+            if (product == null) {
+                continue;
+            }
+            WishlistItemDto itemDto = new WishlistItemDto();
+            itemDto.setProduct(toProductInfo(product));
+            itemDtos.add(itemDto);
+        }
+        dto.setItems(itemDtos);
+        dto.setIsEmpty(itemDtos.isEmpty());
+        dto.setTotalItems(itemDtos.size());
+        calculateWishlistMetrics(dto, itemDtos);
+
+        return dto;
+    }
+
     /**
      * Вычисление метрик wishlist (availableItems, total)
      */
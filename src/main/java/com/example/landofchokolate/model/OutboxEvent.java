@@ -0,0 +1,62 @@
+package com.example.landofchokolate.model;
+
+import com.example.landofchokolate.enums.OutboxEventType;
+import com.example.landofchokolate.enums.OutboxStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 📮 Transactional outbox: внешний вызов, записанный в той же транзакции, что и заказ.
+ * Диспетчер выполняет его позже, с повторами; idempotencyKey уникален,
+ * поэтому одна и та же операция не может попасть в очередь дважды.
+ */
+@Entity
+@Table(name = "outbox_events",
+        uniqueConstraints = @UniqueConstraint(name = "uk_outbox_events_idempotency", columnNames = "idempotency_key"),
+        indexes = @Index(name = "idx_outbox_events_due", columnList = "status, next_attempt_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_type", nullable = false, length = 50)
+    @Enumerated(EnumType.STRING)
+    private OutboxEventType eventType;
+
+    // ID заказа (или другой сущности), к которой относится событие
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Column(name = "idempotency_key", nullable = false, length = 100)
+    private String idempotencyKey;
+
+    @Column(name = "status", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private OutboxStatus status;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    // Для PENDING — когда повторить, для PROCESSING — до какого момента событие занято обработчиком
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,47 @@
+package com.example.landofchokolate.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 🔒 Временное резервирование товара под корзину на оформлении заказа.
+ * Пока строка существует, количество уже вычтено из product.stock_quantity;
+ * по истечении expiresAt резерв снимается и остаток возвращается.
+ */
+@Entity
+@Table(name = "stock_reservations",
+        indexes = {
+                @Index(name = "idx_stock_reservations_holder", columnList = "holder_key"),
+                @Index(name = "idx_stock_reservations_expires", columnList = "expires_at")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Владелец резерва — ID сессии покупателя
+    @Column(name = "holder_key", nullable = false, length = 100)
+    private String holderKey;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
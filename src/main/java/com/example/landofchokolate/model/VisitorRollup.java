@@ -0,0 +1,74 @@
+package com.example.landofchokolate.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 📈 Агрегированные счётчики посещений по часам/дням.
+ * Обновляются при каждой записи пачки visitor_logs, поэтому дашборд
+ * читает O(дней) строк вместо сканирования сырого лога.
+ */
+@Entity
+@Table(name = "visitor_rollups",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_visitor_rollups_bucket",
+                columnNames = {"granularity", "bucket_start", "dimension", "dimension_value"}),
+        indexes = @Index(name = "idx_visitor_rollups_lookup", columnList = "granularity, dimension, bucket_start"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VisitorRollup {
+
+    /**
+     * Значение dimension_value для измерений без значения (TOTAL, MOBILE, BOT)
+     */
+    public static final String NO_VALUE = "";
+
+    /**
+     * Состояния служебной строки BACKFILL
+     */
+    public static final String BACKFILL_PENDING = "pending";
+    public static final String BACKFILL_DONE = "done";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "granularity", nullable = false, length = 10)
+    @Enumerated(EnumType.STRING)
+    private Granularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "dimension", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private Dimension dimension;
+
+    @Column(name = "dimension_value", nullable = false, length = 500)
+    private String dimensionValue;
+
+    @Column(name = "visit_count", nullable = false)
+    private Long visitCount;
+
+    public enum Granularity {
+        HOUR,
+        DAY
+    }
+
+    public enum Dimension {
+        TOTAL,
+        MOBILE,
+        BOT,
+        COUNTRY,
+        PAGE,
+        BROWSER,
+        BACKFILL    // служебная строка: граница и состояние свёртки истории
+    }
+}
@@ -32,4 +32,12 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
 
     Long countByCreatedAtAfter(LocalDateTime startOfDay);
+
+    /**
+     * Города получателей с наибольшим числом заказов (для предзагрузки отделений)
+     */
+    @Query("SELECT o.recipientCityRef FROM Order o " +
+            "WHERE o.recipientCityRef IS NOT NULL AND o.createdAt >= :since " +
+            "GROUP BY o.recipientCityRef ORDER BY COUNT(o) DESC")
+    List<String> findTopRecipientCityRefs(@Param("since") LocalDateTime since, Pageable pageable);
 }
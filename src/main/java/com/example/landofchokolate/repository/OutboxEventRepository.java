@@ -0,0 +1,12 @@
+package com.example.landofchokolate.repository;
+
+import com.example.landofchokolate.enums.OutboxStatus;
+import com.example.landofchokolate.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    long countByStatus(OutboxStatus status);
+}
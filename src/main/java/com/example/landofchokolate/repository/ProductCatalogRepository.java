@@ -0,0 +1,34 @@
+package com.example.landofchokolate.repository;
+
+import com.example.landofchokolate.dto.product.ProductCursor;
+import com.example.landofchokolate.dto.product.ProductFilterDto;
+import com.example.landofchokolate.dto.product.ProductListDto;
+import com.example.landofchokolate.enums.ProductSortKey;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * Чтение каталога с динамическими фильтрами: курсорное (keyset) и постраничное.
+ * Реализация — ProductCatalogRepositoryImpl, подключается к ProductRepository как фрагмент Spring Data
+ */
+public interface ProductCatalogRepository {
+
+    /**
+     * До limit товаров после позиции курсора (или с начала, если cursor == null).
+     * Вместо OFFSET — условие (sortKey, id) > (lastValue, lastId), COUNT не выполняется
+     */
+    List<ProductListDto> findCatalogAfter(ProductFilterDto filters, ProductSortKey sortKey, boolean descending,
+                                          ProductCursor cursor, int limit);
+
+    /**
+     * Обычная страница (LIMIT/OFFSET + COUNT) с теми же фильтрами, включая productIds из поискового индекса
+     */
+    Page<ProductListDto> findCatalogPage(ProductFilterDto filters, Pageable pageable);
+
+    /**
+     * Количество товаров под фильтрами — отдельно, чтобы вызывающий решал, нужен ли COUNT
+     */
+    long countCatalog(ProductFilterDto filters);
+}
@@ -0,0 +1,148 @@
+package com.example.landofchokolate.repository;
+
+import com.example.landofchokolate.dto.product.ProductCursor;
+import com.example.landofchokolate.dto.product.ProductFilterDto;
+import com.example.landofchokolate.dto.product.ProductListDto;
+import com.example.landofchokolate.enums.ProductSortKey;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JPQL собирается из тех фильтров, что реально заданы — без "(:x IS NULL OR ...)",
+ * чтобы планировщик видел простые условия и мог идти по индексу сортировки
+ */
+public class ProductCatalogRepositoryImpl implements ProductCatalogRepository {
+
+    private static final String SELECT_LIST_DTO = "SELECT new com.example.landofchokolate.dto.product.ProductListDto(" +
+            "p.id, p.name, p.price, p.stockQuantity, " +
+            "(SELECT img.imageUrl FROM ProductImage img WHERE img.product = p AND img.isMain = true), " +
+            "p.slug, c.name, b.name, " +
+            "CASE WHEN p.stockQuantity > 0 THEN true ELSE false END, " +
+            "CASE WHEN p.stockQuantity > 0 AND p.stockQuantity <= 10 THEN true ELSE false END) " +
+            "FROM Product p " +
+            "LEFT JOIN p.category c " +
+            "LEFT JOIN p.brand b ";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductListDto> findCatalogAfter(ProductFilterDto filters, ProductSortKey sortKey, boolean descending,
+                                                 ProductCursor cursor, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        StringBuilder jpql = new StringBuilder(SELECT_LIST_DTO).append("WHERE 1 = 1");
+        appendFilters(jpql, params, filters);
+
+        String key = sortKey.getJpqlExpression();
+        String direction = descending ? "DESC" : "ASC";
+        if (cursor != null) {
+            // Seek: строки строго после (lastValue, lastId) в порядке сортировки
+            String cmp = descending ? "<" : ">";
+            jpql.append(" AND (").append(key).append(' ').append(cmp).append(" :lastValue")
+                    .append(" OR (").append(key).append(" = :lastValue AND p.id ").append(cmp).append(" :lastId))");
+            params.put("lastValue", cursor.getLastValue());
+            params.put("lastId", cursor.getLastId());
+        }
+        jpql.append(" ORDER BY ").append(key).append(' ').append(direction).append(", p.id ").append(direction);
+
+        TypedQuery<ProductListDto> query = entityManager.createQuery(jpql.toString(), ProductListDto.class);
+        params.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Page<ProductListDto> findCatalogPage(ProductFilterDto filters, Pageable pageable) {
+        Map<String, Object> params = new HashMap<>();
+        StringBuilder jpql = new StringBuilder(SELECT_LIST_DTO).append("WHERE 1 = 1");
+        appendFilters(jpql, params, filters);
+
+        List<String> orders = new ArrayList<>();
+        for (Sort.Order order : pageable.getSort()) {
+            String expression = "id".equals(order.getProperty())
+                    ? "p.id"
+                    : ProductSortKey.fromProperty(order.getProperty()).map(ProductSortKey::getJpqlExpression).orElse(null);
+            if (expression != null) {
+                orders.add(expression + (order.isDescending() ? " DESC" : " ASC"));
+            }
+        }
+        if (!orders.isEmpty()) {
+            jpql.append(" ORDER BY ").append(String.join(", ", orders));
+        }
+
+        TypedQuery<ProductListDto> query = entityManager.createQuery(jpql.toString(), ProductListDto.class);
+        params.forEach(query::setParameter);
+        List<ProductListDto> content = query
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> countCatalog(filters));
+    }
+
+    @Override
+    public long countCatalog(ProductFilterDto filters) {
+        Map<String, Object> params = new HashMap<>();
+        StringBuilder jpql = new StringBuilder("SELECT COUNT(p) FROM Product p WHERE 1 = 1");
+        appendFilters(jpql, params, filters);
+
+        TypedQuery<Long> query = entityManager.createQuery(jpql.toString(), Long.class);
+        params.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+
+    /**
+     * Те же условия, что в ProductRepository.findAllWithFilters
+     */
+    private static void appendFilters(StringBuilder jpql, Map<String, Object> params, ProductFilterDto filters) {
+        if (filters == null) {
+            return;
+        }
+        if (filters.hasProductIds()) {
+            // Поиск уже выполнен индексом — вместо LIKE список найденных id
+            if (filters.getProductIds().isEmpty()) {
+                jpql.append(" AND 1 = 0");
+            } else {
+                jpql.append(" AND p.id IN :productIds");
+                params.put("productIds", filters.getProductIds());
+            }
+        } else if (filters.hasSearchName()) {
+            jpql.append(" AND LOWER(p.name) LIKE LOWER(CONCAT('%', :searchName, '%'))");
+            params.put("searchName", filters.getSearchName());
+        }
+        if (filters.getMinPrice() != null) {
+            jpql.append(" AND p.price >= :minPrice");
+            params.put("minPrice", filters.getMinPrice());
+        }
+        if (filters.getMaxPrice() != null) {
+            jpql.append(" AND p.price <= :maxPrice");
+            params.put("maxPrice", filters.getMaxPrice());
+        }
+        if (filters.hasCategory()) {
+            jpql.append(" AND p.category.id = :categoryId");
+            params.put("categoryId", filters.getCategoryId());
+        }
+        if (filters.hasBrand()) {
+            jpql.append(" AND p.brand.id = :brandId");
+            params.put("brandId", filters.getBrandId());
+        }
+        if (filters.hasStockStatus()) {
+            switch (filters.getStockStatus()) {
+                case "in-stock" -> jpql.append(" AND p.stockQuantity > 10");
+                case "low-stock" -> jpql.append(" AND p.stockQuantity > 0 AND p.stockQuantity <= 10");
+                case "out-of-stock" -> jpql.append(" AND p.stockQuantity = 0");
+                // Неизвестный статус в findAllWithFilters не пропускает ни одной строки
+                default -> jpql.append(" AND 1 = 0");
+            }
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.example.landofchokolate.repository;
 
+import com.example.landofchokolate.dto.category.CategoryPriceSummary;
+import com.example.landofchokolate.dto.category.CategoryProductDto;
 import com.example.landofchokolate.dto.product.ProductDetailDto;
 import com.example.landofchokolate.dto.product.ProductFilterDto;
 import com.example.landofchokolate.dto.product.ProductListDto;
 import com.example.landofchokolate.dto.product.ProductListRecommendationDto;
+import com.example.landofchokolate.dto.product.ProductSearchDocument;
+import com.example.landofchokolate.dto.product.ProductSuggestionSource;
 import com.example.landofchokolate.model.Category;
 import com.example.landofchokolate.model.Product;
 import org.springframework.data.domain.Page;
@@ -17,11 +21,10 @@ import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductCatalogRepository {
 
     /**
      * Поиск продуктов по названию (содержит подстроку, игнорируя регистр)
@@ -133,23 +136,63 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
 
     /**
-     * Получает статистику цен для категории
+     * Статистика цен сразу для нескольких категорий — один запрос с GROUP BY.
+     * Категорий без товаров с ценой в результате нет
      */
     @Query("""
-        SELECT new map(
-            MIN(p.price) as minPrice,
-            MAX(p.price) as maxPrice,
-            COUNT(p) as productCount
-        ) 
-        FROM Product p 
-        WHERE p.category.id = :categoryId AND p.price > 0
+        SELECT new com.example.landofchokolate.dto.category.CategoryPriceSummary(
+            p.category.id,
+            MIN(p.price),
+            MAX(p.price),
+            COUNT(p)
+        )
+        FROM Product p
+        WHERE p.category.id IN :categoryIds AND p.price > 0
+        GROUP BY p.category.id
         """)
-    Map<String, Object> findPriceStatsByCategoryId(Long categoryId);
+    List<CategoryPriceSummary> findPriceSummariesByCategoryIds(@Param("categoryIds") Collection<Long> categoryIds);
 
 
 
     Page<Product> findByCategoryIdAndIsActiveTrue(Long categoryId, Pageable pageable);
 
+    /**
+     * Карточки товаров категории — страница считается в БД.
+     * Главное изображение (isMain, иначе первое) подтягивается join'ом, коллекция images не загружается
+     */
+    @Query(value = """
+        SELECT new com.example.landofchokolate.dto.category.CategoryProductDto(
+            p.id, p.name, p.price, p.slug, img.imageUrl, img.altText, p.stockQuantity
+        )
+        FROM Product p
+        LEFT JOIN ProductImage img ON img.id = COALESCE(
+            (SELECT MIN(m.id) FROM ProductImage m WHERE m.product = p AND m.isMain = true),
+            (SELECT MIN(f.id) FROM ProductImage f WHERE f.product = p))
+        WHERE p.category.id = :categoryId
+        ORDER BY p.id
+        """,
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category.id = :categoryId")
+    Page<CategoryProductDto> findProductCardsByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+    /**
+     * То же, но keyset: товары после последнего показанного id, без OFFSET.
+     * Для глубоких страниц БД не пропускает все предыдущие строки
+     */
+    @Query("""
+        SELECT new com.example.landofchokolate.dto.category.CategoryProductDto(
+            p.id, p.name, p.price, p.slug, img.imageUrl, img.altText, p.stockQuantity
+        )
+        FROM Product p
+        LEFT JOIN ProductImage img ON img.id = COALESCE(
+            (SELECT MIN(m.id) FROM ProductImage m WHERE m.product = p AND m.isMain = true),
+            (SELECT MIN(f.id) FROM ProductImage f WHERE f.product = p))
+        WHERE p.category.id = :categoryId AND p.id > :afterId
+        ORDER BY p.id
+        """)
+    List<CategoryProductDto> findProductCardsByCategoryIdAfter(@Param("categoryId") Long categoryId,
+                                                               @Param("afterId") Long afterId,
+                                                               Pageable limit);
+
     Optional<Product> findBySlug(String slug);
 
 
@@ -181,18 +224,57 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
             "LEFT JOIN p.brand b " +
             "WHERE p.isActive = true " +
             "AND p.isRecommendation = true " +
-            "ORDER BY p.clickCount DESC, p.createdAt DESC")
-    List<ProductListRecommendationDto> findAllRecommendationProducts();
+            "ORDER BY p.clickCount DESC, p.createdAt DESC, p.id DESC")
+    List<ProductListRecommendationDto> findRecommendationProducts(Pageable pageable);
+
+
+    /**
+     * Атомарное списание: строка обновится, только если остатка хватает. 0 — не хватило (или нет товара)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity " +
+            "WHERE p.id = :productId AND p.stockQuantity >= :quantity")
+    int decrementStockIfAvailable(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+
+    /**
+     * Атомарное пополнение остатка
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :quantity WHERE p.id = :productId")
+    int incrementStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
 
 
     /**
-     * Атомарно увеличивает счетчик кликов продукта
+     * Товары корзины или избранного вместе с изображениями — одним запросом
      */
-    @Modifying
-    @Query("UPDATE Product p SET p.clickCount = p.clickCount + 1 WHERE p.id = :productId")
-    void incrementClickCount(@Param("productId") Long productId);
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.images WHERE p.id IN :ids")
+    List<Product> findAllByIdInWithImages(@Param("ids") Collection<Long> ids);
 
+    /**
+     * Текстовые поля всех товаров для построения поискового индекса
+     */
+    @Query("SELECT new com.example.landofchokolate.dto.product.ProductSearchDocument(" +
+            "p.id, p.name, b.name, c.name, p.description, p.seoKeywords) " +
+            "FROM Product p LEFT JOIN p.brand b LEFT JOIN p.category c")
+    List<ProductSearchDocument> findAllSearchDocuments();
 
+    /**
+     * Текстовые поля одного товара — для инкрементального обновления индекса
+     */
+    @Query("SELECT new com.example.landofchokolate.dto.product.ProductSearchDocument(" +
+            "p.id, p.name, b.name, c.name, p.description, p.seoKeywords) " +
+            "FROM Product p LEFT JOIN p.brand b LEFT JOIN p.category c WHERE p.id = :id")
+    Optional<ProductSearchDocument> findSearchDocumentById(@Param("id") Long id);
+
+    /**
+     * Активные товары с брендом и категорией (активной) — источник подсказок поиска
+     */
+    @Query("SELECT new com.example.landofchokolate.dto.product.ProductSuggestionSource(" +
+            "p.id, p.name, p.slug, p.clickCount, b.id, b.name, b.slug, c.id, " +
+            "CASE WHEN c.isActive = true THEN c.name ELSE NULL END, c.slug) " +
+            "FROM Product p LEFT JOIN p.brand b LEFT JOIN p.category c " +
+            "WHERE p.isActive = true")
+    List<ProductSuggestionSource> findAllSuggestionSources();
 
     ///SiteMap
     List<Product> findByIsActiveTrueOrderByUpdatedAtDesc();
@@ -14,9 +14,9 @@ public interface VisitorLogRepository  extends JpaRepository<VisitorLog, Long> {
 
     Long countByVisitTimeAfter(LocalDateTime after);
 
-    @Query("SELECT CASE WHEN COUNT(v2) = 0 THEN 0.0 " +
-            "ELSE (COUNT(v) * 100.0 / COUNT(v2)) END " +
-            "FROM VisitorLog v, VisitorLog v2 WHERE v.isMobile = true")
+    // Один проход по таблице (раньше был декартов self-join VisitorLog v, VisitorLog v2)
+    @Query("SELECT COALESCE(AVG(CASE WHEN v.isMobile = true THEN 100.0 ELSE 0.0 END), 0.0) " +
+            "FROM VisitorLog v")
     Double getMobilePercentage();
     @Query("SELECT v.country, COUNT(v) FROM VisitorLog v " +
             "WHERE v.country IS NOT NULL " +
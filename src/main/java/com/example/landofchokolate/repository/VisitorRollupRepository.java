@@ -0,0 +1,46 @@
+package com.example.landofchokolate.repository;
+
+import com.example.landofchokolate.model.VisitorRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface VisitorRollupRepository extends JpaRepository<VisitorRollup, Long> {
+
+    Optional<VisitorRollup> findFirstByDimension(VisitorRollup.Dimension dimension);
+
+    // Сумма счётчика за всё время / начиная с момента
+    @Query("SELECT COALESCE(SUM(r.visitCount), 0) FROM VisitorRollup r " +
+            "WHERE r.granularity = :granularity AND r.dimension = :dimension")
+    Long sumByDimension(@Param("granularity") VisitorRollup.Granularity granularity,
+                        @Param("dimension") VisitorRollup.Dimension dimension);
+
+    @Query("SELECT COALESCE(SUM(r.visitCount), 0) FROM VisitorRollup r " +
+            "WHERE r.granularity = :granularity AND r.dimension = :dimension " +
+            "AND r.bucketStart >= :from")
+    Long sumByDimensionSince(@Param("granularity") VisitorRollup.Granularity granularity,
+                             @Param("dimension") VisitorRollup.Dimension dimension,
+                             @Param("from") LocalDateTime from);
+
+    // Топ значений измерения (страны, страницы, браузеры) — формат как у VisitorLogRepository
+    @Query("SELECT r.dimensionValue, SUM(r.visitCount) FROM VisitorRollup r " +
+            "WHERE r.granularity = :granularity AND r.dimension = :dimension " +
+            "GROUP BY r.dimensionValue ORDER BY SUM(r.visitCount) DESC")
+    List<Object[]> getTopValues(@Param("granularity") VisitorRollup.Granularity granularity,
+                                @Param("dimension") VisitorRollup.Dimension dimension,
+                                Pageable pageable);
+
+    @Query("SELECT r.dimensionValue, SUM(r.visitCount) FROM VisitorRollup r " +
+            "WHERE r.granularity = :granularity AND r.dimension = :dimension " +
+            "AND r.bucketStart >= :from " +
+            "GROUP BY r.dimensionValue ORDER BY SUM(r.visitCount) DESC")
+    List<Object[]> getTopValuesSince(@Param("granularity") VisitorRollup.Granularity granularity,
+                                     @Param("dimension") VisitorRollup.Dimension dimension,
+                                     @Param("from") LocalDateTime from,
+                                     Pageable pageable);
+}
@@ -0,0 +1,226 @@
+package com.example.landofchokolate.service;
+
+import com.example.landofchokolate.enums.WarmUpState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 🔥 Прогрев кешей после деплоя, до первых посетителей.
+ *
+ * Данные, которые нужны каждой странице (навигация) и главной (топ категорий, бренды, рекомендации, отзывы),
+ * загружаются параллельно, но не больше app.warmup.db-concurrency запросов одновременно — пул соединений
+ * на Render всего 5, остальное остаётся запросам посетителей.
+ *
+ * Пока не прогрет критический набор, ReadinessState держится в REFUSING_TRAFFIC
+ * (его читает /health/ready вместе с {@link #isCriticalReady()} — health check Render переключает трафик
+ * на новый инстанс только после 200; Health Check Path сервиса на Render должен быть /health/ready).
+ * Ошибка задачи не блокирует готовность: такие данные просто загрузятся первым запросом, как раньше.
+ * Через app.warmup.readiness-timeout-ms приложение становится готовым в любом случае.
+ */
+@Slf4j
+@Service
+public class CacheWarmUpService {
+
+    private static final int NAVIGATION_CATEGORIES_LIMIT = 20;
+    private static final int HOME_BRANDS_LIMIT = 12;
+    private static final int HOME_CATEGORIES_LIMIT = 12;
+    private static final int HOME_RECOMMENDATIONS_LIMIT = 50;
+    private static final int HOME_REVIEWS_LIMIT = 3;
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final List<WarmUpTask> tasks = new ArrayList<>();
+
+    @Value("${app.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.warmup.db-concurrency:2}")
+    private int dbConcurrency;
+
+    @Value("${app.warmup.readiness-timeout-ms:60000}")
+    private long readinessTimeoutMs;
+
+    private volatile long startedAtMillis;
+    private volatile long criticalReadyAtMillis;
+    private volatile long finishedAtMillis;
+    private boolean criticalReady;
+    private boolean readinessHeld;
+
+    public CacheWarmUpService(CategoryService categoryService,
+                              BrandService brandService,
+                              ProductService productService,
+                              StoreReviewService storeReviewService,
+                              ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+
+        tasks.add(new WarmUpTask("navigationCategories", true,
+                () -> categoryService.getNavigationCategories(NAVIGATION_CATEGORIES_LIMIT)));
+        tasks.add(new WarmUpTask("topCategories", true,
+                () -> categoryService.getTopCategories(HOME_CATEGORIES_LIMIT)));
+        tasks.add(new WarmUpTask("brandLimit", true,
+                () -> brandService.getBrandByLimit(HOME_BRANDS_LIMIT)));
+        tasks.add(new WarmUpTask("homeRecommendations", true,
+                () -> productService.getProductListRecommendations(HOME_RECOMMENDATIONS_LIMIT)));
+        tasks.add(new WarmUpTask("storeReviewsMainPage", false,
+                () -> storeReviewService.getLatestReviews(HOME_REVIEWS_LIMIT)));
+    }
+
+    /**
+     * Старт после поднятия контекста — раньше ApplicationReadyEvent, чтобы готовность можно было придержать
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void onApplicationStarted() {
+        if (!enabled) {
+            markCriticalReady();
+            return;
+        }
+        startedAtMillis = System.currentTimeMillis();
+        log.info("🔥 Прогрев кешей: {} задач, до {} запросов к БД одновременно", tasks.size(), dbConcurrency);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(dbConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "WarmUp-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<CompletableFuture<Void>> critical = new ArrayList<>();
+        List<CompletableFuture<Void>> all = new ArrayList<>();
+        // Критические задачи встают в очередь первыми
+        tasks.stream()
+                .sorted((a, b) -> Boolean.compare(b.critical, a.critical))
+                .forEach(task -> {
+                    CompletableFuture<Void> future = CompletableFuture.runAsync(task::run, executor);
+                    all.add(future);
+                    if (task.critical) {
+                        critical.add(future);
+                    }
+                });
+
+        CompletableFuture.allOf(critical.toArray(CompletableFuture[]::new))
+                .orTimeout(readinessTimeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        log.warn("🔥 Критические кеши не прогреты за {} мс — приложение открывается без них", readinessTimeoutMs);
+                    }
+                    markCriticalReady();
+                });
+
+        CompletableFuture.allOf(all.toArray(CompletableFuture[]::new))
+                .whenComplete((result, error) -> {
+                    executor.shutdown();
+                    finishedAtMillis = System.currentTimeMillis();
+                    log.info("🔥 Прогрев кешей завершён за {} мс", finishedAtMillis - startedAtMillis);
+                });
+    }
+
+    /**
+     * Spring Boot объявляет готовность сразу после ApplicationReadyEvent — пока прогрев не закончен, отзываем её.
+     * Слушатель последний: REFUSING_TRAFFIC должен попасть в ApplicationAvailability после ACCEPTING_TRAFFIC
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public synchronized void onReadinessChange(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC && !criticalReady) {
+            readinessHeld = true;
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        }
+    }
+
+    private synchronized void markCriticalReady() {
+        if (criticalReady) {
+            return;
+        }
+        criticalReady = true;
+        criticalReadyAtMillis = System.currentTimeMillis();
+        if (startedAtMillis > 0) {
+            log.info("🔥 Критические кеши прогреты за {} мс", criticalReadyAtMillis - startedAtMillis);
+        }
+        // Готовность возвращаем, только если её придержали: иначе Spring Boot объявит её сам в свой момент
+        if (readinessHeld) {
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+
+    public synchronized boolean isCriticalReady() {
+        return criticalReady;
+    }
+
+    /**
+     * 📊 Ход прогрева: состояние и длительность каждой задачи
+     */
+    public Map<String, Object> getReport() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("enabled", enabled);
+        report.put("criticalReady", isCriticalReady());
+        report.put("done", tasks.stream().filter(task -> task.state == WarmUpState.DONE
+                || task.state == WarmUpState.FAILED).count() + "/" + tasks.size());
+        if (startedAtMillis > 0) {
+            report.put("criticalDurationMs", criticalReadyAtMillis > 0 ? criticalReadyAtMillis - startedAtMillis : null);
+            report.put("totalDurationMs", (finishedAtMillis > 0 ? finishedAtMillis : now) - startedAtMillis);
+        }
+
+        Map<String, Object> taskReports = new LinkedHashMap<>();
+        for (WarmUpTask task : tasks) {
+            Map<String, Object> taskReport = new LinkedHashMap<>();
+            taskReport.put("critical", task.critical);
+            taskReport.put("state", task.state);
+            taskReport.put("durationMs", task.durationMs);
+            if (task.error != null) {
+                taskReport.put("error", task.error);
+            }
+            taskReports.put(task.name, taskReport);
+        }
+        report.put("tasks", taskReports);
+        return report;
+    }
+
+    private static final class WarmUpTask {
+        final String name;
+        final boolean critical;
+        final Runnable loader;
+        volatile WarmUpState state = WarmUpState.PENDING;
+        volatile Long durationMs;
+        volatile String error;
+
+        WarmUpTask(String name, boolean critical, Runnable loader) {
+            this.name = name;
+            this.critical = critical;
+            this.loader = loader;
+        }
+
+        void run() {
+            state = WarmUpState.RUNNING;
+            long startedAt = System.currentTimeMillis();
+            try {
+                loader.run();
+                state = WarmUpState.DONE;
+            } catch (Exception e) {
+                error = e.getMessage();
+                state = WarmUpState.FAILED;
+                log.warn("🔥 Прогрев {} не удался: {}", name, e.getMessage());
+            } finally {
+                durationMs = System.currentTimeMillis() - startedAt;
+                log.debug("🔥 {}: {} за {} мс", name, state, durationMs);
+            }
+        }
+    }
+}
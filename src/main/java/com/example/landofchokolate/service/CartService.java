@@ -2,6 +2,7 @@ package com.example.landofchokolate.service;
 
 import com.example.landofchokolate.dto.card.CartDto;
 import com.example.landofchokolate.dto.card.CartItemDto;
+import com.example.landofchokolate.dto.card.CartSummary;
 import com.example.landofchokolate.model.Product;
 import jakarta.servlet.http.HttpSession;
 
@@ -19,4 +20,9 @@ public interface CartService {
     Integer getCartItemCount(HttpSession session);
     BigDecimal getCartTotal(HttpSession session);
     boolean isCartEmpty(HttpSession session);
+
+    /**
+     * Количество товаров и сумма корзины за одно обращение к корзине
+     */
+    CartSummary getCartSummary(HttpSession session);
 }
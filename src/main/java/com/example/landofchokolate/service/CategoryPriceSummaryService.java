@@ -0,0 +1,155 @@
+package com.example.landofchokolate.service;
+
+import com.example.landofchokolate.dto.category.CategoryPriceSummary;
+import com.example.landofchokolate.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * 💰 Кеш сводок цен по категориям (min/max/количество товаров).
+ *
+ * Недостающие сводки загружаются одним GROUP BY запросом на все категории страницы.
+ * При создании, изменении и удалении товара сводка его категории обновляется сразу после коммита:
+ * новый товар добавляется в сводку без запроса, изменение и удаление пересчитывают
+ * только затронутые категории. Кеши публичных списков категорий при этом сбрасываются,
+ * следующий их промах уже не ходит в БД за ценами.
+ */
+@Service
+@Slf4j
+public class CategoryPriceSummaryService {
+
+    private static final List<String> CATEGORY_LISTING_CACHES = List.of("publicCategories", "topCategories");
+
+    private final ProductRepository productRepository;
+    private final CacheManager categoryCacheManager;
+
+    private final Cache<Long, CategoryPriceSummary> summaries = Caffeine.newBuilder()
+            .maximumSize(1_000)
+            // Страховка от расхождений при изменениях в обход ProductServiceImpl
+            .expireAfterWrite(Duration.ofHours(12))
+            .recordStats()
+            .build();
+
+    public CategoryPriceSummaryService(ProductRepository productRepository,
+                                       @Qualifier("categoryCacheManager") CacheManager categoryCacheManager) {
+        this.productRepository = productRepository;
+        this.categoryCacheManager = categoryCacheManager;
+    }
+
+    /**
+     * Сводки для категорий. Всё, чего нет в кеше, читается одним запросом
+     */
+    public Map<Long, CategoryPriceSummary> getSummaries(Collection<Long> categoryIds) {
+        if (categoryIds.isEmpty()) {
+            return Map.of();
+        }
+        return summaries.getAll(categoryIds, missing -> loadSummaries(missing));
+    }
+
+    /**
+     * Товар создан: сводка категории дополняется без обращения к БД
+     */
+    public void productAdded(Long categoryId, BigDecimal price) {
+        if (categoryId == null || price == null || price.signum() <= 0) {
+            return;
+        }
+        afterCommit(() -> {
+            summaries.asMap().computeIfPresent(categoryId, (id, summary) -> summary.plus(price));
+            evictCategoryListings();
+        });
+    }
+
+    /**
+     * Товар изменён: пересчитываются старая и новая категории, если поменялись цена или категория
+     */
+    public void productChanged(Long oldCategoryId, BigDecimal oldPrice, Long newCategoryId, BigDecimal newPrice) {
+        boolean sameCategory = Objects.equals(oldCategoryId, newCategoryId);
+        boolean samePrice = oldPrice == null ? newPrice == null : newPrice != null && oldPrice.compareTo(newPrice) == 0;
+        if (sameCategory && samePrice) {
+            return;
+        }
+        Set<Long> affected = new HashSet<>();
+        if (oldCategoryId != null) {
+            affected.add(oldCategoryId);
+        }
+        if (newCategoryId != null) {
+            affected.add(newCategoryId);
+        }
+        afterCommit(() -> recompute(affected));
+    }
+
+    /**
+     * Товар удалён: категория пересчитывается (минимум или максимум мог уйти вместе с ним)
+     */
+    public void productRemoved(Long categoryId) {
+        if (categoryId == null) {
+            return;
+        }
+        afterCommit(() -> recompute(Set.of(categoryId)));
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = summaries.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", summaries.estimatedSize());
+        result.put("hitRate", stats.hitRate());
+        result.put("loadCount", stats.loadCount());
+        return result;
+    }
+
+    private void recompute(Collection<Long> categoryIds) {
+        // Пересчитываем только то, что уже лежит в кеше — остальное загрузится при первом чтении
+        List<Long> cached = categoryIds.stream()
+                .filter(id -> summaries.getIfPresent(id) != null)
+                .toList();
+        if (!cached.isEmpty()) {
+            summaries.putAll(loadSummaries(cached));
+        }
+        evictCategoryListings();
+    }
+
+    private Map<Long, CategoryPriceSummary> loadSummaries(Collection<? extends Long> categoryIds) {
+        Map<Long, CategoryPriceSummary> loaded = new HashMap<>();
+        for (CategoryPriceSummary summary : productRepository.findPriceSummariesByCategoryIds(List.copyOf(categoryIds))) {
+            loaded.put(summary.getCategoryId(), summary);
+        }
+        for (Long categoryId : categoryIds) {
+            loaded.putIfAbsent(categoryId, CategoryPriceSummary.empty(categoryId));
+        }
+        log.debug("💰 Price summaries loaded for {} categories in one query", categoryIds.size());
+        return loaded;
+    }
+
+    private void evictCategoryListings() {
+        for (String cacheName : CATEGORY_LISTING_CACHES) {
+            org.springframework.cache.Cache cache = categoryCacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.landofchokolate.service;
 
 import com.example.landofchokolate.dto.product.ProductListResponseDto;
+import com.example.landofchokolate.enums.ProductCountMode;
 import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
@@ -18,4 +19,20 @@ public interface ClientProductService {
                                                      Long categoryId,
                                                      Long brandId,
                                                      String stockStatus);
-}
\ No newline at end of file
+
+    /**
+     * Товары с фильтрами, курсорная пагинация: страница после cursor без OFFSET.
+     * countMode решает, считать ли totalCount: точно, из кеша или не считать вовсе (бесконечная прокрутка)
+     */
+    ProductListResponseDto getProductsByCursor(String cursor,
+                                               int pageNumber,
+                                               String sortBy,
+                                               String sortDirection,
+                                               String searchName,
+                                               BigDecimal minPrice,
+                                               BigDecimal maxPrice,
+                                               Long categoryId,
+                                               Long brandId,
+                                               String stockStatus,
+                                               ProductCountMode countMode);
+}
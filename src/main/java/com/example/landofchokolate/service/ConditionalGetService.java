@@ -0,0 +1,126 @@
+package com.example.landofchokolate.service;
+
+import com.example.landofchokolate.config.NavigationState;
+import com.example.landofchokolate.config.caffeine.CacheDataVersions;
+import com.example.landofchokolate.enums.ValidatedPage;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 🏷️ Условный GET для страниц каталога: ETag / Last-Modified и ответ 304 до сборки модели и рендера.
+ *
+ * ETag (слабый) считается без обращения к БД из:
+ * <ul>
+ *     <li>времени старта приложения — версии кешей после рестарта начинаются заново;</li>
+ *     <li>ресурса (slug, номер страницы) и updatedAt сущности страницы — товара, категории, бренда;</li>
+ *     <li>версий кешей-источников страницы из {@link CacheDataVersions} и версий её области —
+ *     товара, категории, бренда (product:{id}, category:{id}, brand:{id});</li>
+ *     <li>только для страниц без сущности (списки, sitemap) — интервала app.conditional-get.max-validity-minutes:
+ *     их кеши обновляются и по TTL, без сброса;</li>
+ *     <li>для персональных страниц — корзины и избранного посетителя (они в шапке).</li>
+ * </ul>
+ * Last-Modified — updatedAt сущности или время последнего изменения версий, что позже.
+ * Отдаётся только тем, у кого корзина и избранное пусты (поисковые боты) —
+ * по дате нельзя заметить изменение корзины, а If-None-Match браузеров всё равно важнее.
+ */
+@Slf4j
+@Service
+public class ConditionalGetService {
+
+    private final CacheDataVersions cacheDataVersions;
+    private final NavigationState navigationState;
+    private final long startedAtMillis = System.currentTimeMillis();
+
+    @Value("${app.conditional-get.max-validity-minutes:10}")
+    private long maxValidityMinutes;
+
+    public ConditionalGetService(CacheDataVersions cacheDataVersions, NavigationState navigationState) {
+        this.cacheDataVersions = cacheDataVersions;
+        this.navigationState = navigationState;
+    }
+
+    /**
+     * Страница без одной сущности (списки, sitemap). true — клиенту уже отправлен 304,
+     * обработчик должен вернуть null и ничего не собирать
+     */
+    public boolean isNotModified(WebRequest webRequest, ValidatedPage page, String resource) {
+        long validityMillis = TimeUnit.MINUTES.toMillis(maxValidityMinutes);
+        long periodStart = System.currentTimeMillis() / validityMillis * validityMillis;
+        return isNotModified(webRequest, page, resource + '|' + periodStart, periodStart);
+    }
+
+    /**
+     * Страница одной сущности: updatedAt уже загруженного товара / категории / бренда входит в ETag
+     * и задаёт Last-Modified, scopes — её версии (ProductCacheTags.product/category/brand),
+     * они ловят изменения мимо updatedAt (остатки). Интервала max-validity здесь нет
+     */
+    public boolean isNotModified(WebRequest webRequest, ValidatedPage page, String resource,
+                                 LocalDateTime updatedAt, String... scopes) {
+        long updatedAtMillis = updatedAt != null
+                ? updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : 0;
+        return isNotModified(webRequest, page, resource + '|' + updatedAt, updatedAtMillis, scopes);
+    }
+
+    private boolean isNotModified(WebRequest webRequest, ValidatedPage page, String resource,
+                                  long modifiedAtMillis, String... scopes) {
+        StringBuilder source = new StringBuilder()
+                .append(startedAtMillis).append('|')
+                .append(page.name()).append('|')
+                .append(resource).append('|')
+                .append(cacheDataVersions.stamp(page.getDependencies())).append('|')
+                .append(cacheDataVersions.stamp(scopes));
+
+        boolean anonymous = true;
+        if (page.isPersonalized()) {
+            int cartCount = navigationState.getCartCount();
+            int favoritesCount = navigationState.getFavoritesCount();
+            source.append('|').append(cartCount)
+                    .append('|').append(navigationState.getCartTotal().toPlainString())
+                    .append('|').append(favoritesCount);
+            anonymous = cartCount == 0 && favoritesCount == 0;
+        }
+
+        String etag = "W/\"" + DigestUtils.md5DigestAsHex(source.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+        markRevalidate(webRequest);
+
+        boolean notModified;
+        if (anonymous) {
+            // Время старта — нижняя граница: изменения версий до рестарта не помнятся
+            long lastModified = Math.max(Math.max(startedAtMillis, modifiedAtMillis),
+                    Math.max(cacheDataVersions.lastChangeMillis(page.getDependencies()),
+                            cacheDataVersions.lastChangeMillis(scopes)));
+            notModified = webRequest.checkNotModified(etag, lastModified);
+        } else {
+            notModified = webRequest.checkNotModified(etag);
+        }
+
+        if (notModified) {
+            log.debug("🏷️ 304 для {} {}", page, resource);
+        }
+        return notModified;
+    }
+
+    /**
+     * Браузер хранит ответ, но перед показом переспрашивает сервер; общие прокси страницу не кешируют
+     */
+    private void markRevalidate(WebRequest webRequest) {
+        if (webRequest instanceof ServletWebRequest servletWebRequest) {
+            HttpServletResponse response = servletWebRequest.getResponse();
+            if (response != null) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.landofchokolate.service;
+
+import com.example.landofchokolate.dto.order.OrderDTO;
+import com.example.landofchokolate.enums.OutboxEventType;
+import com.example.landofchokolate.enums.OutboxStatus;
+import com.example.landofchokolate.exception.NovaPoshtaRejectedException;
+import com.example.landofchokolate.mapper.OrderMapper;
+import com.example.landofchokolate.model.Order;
+import com.example.landofchokolate.model.OutboxEvent;
+import com.example.landofchokolate.repository.OrderRepository;
+import com.example.landofchokolate.repository.OutboxEventRepository;
+import com.example.landofchokolate.util.DeliveryRequestedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 📮 Создание ТТН Новой Почты через transactional outbox.
+ *
+ * Заказ и событие outbox пишутся в одной транзакции, поэтому оформление заказа — это только
+ * INSERT в БД: запрос покупателя и соединение из пула не ждут ответа Новой Почты.
+ * Диспетчер забирает события пачками (FOR UPDATE SKIP LOCKED — несколько инстансов не возьмут
+ * одно событие), вызывает API без открытой транзакции, а номер ТТН записывает обратно в заказ.
+ * Ошибки повторяются с экспоненциальной задержкой; событие, зависшее в PROCESSING
+ * (например, после рестарта), снова становится доступным по истечении аренды.
+ * InternetDocument.save не идемпотентен, поэтому каждый повтор сначала ищет накладную заказа
+ * в Новой Почте (InfoRegClientBarcodes = id заказа) и, если она есть, просто записывает её номер.
+ */
+@Service
+@Slf4j
+public class DeliveryOutboxService {
+
+    private static final String CLAIM_SQL = "UPDATE outbox_events SET status = 'PROCESSING', next_attempt_at = ? " +
+            "WHERE id IN (SELECT id FROM outbox_events " +
+            "WHERE status IN ('PENDING', 'PROCESSING') AND next_attempt_at <= ? " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id";
+
+    private static final String FAILURE_NOTE = "Ошибка создания ТТН Nova Poshta";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OrderRepository orderRepository;
+    private final OrderMapper orderMapper;
+    private final PoshtaService poshtaService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffSeconds;
+    private final long maxBackoffSeconds;
+    private final long leaseSeconds;
+
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+
+    public DeliveryOutboxService(OutboxEventRepository outboxEventRepository,
+                                 OrderRepository orderRepository,
+                                 OrderMapper orderMapper,
+                                 PoshtaService poshtaService,
+                                 JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${app.outbox.batch-size:10}") int batchSize,
+                                 @Value("${app.outbox.max-attempts:8}") int maxAttempts,
+                                 @Value("${app.outbox.backoff-seconds:30}") long backoffSeconds,
+                                 @Value("${app.outbox.max-backoff-seconds:3600}") long maxBackoffSeconds,
+                                 @Value("${app.outbox.lease-seconds:300}") long leaseSeconds) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.orderRepository = orderRepository;
+        this.orderMapper = orderMapper;
+        this.poshtaService = poshtaService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoffSeconds = backoffSeconds;
+        this.maxBackoffSeconds = maxBackoffSeconds;
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    /**
+     * Поставить создание ТТН в очередь. Вызывается внутри транзакции создания заказа
+     */
+    public void enqueueTtnCreation(Order order) {
+        LocalDateTime now = LocalDateTime.now();
+        outboxEventRepository.save(OutboxEvent.builder()
+                .eventType(OutboxEventType.NOVA_POSHTA_CREATE_TTN)
+                .aggregateId(order.getId())
+                .idempotencyKey(ttnIdempotencyKey(order.getId()))
+                .status(OutboxStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+
+        // Диспетчер проснётся сразу после коммита, не дожидаясь очередного опроса
+        eventPublisher.publishEvent(new DeliveryRequestedEvent(this, order.getId()));
+    }
+
+    public static String ttnIdempotencyKey(Long orderId) {
+        return "np-ttn-order-" + orderId;
+    }
+
+    @Async("outboxExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onDeliveryRequested(DeliveryRequestedEvent event) {
+        dispatchDue();
+    }
+
+    /**
+     * Опрос тоже уходит в outboxExecutor: HTTP-вызовы не занимают поток планировщика
+     */
+    @Async("outboxExecutor")
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:15000}")
+    public void pollOutbox() {
+        dispatchDue();
+    }
+
+    /**
+     * Обработать все события, срок которых наступил. Параллельный вызов в этом же инстансе
+     * просто выходит — работающий цикл заберёт и новые события
+     */
+    public void dispatchDue() {
+        if (!dispatchLock.tryLock()) {
+            return;
+        }
+        try {
+            List<Long> claimed;
+            do {
+                claimed = claimDue();
+                for (Long eventId : claimed) {
+                    process(eventId);
+                }
+            } while (claimed.size() == batchSize);
+        } catch (Exception e) {
+            log.error("❌ Ошибка диспетчера outbox: {}", e.getMessage(), e);
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    private List<Long> claimDue() {
+        LocalDateTime now = LocalDateTime.now();
+        return transactionTemplate.execute(status -> jdbcTemplate.query(CLAIM_SQL,
+                (rs, rowNum) -> rs.getLong(1),
+                Timestamp.valueOf(now.plusSeconds(leaseSeconds)), Timestamp.valueOf(now), batchSize));
+    }
+
+    private void process(Long eventId) {
+        OutboxEvent event = outboxEventRepository.findById(eventId).orElse(null);
+        if (event == null || event.getEventType() != OutboxEventType.NOVA_POSHTA_CREATE_TTN) {
+            return;
+        }
+
+        OrderDTO order = transactionTemplate.execute(status -> orderRepository.findByIdWithItems(event.getAggregateId())
+                .map(orderMapper::toDTO)
+                .orElse(null));
+
+        if (order == null) {
+            finish(event, OutboxStatus.FAILED, "Заказ не найден");
+            return;
+        }
+        if (hasText(order.getTrackingNumber())) {
+            // ТТН уже есть (например, событие повторилось после рестарта) — повторно не создаём
+            finish(event, OutboxStatus.DONE, null);
+            return;
+        }
+
+        // Попытка записывается до вызова API: если ответ потерян или ТТН не сохранилась,
+        // следующий проход (повтор или аренда после рестарта) увидит attempts > 0 и сначала поищет накладную
+        boolean retry = event.getAttempts() > 0;
+        event.setAttempts(event.getAttempts() + 1);
+        outboxEventRepository.save(event);
+
+        String ttnNumber;
+        try {
+            ttnNumber = retry ? poshtaService.findDeliveryByOrder(order).orElse(null) : null;
+            if (ttnNumber != null) {
+                log.info("📮 TTN for order {} already exists in Nova Poshta: {}", order.getId(), ttnNumber);
+            } else {
+                ttnNumber = poshtaService.createDelivery(order);
+                log.info("📮 TTN created for order {}: {} (attempt {})", order.getId(), ttnNumber, event.getAttempts());
+            }
+        } catch (NovaPoshtaRejectedException e) {
+            scheduleRetry(event, e.getMessage());
+            return;
+        } catch (Exception e) {
+            // Таймаут или обрыв связи: накладная могла создаться — повтор её найдёт, а не создаст вторую
+            scheduleRetry(event, "Результат невідомий: " + e.getMessage());
+            return;
+        }
+
+        try {
+            saveTrackingNumber(event, ttnNumber);
+        } catch (Exception e) {
+            log.error("❌ TTN {} for order {} created but not saved: {}", ttnNumber, order.getId(), e.getMessage());
+            scheduleRetry(event, "ТТН " + ttnNumber + " створена, але не збережена: " + e.getMessage());
+        }
+    }
+
+    private void saveTrackingNumber(OutboxEvent event, String ttnNumber) {
+        transactionTemplate.executeWithoutResult(status -> {
+            orderRepository.findById(event.getAggregateId()).ifPresent(order -> {
+                if (!hasText(order.getTrackingNumber())) {
+                    order.setTrackingNumber(ttnNumber);
+                    orderRepository.save(order);
+                }
+            });
+            event.setStatus(OutboxStatus.DONE);
+            event.setLastError(null);
+            event.setProcessedAt(LocalDateTime.now());
+            outboxEventRepository.save(event);
+        });
+    }
+
+    private void scheduleRetry(OutboxEvent event, String error) {
+        int attempts = event.getAttempts();
+        if (attempts >= maxAttempts) {
+            log.error("❌ TTN for order {} failed after {} attempts: {}", event.getAggregateId(), attempts, error);
+            finish(event, OutboxStatus.FAILED, error);
+            markOrderFailed(event.getAggregateId());
+            return;
+        }
+
+        long delay = Math.min(maxBackoffSeconds, backoffSeconds * (1L << Math.min(attempts - 1, 20)));
+        log.warn("⚠️ TTN for order {} failed (attempt {} of {}), retry in {} s: {}",
+                event.getAggregateId(), attempts, maxAttempts, delay, error);
+
+        event.setStatus(OutboxStatus.PENDING);
+        event.setNextAttemptAt(LocalDateTime.now().plusSeconds(delay));
+        event.setLastError(truncate(error));
+        outboxEventRepository.save(event);
+    }
+
+    private void finish(OutboxEvent event, OutboxStatus status, String error) {
+        event.setStatus(status);
+        event.setLastError(truncate(error));
+        event.setProcessedAt(LocalDateTime.now());
+        outboxEventRepository.save(event);
+    }
+
+    private void markOrderFailed(Long orderId) {
+        transactionTemplate.executeWithoutResult(status -> orderRepository.findById(orderId).ifPresent(order -> {
+            String notes = order.getSomeNotes();
+            order.setSomeNotes(hasText(notes) ? notes + "\n" + FAILURE_NOTE : FAILURE_NOTE);
+            orderRepository.save(order);
+        }));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (OutboxStatus status : OutboxStatus.values()) {
+            stats.put(status.name().toLowerCase(), outboxEventRepository.countByStatus(status));
+        }
+        return stats;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
+    private static String truncate(String value) {
+        return value != null && value.length() > 1000 ? value.substring(0, 1000) : value;
+    }
+}
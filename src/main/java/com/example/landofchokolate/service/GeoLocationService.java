@@ -1,13 +1,20 @@
 package com.example.landofchokolate.service;
 
 import com.example.landofchokolate.dto.visitor.GeoLocationInfo;
+import com.example.landofchokolate.util.IpRangeTable;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 
 @Service
@@ -15,29 +22,76 @@ import java.util.concurrent.ConcurrentHashMap;
 public class GeoLocationService {
 
     private final RestTemplate restTemplate;
-    private final Map<String, GeoLocationInfo> cache = new ConcurrentHashMap<>();
-    private final long CACHE_TTL = 24 * 60 * 60 * 1000; // 24 часа
-    private final Map<String, Long> cacheTimestamps = new ConcurrentHashMap<>();
+
+    @Value("${app.geoip.cache.max-weight-bytes:4194304}")
+    private long cacheMaxWeightBytes;
+
+    @Value("${app.geoip.cache.ttl-hours:24}")
+    private long cacheTtlHours;
+
+    @Value("${app.geoip.database-path:}")
+    private String databasePath;
+
+    @Value("${app.geoip.remote-lookup-enabled:true}")
+    private boolean remoteLookupEnabled;
+
+    /**
+     * Ограничен по весу (≈ байтам), а не по числу записей. В асинхронном кеше в карте лежит
+     * future, поэтому на IP выполняется ровно один запрос к ip-api.com, а остальные
+     * промахи по тому же IP ждут его результат, не блокируя соседние ключи
+     */
+    private AsyncCache<String, GeoLocationInfo> cache;
+    private volatile IpRangeTable rangeTable;
 
     public GeoLocationService(RestTemplate restTemplate) {
         this.restTemplate = restTemplate;
     }
 
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxWeightBytes)
+                .weigher((String ip, GeoLocationInfo info) -> estimateWeight(ip, info))
+                .expireAfterWrite(Duration.ofHours(cacheTtlHours))
+                .recordStats()
+                .buildAsync();
+
+        if (databasePath != null && !databasePath.isBlank()) {
+            try {
+                rangeTable = IpRangeTable.load(Path.of(databasePath));
+            } catch (Exception e) {
+                log.error("❌ Не удалось загрузить локальную базу IP {}: {}", databasePath, e.getMessage());
+            }
+        }
+    }
+
     /**
-     * 🌐 Получение геолокации с кешированием
+     * 🌐 Получение геолокации: локальная база → кеш → ip-api.com
      */
     public GeoLocationInfo getLocationByIp(String ipAddress) {
         if (isLocalIp(ipAddress)) {
             return createLocalLocationInfo();
         }
 
-        // Проверяем кеш
-        GeoLocationInfo cached = getCachedLocation(ipAddress);
-        if (cached != null) {
-            log.debug("Using cached geo location for IP: {}", ipAddress);
-            return cached;
+        // Локальная таблица диапазонов — без выхода из JVM
+        IpRangeTable table = rangeTable;
+        if (table != null) {
+            GeoLocationInfo local = table.lookup(ipAddress);
+            if (local != null) {
+                return local;
+            }
+        }
+
+        if (!remoteLookupEnabled) {
+            return null;
         }
 
+        // Загрузчик вызывается один раз на ключ, остальные потоки ждут тот же future.
+        // null не кешируется — как и раньше, неудачный запрос повторится при следующем визите
+        return cache.get(ipAddress, this::fetchRemote).join();
+    }
+
+    private GeoLocationInfo fetchRemote(String ipAddress) {
         try {
             String url = "http://ip-api.com/json/" + ipAddress + "?fields=status,country,city,isp,query";
 
@@ -51,9 +105,6 @@ public class GeoLocationService {
                 info.setCity((String) response.get("city"));
                 info.setIsp((String) response.get("isp"));
 
-                // Кешируем результат
-                cacheLocation(ipAddress, info);
-
                 log.debug("Geo location found: {} - {}", info.getCountry(), info.getCity());
                 return info;
             } else {
@@ -69,39 +120,34 @@ public class GeoLocationService {
     }
 
     /**
-     * 💾 Простое кеширование в памяти
+     * Примерный размер записи в байтах (заголовки объектов + символы строк)
      */
-    private GeoLocationInfo getCachedLocation(String ipAddress) {
-        Long timestamp = cacheTimestamps.get(ipAddress);
-        if (timestamp != null && (System.currentTimeMillis() - timestamp) < CACHE_TTL) {
-            return cache.get(ipAddress);
+    private int estimateWeight(String ip, GeoLocationInfo info) {
+        int weight = 64 + stringWeight(ip);
+        if (info != null) {
+            weight += 32 + stringWeight(info.getCountry()) + stringWeight(info.getCity()) + stringWeight(info.getIsp());
         }
-
-        // Удаляем устаревший кеш
-        cache.remove(ipAddress);
-        cacheTimestamps.remove(ipAddress);
-        return null;
+        return weight;
     }
 
-    private void cacheLocation(String ipAddress, GeoLocationInfo info) {
-        cache.put(ipAddress, info);
-        cacheTimestamps.put(ipAddress, System.currentTimeMillis());
-
-        // Ограничиваем размер кеша
-        if (cache.size() > 10000) {
-            cleanOldCache();
-        }
+    private int stringWeight(String value) {
+        return value == null ? 0 : 40 + value.length() * 2;
     }
 
-    private void cleanOldCache() {
-        long now = System.currentTimeMillis();
-        cacheTimestamps.entrySet().removeIf(entry -> {
-            if (now - entry.getValue() > CACHE_TTL) {
-                cache.remove(entry.getKey());
-                return true;
-            }
-            return false;
-        });
+    /**
+     * 📊 Статистика кеша и локальной базы
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.synchronous().stats();
+        Map<String, Object> result = new HashMap<>();
+        result.put("cachedEntries", cache.synchronous().estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", String.format("%.2f%%", stats.hitRate() * 100));
+        result.put("evictionCount", stats.evictionCount());
+        result.put("localRanges", rangeTable != null ? rangeTable.size() : 0);
+        result.put("remoteLookupEnabled", remoteLookupEnabled);
+        return result;
     }
 
     private boolean isLocalIp(String ip) {
@@ -0,0 +1,147 @@
+package com.example.landofchokolate.service;
+
+import com.example.landofchokolate.config.caffeine.CacheDataVersions;
+import com.example.landofchokolate.enums.CachedFragment;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.web.IWebExchange;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 🧩 Кеш готового HTML для фрагментов страниц (главная, категория, бренд, товар, навигация).
+ *
+ * Ключ — фрагмент, вариант (страница, slug...) и версии кешей-источников из {@link CacheDataVersions}.
+ * При попадании не выполняется ни рендер Thymeleaf, ни загрузка данных — variables вызывается только на промахе.
+ * Фрагменты не должны содержать данных конкретного посетителя (корзина, избранное) — они остаются в странице.
+ */
+@Slf4j
+@Service
+public class HtmlFragmentCacheService {
+
+    private final SpringTemplateEngine templateEngine;
+    private final CacheDataVersions cacheDataVersions;
+
+    @Value("${app.fragment-cache.max-chars:4000000}")
+    private long maxChars;
+
+    @Value("${app.fragment-cache.ttl-minutes:10}")
+    private long ttlMinutes;
+
+    private Cache<String, String> fragments;
+    private volatile JakartaServletWebApplication webApplication;
+
+    public HtmlFragmentCacheService(SpringTemplateEngine templateEngine, CacheDataVersions cacheDataVersions) {
+        this.templateEngine = templateEngine;
+        this.cacheDataVersions = cacheDataVersions;
+    }
+
+    @PostConstruct
+    public void init() {
+        // TTL — страховка для источников, которые устаревают по времени без явного сброса
+        fragments = Caffeine.newBuilder()
+                .maximumWeight(maxChars)
+                .weigher((String key, String html) -> key.length() + html.length())
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Готовый HTML фрагмента. Ключ (с версиями источников) вычисляется до загрузки данных,
+     * поэтому результат, собранный из данных до сброса кеша, ляжет под старую версию и больше не будет выдан
+     */
+    public String render(CachedFragment fragment, String variant, Supplier<Map<String, Object>> variables) {
+        return render(fragment, variant, versionStamp(fragment), variables);
+    }
+
+    /**
+     * Для данных, которые страница всё равно загружает сама (пагинация, счётчики):
+     * versionStamp снимается до загрузки, затем готовые данные передаются сюда
+     */
+    public String render(CachedFragment fragment, String variant, String versionStamp,
+                         Supplier<Map<String, Object>> variables) {
+        String key = fragment.name() + ':' + variant + ':' + versionStamp;
+        return fragments.get(key, k -> process(fragment, variables.get()));
+    }
+
+    public String versionStamp(CachedFragment fragment) {
+        return cacheDataVersions.stamp(fragment.getDependencies());
+    }
+
+    /**
+     * Версии источников фрагмента и версии его области (category:{id}, brand:{id}) — фрагмент одной категории
+     * не пересобирается из-за изменений в другой
+     */
+    public String versionStamp(CachedFragment fragment, String... scopes) {
+        return versionStamp(fragment) + '|' + cacheDataVersions.stamp(scopes);
+    }
+
+    public void clear() {
+        fragments.invalidateAll();
+    }
+
+    private String process(CachedFragment fragment, Map<String, Object> variables) {
+        log.debug("🧩 Рендер фрагмента {}", fragment);
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+        HttpServletRequest request = attributes.getRequest();
+        // URL в общем HTML не должны получить ;jsessionid конкретного посетителя
+        HttpServletResponse response = new HttpServletResponseWrapper(attributes.getResponse()) {
+            @Override
+            public String encodeURL(String url) {
+                return url;
+            }
+
+            @Override
+            public String encodeRedirectURL(String url) {
+                return url;
+            }
+        };
+
+        IWebExchange exchange = webApplication(request).buildExchange(request, response);
+        WebContext context = new WebContext(exchange, LocaleContextHolder.getLocale(), variables);
+        return templateEngine.process(fragment.getTemplate(), Set.of(fragment.getSelector()), context);
+    }
+
+    private JakartaServletWebApplication webApplication(HttpServletRequest request) {
+        if (webApplication == null) {
+            webApplication = JakartaServletWebApplication.buildApplication(request.getServletContext());
+        }
+        return webApplication;
+    }
+
+    /**
+     * 📊 Попадания, промахи и занятый объём
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = fragments.stats();
+        Map<String, Object> result = new HashMap<>();
+        result.put("entries", fragments.estimatedSize());
+        result.put("weightChars", fragments.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L));
+        result.put("maxChars", maxChars);
+        result.put("ttlMinutes", ttlMinutes);
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", String.format("%.2f%%", stats.hitRate() * 100));
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+}
@@ -10,6 +10,12 @@ import java.util.List;
 
 public interface OrderService {
     OrderDTO createOrder(CreateOrderRequest createOrderRequest, HttpSession session);
+
+    /**
+     * Временно зарезервировать товары корзины, пока покупатель заполняет форму заказа
+     */
+    void reserveStockForCheckout(HttpSession session);
+
     List<OrderDTO> getOrdersByPhoneNumber(String phoneNumber);
     OrderDTO getOrderById(Long orderId);
     Order findById(Long orderId);
@@ -4,11 +4,33 @@ import com.example.landofchokolate.dto.novaposhta.*;
 import com.example.landofchokolate.dto.order.OrderDTO;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface PoshtaService {
 
     List<City> getCities();
-    List<Department> getDepartments(String cityRef);
+
+    /**
+     * Поиск городов по названию (укр/рус/латиница), не более limit результатов
+     */
+    List<City> searchCities(String query, int limit);
+
+    Optional<City> findCityByRef(String cityRef);
+
+    List<DepartmentSummary> getDepartments(String cityRef);
+
+    /**
+     * Создать ТТН для заказа и вернуть её номер.
+     * NovaPoshtaRejectedException — накладная точно не создана; любое другое исключение (таймаут, обрыв связи) —
+     * результат неизвестен, перед повтором нужно проверить {@link #findDeliveryByOrder}
+     */
     String createDelivery(OrderDTO order);
+
+    /**
+     * Номер уже созданной ТТН заказа (ищется по InfoRegClientBarcodes = id заказа).
+     * Пусто — накладной нет; исключение — проверить не удалось
+     */
+    Optional<String> findDeliveryByOrder(OrderDTO order);
+
     TrackingInfo trackDelivery(String trackingNumber);
 }
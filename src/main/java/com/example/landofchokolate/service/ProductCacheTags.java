@@ -0,0 +1,262 @@
+package com.example.landofchokolate.service;
+
+import com.example.landofchokolate.config.caffeine.CacheDataVersions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 🏷️ Точечный сброс кешей товаров по тегам вместо allEntries.
+ *
+ * Каждая запись в кешах productCacheManager при сохранении регистрирует теги, из которых она собрана:
+ * product:{id} для каждого товара в ней, category:{id} / brand:{id} для выборок по категории и бренду,
+ * {@link #CATALOG} для выборок по всему каталогу, {@link #STOCK} для выборок по остаткам,
+ * {@link #CLICKS} для рейтинга по кликам. Запись товара после коммита сбрасывает только записи с его тегами.
+ *
+ * Индекс тег → записи не удаляется при истечении записей по TTL — раз в
+ * app.cache.tags.prune-interval-ms из него убираются ссылки на записи, которых в кеше уже нет.
+ * Сброс по тегам меняет версии этих тегов в {@link CacheDataVersions}: фрагменты и ETag страницы товара,
+ * категории и бренда зависят от версий product:{id} / category:{id} / brand:{id}, поэтому изменение
+ * одного товара не задевает остальной каталог. {@link #DATA_VERSION} меняется только при массовых изменениях.
+ */
+@Slf4j
+@Service
+public class ProductCacheTags {
+
+    public static final String DATA_VERSION = "productData";
+
+    public static final String CATALOG = "catalog";
+    public static final String STOCK = "stock";
+    public static final String CLICKS = "clicks";
+
+    private final CacheManager productCacheManager;
+    private final CacheDataVersions cacheDataVersions;
+
+    private final ConcurrentHashMap<String, Set<CacheEntry>> entriesByTag = new ConcurrentHashMap<>();
+    // Растёт на каждый сброс: запись, собранная во время сброса, не останется в кеше устаревшей
+    private final AtomicLong invalidationCounter = new AtomicLong();
+
+    // 📊 Метрики: сколько записей каждого кеша уходит на одну запись товара
+    private final LongAdder invalidations = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> evictedByCache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> maxEvictedByCache = new ConcurrentHashMap<>();
+
+    public ProductCacheTags(@Qualifier("productCacheManager") CacheManager productCacheManager,
+                            CacheDataVersions cacheDataVersions) {
+        this.productCacheManager = productCacheManager;
+        this.cacheDataVersions = cacheDataVersions;
+    }
+
+    public static String product(Long productId) {
+        return "product:" + productId;
+    }
+
+    public static String category(Long categoryId) {
+        return "category:" + categoryId;
+    }
+
+    public static String brand(Long brandId) {
+        return "brand:" + brandId;
+    }
+
+    /**
+     * Значение из кеша или loader с сохранением под тегами tags(результат).
+     * Исключения loader пробрасываются как есть, ничего не кешируется
+     */
+    public <T> T cached(String cacheName, Object key, Supplier<T> loader, Function<T, Collection<String>> tags) {
+        Cache cache = getCache(cacheName);
+        Cache.ValueWrapper cachedValue = cache.get(key);
+        if (cachedValue != null) {
+            @SuppressWarnings("unchecked")
+            T value = (T) cachedValue.get();
+            return value;
+        }
+
+        long counterBefore = invalidationCounter.get();
+        T value = loader.get();
+        if (value == null) {
+            return null;
+        }
+        cache.put(key, value);
+        CacheEntry entry = new CacheEntry(cacheName, key);
+        for (String tag : tags.apply(value)) {
+            entriesByTag.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet()).add(entry);
+        }
+
+        // Сброс прошёл, пока читали БД — результат мог собраться из старых данных
+        if (invalidationCounter.get() != counterBefore) {
+            cache.evictIfPresent(key);
+        }
+        return value;
+    }
+
+    /**
+     * Данные каталога изменились: после коммита сброс записей с тегами и новые версии этих тегов
+     */
+    public void productsChanged(Collection<String> tags) {
+        productsChanged(tags, List.of());
+    }
+
+    /**
+     * То же, displayedIn — категории и бренды, на страницах которых показаны товары ({@link #displayedIn}):
+     * растут только их версии, выборки с этими тегами не сбрасываются — записи с товарами уходят по product:{id}
+     */
+    public void productsChanged(Collection<String> tags, Collection<String> displayedIn) {
+        afterCommit(() -> {
+            evictTagged(tags);
+            tags.forEach(cacheDataVersions::bump);
+            displayedIn.forEach(cacheDataVersions::bump);
+        });
+    }
+
+    /**
+     * Страницы категории и бренда, где показан товар
+     */
+    public static List<String> displayedIn(Long categoryId, Long brandId) {
+        List<String> scopes = new ArrayList<>(2);
+        if (categoryId != null) {
+            scopes.add(category(categoryId));
+        }
+        if (brandId != null) {
+            scopes.add(brand(brandId));
+        }
+        return scopes;
+    }
+
+    /**
+     * Записаны клики: меняется только рейтинг по кликам, страницы каталога их не показывают
+     */
+    public void clicksChanged() {
+        afterCommit(() -> evictTagged(List.of(CLICKS)));
+    }
+
+    /**
+     * Массовые изменения (генерация slug для всех товаров) — сбрасываем всё
+     */
+    public void productsChangedAll() {
+        afterCommit(() -> {
+            invalidationCounter.incrementAndGet();
+            entriesByTag.clear();
+            for (String cacheName : productCacheManager.getCacheNames()) {
+                getCache(cacheName).clear();
+            }
+            cacheDataVersions.bump(DATA_VERSION);
+        });
+    }
+
+    /**
+     * Ссылки на записи, ушедшие из кеша по TTL или размеру
+     */
+    @Scheduled(fixedDelayString = "${app.cache.tags.prune-interval-ms:600000}")
+    public void prune() {
+        int removed = 0;
+        for (Map.Entry<String, Set<CacheEntry>> tagEntries : entriesByTag.entrySet()) {
+            Set<CacheEntry> entries = tagEntries.getValue();
+            int before = entries.size();
+            entries.removeIf(entry -> !isPresent(entry));
+            removed += before - entries.size();
+            if (entries.isEmpty()) {
+                entriesByTag.remove(tagEntries.getKey(), entries);
+            }
+        }
+        if (removed > 0) {
+            log.debug("🏷️ Из индекса тегов убрано {} устаревших ссылок", removed);
+        }
+    }
+
+    private void evictTagged(Collection<String> tags) {
+        invalidationCounter.incrementAndGet();
+
+        Set<CacheEntry> affected = new HashSet<>();
+        for (String tag : tags) {
+            Set<CacheEntry> entries = entriesByTag.remove(tag);
+            if (entries != null) {
+                affected.addAll(entries);
+            }
+        }
+
+        Map<String, Integer> evicted = new HashMap<>();
+        for (CacheEntry entry : affected) {
+            // Ссылки под другими тегами остаются — prune уберёт их, evictIfPresent по ним безвреден
+            if (getCache(entry.cacheName()).evictIfPresent(entry.key())) {
+                evicted.merge(entry.cacheName(), 1, Integer::sum);
+            }
+        }
+
+        invalidations.increment();
+        evicted.forEach((cacheName, count) -> {
+            evictedByCache.computeIfAbsent(cacheName, n -> new LongAdder()).add(count);
+            maxEvictedByCache.merge(cacheName, count, Math::max);
+        });
+        log.debug("🏷️ Сброс по тегам {}: {}", tags, evicted);
+    }
+
+    private boolean isPresent(CacheEntry entry) {
+        // Через native cache — проверка не портит статистику попаданий
+        Object nativeCache = getCache(entry.cacheName()).getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache) {
+            return caffeineCache.asMap().containsKey(entry.key());
+        }
+        return true;
+    }
+
+    private Cache getCache(String cacheName) {
+        Cache cache = productCacheManager.getCache(cacheName);
+        if (cache == null) {
+            throw new IllegalStateException("Cache not configured: " + cacheName);
+        }
+        return cache;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 📊 Метрики: сбросы, записи в индексе тегов и сброшенные записи на один сброс по каждому кешу
+     */
+    public Map<String, Object> getStats() {
+        long writes = invalidations.sum();
+        long trackedEntries = entriesByTag.values().stream().mapToLong(Set::size).sum();
+
+        Map<String, Object> perCache = new TreeMap<>();
+        evictedByCache.forEach((cacheName, evicted) -> {
+            Map<String, Object> cacheStats = new LinkedHashMap<>();
+            cacheStats.put("evictedEntries", evicted.sum());
+            cacheStats.put("evictedPerWrite", writes > 0 ? String.format("%.2f", (double) evicted.sum() / writes) : "0.00");
+            cacheStats.put("maxEvictedPerWrite", maxEvictedByCache.getOrDefault(cacheName, 0));
+            perCache.put(cacheName, cacheStats);
+        });
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("invalidations", writes);
+        stats.put("tags", entriesByTag.size());
+        stats.put("trackedReferences", trackedEntries);
+        stats.put("caches", perCache);
+        return stats;
+    }
+
+    private record CacheEntry(String cacheName, Object key) {
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.landofchokolate.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 👆 Счётчик просмотров товаров с отложенной записью.
+ *
+ * Просмотр только увеличивает LongAdder товара в памяти — без UPDATE и без сброса кешей в потоке запроса.
+ * Раз в app.clicks.flush-interval-ms накопленные приращения пишутся одним JDBC batch
+ * (UPDATE product SET click_count = click_count + ?), и рейтинг по кликам сбрасывается один раз на пачку.
+ *
+ * Счётчик не обнуляется: запоминается, сколько уже записано, и в базу уходит разница.
+ * Поэтому клики, пришедшие во время записи или при неудачной записи, не теряются — уйдут следующей пачкой.
+ * Записи в карте не удаляются: их не больше, чем товаров в каталоге.
+ */
+@Service
+@Slf4j
+public class ProductClickCounterService {
+
+    private static final String UPDATE_SQL = "UPDATE product SET click_count = click_count + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductCacheTags productCacheTags;
+
+    private final ConcurrentHashMap<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    @Value("${app.clicks.flush-interval-ms:10000}")
+    private long flushIntervalMs;
+
+    // 📊 Метрики
+    private final LongAdder recordedClicks = new LongAdder();
+    private final LongAdder persistedClicks = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private volatile int lastFlushRows;
+
+    public ProductClickCounterService(JdbcTemplate jdbcTemplate,
+                                      TransactionTemplate transactionTemplate,
+                                      ProductCacheTags productCacheTags) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.productCacheTags = productCacheTags;
+    }
+
+    /**
+     * Учесть просмотр товара — вызывается на каждый просмотр, в том числе отданный из кеша
+     */
+    public void record(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        counters.computeIfAbsent(productId, id -> new Counter()).clicks.increment();
+        recordedClicks.increment();
+    }
+
+    @Scheduled(initialDelayString = "${app.clicks.flush-interval-ms:10000}",
+            fixedDelayString = "${app.clicks.flush-interval-ms:10000}")
+    public synchronized void flush() {
+        List<Delta> deltas = new ArrayList<>();
+        counters.forEach((productId, counter) -> {
+            long total = counter.clicks.sum();
+            long delta = total - counter.persisted;
+            if (delta > 0) {
+                deltas.add(new Delta(productId, counter, total, delta));
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        // Одинаковый порядок строк во всех пачках — без взаимных блокировок с другими UPDATE
+        deltas.sort(Comparator.comparing(Delta::productId));
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(UPDATE_SQL, deltas, deltas.size(), (ps, delta) -> {
+                        ps.setLong(1, delta.delta());
+                        ps.setLong(2, delta.productId());
+                    }));
+        } catch (Exception e) {
+            failedFlushes.increment();
+            log.error("❌ Ошибка записи кликов ({} товаров), повтор следующей пачкой: {}", deltas.size(), e.getMessage());
+            return;
+        }
+
+        long clicks = 0;
+        for (Delta delta : deltas) {
+            delta.counter().persisted = delta.total();
+            clicks += delta.delta();
+        }
+        persistedClicks.add(clicks);
+        flushCount.increment();
+        lastFlushRows = deltas.size();
+        // Рекомендации главной пересчитываются по своему расписанию (ProductRecommendationService)
+        productCacheTags.clicksChanged();
+        log.debug("👆 Записано {} кликов по {} товарам", clicks, deltas.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("👆 Запись накопленных кликов перед остановкой");
+        flush();
+    }
+
+    /**
+     * 📊 Метрики: принятые и записанные клики, ожидающие записи, число пачек
+     */
+    public Map<String, Object> getStats() {
+        long pending = 0;
+        for (Counter counter : counters.values()) {
+            pending += counter.clicks.sum() - counter.persisted;
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("flushIntervalMs", flushIntervalMs);
+        stats.put("trackedProducts", counters.size());
+        stats.put("recordedClicks", recordedClicks.sum());
+        stats.put("persistedClicks", persistedClicks.sum());
+        stats.put("pendingClicks", pending);
+        stats.put("flushCount", flushCount.sum());
+        stats.put("failedFlushes", failedFlushes.sum());
+        stats.put("lastFlushRows", lastFlushRows);
+        return stats;
+    }
+
+    private static final class Counter {
+        final LongAdder clicks = new LongAdder();
+        // Меняется только внутри synchronized flush()
+        volatile long persisted;
+    }
+
+    private record Delta(Long productId, Counter counter, long total, long delta) {
+    }
+}
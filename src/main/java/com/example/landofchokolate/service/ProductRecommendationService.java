@@ -0,0 +1,96 @@
+package com.example.landofchokolate.service;
+
+import com.example.landofchokolate.config.caffeine.CacheDataVersions;
+import com.example.landofchokolate.dto.product.ProductListRecommendationDto;
+import com.example.landofchokolate.repository.ProductRepository;
+import com.example.landofchokolate.util.ProductChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ⭐ Рекомендации главной страницы — готовый снимок в памяти.
+ *
+ * Снимок (первые app.recommendations.size товаров с LIMIT в запросе) пересчитывается в фоне:
+ * после коммита изменений товаров (с небольшой задержкой — пачка правок даёт один пересчёт)
+ * и по расписанию, чтобы подтянуть клики и остатки. Готовый список подменяется целиком (volatile),
+ * поток запроса только читает его. Первое построение делает прогрев при старте (CacheWarmUpService);
+ * запрос из потока запроса возможен один раз — если прогрев выключен или ещё не дошёл до рекомендаций.
+ * Смена содержимого снимка меняет версию {@link #DATA_VERSION} — по ней кешируется HTML блока на главной.
+ */
+@Slf4j
+@Service
+public class ProductRecommendationService {
+
+    public static final String DATA_VERSION = "homeRecommendations";
+
+    private final ProductRepository productRepository;
+    private final CacheDataVersions cacheDataVersions;
+
+    @Value("${app.recommendations.size:50}")
+    private int snapshotSize;
+
+    @Value("${app.recommendations.max-age-ms:300000}")
+    private long maxAgeMs;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private volatile List<ProductListRecommendationDto> snapshot;
+    private volatile long lastRefreshMillis;
+
+    public ProductRecommendationService(ProductRepository productRepository, CacheDataVersions cacheDataVersions) {
+        this.productRepository = productRepository;
+        this.cacheDataVersions = cacheDataVersions;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        dirty.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${app.recommendations.refresh-check-ms:5000}")
+    public void refreshIfNeeded() {
+        // Первое построение — за прогревом или первым запросом, не параллельно им
+        boolean stale = snapshot != null && System.currentTimeMillis() - lastRefreshMillis > maxAgeMs;
+        if (dirty.compareAndSet(true, false) || stale) {
+            refresh();
+        }
+    }
+
+    /**
+     * Первые limit рекомендаций из снимка; limit больше размера снимка обрезается до него
+     */
+    public List<ProductListRecommendationDto> getRecommendations(int limit) {
+        List<ProductListRecommendationDto> current = snapshot;
+        if (current == null) {
+            current = refresh();
+        }
+        return current.size() <= limit ? current : current.subList(0, limit);
+    }
+
+    public synchronized List<ProductListRecommendationDto> refresh() {
+        try {
+            List<ProductListRecommendationDto> loaded =
+                    List.copyOf(productRepository.findRecommendationProducts(PageRequest.of(0, snapshotSize)));
+            boolean changed = !loaded.equals(snapshot);
+            snapshot = loaded;
+            if (changed) {
+                cacheDataVersions.bump(DATA_VERSION);
+            }
+            log.debug("⭐ Снимок рекомендаций обновлён: {} товаров", loaded.size());
+            return loaded;
+        } catch (Exception e) {
+            // Остаётся прежний снимок; при следующей проверке пробуем снова
+            log.error("❌ Ошибка пересчёта рекомендаций: {}", e.getMessage(), e);
+            return snapshot != null ? snapshot : List.of();
+        } finally {
+            lastRefreshMillis = System.currentTimeMillis();
+        }
+    }
+}
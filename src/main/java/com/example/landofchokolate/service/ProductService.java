@@ -116,6 +116,12 @@ public interface ProductService {
 
     Page<CategoryProductDto> getProductCardsByCategoryPage(Long categoryId, int page, int size);
 
+    /**
+     * Страница карточек категории. Если известен id последнего товара предыдущей страницы (afterId),
+     * страница читается keyset-запросом без OFFSET
+     */
+    Page<CategoryProductDto> getProductCardsByCategoryPage(Long categoryId, int page, int size, Long afterId);
+
     List<Product> findAllActiveProducts();
 
     /**
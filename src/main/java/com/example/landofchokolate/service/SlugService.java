@@ -3,6 +3,7 @@ package com.example.landofchokolate.service;
 import com.example.landofchokolate.repository.BrandRepository;
 import com.example.landofchokolate.repository.CategoryRepository;
 import com.example.landofchokolate.repository.ProductRepository;
+import com.example.landofchokolate.util.Transliterator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -77,31 +78,8 @@ public class SlugService {
             return "item";
         }
 
-        return name.toLowerCase()
-                .trim()
-                // Транслитерация кириллицы
-                .replaceAll("а", "a").replaceAll("б", "b").replaceAll("в", "v")
-                .replaceAll("г", "g").replaceAll("д", "d").replaceAll("е", "e")
-                .replaceAll("ё", "e").replaceAll("ж", "zh").replaceAll("з", "z")
-                .replaceAll("и", "i").replaceAll("й", "y").replaceAll("к", "k")
-                .replaceAll("л", "l").replaceAll("м", "m").replaceAll("н", "n")
-                .replaceAll("о", "o").replaceAll("п", "p").replaceAll("р", "r")
-                .replaceAll("с", "s").replaceAll("т", "t").replaceAll("у", "u")
-                .replaceAll("ф", "f").replaceAll("х", "h").replaceAll("ц", "ts")
-                .replaceAll("ч", "ch").replaceAll("ш", "sh").replaceAll("щ", "sch")
-                .replaceAll("ъ", "").replaceAll("ы", "y").replaceAll("ь", "")
-                .replaceAll("э", "e").replaceAll("ю", "yu").replaceAll("я", "ya")
-                // Украинские буквы
-                .replaceAll("і", "i").replaceAll("ї", "yi").replaceAll("є", "ye")
-                .replaceAll("ґ", "g")
-                // Удаляем все кроме букв, цифр и пробелов
-                .replaceAll("[^a-z0-9\\s]", "")
-                // Заменяем пробелы на дефисы
-                .replaceAll("\\s+", "-")
-                // Удаляем множественные дефисы
-                .replaceAll("-+", "-")
-                // Удаляем дефисы в начале и конце
-                .replaceAll("^-|-$", "");
+        // Та же таблица транслитерации, что и у поискового индекса товаров
+        return Transliterator.toSlug(name);
     }
 
     /**
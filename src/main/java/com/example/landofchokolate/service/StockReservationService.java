@@ -0,0 +1,287 @@
+package com.example.landofchokolate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 🔒 Резервирование остатков без гонок.
+ *
+ * Остаток меняется только условным UPDATE одной строкой
+ * ({@code stock_quantity = stock_quantity - ? WHERE stock_quantity >= ?}), все позиции заказа —
+ * одним JDBC batch. База сама сериализует конкурентные списания по строке товара,
+ * поэтому последняя коробка достаётся ровно одному покупателю. Позиции сортируются по id товара,
+ * чтобы два заказа с одинаковыми товарами брали блокировки строк в одном порядке.
+ *
+ * Корзина на оформлении держит резерв ограниченное время (stock_reservations);
+ * при создании заказа резерв превращается в списание, просроченные резервы возвращаются в остаток.
+ *
+ * UPDATE идёт мимо Hibernate, поэтому после коммита затронутые товары сбрасываются в кешах
+ * по тегам product:id и stock ({@link ProductCacheTags}), растут версии их категорий и брендов,
+ * а из brandProducts уходят страницы только этих брендов. Закешированные фрагменты и ETag
+ * не показывают «В наявності» у распроданного товара, а остальной каталог не пересобирается.
+ */
+@Service
+@Slf4j
+public class StockReservationService {
+
+    private static final String DECREMENT_SQL =
+            "UPDATE product SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?";
+    private static final String INCREMENT_SQL =
+            "UPDATE product SET stock_quantity = stock_quantity + ? WHERE id = ?";
+    private static final String INSERT_HOLD_SQL =
+            "INSERT INTO stock_reservations (holder_key, product_id, quantity, expires_at, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_HOLDS_SQL =
+            "DELETE FROM stock_reservations WHERE holder_key = ? RETURNING product_id, quantity";
+    private static final String DELETE_EXPIRED_SQL =
+            "DELETE FROM stock_reservations WHERE expires_at < ? RETURNING product_id, quantity";
+    private static final String PRODUCT_PLACEMENT_SQL =
+            "SELECT p.category_id, p.brand_id, b.slug FROM product p LEFT JOIN brand b ON b.id = p.brand_id " +
+            "WHERE p.id = ANY (?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductCacheTags productCacheTags;
+    private final CacheManager brandCacheManager;
+    private final long holdMinutes;
+
+    public StockReservationService(JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   ProductCacheTags productCacheTags,
+                                   @Qualifier("brandCacheManager") CacheManager brandCacheManager,
+                                   @Value("${app.stock.reservation.hold-minutes:15}") long holdMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.productCacheTags = productCacheTags;
+        this.brandCacheManager = brandCacheManager;
+        this.holdMinutes = holdMinutes;
+    }
+
+    /**
+     * Зарезервировать товары корзины на время оформления. Прежний резерв владельца
+     * снимается и ставится заново. Возвращает id товаров, которых не хватило
+     */
+    public List<Long> reserve(String holderKey, Map<Long, Integer> quantities) {
+        return transactionTemplate.execute(status -> {
+            Map<Long, Integer> previous = deleteHolds(holderKey);
+            returnToStock(previous);
+
+            List<Map.Entry<Long, Integer>> lines = sortedLines(quantities);
+            List<Long> failed = decrement(lines);
+
+            LocalDateTime now = LocalDateTime.now();
+            Timestamp createdAt = Timestamp.valueOf(now);
+            Timestamp expiresAt = Timestamp.valueOf(now.plusMinutes(holdMinutes));
+            List<Map.Entry<Long, Integer>> held = lines.stream()
+                    .filter(line -> !failed.contains(line.getKey()))
+                    .toList();
+            jdbcTemplate.batchUpdate(INSERT_HOLD_SQL, held, held.size(), (ps, line) -> {
+                ps.setString(1, holderKey);
+                ps.setLong(2, line.getKey());
+                ps.setInt(3, line.getValue());
+                ps.setTimestamp(4, expiresAt);
+                ps.setTimestamp(5, createdAt);
+            });
+
+            if (!failed.isEmpty()) {
+                log.info("🔒 Резерв для {}: не хватило товаров {}", holderKey, failed);
+            }
+
+            Set<Long> changed = new HashSet<>(previous.keySet());
+            held.forEach(line -> changed.add(line.getKey()));
+            stockChanged(changed);
+            return failed;
+        });
+    }
+
+    /**
+     * Списать товары заказа с учётом резерва владельца. Участвует в текущей транзакции:
+     * если вернулся непустой список (товара не хватило), вызывающий должен бросить исключение,
+     * чтобы откатить уже выполненные списания
+     */
+    public List<Long> commit(String holderKey, Map<Long, Integer> quantities) {
+        return transactionTemplate.execute(status -> {
+            Map<Long, Integer> held = deleteHolds(holderKey);
+
+            Map<Long, Integer> toTake = new HashMap<>();
+            Map<Long, Integer> toReturn = new HashMap<>();
+            Set<Long> productIds = new HashSet<>(quantities.keySet());
+            productIds.addAll(held.keySet());
+            for (Long productId : productIds) {
+                int delta = quantities.getOrDefault(productId, 0) - held.getOrDefault(productId, 0);
+                if (delta > 0) {
+                    toTake.put(productId, delta);
+                } else if (delta < 0) {
+                    toReturn.put(productId, -delta);
+                }
+            }
+
+            List<Long> failed = decrement(sortedLines(toTake));
+            if (failed.isEmpty()) {
+                returnToStock(toReturn);
+                // При нехватке вызывающий откатывает транзакцию — сбрасывать нечего
+                Set<Long> changed = new HashSet<>(toTake.keySet());
+                changed.addAll(toReturn.keySet());
+                stockChanged(changed);
+            }
+            return failed;
+        });
+    }
+
+    /**
+     * Снять резерв владельца и вернуть товар в остаток
+     */
+    public void release(String holderKey) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<Long, Integer> held = deleteHolds(holderKey);
+            returnToStock(held);
+            stockChanged(held.keySet());
+        });
+    }
+
+    /**
+     * Вернуть в остаток товар из резервов, просроченных на момент now
+     */
+    public int releaseExpired(LocalDateTime now) {
+        Integer released = transactionTemplate.execute(status -> {
+            Map<Long, Integer> expired = collect(jdbcTemplate.query(DELETE_EXPIRED_SQL,
+                    (rs, rowNum) -> Map.entry(rs.getLong(1), rs.getInt(2)), Timestamp.valueOf(now)));
+            returnToStock(expired);
+            stockChanged(expired.keySet());
+            return expired.size();
+        });
+        return released != null ? released : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.reservation.cleanup-interval-ms:60000}")
+    public void releaseExpiredReservations() {
+        try {
+            int released = releaseExpired(LocalDateTime.now());
+            if (released > 0) {
+                log.info("🔓 Сняты просроченные резервы: {} товаров", released);
+            }
+        } catch (Exception e) {
+            log.error("❌ Ошибка снятия просроченных резервов: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Сброс кешей затронутых товаров — выполнится после коммита текущей транзакции
+     */
+    private void stockChanged(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        List<String> tags = new ArrayList<>();
+        for (Long productId : productIds) {
+            tags.add(ProductCacheTags.product(productId));
+        }
+        tags.add(ProductCacheTags.STOCK);
+
+        Set<String> displayedIn = new HashSet<>();
+        Set<String> brandSlugs = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            var statement = con.prepareStatement(PRODUCT_PLACEMENT_SQL);
+            statement.setArray(1, con.createArrayOf("bigint", productIds.toArray()));
+            return statement;
+        }, rs -> {
+            displayedIn.addAll(ProductCacheTags.displayedIn(
+                    rs.getObject(1, Long.class), rs.getObject(2, Long.class)));
+            if (rs.getString(3) != null) {
+                brandSlugs.add(rs.getString(3));
+            }
+        });
+        productCacheTags.productsChanged(tags, displayedIn);
+
+        // Страницы бренда кешируются в brandCacheManager без тегов товаров — ключ начинается со slug бренда
+        if (!brandSlugs.isEmpty()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictBrandProducts(brandSlugs);
+                }
+            });
+        }
+    }
+
+    /**
+     * Напрямую из Caffeine: evict через Spring поднял бы версию brandProducts для всех брендов
+     */
+    private void evictBrandProducts(Set<String> brandSlugs) {
+        Cache brandProducts = brandCacheManager.getCache("brandProducts");
+        if (brandProducts != null
+                && brandProducts.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache) {
+            caffeineCache.asMap().keySet().removeIf(key -> brandSlugs.stream()
+                    .anyMatch(slug -> String.valueOf(key).startsWith(slug + "_")));
+        }
+    }
+
+    // ============ SQL ============
+
+    /**
+     * Условное списание одним batch. Возвращает id товаров, по которым строка не обновилась
+     */
+    private List<Long> decrement(List<Map.Entry<Long, Integer>> lines) {
+        if (lines.isEmpty()) {
+            return List.of();
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(DECREMENT_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setLong(2, line.getKey());
+            ps.setInt(3, line.getValue());
+        });
+
+        List<Long> failed = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            int count = counts[0][i];
+            if (count == 0 || (count < 0 && count != Statement.SUCCESS_NO_INFO)) {
+                failed.add(lines.get(i).getKey());
+            }
+        }
+        return failed;
+    }
+
+    private void returnToStock(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> lines = sortedLines(quantities);
+        if (lines.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INCREMENT_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setLong(2, line.getKey());
+        });
+    }
+
+    private Map<Long, Integer> deleteHolds(String holderKey) {
+        return collect(jdbcTemplate.query(DELETE_HOLDS_SQL,
+                (rs, rowNum) -> Map.entry(rs.getLong(1), rs.getInt(2)), holderKey));
+    }
+
+    private static Map<Long, Integer> collect(List<Map.Entry<Long, Integer>> rows) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (Map.Entry<Long, Integer> row : rows) {
+            quantities.merge(row.getKey(), row.getValue(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private static List<Map.Entry<Long, Integer>> sortedLines(Map<Long, Integer> quantities) {
+        return quantities.entrySet().stream()
+                .filter(line -> line.getValue() != null && line.getValue() > 0)
+                .sorted(Map.Entry.comparingByKey())
+                .toList();
+    }
+}
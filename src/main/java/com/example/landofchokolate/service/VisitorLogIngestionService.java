@@ -0,0 +1,367 @@
+package com.example.landofchokolate.service;
+
+import com.example.landofchokolate.dto.visitor.GeoLocationInfo;
+import com.example.landofchokolate.dto.visitor.VisitorEvent;
+import com.example.landofchokolate.enums.OverflowPolicy;
+import com.example.landofchokolate.model.VisitorLog;
+import com.example.landofchokolate.util.BoundedRingBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 📥 Фоновая загрузка логов посещений.
+ *
+ * Поток запроса только кладёт сырое {@link VisitorEvent} в lock-free кольцевой буфер.
+ * Один фоновый поток забирает события, разбирает User-Agent, получает геолокацию
+ * и пишет строки в visitor_logs пачками через JDBC batch (вместе со счётчиками {@link VisitorRollupService}).
+ * VisitorLog использует IDENTITY, поэтому Hibernate батчить вставки не умеет — отсюда JdbcTemplate.
+ */
+@Service
+@Slf4j
+public class VisitorLogIngestionService {
+
+    private static final String INSERT_SQL = "INSERT INTO visitor_logs " +
+            "(ip_address, user_agent, requested_url, referer_url, session_id, operating_system, " +
+            "browser_name, is_mobile, country, city, isp, visit_time, is_bot, is_first_visit) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GeoLocationService geoLocationService;
+    private final VisitorRollupService visitorRollupService;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager visitorAnalyticsCacheManager;
+    private final ExecutorService drainerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "VisitorLog-Drainer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.visitor-tracking.ingest.capacity:8192}")
+    private int capacity;
+
+    @Value("${app.visitor-tracking.ingest.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.visitor-tracking.ingest.flush-interval-ms:2000}")
+    private long flushIntervalMs;
+
+    @Value("${app.visitor-tracking.ingest.overflow-policy:DROP_NEWEST}")
+    private OverflowPolicy overflowPolicy;
+
+    private BoundedRingBuffer<VisitorEvent> ringBuffer;
+    private volatile boolean running = false;
+
+    // 📊 Метрики
+    private final LongAdder acceptedEvents = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder callerRunsEvents = new LongAdder();
+    private final LongAdder persistedRows = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder totalFlushNanos = new LongAdder();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+
+    public VisitorLogIngestionService(JdbcTemplate jdbcTemplate,
+                                      GeoLocationService geoLocationService,
+                                      VisitorRollupService visitorRollupService,
+                                      TransactionTemplate transactionTemplate,
+                                      @Qualifier("visitorAnalyticsCacheManager") CacheManager visitorAnalyticsCacheManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.geoLocationService = geoLocationService;
+        this.visitorRollupService = visitorRollupService;
+        this.transactionTemplate = transactionTemplate;
+        this.visitorAnalyticsCacheManager = visitorAnalyticsCacheManager;
+    }
+
+    @PostConstruct
+    public void init() {
+        ringBuffer = new BoundedRingBuffer<>(capacity);
+        running = true;
+        drainerExecutor.submit(this::drainLoop);
+        log.info("📥 Фоновая загрузка логов посещений запущена: буфер={}, пачка={}, интервал={} мс, переполнение={}",
+                ringBuffer.capacity(), batchSize, flushIntervalMs, overflowPolicy);
+    }
+
+    /**
+     * Поставить событие в очередь. Никогда не блокирует поток запроса
+     * (кроме политики CALLER_RUNS, которая осознанно обрабатывает событие на месте).
+     */
+    public void submit(VisitorEvent event) {
+        if (ringBuffer.offer(event)) {
+            acceptedEvents.increment();
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case DROP_OLDEST -> {
+                if (ringBuffer.poll() != null) {
+                    droppedEvents.increment();
+                }
+                if (ringBuffer.offer(event)) {
+                    acceptedEvents.increment();
+                } else {
+                    droppedEvents.increment();
+                }
+            }
+            case CALLER_RUNS -> {
+                callerRunsEvents.increment();
+                List<VisitorLog> single = new ArrayList<>(1);
+                single.add(enrich(event));
+                flush(single);
+            }
+            default -> droppedEvents.increment();
+        }
+    }
+
+    private void drainLoop() {
+        List<VisitorLog> batch = new ArrayList<>(batchSize);
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        long lastFlush = System.nanoTime();
+
+        while (running || !ringBuffer.isEmpty()) {
+            try {
+                int drained = ringBuffer.drain(event -> batch.add(enrich(event)), batchSize - batch.size());
+
+                boolean batchFull = batch.size() >= batchSize;
+                boolean intervalElapsed = System.nanoTime() - lastFlush >= flushIntervalNanos;
+
+                if (!batch.isEmpty() && (batchFull || intervalElapsed || !running)) {
+                    flush(batch);
+                    batch.clear();
+                    lastFlush = System.nanoTime();
+                } else if (batch.isEmpty()) {
+                    lastFlush = System.nanoTime();
+                }
+
+                if (drained == 0 && running) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (Exception e) {
+                log.error("❌ Ошибка в потоке загрузки логов посещений: {}", e.getMessage());
+                failedRows.add(batch.size());
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+        log.info("📥 Поток загрузки логов посещений остановлен");
+    }
+
+    private void flush(List<VisitorLog> batch) {
+        long start = System.nanoTime();
+        try {
+            // Сырые строки и счётчики visitor_rollups пишем в одной транзакции
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, visitorLog) -> {
+                    ps.setString(1, visitorLog.getIpAddress());
+                    ps.setString(2, visitorLog.getUserAgent());
+                    ps.setString(3, visitorLog.getRequestedUrl());
+                    ps.setString(4, visitorLog.getRefererUrl());
+                    ps.setString(5, visitorLog.getSessionId());
+                    ps.setString(6, visitorLog.getOperatingSystem());
+                    ps.setString(7, visitorLog.getBrowserName());
+                    ps.setBoolean(8, Boolean.TRUE.equals(visitorLog.getIsMobile()));
+                    ps.setString(9, visitorLog.getCountry());
+                    ps.setString(10, visitorLog.getCity());
+                    ps.setString(11, visitorLog.getIsp());
+                    ps.setTimestamp(12, Timestamp.valueOf(visitorLog.getVisitTime()));
+                    ps.setBoolean(13, Boolean.TRUE.equals(visitorLog.getIsBot()));
+                    ps.setBoolean(14, Boolean.TRUE.equals(visitorLog.getIsFirstVisit()));
+                });
+                visitorRollupService.record(batch);
+            });
+            persistedRows.add(batch.size());
+            evictVisitorStatsCaches();
+        } catch (Exception e) {
+            failedRows.add(batch.size());
+            log.error("❌ Ошибка записи пачки логов посещений ({} шт.): {}", batch.size(), e.getMessage());
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            flushCount.increment();
+            totalFlushNanos.add(elapsed);
+            lastFlushNanos.set(elapsed);
+            maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    private void evictVisitorStatsCaches() {
+        for (String cacheName : List.of("visitorBasicStats", "visitorsList")) {
+            Cache cache = visitorAnalyticsCacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    // ============ ОБОГАЩЕНИЕ (в фоновом потоке) ============
+
+    private VisitorLog enrich(VisitorEvent event) {
+        VisitorLog visitorLog = new VisitorLog();
+        visitorLog.setIpAddress(truncate(event.getIpAddress(), 45));
+        visitorLog.setUserAgent(event.getUserAgent());
+        visitorLog.setRequestedUrl(event.getRequestedUrl());
+        visitorLog.setRefererUrl(event.getRefererUrl());
+        visitorLog.setSessionId(truncate(event.getSessionId(), 100));
+        visitorLog.setVisitTime(event.getVisitTime());
+
+        // Анализ User-Agent
+        parseUserAgent(visitorLog);
+
+        // Геолокация
+        try {
+            enrichWithGeoLocation(visitorLog);
+        } catch (Exception e) {
+            visitorLog.setCountry("Unknown");
+            visitorLog.setCity("Unknown");
+            visitorLog.setIsp("Unknown");
+        }
+
+        // Проверка на бота
+        visitorLog.setIsBot(isBot(visitorLog.getUserAgent()));
+        return visitorLog;
+    }
+
+    private void parseUserAgent(VisitorLog visitorLog) {
+        String userAgent = visitorLog.getUserAgent();
+        if (userAgent == null) {
+            return;
+        }
+
+        String ua = userAgent.toLowerCase();
+
+        // Мобильное устройство
+        boolean isMobile = ua.contains("mobile") || ua.contains("android") || ua.contains("iphone");
+        visitorLog.setIsMobile(isMobile);
+
+        // Операционная система
+        if (ua.contains("windows")) {
+            visitorLog.setOperatingSystem("Windows");
+        } else if (ua.contains("mac")) {
+            visitorLog.setOperatingSystem("macOS");
+        } else if (ua.contains("linux")) {
+            visitorLog.setOperatingSystem("Linux");
+        } else if (ua.contains("android")) {
+            visitorLog.setOperatingSystem("Android");
+        } else if (ua.contains("ios") || ua.contains("iphone")) {
+            visitorLog.setOperatingSystem("iOS");
+        } else {
+            visitorLog.setOperatingSystem("Unknown");
+        }
+
+        // Браузер
+        if (ua.contains("chrome")) {
+            visitorLog.setBrowserName("Chrome");
+        } else if (ua.contains("firefox")) {
+            visitorLog.setBrowserName("Firefox");
+        } else if (ua.contains("safari") && !ua.contains("chrome")) {
+            visitorLog.setBrowserName("Safari");
+        } else if (ua.contains("edge")) {
+            visitorLog.setBrowserName("Edge");
+        } else {
+            visitorLog.setBrowserName("Unknown");
+        }
+    }
+
+    private void enrichWithGeoLocation(VisitorLog visitorLog) {
+        GeoLocationInfo geoInfo = geoLocationService.getLocationByIp(visitorLog.getIpAddress());
+
+        if (geoInfo != null) {
+            visitorLog.setCountry(truncate(geoInfo.getCountry(), 100));
+            visitorLog.setCity(truncate(geoInfo.getCity(), 100));
+            visitorLog.setIsp(truncate(geoInfo.getIsp(), 200));
+        } else {
+            log.debug("⚠️ Геолокация вернула null для IP {}", visitorLog.getIpAddress());
+            visitorLog.setCountry("Unknown");
+            visitorLog.setCity("Unknown");
+            visitorLog.setIsp("Unknown");
+        }
+    }
+
+    private boolean isBot(String userAgent) {
+        if (userAgent == null) return false;
+
+        String ua = userAgent.toLowerCase();
+        return ua.contains("bot") || ua.contains("crawler") ||
+                ua.contains("spider") || ua.contains("googlebot");
+    }
+
+    private String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        return value.substring(0, maxLength);
+    }
+
+    // ============ МЕТРИКИ ============
+
+    /**
+     * 📊 Метрики очереди: глубина, отброшенные события, задержка записи
+     */
+    public Map<String, Object> getIngestionStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long flushes = flushCount.sum();
+
+        stats.put("queueDepth", ringBuffer.size());
+        stats.put("queueCapacity", ringBuffer.capacity());
+        stats.put("overflowPolicy", overflowPolicy.name());
+        stats.put("batchSize", batchSize);
+        stats.put("flushIntervalMs", flushIntervalMs);
+        stats.put("acceptedEvents", acceptedEvents.sum());
+        stats.put("droppedEvents", droppedEvents.sum());
+        stats.put("callerRunsEvents", callerRunsEvents.sum());
+        stats.put("persistedRows", persistedRows.sum());
+        stats.put("failedRows", failedRows.sum());
+        stats.put("flushCount", flushes);
+        stats.put("lastFlushMs", nanosToMillis(lastFlushNanos.get()));
+        stats.put("maxFlushMs", nanosToMillis(maxFlushNanos.get()));
+        stats.put("avgFlushMs", flushes > 0 ? nanosToMillis(totalFlushNanos.sum() / flushes) : 0.0);
+        return stats;
+    }
+
+    private double nanosToMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Остановка: дописываем всё, что осталось в буфере
+     */
+    @PreDestroy
+    public void shutdown() {
+        log.info("📥 Остановка фоновой загрузки логов посещений, в буфере: {}", ringBuffer.size());
+        running = false;
+        drainerExecutor.shutdown();
+        try {
+            if (!drainerExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                drainerExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            drainerExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
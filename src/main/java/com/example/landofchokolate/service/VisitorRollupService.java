@@ -0,0 +1,227 @@
+package com.example.landofchokolate.service;
+
+import com.example.landofchokolate.model.VisitorLog;
+import com.example.landofchokolate.model.VisitorRollup;
+import com.example.landofchokolate.model.VisitorRollup.Dimension;
+import com.example.landofchokolate.model.VisitorRollup.Granularity;
+import com.example.landofchokolate.repository.VisitorRollupRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 📈 Инкрементальные счётчики посещений (visitor_rollups).
+ *
+ * Каждая записанная пачка visitor_logs сворачивается в памяти и одним JDBC batch
+ * делает upsert в почасовые/суточные строки. Исторические данные, записанные до
+ * появления таблицы, сворачиваются один раз: при первом старте фиксируется граница
+ * (строка BACKFILL), всё до неё сворачивается из сырого лога, всё после — из очереди.
+ */
+@Service
+@Slf4j
+public class VisitorRollupService {
+
+    private static final int MAX_VALUE_LENGTH = 500;
+
+    private static final String UPSERT_SQL = "INSERT INTO visitor_rollups " +
+            "(granularity, bucket_start, dimension, dimension_value, visit_count) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (granularity, bucket_start, dimension, dimension_value) " +
+            "DO UPDATE SET visit_count = visitor_rollups.visit_count + EXCLUDED.visit_count";
+
+    private static final String BACKFILL_SQL_TEMPLATE = "INSERT INTO visitor_rollups " +
+            "(granularity, bucket_start, dimension, dimension_value, visit_count) " +
+            "SELECT '%s', date_trunc('%s', visit_time), '%s', %s, COUNT(*) FROM visitor_logs " +
+            "WHERE visit_time < ? %s GROUP BY 2, 4 " +
+            "ON CONFLICT (granularity, bucket_start, dimension, dimension_value) " +
+            "DO UPDATE SET visit_count = visitor_rollups.visit_count + EXCLUDED.visit_count";
+
+    private final VisitorRollupRepository visitorRollupRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private VisitorRollup backfillMarker;
+    private volatile boolean backfillCompleted = false;
+
+    public VisitorRollupService(VisitorRollupRepository visitorRollupRepository,
+                                JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate) {
+        this.visitorRollupRepository = visitorRollupRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Фиксируем границу до того, как очередь начнёт писать счётчики.
+     * Граница сохраняется в БД, поэтому повторный запуск после сбоя не посчитает визиты дважды
+     */
+    @PostConstruct
+    public void init() {
+        backfillMarker = visitorRollupRepository.findFirstByDimension(Dimension.BACKFILL)
+                .orElseGet(() -> visitorRollupRepository.save(VisitorRollup.builder()
+                        .granularity(Granularity.DAY)
+                        .bucketStart(LocalDateTime.now())
+                        .dimension(Dimension.BACKFILL)
+                        .dimensionValue(VisitorRollup.BACKFILL_PENDING)
+                        .visitCount(0L)
+                        .build()));
+        backfillCompleted = VisitorRollup.BACKFILL_DONE.equals(backfillMarker.getDimensionValue());
+    }
+
+    /**
+     * Свернуть записанную пачку логов в счётчики
+     */
+    public void record(List<VisitorLog> visits) {
+        if (visits.isEmpty()) {
+            return;
+        }
+
+        Map<RollupKey, Long> counters = new LinkedHashMap<>();
+        for (VisitorLog visit : visits) {
+            LocalDateTime hour = visit.getVisitTime().truncatedTo(ChronoUnit.HOURS);
+            LocalDateTime day = visit.getVisitTime().truncatedTo(ChronoUnit.DAYS);
+
+            increment(counters, hour, day, Dimension.TOTAL, VisitorRollup.NO_VALUE, true);
+            increment(counters, hour, day, Dimension.MOBILE, VisitorRollup.NO_VALUE, Boolean.TRUE.equals(visit.getIsMobile()));
+            increment(counters, hour, day, Dimension.BOT, VisitorRollup.NO_VALUE, Boolean.TRUE.equals(visit.getIsBot()));
+
+            incrementDaily(counters, day, Dimension.COUNTRY, visit.getCountry());
+            incrementDaily(counters, day, Dimension.PAGE, visit.getRequestedUrl());
+            incrementDaily(counters, day, Dimension.BROWSER, visit.getBrowserName());
+        }
+
+        List<Map.Entry<RollupKey, Long>> rows = new ArrayList<>(counters.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, row) -> {
+            RollupKey key = row.getKey();
+            ps.setString(1, key.granularity().name());
+            ps.setTimestamp(2, Timestamp.valueOf(key.bucketStart()));
+            ps.setString(3, key.dimension().name());
+            ps.setString(4, key.value());
+            ps.setLong(5, row.getValue());
+        });
+    }
+
+    private void increment(Map<RollupKey, Long> counters, LocalDateTime hour, LocalDateTime day,
+                           Dimension dimension, String value, boolean matches) {
+        if (!matches) {
+            return;
+        }
+        counters.merge(new RollupKey(Granularity.HOUR, hour, dimension, value), 1L, Long::sum);
+        counters.merge(new RollupKey(Granularity.DAY, day, dimension, value), 1L, Long::sum);
+    }
+
+    private void incrementDaily(Map<RollupKey, Long> counters, LocalDateTime day, Dimension dimension, String value) {
+        if (value == null) {
+            return;
+        }
+        String normalized = value.length() > MAX_VALUE_LENGTH ? value.substring(0, MAX_VALUE_LENGTH) : value;
+        counters.merge(new RollupKey(Granularity.DAY, day, dimension, normalized), 1L, Long::sum);
+    }
+
+    private record RollupKey(Granularity granularity, LocalDateTime bucketStart, Dimension dimension, String value) {
+    }
+
+    // ============ BACKFILL ============
+
+    /**
+     * 🔄 Одноразовая свёртка истории, записанной до появления счётчиков
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillHistoricalVisits() {
+        if (backfillCompleted) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            log.info("🔄 Свёртка истории visitor_logs до {} в visitor_rollups...", backfillMarker.getBucketStart());
+
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Granularity granularity : Granularity.values()) {
+                    String unit = granularity == Granularity.HOUR ? "hour" : "day";
+                    backfill(granularity, unit, Dimension.TOTAL, "''", "");
+                    backfill(granularity, unit, Dimension.MOBILE, "''", "AND is_mobile = true");
+                    backfill(granularity, unit, Dimension.BOT, "''", "AND is_bot = true");
+                }
+                backfill(Granularity.DAY, "day", Dimension.COUNTRY, "country", "AND country IS NOT NULL");
+                backfill(Granularity.DAY, "day", Dimension.PAGE,
+                        "LEFT(requested_url, " + MAX_VALUE_LENGTH + ")", "AND requested_url IS NOT NULL");
+                backfill(Granularity.DAY, "day", Dimension.BROWSER, "browser_name", "AND browser_name IS NOT NULL");
+
+                backfillMarker.setDimensionValue(VisitorRollup.BACKFILL_DONE);
+                visitorRollupRepository.save(backfillMarker);
+            });
+
+            backfillCompleted = true;
+            log.info("✅ Свёртка истории посещений завершена за {} мс", System.currentTimeMillis() - start);
+
+        } catch (Exception e) {
+            log.error("❌ Ошибка свёртки истории посещений: {}", e.getMessage(), e);
+        }
+    }
+
+    private void backfill(Granularity granularity, String unit, Dimension dimension, String valueExpression, String filter) {
+        String sql = String.format(BACKFILL_SQL_TEMPLATE, granularity.name(), unit, dimension.name(), valueExpression, filter);
+        jdbcTemplate.update(sql, Timestamp.valueOf(backfillMarker.getBucketStart()));
+    }
+
+    public boolean isBackfillCompleted() {
+        return backfillCompleted;
+    }
+
+    // ============ ЧТЕНИЕ ============
+
+    public long getTotalVisits() {
+        return visitorRollupRepository.sumByDimension(Granularity.DAY, Dimension.TOTAL);
+    }
+
+    /**
+     * Посещения с указанного момента (почасовая точность)
+     */
+    public long getVisitsSince(LocalDateTime from) {
+        return visitorRollupRepository.sumByDimensionSince(Granularity.HOUR, Dimension.TOTAL,
+                from.truncatedTo(ChronoUnit.HOURS));
+    }
+
+    public double getMobilePercentage() {
+        long total = getTotalVisits();
+        if (total == 0) {
+            return 0.0;
+        }
+        long mobile = visitorRollupRepository.sumByDimension(Granularity.DAY, Dimension.MOBILE);
+        return mobile * 100.0 / total;
+    }
+
+    public List<Object[]> getTopCountries(int limit) {
+        return visitorRollupRepository.getTopValues(Granularity.DAY, Dimension.COUNTRY, PageRequest.of(0, limit));
+    }
+
+    public List<Object[]> getTopPages(int limit) {
+        return visitorRollupRepository.getTopValues(Granularity.DAY, Dimension.PAGE, PageRequest.of(0, limit));
+    }
+
+    public List<Object[]> getTopBrowsers(int limit) {
+        return visitorRollupRepository.getTopValues(Granularity.DAY, Dimension.BROWSER, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Топ за период (суточная точность)
+     */
+    public List<Object[]> getTopValuesSince(Dimension dimension, LocalDateTime from, int limit) {
+        return visitorRollupRepository.getTopValuesSince(Granularity.DAY, dimension,
+                from.truncatedTo(ChronoUnit.DAYS), PageRequest.of(0, limit));
+    }
+}
@@ -1,14 +1,13 @@
 package com.example.landofchokolate.service;
 
-import com.example.landofchokolate.dto.visitor.GeoLocationInfo;
+import com.example.landofchokolate.dto.visitor.VisitorEvent;
 import com.example.landofchokolate.model.VisitorLog;
+import com.example.landofchokolate.model.VisitorRollup;
 import com.example.landofchokolate.repository.VisitorLogRepository;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheConfig;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -24,44 +23,43 @@ import java.util.stream.Collectors;
 public class VisitorTrackingService {
 
     private final VisitorLogRepository visitorLogRepository;
-    private final GeoLocationService geoLocationService;
+    private final VisitorLogIngestionService visitorLogIngestionService;
+    private final VisitorRollupService visitorRollupService;
 
     public VisitorTrackingService(VisitorLogRepository repository,
-                                  GeoLocationService geoLocationService) {
+                                  VisitorLogIngestionService visitorLogIngestionService,
+                                  VisitorRollupService visitorRollupService) {
         this.visitorLogRepository = repository;
-        this.geoLocationService = geoLocationService;
+        this.visitorLogIngestionService = visitorLogIngestionService;
+        this.visitorRollupService = visitorRollupService;
     }
-    @CacheEvict(value = {"visitorBasicStats", "visitorsList"}, allEntries = true)
-    public void logVisit(String requestUrl, HttpServletRequest request) {
-        try {
-            VisitorLog visitorLog = new VisitorLog();
-
-            // Базовая информация
-            String ipAddress = getClientIpAddress(request);
-            visitorLog.setIpAddress(ipAddress);
-            visitorLog.setUserAgent(request.getHeader("User-Agent"));
-            visitorLog.setRequestedUrl(requestUrl);
-            visitorLog.setRefererUrl(request.getHeader("Referer"));
-            visitorLog.setSessionId(request.getSession().getId());
-
-            // Анализ User-Agent
-            parseUserAgent(visitorLog);
 
-            // Геолокация
-            try {
-                enrichWithGeoLocation(visitorLog);
-            } catch (Exception e) {
-                visitorLog.setCountry("Unknown");
-                visitorLog.setCity("Unknown");
-                visitorLog.setIsp("Unknown");
-            }
-
-            // Проверка на бота
-            visitorLog.setIsBot(isBot(visitorLog.getUserAgent()));
+    /**
+     * 📊 Топ значений измерения за последние N дней (из visitor_rollups)
+     */
+    public List<Object[]> getTopSince(VisitorRollup.Dimension dimension, LocalDateTime from, int limit) {
+        return visitorRollupService.getTopValuesSince(dimension, from, limit);
+    }
 
-            // Сохранение
-            VisitorLog saved = visitorLogRepository.save(visitorLog);
+    public long getVisitsSince(LocalDateTime from) {
+        return visitorRollupService.getVisitsSince(from);
+    }
+    /**
+     * 📥 Снимаем с запроса только сырые данные и отдаём их в фоновую очередь.
+     * Разбор User-Agent, геолокация и запись в БД — в {@link VisitorLogIngestionService}
+     */
+    public void logVisit(String requestUrl, HttpServletRequest request) {
+        try {
+            VisitorEvent event = new VisitorEvent(
+                    getClientIpAddress(request),
+                    request.getHeader("User-Agent"),
+                    requestUrl,
+                    request.getHeader("Referer"),
+                    request.getSession().getId(),
+                    LocalDateTime.now()
+            );
 
+            visitorLogIngestionService.submit(event);
 
         } catch (Exception e) {
             log.error("❌ Ошибка логирования: {}", e.getMessage());
@@ -84,77 +82,6 @@ public class VisitorTrackingService {
         return remoteAddr;
     }
 
-    private void parseUserAgent(VisitorLog visitorLog ) {
-        String userAgent = visitorLog.getUserAgent();
-        if (userAgent == null) {
-            return;
-        }
-
-        String ua = userAgent.toLowerCase();
-
-        // Мобильное устройство
-        boolean isMobile = ua.contains("mobile") || ua.contains("android") || ua.contains("iphone");
-        visitorLog.setIsMobile(isMobile);
-
-        // Операционная система
-        if (ua.contains("windows")) {
-            visitorLog.setOperatingSystem("Windows");
-        } else if (ua.contains("mac")) {
-            visitorLog.setOperatingSystem("macOS");
-        } else if (ua.contains("linux")) {
-            visitorLog.setOperatingSystem("Linux");
-        } else if (ua.contains("android")) {
-            visitorLog.setOperatingSystem("Android");
-        } else if (ua.contains("ios") || ua.contains("iphone")) {
-            visitorLog.setOperatingSystem("iOS");
-        } else {
-            visitorLog.setOperatingSystem("Unknown");
-        }
-
-        // Браузер
-        if (ua.contains("chrome")) {
-            visitorLog.setBrowserName("Chrome");
-        } else if (ua.contains("firefox")) {
-            visitorLog.setBrowserName("Firefox");
-        } else if (ua.contains("safari") && !ua.contains("chrome")) {
-            visitorLog.setBrowserName("Safari");
-        } else if (ua.contains("edge")) {
-            visitorLog.setBrowserName("Edge");
-        } else {
-            visitorLog.setBrowserName("Unknown");
-        }
-    }
-
-    private void enrichWithGeoLocation(VisitorLog visitorLog) {
-        try {
-            GeoLocationInfo geoInfo = geoLocationService.getLocationByIp(visitorLog.getIpAddress());
-
-            if (geoInfo != null) {
-                visitorLog.setCountry(geoInfo.getCountry());
-                visitorLog.setCity(geoInfo.getCity());
-                visitorLog.setIsp(geoInfo.getIsp());
-            } else {
-                log.warn("⚠️ Геолокация вернула null");
-                visitorLog.setCountry("Unknown");
-                visitorLog.setCity("Unknown");
-                visitorLog.setIsp("Unknown");
-            }
-        } catch (Exception e) {
-            log.error("❌ Ошибка геолокации: {}", e.getMessage());
-            throw e;
-        }
-    }
-
-    private boolean isBot(String userAgent) {
-        if (userAgent == null) return false;
-
-        String ua = userAgent.toLowerCase();
-        boolean isBot = ua.contains("bot") || ua.contains("crawler") ||
-                ua.contains("spider") || ua.contains("googlebot");
-
-        return isBot;
-    }
-
     /**
      * 📊 Простая статистика
      */
@@ -164,36 +91,28 @@ public class VisitorTrackingService {
         Map<String, Object> stats = new HashMap<>();
 
         try {
-
-            Long totalVisits = visitorLogRepository.count();
-
+            // Все цифры читаются из visitor_rollups: O(дней) строк вместо сканирования visitor_logs
+            long totalVisits = visitorRollupService.getTotalVisits();
 
             LocalDateTime weekAgo = LocalDateTime.now().minusWeeks(1);
-            Long weeklyVisits = visitorLogRepository.countByVisitTimeAfter(weekAgo);
+            long weeklyVisits = visitorRollupService.getVisitsSince(weekAgo);
 
             stats.put("totalVisits", totalVisits);
             stats.put("weeklyVisits", weeklyVisits);
-
-            // Безопасный расчет мобильного процента
-            if (totalVisits > 0) {
-                try {
-                    Double mobilePercentage = visitorLogRepository.getMobilePercentage();
-                    stats.put("mobilePercentage", mobilePercentage != null ? mobilePercentage : 0.0);
-                } catch (Exception e) {
-                    log.warn("⚠️ Ошибка расчета мобильного процента: {}", e.getMessage());
-                    stats.put("mobilePercentage", 0.0);
-                }
-            } else {
-                stats.put("mobilePercentage", 0.0);
-            }
+            stats.put("mobilePercentage", visitorRollupService.getMobilePercentage());
 
             try {
-                stats.put("topCountries", visitorLogRepository.getTopCountries(PageRequest.of(0, 5)));
-                stats.put("topPages", visitorLogRepository.getTopPages(PageRequest.of(0, 10)));
+                stats.put("topCountries", visitorRollupService.getTopCountries(5));
+                stats.put("topPages", visitorRollupService.getTopPages(10));
+                stats.put("topBrowsers", visitorRollupService.getTopBrowsers(5));
             } catch (Exception e) {
                 log.warn("⚠️ Ошибка получения топов: {}", e.getMessage());
                 stats.put("topCountries", new ArrayList<>());
                 stats.put("topPages", new ArrayList<>());
+                stats.put("topBrowsers", new ArrayList<>());
+            }
+            if (!visitorRollupService.isBackfillCompleted()) {
+                log.info("⏳ Свёртка истории посещений ещё не завершена, статистика неполная");
             }
             log.info("📊 Базова статистика розрахована та збережена в кеш");
             return stats;
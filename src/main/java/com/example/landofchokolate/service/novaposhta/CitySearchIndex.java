@@ -0,0 +1,260 @@
+package com.example.landofchokolate.service.novaposhta;
+
+import com.example.landofchokolate.dto.novaposhta.City;
+import com.example.landofchokolate.util.Transliterator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 🔎 Индекс городов Новой Почты для автокомплита на чекауте.
+ *
+ * Снимок индекса неизменяем и подменяется целиком (volatile) после каждой загрузки городов,
+ * поэтому поиск никогда не видит наполовину построенный индекс и не берёт блокировок.
+ *
+ * В снимке:
+ * <ul>
+ *     <li>Ref → City (вместо stream().filter по всему списку);</li>
+ *     <li>отсортированный массив ключей, начинающихся с каждого слова названия — префиксный поиск бинарным поиском;</li>
+ *     <li>триграммы → номера городов — поиск по подстроке без полного прохода.</li>
+ * </ul>
+ * Ключи строятся через {@link Transliterator#searchKey}, так что "Київ", "Киев" и "Kyiv" ищутся одинаково.
+ */
+@Slf4j
+@Component
+public class CitySearchIndex {
+
+    private static final int MAX_CANDIDATES = 2000;
+
+    // Ранги: чем меньше, тем выше в выдаче
+    private static final int RANK_EXACT = 0;
+    private static final int RANK_NAME_PREFIX = 1;
+    private static final int RANK_WORD_PREFIX = 2;
+    private static final int RANK_SUBSTRING = 3;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * Перестроить индекс и атомарно подменить текущий снимок
+     */
+    public void rebuild(List<City> cities) {
+        long start = System.currentTimeMillis();
+        Snapshot built = Snapshot.build(cities);
+        snapshot = built;
+        log.info("🔎 Индекс городов перестроен: {} городов, {} префиксных ключей, {} триграмм за {} мс",
+                built.cities.length, built.prefixKeys.length, built.trigrams.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    public boolean isEmpty() {
+        return snapshot.cities.length == 0;
+    }
+
+    public int size() {
+        return snapshot.cities.length;
+    }
+
+    public Optional<City> findByRef(String ref) {
+        if (ref == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(snapshot.byRef.get(ref));
+    }
+
+    /**
+     * Поиск по названию (укр/рус/латиница). Точное совпадение и начало названия — первыми.
+     */
+    public List<City> search(String query, int limit) {
+        Snapshot current = snapshot;
+        String key = Transliterator.searchKey(query);
+        if (key.isEmpty() || current.cities.length == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        Map<Integer, Integer> bestRank = new HashMap<>();
+
+        // 1. Префиксы: начало названия или начало любого слова
+        int position = lowerBound(current.prefixKeys, key);
+        while (position < current.prefixKeys.length
+                && current.prefixKeys[position].startsWith(key)
+                && bestRank.size() < MAX_CANDIDATES) {
+            int cityIndex = current.prefixCityIndexes[position];
+            int rank;
+            if (current.prefixFromStart[position]) {
+                rank = current.prefixKeys[position].length() == key.length() ? RANK_EXACT : RANK_NAME_PREFIX;
+            } else {
+                rank = RANK_WORD_PREFIX;
+            }
+            bestRank.merge(cityIndex, rank, Math::min);
+            position++;
+        }
+
+        // 2. Подстрока через триграммы — только если префиксных совпадений мало
+        if (bestRank.size() < limit && key.length() >= 3) {
+            for (int cityIndex : substringCandidates(current, key)) {
+                bestRank.putIfAbsent(cityIndex, RANK_SUBSTRING);
+            }
+        }
+
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(bestRank.entrySet());
+        ranked.sort(Comparator
+                .comparingInt((Map.Entry<Integer, Integer> e) -> e.getValue())
+                .thenComparingInt(e -> current.nameKeys[e.getKey()].length())
+                .thenComparing(e -> current.nameKeys[e.getKey()]));
+
+        List<City> result = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            result.add(current.cities[ranked.get(i).getKey()]);
+        }
+        return result;
+    }
+
+    private List<Integer> substringCandidates(Snapshot current, String key) {
+        int[] smallest = null;
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            int[] postings = current.trigrams.get(key.substring(i, i + 3));
+            if (postings == null) {
+                return List.of();
+            }
+            if (smallest == null || postings.length < smallest.length) {
+                smallest = postings;
+            }
+        }
+
+        List<Integer> matches = new ArrayList<>();
+        if (smallest == null) {
+            return matches;
+        }
+        for (int cityIndex : smallest) {
+            if (current.matchesSubstring(cityIndex, key)) {
+                matches.add(cityIndex);
+                if (matches.size() >= MAX_CANDIDATES) {
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static int lowerBound(String[] keys, String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Неизменяемый снимок индекса
+     */
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = build(List.of());
+
+        final City[] cities;
+        final String[] nameKeys;          // основной ключ (укр. название) для сортировки
+        final String[][] allKeys;         // все ключи города (укр + рус)
+        final Map<String, City> byRef;
+        final String[] prefixKeys;
+        final int[] prefixCityIndexes;
+        final boolean[] prefixFromStart;
+        final Map<String, int[]> trigrams;
+
+        private Snapshot(City[] cities, String[] nameKeys, String[][] allKeys, Map<String, City> byRef,
+                         String[] prefixKeys, int[] prefixCityIndexes, boolean[] prefixFromStart,
+                         Map<String, int[]> trigrams) {
+            this.cities = cities;
+            this.nameKeys = nameKeys;
+            this.allKeys = allKeys;
+            this.byRef = byRef;
+            this.prefixKeys = prefixKeys;
+            this.prefixCityIndexes = prefixCityIndexes;
+            this.prefixFromStart = prefixFromStart;
+            this.trigrams = trigrams;
+        }
+
+        boolean matchesSubstring(int cityIndex, String key) {
+            for (String cityKey : allKeys[cityIndex]) {
+                if (cityKey.contains(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        static Snapshot build(List<City> source) {
+            List<City> valid = new ArrayList<>(source.size());
+            for (City city : source) {
+                if (city != null && city.getDescription() != null) {
+                    valid.add(city);
+                }
+            }
+
+            City[] cities = valid.toArray(new City[0]);
+            String[] nameKeys = new String[cities.length];
+            String[][] allKeys = new String[cities.length][];
+            Map<String, City> byRef = new HashMap<>(cities.length * 2);
+
+            List<PrefixEntry> prefixEntries = new ArrayList<>(cities.length * 3);
+            Map<String, List<Integer>> trigramLists = new HashMap<>();
+
+            for (int i = 0; i < cities.length; i++) {
+                City city = cities[i];
+                if (city.getRef() != null) {
+                    byRef.put(city.getRef(), city);
+                }
+
+                String uaKey = Transliterator.searchKey(city.getDescription());
+                String ruKey = Transliterator.searchKey(city.getDescriptionRu());
+                nameKeys[i] = uaKey;
+                allKeys[i] = ruKey.isEmpty() || ruKey.equals(uaKey)
+                        ? new String[]{uaKey}
+                        : new String[]{uaKey, ruKey};
+
+                Set<String> cityTrigrams = new HashSet<>();
+                for (String key : allKeys[i]) {
+                    prefixEntries.add(new PrefixEntry(key, i, true));
+                    for (int p = key.indexOf(' '); p >= 0; p = key.indexOf(' ', p + 1)) {
+                        if (p + 1 < key.length()) {
+                            prefixEntries.add(new PrefixEntry(key.substring(p + 1), i, false));
+                        }
+                    }
+                    for (int t = 0; t + 3 <= key.length(); t++) {
+                        cityTrigrams.add(key.substring(t, t + 3));
+                    }
+                }
+                for (String trigram : cityTrigrams) {
+                    trigramLists.computeIfAbsent(trigram, k -> new ArrayList<>()).add(i);
+                }
+            }
+
+            prefixEntries.sort(Comparator.comparing(PrefixEntry::key));
+            String[] prefixKeys = new String[prefixEntries.size()];
+            int[] prefixCityIndexes = new int[prefixEntries.size()];
+            boolean[] prefixFromStart = new boolean[prefixEntries.size()];
+            for (int i = 0; i < prefixEntries.size(); i++) {
+                PrefixEntry entry = prefixEntries.get(i);
+                prefixKeys[i] = entry.key();
+                prefixCityIndexes[i] = entry.cityIndex();
+                prefixFromStart[i] = entry.fromStart();
+            }
+
+            Map<String, int[]> trigrams = new HashMap<>(trigramLists.size() * 2);
+            trigramLists.forEach((trigram, list) ->
+                    trigrams.put(trigram, list.stream().mapToInt(Integer::intValue).toArray()));
+
+            return new Snapshot(cities, nameKeys, allKeys, byRef, prefixKeys, prefixCityIndexes,
+                    prefixFromStart, trigrams);
+        }
+    }
+
+    private record PrefixEntry(String key, int cityIndex, boolean fromStart) {
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.landofchokolate.service.novaposhta;
+
+import com.example.landofchokolate.config.NovaPoshtaConfig;
+import com.example.landofchokolate.dto.novaposhta.NovaPoshtaRequest;
+import com.example.landofchokolate.dto.novaposhta.NovaPoshtaResponse;
+import com.example.landofchokolate.exception.NovaPoshtaApiException;
+import com.example.landofchokolate.exception.NovaPoshtaRejectedException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 🚚 Единый HTTP клиент для API Новой Почты.
+ *
+ * <ul>
+ *     <li>один долгоживущий {@link HttpClient} (HTTP/2, пул соединений) — TLS рукопожатие не на каждый вызов;</li>
+ *     <li>таймаут зависит от метода: справочники (getCities, getWarehouses) отвечают долго, остальное — быстро;</li>
+ *     <li>повтор с экспоненциальной задержкой только для читающих методов (get*) — накладная не создаётся дважды;</li>
+ *     <li>ответ разбирается потоково из InputStream: элементы "data" читаются по одному,
+ *     страница на 500 городов никогда не лежит в памяти целой строкой.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class NovaPoshtaApiClient {
+
+    private static final String USER_AGENT = "LandOfChokolate/1.0";
+
+    private final NovaPoshtaConfig config;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+
+    private final Duration defaultTimeout;
+    private final Duration bulkTimeout;
+    private final Set<String> bulkMethods;
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    public NovaPoshtaApiClient(NovaPoshtaConfig config,
+                               ObjectMapper objectMapper,
+                               @Value("${app.novaposhta.client.connect-timeout-ms:5000}") long connectTimeoutMs,
+                               @Value("${app.novaposhta.client.timeout-ms:15000}") long timeoutMs,
+                               @Value("${app.novaposhta.client.bulk-timeout-ms:60000}") long bulkTimeoutMs,
+                               @Value("${app.novaposhta.client.bulk-methods:getCities,getWarehouses}") Set<String> bulkMethods,
+                               @Value("${app.novaposhta.client.max-attempts:3}") int maxAttempts,
+                               @Value("${app.novaposhta.client.backoff-ms:500}") long backoffMs) {
+        this.config = config;
+        this.objectMapper = objectMapper;
+        this.defaultTimeout = Duration.ofMillis(timeoutMs);
+        this.bulkTimeout = Duration.ofMillis(bulkTimeoutMs);
+        this.bulkMethods = bulkMethods;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Вызов метода API с потоковым разбором элементов "data" в itemType
+     */
+    public <T> NovaPoshtaResponse<T> call(String modelName, String calledMethod, Object methodProperties,
+                                          Class<T> itemType) {
+        return execute(modelName, calledMethod, methodProperties, body -> parseResponse(body, itemType));
+    }
+
+    /**
+     * Вызов метода API с разбором ответа в дерево — для небольших ответов с нестабильной структурой
+     */
+    public JsonNode callForTree(String modelName, String calledMethod, Object methodProperties) {
+        return execute(modelName, calledMethod, methodProperties, objectMapper::readTree);
+    }
+
+    private <R> R execute(String modelName, String calledMethod, Object methodProperties, BodyReader<R> reader) {
+        NovaPoshtaRequest request = new NovaPoshtaRequest(config.getApiKey(), modelName, calledMethod, methodProperties);
+        byte[] requestBody;
+        try {
+            requestBody = objectMapper.writeValueAsBytes(request);
+        } catch (IOException e) {
+            throw new NovaPoshtaApiException("Не вдалося сформувати запит " + calledMethod, e);
+        }
+
+        HttpRequest httpRequest = HttpRequest.newBuilder()
+                .uri(URI.create(config.getApiUrl()))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .header("User-Agent", USER_AGENT)
+                .timeout(bulkMethods.contains(calledMethod) ? bulkTimeout : defaultTimeout)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(requestBody))
+                .build();
+
+        // Повторяем только чтение: повтор "save" мог бы создать вторую накладную
+        int attempts = calledMethod.startsWith("get") ? maxAttempts : 1;
+        NovaPoshtaApiException lastError = null;
+
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            long start = System.currentTimeMillis();
+            try {
+                HttpResponse<InputStream> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+                try (InputStream body = decode(response)) {
+                    int status = response.statusCode();
+                    if (status == 200) {
+                        R result = reader.read(body);
+                        log.debug("📦 Nova Poshta {}.{}: {} мс (попытка {})", modelName, calledMethod,
+                                System.currentTimeMillis() - start, attempt);
+                        return result;
+                    }
+                    if (status != 429 && status < 500) {
+                        // Запрос отклонён целиком — операция не выполнялась
+                        throw new NovaPoshtaRejectedException("HTTP " + status + " від Nova Пошта (" + calledMethod + ")");
+                    }
+                    lastError = new NovaPoshtaApiException("HTTP " + status + " від Nova Пошта (" + calledMethod + ")");
+                }
+            } catch (JsonProcessingException e) {
+                // Битый ответ повтором не исправить
+                throw new NovaPoshtaApiException("Некоректна відповідь від Nova Пошта (" + calledMethod + ")", e);
+            } catch (IOException e) {
+                lastError = new NovaPoshtaApiException("Помилка зв'язку з Nova Пошта (" + calledMethod + "): "
+                        + e.getMessage(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NovaPoshtaApiException("Запит до Nova Пошта перервано (" + calledMethod + ")", e);
+            }
+
+            if (attempt < attempts) {
+                long delay = backoffMs * (1L << (attempt - 1)) + ThreadLocalRandom.current().nextLong(backoffMs + 1);
+                log.warn("⚠️ Nova Poshta {}: {} — повтор {} из {} через {} мс",
+                        calledMethod, lastError.getMessage(), attempt + 1, attempts, delay);
+                sleep(delay);
+            }
+        }
+
+        log.error("❌ Nova Poshta {}: {}", calledMethod, lastError.getMessage());
+        throw lastError;
+    }
+
+    private static InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        boolean gzip = response.headers().firstValue("Content-Encoding")
+                .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        return gzip ? new GZIPInputStream(response.body()) : response.body();
+    }
+
+    /**
+     * Потоковый разбор {"success":..,"data":[..],"errors":[..],...}.
+     * "errors" у Новой Почты иногда приходит объектом — такие значения пропускаются
+     */
+    private <T> NovaPoshtaResponse<T> parseResponse(InputStream body, Class<T> itemType) throws IOException {
+        NovaPoshtaResponse<T> result = new NovaPoshtaResponse<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new NovaPoshtaApiException("Неочікувана відповідь від Nova Пошта");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "success" -> result.setSuccess(value == JsonToken.VALUE_TRUE);
+                    case "data" -> result.setData(readItems(parser, itemType));
+                    case "errors" -> result.setErrors(readStrings(parser));
+                    case "messageCodes" -> result.setMessageCodes(readStrings(parser));
+                    case "errorCodes" -> result.setErrorCodes(readStrings(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return result;
+    }
+
+    private <T> List<T> readItems(JsonParser parser, Class<T> itemType) throws IOException {
+        List<T> items = new ArrayList<>();
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return items;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            items.add(objectMapper.readValue(parser, itemType));
+        }
+        return items;
+    }
+
+    private static List<String> readStrings(JsonParser parser) throws IOException {
+        List<String> values = new ArrayList<>();
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return values;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken().isScalarValue()) {
+                values.add(parser.getValueAsString());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return values;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NovaPoshtaApiException("Запит до Nova Пошта перервано");
+        }
+    }
+
+    @FunctionalInterface
+    private interface BodyReader<R> {
+        R read(InputStream body) throws IOException;
+    }
+}
@@ -0,0 +1,395 @@
+package com.example.landofchokolate.service.novaposhta;
+
+import com.example.landofchokolate.dto.novaposhta.City;
+import com.example.landofchokolate.dto.novaposhta.DepartmentSummary;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 💾 Локальный снимок справочника Новой Почты (города + отделения по городам).
+ *
+ * Файл бинарный и версионированный:
+ * <pre>
+ * magic "NPSD" | версия формата | createdAt | citiesUpdatedAt
+ * схема: имена полей City и DepartmentSummary
+ * словарь строк (каждая уникальная строка — один раз)
+ * города: индексы в словаре (varint)
+ * отделения: cityRef, fetchedAt, список отделений
+ * </pre>
+ * Повторяющиеся значения (область, тип населённого пункта, "0"/"1") хранятся один раз,
+ * а после чтения — одним объектом String. Поля сопоставляются по имени, поэтому новое
+ * поле в DTO не ломает старый файл, а файл другой версии формата просто игнорируется.
+ *
+ * Запись атомарная: временный файл + move, поэтому упавший процесс не оставит битый снимок.
+ */
+@Slf4j
+@Component
+public class NovaPoshtaSnapshotStore {
+
+    private static final int MAGIC = 0x4E505344;   // "NPSD"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final FieldCodec<City> CITY_CODEC = new FieldCodec<>(City.class);
+    private static final FieldCodec<DepartmentSummary> DEPARTMENT_CODEC = new FieldCodec<>(DepartmentSummary.class);
+
+    private final Path snapshotPath;
+    private final Duration citiesMaxAge;
+    private final Duration warehousesMaxAge;
+
+    private volatile List<City> cities = List.of();
+    private volatile long citiesUpdatedAt = 0;
+    private final Map<String, WarehouseEntry> warehouses = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    public NovaPoshtaSnapshotStore(
+            @Value("${app.novaposhta.snapshot.path:./data/novaposhta-directory.bin}") String snapshotPath,
+            @Value("${app.novaposhta.snapshot.cities-max-age-hours:24}") long citiesMaxAgeHours,
+            @Value("${app.novaposhta.snapshot.warehouses-max-age-hours:24}") long warehousesMaxAgeHours) {
+        this.snapshotPath = Paths.get(snapshotPath);
+        this.citiesMaxAge = Duration.ofHours(citiesMaxAgeHours);
+        this.warehousesMaxAge = Duration.ofHours(warehousesMaxAgeHours);
+    }
+
+    /**
+     * Отделения одного города вместе с моментом загрузки
+     */
+    public record WarehouseEntry(List<DepartmentSummary> departments, long fetchedAt) {
+    }
+
+    // ============ ЧТЕНИЕ / СОСТОЯНИЕ ============
+
+    /**
+     * Прочитать снимок с диска. false — файла нет, он другой версии или повреждён
+     */
+    public boolean load() {
+        if (!Files.isRegularFile(snapshotPath)) {
+            log.info("💾 Снимок справочника Новой Почты не найден: {}", snapshotPath);
+            return false;
+        }
+
+        long start = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                log.warn("💾 {} не является снимком справочника Новой Почты, игнорируем", snapshotPath);
+                return false;
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                log.warn("💾 Снимок версии {} (ожидается {}), будет перезаписан", version, FORMAT_VERSION);
+                return false;
+            }
+            in.readLong();   // createdAt
+            long loadedCitiesUpdatedAt = in.readLong();
+
+            int[] cityFieldMap = CITY_CODEC.readSchema(in);
+            int[] departmentFieldMap = DEPARTMENT_CODEC.readSchema(in);
+
+            String[] dictionary = new String[readVarInt(in) + 1];   // 0 — null
+            for (int i = 1; i < dictionary.length; i++) {
+                dictionary[i] = in.readUTF();
+            }
+
+            int cityCount = readVarInt(in);
+            List<City> loadedCities = new ArrayList<>(cityCount);
+            for (int i = 0; i < cityCount; i++) {
+                loadedCities.add(CITY_CODEC.read(in, cityFieldMap, dictionary));
+            }
+
+            int warehouseCityCount = readVarInt(in);
+            Map<String, WarehouseEntry> loadedWarehouses = new HashMap<>(warehouseCityCount * 2);
+            for (int i = 0; i < warehouseCityCount; i++) {
+                String cityRef = dictionary[readVarInt(in)];
+                long fetchedAt = in.readLong();
+                int count = readVarInt(in);
+                List<DepartmentSummary> departments = new ArrayList<>(count);
+                for (int d = 0; d < count; d++) {
+                    departments.add(DEPARTMENT_CODEC.read(in, departmentFieldMap, dictionary));
+                }
+                loadedWarehouses.put(cityRef, new WarehouseEntry(Collections.unmodifiableList(departments), fetchedAt));
+            }
+
+            cities = Collections.unmodifiableList(loadedCities);
+            citiesUpdatedAt = loadedCitiesUpdatedAt;
+            warehouses.putAll(loadedWarehouses);
+
+            log.info("💾 Снимок справочника загружен за {} мс: {} городов, отделения для {} городов ({} КБ)",
+                    System.currentTimeMillis() - start, loadedCities.size(), loadedWarehouses.size(),
+                    Files.size(snapshotPath) / 1024);
+            return !loadedCities.isEmpty();
+
+        } catch (Exception e) {
+            log.error("❌ Не удалось прочитать снимок справочника {}: {}", snapshotPath, e.getMessage());
+            return false;
+        }
+    }
+
+    public List<City> getCities() {
+        return cities;
+    }
+
+    public boolean isCitiesStale() {
+        return cities.isEmpty() || isOlderThan(citiesUpdatedAt, citiesMaxAge);
+    }
+
+    public Optional<WarehouseEntry> getWarehouses(String cityRef) {
+        return Optional.ofNullable(warehouses.get(cityRef));
+    }
+
+    public boolean isStale(WarehouseEntry entry) {
+        return isOlderThan(entry.fetchedAt(), warehousesMaxAge);
+    }
+
+    /**
+     * Города, у которых сохранённые отделения устарели (самые старые первыми)
+     */
+    public List<String> findStaleWarehouseCities(int limit) {
+        return warehouses.entrySet().stream()
+                .filter(entry -> isStale(entry.getValue()))
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().fetchedAt()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static boolean isOlderThan(long timestamp, Duration maxAge) {
+        return System.currentTimeMillis() - timestamp > maxAge.toMillis();
+    }
+
+    // ============ ОБНОВЛЕНИЕ ============
+
+    /**
+     * Применить свежий список городов. Возвращает число изменений (добавлено + удалено + изменено);
+     * при 0 файл не переписывается, обновляется только отметка времени в памяти
+     */
+    public int updateCities(List<City> freshCities) {
+        Map<String, City> previous = new HashMap<>(cities.size() * 2);
+        for (City city : cities) {
+            previous.put(city.getRef(), city);
+        }
+
+        int added = 0;
+        int changed = 0;
+        for (City city : freshCities) {
+            City old = previous.remove(city.getRef());
+            if (old == null) {
+                added++;
+            } else if (!old.equals(city)) {
+                changed++;
+            }
+        }
+        int removed = previous.size();
+        int changes = added + changed + removed;
+
+        citiesUpdatedAt = System.currentTimeMillis();
+        if (changes > 0) {
+            cities = List.copyOf(freshCities);
+            dirty.set(true);
+            log.info("💾 Справочник городов: +{} / -{} / изменено {}", added, removed, changed);
+        }
+        return changes;
+    }
+
+    public void putWarehouses(String cityRef, List<DepartmentSummary> departments) {
+        WarehouseEntry previous = warehouses.put(cityRef,
+                new WarehouseEntry(List.copyOf(departments), System.currentTimeMillis()));
+        if (previous == null || !previous.departments().equals(departments)) {
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Записать снимок на диск, если с прошлой записи что-то изменилось
+     */
+    public synchronized void flush() {
+        if (!dirty.compareAndSet(true, false)) {
+            return;
+        }
+        try {
+            write();
+        } catch (Exception e) {
+            dirty.set(true);
+            log.error("❌ Не удалось записать снимок справочника {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void write() throws IOException {
+        long start = System.currentTimeMillis();
+        List<City> citiesToWrite = cities;
+        Map<String, WarehouseEntry> warehousesToWrite = new LinkedHashMap<>(warehouses);
+
+        // Тело пишем в память, параллельно собирая словарь — он должен стоять в файле раньше
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(1 << 20);
+        DataOutputStream body = new DataOutputStream(bodyBytes);
+
+        writeVarInt(body, citiesToWrite.size());
+        for (City city : citiesToWrite) {
+            CITY_CODEC.write(body, city, dictionary);
+        }
+
+        writeVarInt(body, warehousesToWrite.size());
+        for (Map.Entry<String, WarehouseEntry> entry : warehousesToWrite.entrySet()) {
+            writeVarInt(body, indexOf(entry.getKey(), dictionary));
+            body.writeLong(entry.getValue().fetchedAt());
+            writeVarInt(body, entry.getValue().departments().size());
+            for (DepartmentSummary department : entry.getValue().departments()) {
+                DEPARTMENT_CODEC.write(body, department, dictionary);
+            }
+        }
+        body.flush();
+
+        Path parent = snapshotPath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = Files.createTempFile(parent, "novaposhta-", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(citiesUpdatedAt);
+            CITY_CODEC.writeSchema(out);
+            DEPARTMENT_CODEC.writeSchema(out);
+            writeVarInt(out, dictionary.size());
+            for (String value : dictionary.keySet()) {
+                out.writeUTF(value);
+            }
+            bodyBytes.writeTo(out);
+        }
+        Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        log.info("💾 Снимок справочника записан за {} мс: {} городов, отделения для {} городов, {} строк в словаре",
+                System.currentTimeMillis() - start, citiesToWrite.size(), warehousesToWrite.size(), dictionary.size());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("path", snapshotPath.toAbsolutePath().toString());
+        stats.put("cities", cities.size());
+        stats.put("citiesUpdatedAt", citiesUpdatedAt);
+        stats.put("warehouseCities", warehouses.size());
+        stats.put("dirty", dirty.get());
+        return stats;
+    }
+
+    // ============ КОДИРОВАНИЕ ============
+
+    private static int indexOf(String value, Map<String, Integer> dictionary) {
+        if (value == null) {
+            return 0;
+        }
+        return dictionary.computeIfAbsent(value, v -> dictionary.size() + 1);
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Пишет/читает строковые и Integer поля DTO как индексы в словаре.
+     * Схема (имена полей) хранится в файле, при чтении поля сопоставляются по имени
+     */
+    private static final class FieldCodec<T> {
+
+        private final Class<T> type;
+        private final Field[] fields;
+        private final Map<String, Integer> fieldIndexes = new HashMap<>();
+
+        FieldCodec(Class<T> type) {
+            this.type = type;
+            List<Field> supported = new ArrayList<>();
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                if (field.getType() == String.class || field.getType() == Integer.class) {
+                    field.setAccessible(true);
+                    fieldIndexes.put(field.getName(), supported.size());
+                    supported.add(field);
+                }
+            }
+            this.fields = supported.toArray(new Field[0]);
+        }
+
+        void writeSchema(DataOutputStream out) throws IOException {
+            writeVarInt(out, fields.length);
+            for (Field field : fields) {
+                out.writeUTF(field.getName());
+            }
+        }
+
+        /**
+         * Позиция поля в файле → индекс поля в текущем классе (-1 — поле больше не существует)
+         */
+        int[] readSchema(DataInputStream in) throws IOException {
+            int[] mapping = new int[readVarInt(in)];
+            for (int i = 0; i < mapping.length; i++) {
+                mapping[i] = fieldIndexes.getOrDefault(in.readUTF(), -1);
+            }
+            return mapping;
+        }
+
+        void write(DataOutput out, T value, Map<String, Integer> dictionary) throws IOException {
+            try {
+                for (Field field : fields) {
+                    Object fieldValue = field.get(value);
+                    writeVarInt(out, indexOf(fieldValue == null ? null : fieldValue.toString(), dictionary));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot read field of " + type.getSimpleName(), e);
+            }
+        }
+
+        T read(DataInput in, int[] mapping, String[] dictionary) throws IOException {
+            try {
+                T instance = type.getDeclaredConstructor().newInstance();
+                for (int position : mapping) {
+                    String raw = dictionary[readVarInt(in)];
+                    if (position < 0 || raw == null) {
+                        continue;
+                    }
+                    Field field = fields[position];
+                    field.set(instance, field.getType() == Integer.class ? Integer.valueOf(raw) : raw);
+                }
+                return instance;
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create " + type.getSimpleName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.example.landofchokolate.service.search;
+
+import com.example.landofchokolate.dto.product.ProductSearchDocument;
+import com.example.landofchokolate.util.Transliterator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 🔎 Инвертированный индекс товаров с ранжированием BM25.
+ *
+ * Поля и веса: название ×3, бренд и ключевые слова ×2, категория ×1.5, описание ×1 —
+ * частота терма в документе считается с учётом веса поля (упрощённый BM25F).
+ * Термы строятся через {@link Transliterator#searchKey}, так что "Roshen", "Рошен" и "Рошэн" совпадают.
+ *
+ * Каждое слово запроса сопоставляется:
+ * <ul>
+ *     <li>точно;</li>
+ *     <li>по префиксу (ввод не закончен: "шок" → "шоколад");</li>
+ *     <li>с опечаткой — расстояние Дамерау-Левенштейна 1 (для длинных слов 2), если точного терма нет.</li>
+ * </ul>
+ * Сначала выдаются товары, где нашлись все слова запроса; если таких нет — любые совпадения.
+ * Обновления по одному товару идут под write-lock, поиск — под read-lock.
+ */
+@Slf4j
+@Component
+public class ProductSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float BRAND_WEIGHT = 2f;
+    private static final float KEYWORDS_WEIGHT = 2f;
+    private static final float CATEGORY_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    // Множители для неточных совпадений
+    private static final double PREFIX_FACTOR = 0.8;
+    private static final double TYPO_FACTOR = 0.6;
+
+    private static final int MAX_EXPANSIONS = 30;
+    private static final int MAX_QUERY_TERMS = 8;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MIN_TYPO_LENGTH = 4;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // терм → (товар → взвешенная частота)
+    private Map<String, Map<Long, Float>> postings = new HashMap<>();
+    // товар → его термы с частотами (нужно, чтобы удалить товар из postings)
+    private Map<Long, Map<String, Float>> documents = new HashMap<>();
+    private Map<Long, Float> lengths = new HashMap<>();
+    private double totalLength;
+    private TreeSet<String> vocabulary = new TreeSet<>();
+
+    private volatile boolean ready;
+
+    /**
+     * Построить индекс заново и подменить текущий целиком
+     */
+    public void rebuild(Collection<ProductSearchDocument> source) {
+        long start = System.currentTimeMillis();
+
+        Map<String, Map<Long, Float>> newPostings = new HashMap<>();
+        Map<Long, Map<String, Float>> newDocuments = new HashMap<>(source.size() * 2);
+        Map<Long, Float> newLengths = new HashMap<>(source.size() * 2);
+        double newTotalLength = 0;
+
+        for (ProductSearchDocument document : source) {
+            Map<String, Float> terms = analyze(document);
+            float length = 0;
+            for (Map.Entry<String, Float> term : terms.entrySet()) {
+                newPostings.computeIfAbsent(term.getKey(), k -> new HashMap<>()).put(document.getId(), term.getValue());
+                length += term.getValue();
+            }
+            newDocuments.put(document.getId(), terms);
+            newLengths.put(document.getId(), length);
+            newTotalLength += length;
+        }
+
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            documents = newDocuments;
+            lengths = newLengths;
+            totalLength = newTotalLength;
+            vocabulary = new TreeSet<>(newPostings.keySet());
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("🔎 Поисковый индекс товаров перестроен: {} товаров, {} термов за {} мс",
+                newDocuments.size(), newPostings.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Добавить или переиндексировать один товар
+     */
+    public void upsert(ProductSearchDocument document) {
+        Map<String, Float> terms = analyze(document);
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(document.getId());
+
+            float length = 0;
+            for (Map.Entry<String, Float> term : terms.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), k -> {
+                    vocabulary.add(k);
+                    return new HashMap<>();
+                }).put(document.getId(), term.getValue());
+                length += term.getValue();
+            }
+            documents.put(document.getId(), terms);
+            lengths.put(document.getId(), length);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * id товаров по убыванию релевантности
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> queryTerms = tokenize(Transliterator.searchKey(query)).stream()
+                .distinct()
+                .limit(MAX_QUERY_TERMS)
+                .toList();
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Map<Long, Double> scores = new HashMap<>();
+        Map<Long, Integer> matchedTerms = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return List.of();
+            }
+            double averageLength = totalLength / documentCount;
+
+            for (int i = 0; i < queryTerms.size(); i++) {
+                String term = queryTerms.get(i);
+                // Для каждого товара берём лучшее из вариантов слова (точное, префикс, опечатка)
+                Map<Long, Double> termScores = new HashMap<>();
+                for (Map.Entry<String, Double> variant : expand(term).entrySet()) {
+                    Map<Long, Float> posting = postings.get(variant.getKey());
+                    double idf = idf(documentCount, posting.size());
+                    for (Map.Entry<Long, Float> entry : posting.entrySet()) {
+                        double score = variant.getValue() * idf
+                                * bm25(entry.getValue(), lengths.get(entry.getKey()), averageLength);
+                        termScores.merge(entry.getKey(), score, Math::max);
+                    }
+                }
+
+                int bit = 1 << i;
+                termScores.forEach((productId, score) -> {
+                    scores.merge(productId, score, Double::sum);
+                    matchedTerms.merge(productId, bit, (a, b) -> a | b);
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int allTerms = (1 << queryTerms.size()) - 1;
+        List<Long> candidates = new ArrayList<>();
+        matchedTerms.forEach((productId, mask) -> {
+            if (mask == allTerms) {
+                candidates.add(productId);
+            }
+        });
+        if (candidates.isEmpty()) {
+            candidates.addAll(scores.keySet());
+        }
+
+        candidates.sort(Comparator
+                .comparingDouble((Long productId) -> scores.get(productId)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        return candidates.size() > limit ? new ArrayList<>(candidates.subList(0, limit)) : candidates;
+    }
+
+    /**
+     * Термы индекса, подходящие под слово запроса, с множителем релевантности
+     */
+    private Map<String, Double> expand(String term) {
+        Map<String, Double> variants = new HashMap<>();
+        boolean exact = postings.containsKey(term);
+        if (exact) {
+            variants.put(term, 1.0);
+        }
+
+        if (term.length() >= MIN_PREFIX_LENGTH) {
+            int added = 0;
+            for (String candidate : vocabulary.subSet(term, false, term + Character.MAX_VALUE, false)) {
+                if (added++ >= MAX_EXPANSIONS) {
+                    break;
+                }
+                variants.putIfAbsent(candidate, PREFIX_FACTOR);
+            }
+        }
+
+        if (!exact && term.length() >= MIN_TYPO_LENGTH && !isNumber(term)) {
+            int maxDistance = term.length() >= 8 ? 2 : 1;
+            int added = 0;
+            for (String candidate : vocabulary) {
+                if (Math.abs(candidate.length() - term.length()) > maxDistance || variants.containsKey(candidate)) {
+                    continue;
+                }
+                int distance = editDistance(term, candidate, maxDistance);
+                if (distance <= maxDistance) {
+                    variants.put(candidate, TYPO_FACTOR / distance);
+                    if (++added >= MAX_EXPANSIONS) {
+                        break;
+                    }
+                }
+            }
+        }
+        return variants;
+    }
+
+    private void removeInternal(Long productId) {
+        Map<String, Float> terms = documents.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<Long, Float> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                    vocabulary.remove(term);
+                }
+            }
+        }
+        Float length = lengths.remove(productId);
+        if (length != null) {
+            totalLength -= length;
+        }
+    }
+
+    private static Map<String, Float> analyze(ProductSearchDocument document) {
+        Map<String, Float> terms = new HashMap<>();
+        addField(terms, document.getName(), NAME_WEIGHT);
+        addField(terms, document.getBrandName(), BRAND_WEIGHT);
+        addField(terms, document.getSeoKeywords(), KEYWORDS_WEIGHT);
+        addField(terms, document.getCategoryName(), CATEGORY_WEIGHT);
+        addField(terms, document.getDescription(), DESCRIPTION_WEIGHT);
+        return terms;
+    }
+
+    private static void addField(Map<String, Float> terms, String text, float weight) {
+        for (String token : tokenize(Transliterator.searchKey(text))) {
+            terms.merge(token, weight, Float::sum);
+        }
+    }
+
+    /**
+     * Слова ключа; однобуквенные отбрасываются (кроме цифр — "5 шт")
+     */
+    private static List<String> tokenize(String key) {
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : key.split(" ")) {
+            if (token.length() > 1 || (token.length() == 1 && Character.isDigit(token.charAt(0)))) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static double idf(int documentCount, int documentFrequency) {
+        return Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static double bm25(float termFrequency, float documentLength, double averageLength) {
+        double norm = K1 * (1 - B + B * documentLength / averageLength);
+        return termFrequency * (K1 + 1) / (termFrequency + norm);
+    }
+
+    private static boolean isNumber(String term) {
+        for (int i = 0; i < term.length(); i++) {
+            if (!Character.isDigit(term.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Расстояние Дамерау-Левенштейна (перестановка соседних букв — одна правка).
+     * Как только вся строка матрицы превысила max, возвращает max + 1
+     */
+    static int editDistance(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        int[] previousPrevious = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previousPrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[m];
+    }
+}
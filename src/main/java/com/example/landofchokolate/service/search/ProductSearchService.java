@@ -0,0 +1,97 @@
+package com.example.landofchokolate.service.search;
+
+import com.example.landofchokolate.repository.ProductRepository;
+import com.example.landofchokolate.util.ProductChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 🔎 Поиск товаров по ProductSearchIndex.
+ *
+ * Индекс строится при старте и раз в час перестраивается целиком (переименования брендов и категорий),
+ * между перестройками товар переиндексируется после коммита каждого изменения.
+ * Пока индекс не построен, isReady() == false и вызывающие откатываются на LIKE-запрос.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductSearchService {
+
+    private final ProductSearchIndex index;
+    private final ProductRepository productRepository;
+
+    // Изменения, пришедшие во время полной перестройки — применяются повторно после подмены индекса
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${app.search.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${app.search.rebuild-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        rebuilding = true;
+        changedDuringRebuild.clear();
+        try {
+            index.rebuild(productRepository.findAllSearchDocuments());
+        } catch (Exception e) {
+            log.error("❌ Ошибка построения поискового индекса товаров: {}", e.getMessage(), e);
+        } finally {
+            rebuilding = false;
+        }
+        for (Long productId : changedDuringRebuild) {
+            reindex(productId);
+        }
+        changedDuringRebuild.clear();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (rebuilding) {
+            changedDuringRebuild.add(event.getProductId());
+        }
+        if (event.isDeleted()) {
+            index.remove(event.getProductId());
+        } else {
+            reindex(event.getProductId());
+        }
+    }
+
+    public boolean isReady() {
+        return index.isReady();
+    }
+
+    /**
+     * id товаров по релевантности; пустой список, если ничего не нашлось
+     */
+    public List<Long> search(String query, int limit) {
+        return index.search(query, limit);
+    }
+
+    private void reindex(Long productId) {
+        try {
+            productRepository.findSearchDocumentById(productId)
+                    .ifPresentOrElse(index::upsert, () -> index.remove(productId));
+        } catch (Exception e) {
+            log.warn("Не удалось переиндексировать товар {}: {}", productId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.landofchokolate.service.search;
+
+import com.example.landofchokolate.dto.search.SearchSuggestionDto;
+import com.example.landofchokolate.repository.ProductRepository;
+import com.example.landofchokolate.util.ProductChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ⌨️ Подсказки поиска из SuggestionIndex — без обращения к БД на каждое нажатие клавиши.
+ *
+ * Индекс строится при старте. Изменение товара помечает его устаревшим, и он перестраивается
+ * с небольшой задержкой (пачка правок в админке — одна перестройка). Раз в 10 минут
+ * перестраивается в любом случае, чтобы подтянуть клики и переименования брендов/категорий.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchSuggestionService {
+
+    private final SuggestionIndex suggestionIndex;
+    private final ProductRepository productRepository;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private volatile long lastRebuildMillis = System.currentTimeMillis();
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        dirty.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.suggestions.refresh-check-ms:5000}")
+    public void refreshIfNeeded() {
+        boolean stale = System.currentTimeMillis() - lastRebuildMillis > 600_000;
+        if (dirty.compareAndSet(true, false) || stale) {
+            rebuild();
+        }
+    }
+
+    public List<SearchSuggestionDto> suggest(String query, int limit) {
+        return suggestionIndex.suggest(query, limit);
+    }
+
+    private synchronized void rebuild() {
+        try {
+            suggestionIndex.rebuild(productRepository.findAllSuggestionSources());
+        } catch (Exception e) {
+            log.error("❌ Ошибка построения индекса подсказок: {}", e.getMessage(), e);
+        } finally {
+            lastRebuildMillis = System.currentTimeMillis();
+        }
+    }
+}
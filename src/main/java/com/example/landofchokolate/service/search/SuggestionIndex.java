@@ -0,0 +1,202 @@
+package com.example.landofchokolate.service.search;
+
+import com.example.landofchokolate.dto.product.ProductSuggestionSource;
+import com.example.landofchokolate.dto.search.SearchSuggestionDto;
+import com.example.landofchokolate.enums.SuggestionType;
+import com.example.landofchokolate.util.Transliterator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * ⌨️ Подсказки поиска по мере ввода: товары, бренды и категории.
+ *
+ * Неизменяемый снимок подменяется целиком (volatile), поиск идёт без блокировок:
+ * <ul>
+ *     <li>подсказки отсортированы по популярности (клики товара, для бренда и категории — сумма кликов
+ *     их товаров), поэтому номер подсказки = её место в выдаче;</li>
+ *     <li>отсортированный массив ключей — начало названия и начало каждого слова, префикс ищется бинарным поиском;</li>
+ *     <li>для коротких префиксов (до 3 символов) лучшие MAX_LIMIT подсказок посчитаны заранее —
+ *     на первых буквах диапазон ключей самый широкий.</li>
+ * </ul>
+ * Ключи строятся через {@link Transliterator#searchKey}, как и у поискового индекса товаров.
+ */
+@Slf4j
+@Component
+public class SuggestionIndex {
+
+    public static final int MAX_LIMIT = 10;
+    private static final int PRECOMPUTED_PREFIX_LENGTH = 3;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public void rebuild(List<ProductSuggestionSource> sources) {
+        long start = System.currentTimeMillis();
+        Snapshot built = Snapshot.build(sources);
+        snapshot = built;
+        log.info("⌨️ Индекс подсказок перестроен: {} подсказок, {} ключей за {} мс",
+                built.suggestions.length, built.keys.length, System.currentTimeMillis() - start);
+    }
+
+    public int size() {
+        return snapshot.suggestions.length;
+    }
+
+    /**
+     * До limit подсказок, начинающихся с query (начало названия или любого слова), самые популярные первыми
+     */
+    public List<SearchSuggestionDto> suggest(String query, int limit) {
+        Snapshot current = snapshot;
+        String key = Transliterator.searchKey(query);
+        int max = Math.min(limit, MAX_LIMIT);
+        if (key.isEmpty() || max <= 0 || current.suggestions.length == 0) {
+            return List.of();
+        }
+
+        int[] ranked;
+        if (key.length() <= PRECOMPUTED_PREFIX_LENGTH) {
+            ranked = current.topByShortPrefix.getOrDefault(key, new int[0]);
+        } else {
+            ranked = current.topInRange(key, max);
+        }
+
+        List<SearchSuggestionDto> result = new ArrayList<>(Math.min(max, ranked.length));
+        for (int i = 0; i < ranked.length && i < max; i++) {
+            result.add(current.suggestions[ranked[i]]);
+        }
+        return result;
+    }
+
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = build(List.of());
+
+        final SearchSuggestionDto[] suggestions;   // по убыванию популярности
+        final String[] keys;                       // отсортированы
+        final int[] keySuggestion;                 // ключ → номер подсказки
+        final Map<String, int[]> topByShortPrefix;
+
+        private Snapshot(SearchSuggestionDto[] suggestions, String[] keys, int[] keySuggestion,
+                         Map<String, int[]> topByShortPrefix) {
+            this.suggestions = suggestions;
+            this.keys = keys;
+            this.keySuggestion = keySuggestion;
+            this.topByShortPrefix = topByShortPrefix;
+        }
+
+        /**
+         * Лучшие подсказки среди ключей с префиксом key. Меньший номер — популярнее,
+         * поэтому достаточно держать max наименьших номеров
+         */
+        int[] topInRange(String key, int max) {
+            TreeSet<Integer> best = new TreeSet<>();
+            for (int position = lowerBound(keys, key); position < keys.length && keys[position].startsWith(key); position++) {
+                int suggestion = keySuggestion[position];
+                if (best.size() < max) {
+                    best.add(suggestion);
+                } else if (suggestion < best.last() && best.add(suggestion)) {
+                    best.pollLast();
+                }
+            }
+            return best.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        static Snapshot build(List<ProductSuggestionSource> sources) {
+            Map<String, Candidate> candidates = new LinkedHashMap<>();
+            for (ProductSuggestionSource source : sources) {
+                long clicks = source.getClickCount() != null ? source.getClickCount() : 0;
+                if (source.getName() != null && source.getSlug() != null) {
+                    candidates.computeIfAbsent("p" + source.getId(), k -> new Candidate(
+                            source.getName(), SuggestionType.PRODUCT, "/product/" + source.getSlug())).weight += clicks;
+                }
+                if (source.getBrandId() != null && source.getBrandName() != null && source.getBrandSlug() != null) {
+                    candidates.computeIfAbsent("b" + source.getBrandId(), k -> new Candidate(
+                            source.getBrandName(), SuggestionType.BRAND, "/brands/" + source.getBrandSlug())).weight += clicks;
+                }
+                if (source.getCategoryId() != null && source.getCategoryName() != null && source.getCategorySlug() != null) {
+                    candidates.computeIfAbsent("c" + source.getCategoryId(), k -> new Candidate(
+                            source.getCategoryName(), SuggestionType.CATEGORY, "/categories/" + source.getCategorySlug())).weight += clicks;
+                }
+            }
+
+            List<Candidate> ordered = new ArrayList<>(candidates.values());
+            ordered.sort(Comparator
+                    .comparingLong((Candidate c) -> c.weight).reversed()
+                    .thenComparing(c -> c.type.ordinal(), Comparator.reverseOrder())
+                    .thenComparing(c -> c.text));
+
+            SearchSuggestionDto[] suggestions = new SearchSuggestionDto[ordered.size()];
+            List<KeyEntry> keyEntries = new ArrayList<>(ordered.size() * 3);
+            for (int i = 0; i < ordered.size(); i++) {
+                Candidate candidate = ordered.get(i);
+                suggestions[i] = new SearchSuggestionDto(candidate.text, candidate.type, candidate.url);
+
+                String key = Transliterator.searchKey(candidate.text);
+                if (key.isEmpty()) {
+                    continue;
+                }
+                keyEntries.add(new KeyEntry(key, i));
+                for (int p = key.indexOf(' '); p >= 0; p = key.indexOf(' ', p + 1)) {
+                    if (p + 1 < key.length()) {
+                        keyEntries.add(new KeyEntry(key.substring(p + 1), i));
+                    }
+                }
+            }
+
+            keyEntries.sort(Comparator.comparing(KeyEntry::key));
+            String[] keys = new String[keyEntries.size()];
+            int[] keySuggestion = new int[keyEntries.size()];
+            Map<String, TreeSet<Integer>> shortPrefixes = new HashMap<>();
+            for (int i = 0; i < keyEntries.size(); i++) {
+                KeyEntry entry = keyEntries.get(i);
+                keys[i] = entry.key();
+                keySuggestion[i] = entry.suggestion();
+
+                for (int length = 1; length <= PRECOMPUTED_PREFIX_LENGTH && length <= entry.key().length(); length++) {
+                    TreeSet<Integer> best = shortPrefixes.computeIfAbsent(entry.key().substring(0, length), k -> new TreeSet<>());
+                    best.add(entry.suggestion());
+                    if (best.size() > MAX_LIMIT) {
+                        best.pollLast();
+                    }
+                }
+            }
+
+            Map<String, int[]> topByShortPrefix = new HashMap<>(shortPrefixes.size() * 2);
+            shortPrefixes.forEach((prefix, best) ->
+                    topByShortPrefix.put(prefix, best.stream().mapToInt(Integer::intValue).toArray()));
+
+            return new Snapshot(suggestions, keys, keySuggestion, topByShortPrefix);
+        }
+    }
+
+    private static int lowerBound(String[] keys, String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static final class Candidate {
+        final String text;
+        final SuggestionType type;
+        final String url;
+        long weight;
+
+        Candidate(String text, SuggestionType type, String url) {
+            this.text = text;
+            this.type = type;
+            this.url = url;
+        }
+    }
+
+    private record KeyEntry(String key, int suggestion) {
+    }
+}
@@ -1,4 +1,5 @@
 package com.example.landofchokolate.service.serviceImpl;
+import com.example.landofchokolate.config.caffeine.RefreshAheadCaches;
 import com.example.landofchokolate.dto.brend.*;
 import com.example.landofchokolate.mapper.BrandMapper;
 import com.example.landofchokolate.mapper.ProductMapper;
@@ -36,6 +37,7 @@ public class BrandServiceImpl implements BrandService {
     private final SlugService slugService;
     private final ProductRepository productRepository;
     private final ProductMapper productMapper;
+    private final RefreshAheadCaches refreshAheadCaches;
 
     @Override
     @Caching(
@@ -171,8 +173,12 @@ public class BrandServiceImpl implements BrandService {
     }
 
     @Override
-    @Cacheable(value = "brandLimit", key = "'limit_' + #limit")
     public List<BrandClientDto> getBrandByLimit(int limit) {
+        // Кеш brandLimit обновляется в фоне (RefreshAheadCaches), ключ прежний — для @CacheEvict
+        return refreshAheadCaches.get("brandLimit", "limit_" + limit, () -> loadBrandsByLimit(limit));
+    }
+
+    private List<BrandClientDto> loadBrandsByLimit(int limit) {
         log.info("Fetching brands with limit: {}", limit);
 
         Pageable pageable = PageRequest.of(0, limit);
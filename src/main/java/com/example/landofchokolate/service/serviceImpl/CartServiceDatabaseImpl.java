@@ -1,6 +1,8 @@
 package com.example.landofchokolate.service.serviceImpl;
 
 import com.example.landofchokolate.dto.card.CartDto;
+import com.example.landofchokolate.dto.card.CartSnapshot;
+import com.example.landofchokolate.dto.card.CartSummary;
 import com.example.landofchokolate.enums.CartStatus;
 import com.example.landofchokolate.mapper.CartMapper;
 import com.example.landofchokolate.model.Cart;
@@ -15,7 +17,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.hibernate.LazyInitializationException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
@@ -25,8 +26,11 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Primary
 @Service("cartServiceDatabase")
@@ -54,8 +58,15 @@ public class CartServiceDatabaseImpl implements CartService {
     @Override
     @Transactional(readOnly = true)
     public CartDto getCartDto(HttpSession session) {
-        Cart cart = getCartReadOnly(session);
-        return cartMapper.toDto(cart);
+        CartSnapshot snapshot = getCartSnapshot(session);
+        if (snapshot.isEmpty()) {
+            return cartMapper.toDto(snapshot, Map.of());
+        }
+
+        // Для отображения корзины товары читаются из БД — в сессии только их id
+        Map<Long, Product> products = productRepository.findAllByIdInWithImages(snapshot.getProductIds()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return cartMapper.toDto(snapshot, products);
     }
 
     @Override
@@ -109,10 +120,7 @@ public class CartServiceDatabaseImpl implements CartService {
         updateCartActivity(cart);
         cart = cartRepository.save(cart);
 
-        // Принудительно инициализируем данные перед сохранением в сессию
-        initializeCartData(cart);
-
-        // Обновляем корзину в сессии с дополнительной проверкой
+        // Обновляем снимок корзины в сессии с дополнительной проверкой
         updateCartInSessionSafe(session, cart);
 
     }
@@ -159,8 +167,8 @@ public class CartServiceDatabaseImpl implements CartService {
             log.info("Создан новый UUID для корзины: {}", newUuid);
         }
 
-        session.setAttribute(CART_SESSION_KEY, cart);
-        log.debug("Корзина сохранена в сессии с UUID='{}'", cart.getCartUuid());
+        session.setAttribute(CART_SESSION_KEY, CartSnapshot.of(cart));
+        log.debug("Снимок корзины сохранён в сессии с UUID='{}'", cart.getCartUuid());
     }
 
     @Override
@@ -238,22 +246,26 @@ public class CartServiceDatabaseImpl implements CartService {
     @Override
     @Transactional(readOnly = true)
     public Integer getCartItemCount(HttpSession session) {
-        Cart cart = getCartReadOnly(session);
-        return calculateCartTotalQuantity(cart);
+        return getCartSnapshot(session).getTotalQuantity();
     }
 
     @Override
     @Transactional(readOnly = true)
     public BigDecimal getCartTotal(HttpSession session) {
-        Cart cart = getCartReadOnly(session);
-        return calculateCartTotalPrice(cart);
+        return getCartSnapshot(session).getTotalPrice();
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean isCartEmpty(HttpSession session) {
-        Cart cart = getCartReadOnly(session);
-        return cart.getItems().isEmpty();
+        return getCartSnapshot(session).isEmpty();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CartSummary getCartSummary(HttpSession session) {
+        CartSnapshot snapshot = getCartSnapshot(session);
+        return new CartSummary(snapshot.getTotalQuantity(), snapshot.getTotalPrice());
     }
 
     // =============================================================================
@@ -343,21 +355,11 @@ public class CartServiceDatabaseImpl implements CartService {
     @Transactional
     protected Cart getOrCreateCart(HttpSession session) {
 
-        // Сначала проверяем сессию
-        Cart cachedCart = getCartFromSession(session);
-        if (cachedCart != null && !isCartExpired(cachedCart)) {
-            log.debug("Найдена корзина в сессии: UUID='{}'", cachedCart.getCartUuid());
-
-            if (cachedCart.getCartUuid() == null || cachedCart.getCartUuid().trim().isEmpty()) {
-                log.warn("Корзина в сессии имеет пустой UUID, удаляем из сессии");
-                clearCartFromSession(session);
-            } else {
-                return cachedCart;
-            }
-        }
-
-        // Если в сессии нет или корзина истекла, загружаем из БД
-        String cartUuid = getCartUuidFromCookie();
+        // Сущность корзины загружается только на запись; в сессии — лишь снимок с её UUID
+        CartSnapshot snapshot = getSnapshotFromSession(session);
+        String cartUuid = snapshot != null && snapshot.isPersisted() && !snapshot.isExpired()
+                ? snapshot.getCartUuid()
+                : getCartUuidFromCookie();
 
         if (cartUuid != null && !cartUuid.trim().isEmpty()) {
             Optional<Cart> cartOpt = cartRepository.findByCartUuidAndStatusWithItems(cartUuid, CartStatus.ACTIVE);
@@ -366,9 +368,8 @@ public class CartServiceDatabaseImpl implements CartService {
                 log.debug("Найдена корзина в БД: ID={}, UUID='{}'", cart.getId(), cart.getCartUuid());
 
                 if (!isCartExpired(cart)) {
+                    // Сохранит и положит снимок в сессию вызывающий метод
                     updateCartActivity(cart);
-                    cart = cartRepository.save(cart);
-                    updateCartInSession(session, cart);
                     return cart;
                 } else {
 
@@ -397,75 +398,26 @@ public class CartServiceDatabaseImpl implements CartService {
     }
 
 
+    /**
+     * Снимок корзины для чтения: из сессии, иначе из БД по cookie. Пустую корзину не создаёт
+     */
     @Transactional(readOnly = true)
-    protected Cart getCartReadOnly(HttpSession session) {
-        Cart cachedCart = getCartFromSession(session);
-        if (cachedCart != null && !isCartExpired(cachedCart)) {
-            if (isCartFullyLoaded(cachedCart)) {
-                return cachedCart;
-            }
+    protected CartSnapshot getCartSnapshot(HttpSession session) {
+        CartSnapshot cached = getSnapshotFromSession(session);
+        if (cached != null && !cached.isExpired()) {
+            return cached;
         }
 
         String cartUuid = getCartUuidFromCookie();
         if (cartUuid != null) {
             Optional<Cart> cartOpt = cartRepository.findByCartUuidAndStatusWithItems(cartUuid, CartStatus.ACTIVE);
-            if (cartOpt.isPresent()) {
-                Cart cart = cartOpt.get();
-                if (!isCartExpired(cart)) {
-                    initializeCartData(cart);
-                    updateCartInSession(session, cart);
-                    return cart;
-                }
+            if (cartOpt.isPresent() && !isCartExpired(cartOpt.get())) {
+                return updateCartInSession(session, cartOpt.get());
             }
         }
 
-        // ИСПРАВЛЕНИЕ: НЕ создаем корзину в read-only методе!
-        // Возвращаем пустую корзину только в памяти
-        return createEmptyCartInMemory();
-    }
-    // ДОБАВЬТЕ ЭТОТ НОВЫЙ МЕТОД:
-    private Cart createEmptyCartInMemory() {
-        Cart cart = new Cart();
-        cart.setCartUuid(""); // Пустой UUID для индикации временной корзины
-        cart.setStatus(CartStatus.ACTIVE);
-        cart.setItems(new ArrayList<>());
-
-        LocalDateTime now = LocalDateTime.now();
-        cart.setCreatedAt(now);
-        cart.setUpdatedAt(now);
-        cart.setLastActivityAt(now);
-        cart.setExpiresAt(now.plusDays(cartExpirationDays));
-
-        log.debug("Создана временная пустая корзина (только в памяти)");
-        return cart;
+        return CartSnapshot.empty();
     }
-//    @Transactional(readOnly = true)
-//    protected Cart getCartReadOnly(HttpSession session) {
-//        Cart cachedCart = getCartFromSession(session);
-//        if (cachedCart != null && !isCartExpired(cachedCart)) {
-//            if (isCartFullyLoaded(cachedCart)) {
-//                return cachedCart;
-//            }
-//        }
-//
-//        String cartUuid = getCartUuidFromCookie();
-//        if (cartUuid != null) {
-//            Optional<Cart> cartOpt = cartRepository.findByCartUuidAndStatusWithItems(cartUuid, CartStatus.ACTIVE);
-//            if (cartOpt.isPresent()) {
-//                Cart cart = cartOpt.get();
-//                if (!isCartExpired(cart)) {
-//                    initializeCartData(cart);
-//                    updateCartInSession(session, cart);
-//                    return cart;
-//                }
-//            }
-//        }
-//
-//        // ИСПРАВЛЕНИЕ: Создаем НАСТОЯЩУЮ корзину вместо пустой заглушки
-//        Cart newCart = createNewCart(); // Эта корзина сохраняется в БД!
-//        updateCartInSession(session, newCart);
-//        return newCart;
-//    }
 
     // Вспомогательные методы
     private void updateCartActivity(Cart cart) {
@@ -487,39 +439,29 @@ public class CartServiceDatabaseImpl implements CartService {
         return item;
     }
 
-    private Integer calculateCartTotalQuantity(Cart cart) {
-        return cart.getItems().stream()
-                .mapToInt(CartItem::getQuantity)
-                .sum();
-    }
-
-    private BigDecimal calculateCartTotalPrice(Cart cart) {
-        return cart.getItems().stream()
-                .map(item -> item.getPriceAtTime().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private Cart getCartFromSession(HttpSession session) {
-        try {
-            return (Cart) session.getAttribute(CART_SESSION_KEY);
-        } catch (ClassCastException e) {
-            log.warn("Invalid cart object in session, removing", e);
-            session.removeAttribute(CART_SESSION_KEY);
-            return null;
+    private CartSnapshot getSnapshotFromSession(HttpSession session) {
+        Object attribute = session.getAttribute(CART_SESSION_KEY);
+        if (attribute == null || attribute instanceof CartSnapshot) {
+            return (CartSnapshot) attribute;
         }
+        log.warn("Invalid cart object in session ({}), removing", attribute.getClass().getSimpleName());
+        session.removeAttribute(CART_SESSION_KEY);
+        return null;
     }
 
-    private void updateCartInSession(HttpSession session, Cart cart) {
+    private CartSnapshot updateCartInSession(HttpSession session, Cart cart) {
         log.debug("updateCartInSession: входящий cart UUID='{}'", cart.getCartUuid());
 
+        CartSnapshot snapshot = CartSnapshot.of(cart);
         // НЕ сохраняем корзины с пустым UUID в сессию
-        if (cart.getCartUuid() == null || cart.getCartUuid().trim().isEmpty()) {
+        if (!snapshot.isPersisted()) {
             log.debug("Пропускаем сохранение временной корзины в сессию");
-            return;
+            return snapshot;
         }
 
-        session.setAttribute(CART_SESSION_KEY, cart);
-        log.debug("Корзина сохранена в сессии с UUID='{}'", cart.getCartUuid());
+        session.setAttribute(CART_SESSION_KEY, snapshot);
+        log.debug("Снимок корзины сохранён в сессии: {}", snapshot);
+        return snapshot;
     }
 
     private void clearCartFromSession(HttpSession session) {
@@ -575,49 +517,6 @@ public class CartServiceDatabaseImpl implements CartService {
         return request.getRemoteAddr();
     }
 
-    private void initializeCartData(Cart cart) {
-        if (cart.getItems() != null) {
-            for (CartItem item : cart.getItems()) {
-                if (item.getProduct() != null) {
-                    Product product = item.getProduct();
-                    product.getId();
-                    product.getName();
-                    product.getPrice();
-                    product.getStockQuantity();
-                    product.getIsActive();
-                    product.getSlug();
-
-                    // 🔄 Просто инициализируем коллекцию изображений
-                    try {
-                        if (product.getImages() != null) {
-                            product.getImages().size(); // Загружает Lazy коллекцию
-                        }
-                    } catch (Exception e) {
-                        log.warn("Не удалось инициализировать изображения товара в корзине: {}", e.getMessage());
-                    }
-                }
-            }
-        }
-    }
-
-    private boolean isCartFullyLoaded(Cart cart) {
-        if (cart.getItems() == null) {
-            return true;
-        }
-
-        try {
-            for (CartItem item : cart.getItems()) {
-                if (item.getProduct() != null) {
-                    item.getProduct().getName();
-                    item.getProduct().getPrice();
-                }
-            }
-            return true;
-        } catch (LazyInitializationException e) {
-            return false;
-        }
-    }
-
     private boolean isCartExpired(Cart cart) {
         return cart.getExpiresAt() != null && LocalDateTime.now().isAfter(cart.getExpiresAt());
     }
@@ -2,6 +2,7 @@ package com.example.landofchokolate.service.serviceImpl;
 
 import com.example.landofchokolate.dto.card.CartDto;
 import com.example.landofchokolate.dto.card.CartItemDto;
+import com.example.landofchokolate.dto.card.CartSummary;
 import com.example.landofchokolate.mapper.CartMapper;
 import com.example.landofchokolate.model.Product;
 import com.example.landofchokolate.model.ProductImage;
@@ -209,4 +210,10 @@ public class CartServiceImpl implements CartService {
         CartDto cart = getCartDto(session);
         return cart.isEmpty();
     }
-}
\ No newline at end of file
+
+    @Override
+    public CartSummary getCartSummary(HttpSession session) {
+        CartDto cart = getCartDto(session);
+        return new CartSummary(cart.getTotalQuantity(), cart.getTotalPrice());
+    }
+}
@@ -1,10 +1,12 @@
 package com.example.landofchokolate.service.serviceImpl;
+import com.example.landofchokolate.config.caffeine.RefreshAheadCaches;
 import com.example.landofchokolate.dto.category.*;
 import com.example.landofchokolate.exception.CategoryNotFoundException;
 import com.example.landofchokolate.mapper.CategoryMapper;
 import com.example.landofchokolate.model.Category;
 import com.example.landofchokolate.repository.CategoryRepository;
 import com.example.landofchokolate.repository.ProductRepository;
+import com.example.landofchokolate.service.CategoryPriceSummaryService;
 import com.example.landofchokolate.service.CategoryService;
 import com.example.landofchokolate.service.SlugService;
 import com.example.landofchokolate.util.StorageService;
@@ -18,12 +20,10 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -38,6 +38,8 @@ public class CategoryServiceImpl implements CategoryService {
     private final SlugService slugService;
     private final ProductRepository productRepository;
     private final StorageService storageService;
+    private final CategoryPriceSummaryService categoryPriceSummaryService;
+    private final RefreshAheadCaches refreshAheadCaches;
 
     @Override
     @Caching(
@@ -209,10 +211,8 @@ public class CategoryServiceImpl implements CategoryService {
         // Получаем только активные категории
         Page<Category> categoryPage = categoryRepository.findByIsActiveTrue(pageable);
 
-        // Преобразуем в PublicDto с ценовой информацией
-        List<CategoryPublicDto> publicDtos = categoryPage.getContent().stream()
-                .map(this::enrichCategoryWithPriceInfo)
-                .collect(Collectors.toList());
+        // Преобразуем в PublicDto с ценовой информацией (один запрос на всю страницу)
+        List<CategoryPublicDto> publicDtos = enrichCategoriesWithPriceInfo(categoryPage.getContent());
 
         // Генерируем номера страниц для навигации
         List<Integer> pageNumbers = generatePageNumbers(page, categoryPage.getTotalPages());
@@ -235,8 +235,12 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
-    @Cacheable(value = "topCategories", key = "'top_' + #limit")
     public List<CategoryPublicDto> getTopCategories(int limit) {
+        // Кеш topCategories обновляется в фоне (RefreshAheadCaches), ключ прежний — для @CacheEvict
+        return refreshAheadCaches.get("topCategories", "top_" + limit, () -> loadTopCategories(limit));
+    }
+
+    private List<CategoryPublicDto> loadTopCategories(int limit) {
         log.info("Fetching top categories with limit: {}", limit);
 
         Pageable pageable = PageRequest.of(0, limit);
@@ -244,9 +248,7 @@ public class CategoryServiceImpl implements CategoryService {
                 .findByIsActiveTrueAndIsFeaturedTrueOrderByNameAsc(pageable);
 
         // Обогащаем ценовой информацией
-        List<CategoryPublicDto> result = featuredCategories.stream()
-                .map(this::enrichCategoryWithPriceInfo)
-                .collect(Collectors.toList());
+        List<CategoryPublicDto> result = enrichCategoriesWithPriceInfo(featuredCategories);
 
         return result;
     }
@@ -267,38 +269,37 @@ public class CategoryServiceImpl implements CategoryService {
      * @param limit максимальное количество категорий
      * @return список DTO категорий для навигации (может быть пустым)
      */
-    @Cacheable(
-            value = "navigationCategories",
-            key = "#limit",
-            cacheManager = "categoryCacheManager"
-    )
     public List<CategoryNavDto> getNavigationCategories(int limit) {
         try {
-            log.debug("Загрузка навигационных категорий из базы данных (limit: {})", limit);
-
-            List<Category> categories = categoryRepository.findActiveCategories(limit);
+            // Кеш navigationCategories обновляется в фоне: запросы не ждут БД, ошибка обновления оставляет прежний список
+            return refreshAheadCaches.get("navigationCategories", limit, () -> loadNavigationCategories(limit));
+        } catch (Exception e) {
+            log.error("Ошибка при получении категорий для навигации", e);
+            return Collections.emptyList();
+        }
+    }
 
-            // Если нет категорий в БД, возвращаем пустой список
-            if (categories == null || categories.isEmpty()) {
-                log.debug("Не найдено активных категорий в базе данных");
-                return Collections.emptyList();
-            }
+    private List<CategoryNavDto> loadNavigationCategories(int limit) {
+        log.debug("Загрузка навигационных категорий из базы данных (limit: {})", limit);
 
-            List<CategoryNavDto> result = categoryMapper.convertToCategoryNavDtoList(categories);
+        List<Category> categories = categoryRepository.findActiveCategories(limit);
 
-            // Если маппер вернул пустой список или null
-            if (result == null || result.isEmpty()) {
-                log.debug("Маппер вернул пустой список");
-                return Collections.emptyList();
-            }
+        // Если нет категорий в БД, возвращаем пустой список
+        if (categories == null || categories.isEmpty()) {
+            log.debug("Не найдено активных категорий в базе данных");
+            return Collections.emptyList();
+        }
 
-            log.debug("Загружено {} навигационных категорий", result.size());
-            return result;
+        List<CategoryNavDto> result = categoryMapper.convertToCategoryNavDtoList(categories);
 
-        } catch (Exception e) {
-            log.error("Ошибка при получении категорий для навигации", e);
+        // Если маппер вернул пустой список или null
+        if (result == null || result.isEmpty()) {
+            log.debug("Маппер вернул пустой список");
             return Collections.emptyList();
         }
+
+        log.debug("Загружено {} навигационных категорий", result.size());
+        return result;
     }
 
     @Override
@@ -405,24 +406,27 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     /**
-     * Обогащает категорию ценовой информацией
+     * Обогащает категории ценовой информацией.
+     * Сводки берутся из кеша, недостающие — одним GROUP BY запросом на все категории списка
      */
-    private CategoryPublicDto enrichCategoryWithPriceInfo(Category category) {
+    private List<CategoryPublicDto> enrichCategoriesWithPriceInfo(List<Category> categories) {
+        Map<Long, CategoryPriceSummary> summaries;
         try {
-            // Получаем статистику цен для категории
-            Map<String, Object> priceStats = productRepository.findPriceStatsByCategoryId(category.getId());
-
-            BigDecimal minPrice = (BigDecimal) priceStats.get("minPrice");
-            BigDecimal maxPrice = (BigDecimal) priceStats.get("maxPrice");
-            Integer productCount = ((Number) priceStats.get("productCount")).intValue();
-
-            return categoryMapper.toPublicDto(category, minPrice, maxPrice, productCount);
-
+            summaries = categoryPriceSummaryService.getSummaries(
+                    categories.stream().map(Category::getId).toList());
         } catch (Exception e) {
-            log.warn("Error getting price info for category id={}: {}", category.getId(), e.getMessage());
-            // Возвращаем категорию без ценовой информации
-            return categoryMapper.toPublicDto(category, null, null, 0);
+            log.warn("Error getting price info for {} categories: {}", categories.size(), e.getMessage());
+            // Возвращаем категории без ценовой информации
+            summaries = Map.of();
         }
+
+        List<CategoryPublicDto> result = new ArrayList<>(categories.size());
+        for (Category category : categories) {
+            CategoryPriceSummary summary = summaries.getOrDefault(category.getId(), CategoryPriceSummary.empty(category.getId()));
+            result.add(categoryMapper.toPublicDto(category, summary.getMinPrice(), summary.getMaxPrice(),
+                    summary.getProductCount().intValue()));
+        }
+        return result;
     }
 
     /**
@@ -1,19 +1,27 @@
 package com.example.landofchokolate.service.serviceImpl;
 
+import com.example.landofchokolate.dto.product.ProductCursor;
 import com.example.landofchokolate.dto.product.ProductFilterDto;
 import com.example.landofchokolate.dto.product.ProductListDto;
 import com.example.landofchokolate.dto.product.ProductListResponseDto;
+import com.example.landofchokolate.enums.ProductCountMode;
+import com.example.landofchokolate.enums.ProductSortKey;
 import com.example.landofchokolate.repository.ProductRepository;
 import com.example.landofchokolate.service.ClientProductService;
+import com.example.landofchokolate.service.search.ProductSearchService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,7 +31,15 @@ import java.util.List;
 public class ClientProductServiceImpl implements ClientProductService {
 
     private final ProductRepository productRepository;
+    private final ProductSearchService productSearchService;
     private static final int PAGE_SIZE_LARGE = 12;
+    private static final int SEARCH_RESULTS_LIMIT = 1000;
+
+    // Количество товаров по набору фильтров для режима APPROXIMATE
+    private final Cache<ProductFilterDto, Long> catalogCounts = Caffeine.newBuilder()
+            .maximumSize(500)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
 
     @Override
     @Transactional(readOnly = true)
@@ -36,6 +52,80 @@ public class ClientProductServiceImpl implements ClientProductService {
                                                             String stockStatus) {
 
         // Создаем объект фильтров с очисткой пустых строк
+        ProductFilterDto filters = buildFilters(searchName, minPrice, maxPrice, categoryId, brandId, stockStatus);
+
+        return getAllProductsWithFilters(pageable, filters);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProductListResponseDto getProductsByCursor(String cursor,
+                                                      int pageNumber,
+                                                      String sortBy,
+                                                      String sortDirection,
+                                                      String searchName,
+                                                      BigDecimal minPrice,
+                                                      BigDecimal maxPrice,
+                                                      Long categoryId,
+                                                      Long brandId,
+                                                      String stockStatus,
+                                                      ProductCountMode countMode) {
+
+        ProductFilterDto filters = buildFilters(searchName, minPrice, maxPrice, categoryId, brandId, stockStatus);
+
+        ProductSortKey sortKey = ProductSortKey.fromProperty(sortBy).orElse(ProductSortKey.NAME);
+        boolean descending = "desc".equalsIgnoreCase(sortDirection);
+
+        // Курсор от другой сортировки (пользователь сменил сортировку) — начинаем с начала
+        ProductCursor after = ProductCursor.decode(cursor)
+                .filter(c -> c.matches(sortKey, descending))
+                .orElse(null);
+        int page = after != null ? Math.max(pageNumber, 0) : 0;
+
+        // Берём на одну строку больше — так узнаём hasNext без COUNT
+        List<ProductListDto> rows = productRepository.findCatalogAfter(filters, sortKey, descending, after, PAGE_SIZE_LARGE + 1);
+        boolean hasNext = rows.size() > PAGE_SIZE_LARGE;
+        List<ProductListDto> products = hasNext ? rows.subList(0, PAGE_SIZE_LARGE) : rows;
+
+        Long total = switch (countMode) {
+            case EXACT -> {
+                long exact = productRepository.countCatalog(filters);
+                catalogCounts.put(filters, exact);
+                yield exact;
+            }
+            case APPROXIMATE -> catalogCounts.get(filters, productRepository::countCatalog);
+            case NONE -> null;
+        };
+
+        int currentPageNumber = page + 1;
+        Integer totalPages = total != null ? (int) Math.ceil((double) total / PAGE_SIZE_LARGE) : null;
+        // Кешированный total может отставать — не даём ему противоречить реально найденным строкам
+        if (totalPages != null && hasNext && totalPages <= currentPageNumber) {
+            totalPages = currentPageNumber + 1;
+        }
+
+        return ProductListResponseDto.builder()
+                .products(new ArrayList<>(products))
+                .totalCount(total != null ? total.intValue() : null)
+                .hasNext(hasNext)
+                .hasPrevious(page > 0)
+                .currentPage(currentPageNumber)
+                .pageSize(PAGE_SIZE_LARGE)
+                .totalPages(totalPages)
+                .nextPage(hasNext ? currentPageNumber + 1 : null)
+                .previousPage(page > 0 ? currentPageNumber - 1 : null)
+                .pageNumbers(totalPages != null ? generatePageNumbers(currentPageNumber, totalPages) : List.of())
+                .nextCursor(hasNext ? ProductCursor.after(sortKey, descending, products.get(products.size() - 1)).encode() : null)
+                .approximateCount(countMode == ProductCountMode.APPROXIMATE)
+                .build();
+    }
+
+    /**
+     * Фильтры из параметров запроса. Поисковая строка сразу превращается в список id
+     * из поискового индекса (имя, бренд, категория, описание, ключевые слова; опечатки и транслит)
+     */
+    private ProductFilterDto buildFilters(String searchName, BigDecimal minPrice, BigDecimal maxPrice,
+                                          Long categoryId, Long brandId, String stockStatus) {
         ProductFilterDto filters = ProductFilterDto.builder()
                 .searchName(cleanString(searchName))
                 .minPrice(minPrice)
@@ -45,7 +135,11 @@ public class ClientProductServiceImpl implements ClientProductService {
                 .stockStatus(cleanString(stockStatus))
                 .build();
 
-        return getAllProductsWithFilters(pageable, filters);
+        // Пока индекс строится после старта — остаётся LIKE по названию
+        if (filters.hasSearchName() && productSearchService.isReady()) {
+            filters.setProductIds(productSearchService.search(filters.getSearchName(), SEARCH_RESULTS_LIMIT));
+        }
+        return filters;
     }
 
     // Вспомогательный метод для очистки строк
@@ -62,7 +156,7 @@ public class ClientProductServiceImpl implements ClientProductService {
         Pageable fixedPageable = PageRequest.of(
                 pageable.getPageNumber(),
                 PAGE_SIZE_LARGE,
-                pageable.getSort()
+                withIdTieBreaker(pageable.getSort())
         );
 
         // Получаем данные с учетом фильтров
@@ -83,9 +177,38 @@ public class ClientProductServiceImpl implements ClientProductService {
                 .nextPage(productDtoPage.hasNext() ? currentPageNumber + 1 : null)
                 .previousPage(productDtoPage.hasPrevious() ? currentPageNumber - 1 : null)
                 .pageNumbers(generatePageNumbers(currentPageNumber, totalPages))
+                .nextCursor(nextCursorFor(pageable.getSort(), productDtoPage))
                 .build();
     }
 
+    /**
+     * id вторым ключом — порядок однозначен и совпадает с курсорным (sortKey, id)
+     */
+    private Sort withIdTieBreaker(Sort sort) {
+        Sort.Order first = sort.stream().findFirst().orElse(null);
+        if (first == null || sort.getOrderFor("id") != null) {
+            return sort;
+        }
+        return sort.and(Sort.by(first.getDirection(), "id"));
+    }
+
+    /**
+     * Курсор, чтобы "Наступна" дальше шла keyset-запросом, а не OFFSET
+     */
+    private String nextCursorFor(Sort sort, Page<ProductListDto> page) {
+        if (!page.hasNext() || page.getContent().isEmpty()) {
+            return null;
+        }
+        Sort.Order first = sort.stream().findFirst().orElse(null);
+        if (first == null) {
+            return null;
+        }
+        return ProductSortKey.fromProperty(first.getProperty())
+                .map(key -> ProductCursor.after(key, first.isDescending(),
+                        page.getContent().get(page.getContent().size() - 1)).encode())
+                .orElse(null);
+    }
+
     // Приватный метод для выбора правильного метода репозитория
     private Page<ProductListDto> getFilteredProducts(Pageable pageable, ProductFilterDto filters) {
         boolean hasFilters = hasAnyFilters(filters);
@@ -93,6 +216,9 @@ public class ClientProductServiceImpl implements ClientProductService {
         if (!hasFilters) {
             log.debug("No filters applied, using standard query");
             return productRepository.findAllProductListDto(pageable); // ← исправленный запрос
+        } else if (filters.hasProductIds()) {
+            log.debug("Applying filters with search index results: {} products", filters.getProductIds().size());
+            return productRepository.findCatalogPage(filters, pageable);
         } else {
             log.debug("Applying filters: {}", filters);
             return productRepository.findAllWithFilters(filters, pageable); // ← исправленный запрос
@@ -107,13 +233,15 @@ public class ClientProductServiceImpl implements ClientProductService {
         boolean hasCategoryId = filters.getCategoryId() != null;
         boolean hasBrandId = filters.getBrandId() != null;
         boolean hasStockStatus = filters.getStockStatus() != null;
+        boolean hasProductIds = filters.hasProductIds();
 
         log.debug("Filter check: searchName={} ({}), minPrice={}, maxPrice={}, categoryId={}, brandId={}, stockStatus={} ({})",
                 hasSearchName, filters.getSearchName(),
                 hasMinPrice, hasMaxPrice, hasCategoryId, hasBrandId,
                 hasStockStatus, filters.getStockStatus());
 
-        boolean result = hasSearchName || hasMinPrice || hasMaxPrice || hasCategoryId || hasBrandId || hasStockStatus;
+        boolean result = hasSearchName || hasMinPrice || hasMaxPrice || hasCategoryId || hasBrandId || hasStockStatus
+                || hasProductIds;
         log.debug("Final result - has any filters: {}", result);
 
         return result;
@@ -3,27 +3,42 @@ import com.example.landofchokolate.config.NovaPoshtaConfig;
 import com.example.landofchokolate.dto.novaposhta.*;
 import com.example.landofchokolate.dto.order.OrderDTO;
 import com.example.landofchokolate.enums.DeliveryMethod;
+import com.example.landofchokolate.exception.NovaPoshtaApiException;
+import com.example.landofchokolate.exception.NovaPoshtaRejectedException;
+import com.example.landofchokolate.repository.OrderRepository;
 import com.example.landofchokolate.service.PoshtaService;
+import com.example.landofchokolate.service.novaposhta.CitySearchIndex;
+import com.example.landofchokolate.service.novaposhta.NovaPoshtaApiClient;
+import com.example.landofchokolate.service.novaposhta.NovaPoshtaSnapshotStore;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheConfig;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.annotation.Primary;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @Primary
@@ -33,9 +48,42 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @CacheConfig(cacheManager = "novaPoshtaCacheManager")
 public class NovaPoshtaService implements PoshtaService {
 
+    private static final DateTimeFormatter DOCUMENT_DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
     private final NovaPoshtaConfig config;
-    private final RestTemplate restTemplate;
-    private  final ObjectMapper objectMapper;
+    private final NovaPoshtaApiClient apiClient;
+    private final ObjectMapper objectMapper;
+    private final CitySearchIndex citySearchIndex;
+    private final NovaPoshtaSnapshotStore snapshotStore;
+    private final OrderRepository orderRepository;
+
+    @Value("${app.novaposhta.snapshot.warehouse-refresh-batch:20}")
+    private int warehouseRefreshBatch;
+
+    @Value("${app.novaposhta.departments.cache.max-departments:200000}")
+    private long departmentsCacheMaxDepartments;
+
+    @Value("${app.novaposhta.departments.cache.ttl-hours:24}")
+    private long departmentsCacheTtlHours;
+
+    @Value("${app.novaposhta.departments.cache.refresh-after-minutes:360}")
+    private long departmentsCacheRefreshAfterMinutes;
+
+    @Value("${app.novaposhta.departments.prefetch.top-cities:30}")
+    private int prefetchTopCities;
+
+    @Value("${app.novaposhta.departments.prefetch.lookback-days:90}")
+    private int prefetchLookbackDays;
+
+    // 🏤 Отделения по городам: TTL + stale-while-revalidate, одна загрузка на город
+    private final ExecutorService departmentsExecutor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "NovaPoshta-Departments");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private AsyncLoadingCache<String, List<DepartmentSummary>> departmentsCache;
+    // Города, для которых устаревший снимок уже обновляли: при недоступном API повтор — не раньше refresh-after-minutes
+    private Cache<String, Boolean> staleRefreshAttempts;
 
     // Кэш для городов
     private volatile List<City> cachedCities = new ArrayList<>();
@@ -48,6 +96,34 @@ public class NovaPoshtaService implements PoshtaService {
 
     @PostConstruct
     public void initService() {
+        departmentsCache = Caffeine.newBuilder()
+                .maximumWeight(departmentsCacheMaxDepartments)
+                .weigher((String cityRef, List<DepartmentSummary> departments) -> Math.max(1, departments.size()))
+                .expireAfterWrite(Duration.ofHours(departmentsCacheTtlHours))
+                .refreshAfterWrite(Duration.ofMinutes(departmentsCacheRefreshAfterMinutes))
+                .executor(departmentsExecutor)
+                .recordStats()
+                .buildAsync(new DepartmentsLoader());
+        staleRefreshAttempts = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMinutes(departmentsCacheRefreshAfterMinutes))
+                .build();
+
+        // 💾 Снимок с диска читается за миллисекунды — полный список городов доступен сразу
+        if (snapshotStore.load()) {
+            cachedCities = snapshotStore.getCities();
+            citiesLoaded.set(true);
+            citySearchIndex.rebuild(cachedCities);
+
+            if (snapshotStore.isCitiesStale()) {
+                log.info("NovaPoshtaService initialized from snapshot - cities are stale, refreshing in background");
+                CompletableFuture.runAsync(this::loadAllCitiesInternal);
+            } else {
+                log.info("NovaPoshtaService initialized from snapshot - {} cities", cachedCities.size());
+            }
+            return;
+        }
+
         log.info("NovaPoshtaService initialized - background loading will start after app startup");
 
         // Запускаем загрузку популярных городов асинхронно ПОСЛЕ старта приложения
@@ -63,6 +139,31 @@ public class NovaPoshtaService implements PoshtaService {
         });
     }
 
+    /**
+     * 🔄 Фоновое инкрементальное обновление снимка: города — если устарели,
+     * отделения — пачкой самых старых городов, затем запись файла (только при изменениях)
+     */
+    @Scheduled(initialDelayString = "${app.novaposhta.snapshot.refresh-interval-ms:3600000}",
+            fixedDelayString = "${app.novaposhta.snapshot.refresh-interval-ms:3600000}")
+    public void refreshSnapshot() {
+        try {
+            if (snapshotStore.isCitiesStale()) {
+                loadAllCitiesInternal();
+            }
+
+            for (String cityRef : snapshotStore.findStaleWarehouseCities(warehouseRefreshBatch)) {
+                List<DepartmentSummary> departments = fetchDepartments(cityRef);
+                if (departments != null) {
+                    departmentsCache.put(cityRef, CompletableFuture.completedFuture(departments));
+                }
+            }
+
+            snapshotStore.flush();
+        } catch (Exception e) {
+            log.error("Error refreshing Nova Poshta snapshot", e);
+        }
+    }
+
     /**
      * ✅ БЫСТРАЯ ЗАГРУЗКА: Только популярные города (топ 50)
      */
@@ -81,31 +182,19 @@ public class NovaPoshtaService implements PoshtaService {
             methodProperties.put("Limit", "50"); // Только топ-50 городов
             methodProperties.put("FindByString", ""); // Пустой поиск = популярные города
 
-            NovaPoshtaRequest request = new NovaPoshtaRequest(
-                    config.getApiKey(),
-                    "Address",
-                    "getCities",
-                    methodProperties
-            );
-
-            String responseBody = makeDirectHttpRequest(request);
-
-            if (responseBody != null) {
-                ObjectMapper mapper = new ObjectMapper();
-                mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-
-                NovaPoshtaResponse<City> response = mapper.readValue(responseBody,
-                        new TypeReference<NovaPoshtaResponse<City>>() {});
+            NovaPoshtaResponse<City> response = apiClient.call("Address", "getCities", methodProperties, City.class);
 
-                if (response.isSuccess() && response.getData() != null) {
-                    popularCities = new ArrayList<>(response.getData());
-                    popularCitiesLoaded.set(true);
+            if (response.isSuccess() && response.getData() != null) {
+                popularCities = new ArrayList<>(response.getData());
+                popularCitiesLoaded.set(true);
+                if (!citiesLoaded.get()) {
+                    citySearchIndex.rebuild(popularCities);
+                }
 
-                    log.info("✅ Loaded {} popular cities for quick search", popularCities.size());
+                log.info("✅ Loaded {} popular cities for quick search", popularCities.size());
 
-                    // Теперь запускаем полную загрузку в фоне
-                    startFullCitiesLoadingAsync();
-                }
+                // Теперь запускаем полную загрузку в фоне
+                startFullCitiesLoadingAsync();
             }
         } catch (Exception e) {
             log.error("Error loading popular cities", e);
@@ -155,6 +244,30 @@ public class NovaPoshtaService implements PoshtaService {
         return loadFirstPageQuickly();
     }
 
+    @Override
+    public List<City> searchCities(String query, int limit) {
+        ensureCityIndex();
+        return citySearchIndex.search(query, limit);
+    }
+
+    @Override
+    public Optional<City> findCityByRef(String cityRef) {
+        ensureCityIndex();
+        return citySearchIndex.findByRef(cityRef);
+    }
+
+    /**
+     * Пока фоновая загрузка не построила индекс — строим его из того, что уже есть
+     */
+    private void ensureCityIndex() {
+        if (citySearchIndex.isEmpty()) {
+            List<City> available = getCities();
+            if (!available.isEmpty() && citySearchIndex.isEmpty()) {
+                citySearchIndex.rebuild(available);
+            }
+        }
+    }
+
     /**
      * ✅ ЭКСТРЕННАЯ ЗАГРУЗКА: Только первая страница синхронно
      */
@@ -166,33 +279,17 @@ public class NovaPoshtaService implements PoshtaService {
             methodProperties.put("Page", "1");
             methodProperties.put("Limit", "100");
 
-            NovaPoshtaRequest request = new NovaPoshtaRequest(
-                    config.getApiKey(),
-                    "Address",
-                    "getCities",
-                    methodProperties
-            );
-
-            String responseBody = makeDirectHttpRequest(request);
-
-            if (responseBody != null) {
-                ObjectMapper mapper = new ObjectMapper();
-                mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-
-                NovaPoshtaResponse<City> response = mapper.readValue(responseBody,
-                        new TypeReference<NovaPoshtaResponse<City>>() {});
-
-                if (response.isSuccess() && response.getData() != null) {
-                    List<City> cities = response.getData();
+            NovaPoshtaResponse<City> response = apiClient.call("Address", "getCities", methodProperties, City.class);
 
+            if (response.isSuccess() && response.getData() != null) {
+                List<City> cities = response.getData();
 
-                    // Запускаем фоновую загрузку если еще не запущена
-                    if (!isLoadingCities.get()) {
-                        startFullCitiesLoadingAsync();
-                    }
-
-                    return cities;
+                // Запускаем фоновую загрузку если еще не запущена
+                if (!isLoadingCities.get()) {
+                    startFullCitiesLoadingAsync();
                 }
+
+                return cities;
             }
         } catch (Exception e) {
             log.error("Error in emergency cities loading", e);
@@ -210,6 +307,7 @@ public class NovaPoshtaService implements PoshtaService {
         }
 
         List<City> allCities = new ArrayList<>();
+        boolean complete = false;
 
         try {
             int page = 1;
@@ -222,53 +320,50 @@ public class NovaPoshtaService implements PoshtaService {
                 methodProperties.put("Page", String.valueOf(page));
                 methodProperties.put("Limit", String.valueOf(limit));
 
-                NovaPoshtaRequest request = new NovaPoshtaRequest(
-                        config.getApiKey(),
-                        "Address",
-                        "getCities",
-                        methodProperties
-                );
-
-                String responseBody = makeDirectHttpRequest(request);
-
-                if (responseBody != null) {
-                    ObjectMapper mapper = new ObjectMapper();
-                    mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-
-                    NovaPoshtaResponse<City> response = mapper.readValue(responseBody,
-                            new TypeReference<NovaPoshtaResponse<City>>() {});
+                NovaPoshtaResponse<City> response;
+                try {
+                    response = apiClient.call("Address", "getCities", methodProperties, City.class);
+                } catch (NovaPoshtaApiException e) {
+                    log.warn("Page {} failed: {}", page, e.getMessage());
+                    break;
+                }
 
-                    if (response.isSuccess() && response.getData() != null) {
-                        List<City> pageCities = response.getData();
-                        allCities.addAll(pageCities);
+                if (response.isSuccess() && response.getData() != null) {
+                    List<City> pageCities = response.getData();
+                    allCities.addAll(pageCities);
 
-                        // Обновляем кэш по ходу загрузки (thread-safe)
+                    // Обновляем кэш по ходу загрузки (thread-safe), если полного списка ещё нет
+                    if (!citiesLoaded.get()) {
                         cachedCities = new ArrayList<>(allCities);
+                    }
 
-                        if (page % 5 == 0) { // Логируем каждые 5 страниц
-
-                        }
-
-                        if (pageCities.size() < limit) {
-                            hasMoreData = false;
-                        } else {
-                            page++;
-                        }
-
-                        // Увеличиваем задержку чтобы не перегружать API
-                        Thread.sleep(100);
-
-                    } else {
-                        log.warn("Page {} returned success=false", page);
+                    if (pageCities.size() < limit) {
                         hasMoreData = false;
+                        complete = true;
+                    } else {
+                        page++;
                     }
+
+                    // Небольшая пауза между страницами, чтобы не перегружать API
+                    Thread.sleep(100);
+
                 } else {
-                    log.warn("Empty response for page {}", page);
+                    log.warn("Page {} returned success=false", page);
                     hasMoreData = false;
                 }
             }
 
-            cachedCities = allCities;
+            // Оборванная загрузка не должна заменить полный список из снимка частичным
+            if (!complete && citiesLoaded.get()) {
+                log.warn("Cities refresh stopped early ({} cities), keeping previous list", allCities.size());
+                return;
+            }
+
+            if (snapshotStore.updateCities(allCities) > 0 || !citiesLoaded.get()) {
+                cachedCities = allCities;
+                citySearchIndex.rebuild(allCities);
+                snapshotStore.flush();
+            }
             citiesLoaded.set(true);
 
             log.info("✅ Background cities loading completed: {} cities total", allCities.size());
@@ -280,97 +375,98 @@ public class NovaPoshtaService implements PoshtaService {
         }
     }
 
-    /**
-     * ✅ HTTP клиент с таймаутами
-     */
-    private String makeDirectHttpRequest(NovaPoshtaRequest request) {
-        try {
-            java.net.http.HttpClient client = java.net.http.HttpClient.newBuilder()
-                    .connectTimeout(java.time.Duration.ofSeconds(30))  // ✅ 30 сек
-                    .followRedirects(java.net.http.HttpClient.Redirect.NORMAL)
-                    .build();
-
-            ObjectMapper mapper = new ObjectMapper();
-            String requestBody = mapper.writeValueAsString(request);
-
-            java.net.http.HttpRequest httpRequest = java.net.http.HttpRequest.newBuilder()
-                    .uri(java.net.URI.create(config.getApiUrl()))
-                    .header("Content-Type", "application/json")
-                    .header("User-Agent", "LandOfChokolate/1.0")
-                    .header("Accept", "application/json")
-                    .timeout(java.time.Duration.ofSeconds(120))  // ✅ 2 минуты
-                    .POST(java.net.http.HttpRequest.BodyPublishers.ofString(requestBody))
-                    .build();
+    @Override
+    public List<DepartmentSummary> getDepartments(String cityRef) {
+        log.debug("Getting departments for city: {}", cityRef);
 
-            log.info("🚚 Отправляем запрос к Новой Почте: {}", config.getApiUrl());
+        if (cityRef == null || cityRef.trim().isEmpty()) {
+            log.warn("City reference is empty");
+            return Collections.emptyList();
+        }
 
-            java.net.http.HttpResponse<String> httpResponse = client.send(httpRequest,
-                    java.net.http.HttpResponse.BodyHandlers.ofString());
+        try {
+            List<DepartmentSummary> departments = departmentsCache.get(cityRef).join();
+
+            // Отделения из устаревшего снимка отдаём сразу, а обновляем в фоне — одна попытка на интервал:
+            // при ошибке API reload оставляет прежний список, и снимок остаётся устаревшим
+            snapshotStore.getWarehouses(cityRef)
+                    .filter(snapshotStore::isStale)
+                    .filter(entry -> staleRefreshAttempts.asMap().putIfAbsent(cityRef, Boolean.TRUE) == null)
+                    .ifPresent(entry -> departmentsCache.synchronous().refresh(cityRef));
+
+            return departments;
+        } catch (CompletionException e) {
+            log.error("Error fetching departments for city {}: {}", cityRef, e.getCause().getMessage());
+            return Collections.emptyList();
+        }
+    }
 
-            log.info("📦 Ответ от Новой Почты: статус {}", httpResponse.statusCode());
+    /**
+     * 🚀 Предзагрузка отделений для городов, куда чаще всего заказывают
+     */
+    @Scheduled(initialDelayString = "${app.novaposhta.departments.prefetch.initial-delay-ms:60000}",
+            fixedDelayString = "${app.novaposhta.departments.prefetch.interval-ms:21600000}")
+    public void prefetchPopularDepartments() {
+        try {
+            List<String> topCityRefs = orderRepository.findTopRecipientCityRefs(
+                    LocalDateTime.now().minusDays(prefetchLookbackDays), PageRequest.of(0, prefetchTopCities));
 
-            if (httpResponse.statusCode() == 200) {
-                return httpResponse.body();
-            } else {
-                log.error("HTTP error: {} - {}", httpResponse.statusCode(), httpResponse.body());
-                return null;
+            int loaded = 0;
+            for (String cityRef : topCityRefs) {
+                if (departmentsCache.getIfPresent(cityRef) != null) {
+                    continue;
+                }
+                try {
+                    departmentsCache.get(cityRef).join();
+                    loaded++;
+                } catch (CompletionException e) {
+                    log.warn("Prefetch of departments failed for city {}: {}", cityRef, e.getCause().getMessage());
+                }
             }
+            log.info("🚀 Departments prefetch: {} top cities, {} loaded", topCityRefs.size(), loaded);
 
-        } catch (java.net.http.HttpConnectTimeoutException e) {
-            log.error("❌ Новая Почта API недоступна (таймаут подключения): {}", e.getMessage());
-            return null;
-        } catch (java.net.http.HttpTimeoutException e) {
-            log.error("❌ Новая Почта API медленно отвечает (таймаут чтения): {}", e.getMessage());
-            return null;
         } catch (Exception e) {
-            log.error("❌ Ошибка запроса к Новой Почте", e);
-            return null;
+            log.error("Error prefetching popular departments", e);
         }
     }
-//    private String makeDirectHttpRequest(NovaPoshtaRequest request) {
-//        try {
-//            java.net.http.HttpClient client = java.net.http.HttpClient.newBuilder()
-//                    .connectTimeout(java.time.Duration.ofSeconds(30))
-//                    .followRedirects(java.net.http.HttpClient.Redirect.NORMAL)  // Следовать редиректам
-//                    .build();
-//
-//            ObjectMapper mapper = new ObjectMapper();
-//            String requestBody = mapper.writeValueAsString(request);
-//
-//            java.net.http.HttpRequest httpRequest = java.net.http.HttpRequest.newBuilder()
-//                    .uri(java.net.URI.create(config.getApiUrl()))
-//                    .header("Content-Type", "application/json")
-//                    .header("User-Agent", "LandOfChokolate/1.0")
-//                    .timeout(java.time.Duration.ofSeconds(50))
-//                    .POST(java.net.http.HttpRequest.BodyPublishers.ofString(requestBody))
-//                    .build();
-//
-//            java.net.http.HttpResponse<String> httpResponse = client.send(httpRequest,
-//                    java.net.http.HttpResponse.BodyHandlers.ofString());
-//
-//            if (httpResponse.statusCode() == 200) {
-//                return httpResponse.body();
-//            } else {
-//                log.error("HTTP error: {} - {}", httpResponse.statusCode(), httpResponse.body());
-//                return null;
-//            }
-//
-//        } catch (Exception e) {
-//            log.error("Direct HTTP request failed", e);
-//            return null;
-//        }
-//    }
 
+    /**
+     * Первая загрузка города — из снимка, если он есть (даже устаревший), иначе из API.
+     * Обновление (refreshAfterWrite) всегда идёт в API; при ошибке остаётся прежний список
+     */
+    private class DepartmentsLoader implements CacheLoader<String, List<DepartmentSummary>> {
 
-    @Override
-    public List<Department> getDepartments(String cityRef) {
-        log.info("Fetching departments for city: {}", cityRef);
+        @Override
+        public List<DepartmentSummary> load(String cityRef) {
+            Optional<NovaPoshtaSnapshotStore.WarehouseEntry> stored = snapshotStore.getWarehouses(cityRef);
+            if (stored.isPresent()) {
+                return stored.get().departments();
+            }
 
-        if (cityRef == null || cityRef.trim().isEmpty()) {
-            log.warn("City reference is empty");
-            return Collections.emptyList();
+            List<DepartmentSummary> departments = fetchDepartments(cityRef);
+            if (departments == null) {
+                // Исключение — чтобы ошибка API не закэшировалась как пустой список
+                throw new IllegalStateException("Nova Poshta недоступна");
+            }
+            return departments;
         }
 
+        @Override
+        public List<DepartmentSummary> reload(String cityRef, List<DepartmentSummary> oldValue) {
+            List<DepartmentSummary> departments = fetchDepartments(cityRef);
+            return departments != null ? departments : oldValue;
+        }
+    }
+
+    @PreDestroy
+    public void shutdownDepartmentsExecutor() {
+        departmentsExecutor.shutdownNow();
+    }
+
+    /**
+     * Загрузка отделений из API с сохранением в снимок. null — ошибка запроса
+     */
+    private List<DepartmentSummary> fetchDepartments(String cityRef) {
         try {
             Map<String, Object> methodProperties = new HashMap<>();
             methodProperties.put("CityRef", cityRef);
@@ -378,81 +474,102 @@ public class NovaPoshtaService implements PoshtaService {
             methodProperties.put("Limit", "0");
             methodProperties.put("Language", "ua");
 
-            NovaPoshtaRequest request = new NovaPoshtaRequest(
-                    config.getApiKey(),
-                    "Address",
-                    "getWarehouses",
-                    methodProperties
-            );
-
-            NovaPoshtaResponse<Department> response = sendRequest(request,
-                    new ParameterizedTypeReference<NovaPoshtaResponse<Department>>() {});
+            // Разбираем сразу в DepartmentSummary — лишние поля ответа пропускаются парсером
+            NovaPoshtaResponse<DepartmentSummary> response = apiClient.call("Address", "getWarehouses",
+                    methodProperties, DepartmentSummary.class);
 
-            if (response != null && response.isSuccess() && response.getData() != null) {
+            if (response.isSuccess() && response.getData() != null) {
                 log.info("Successfully fetched {} departments for city {}", response.getData().size(), cityRef);
-                return response.getData();
+                snapshotStore.putWarehouses(cityRef, response.getData());
+                return List.copyOf(response.getData());
             } else {
-                log.error("Failed to fetch departments for city {}. Errors: {}", cityRef,
-                        response != null ? response.getErrors() : "null response");
-                return Collections.emptyList();
+                log.error("Failed to fetch departments for city {}. Errors: {}", cityRef, response.getErrors());
+                return null;
             }
 
         } catch (Exception e) {
-            log.error("Error fetching departments for city: " + cityRef, e);
-            return Collections.emptyList();
+            log.error("Error fetching departments for city {}: {}", cityRef, e.getMessage());
+            return null;
         }
     }
 
     @Override
     public String createDelivery(OrderDTO order) {
-        log.info("Creating delivery for order: {}", order.getId());
-
         if (order == null) {
-            log.error("Order is null");
-            return null;
+            throw new NovaPoshtaRejectedException("Order is null");
         }
+        log.info("Creating delivery for order: {}", order.getId());
 
         if (order.getDeliveryMethod() != DeliveryMethod.NOVA_POSHTA) {
-            log.warn("Order {} has delivery method {}, but Nova Poshta expected",
-                    order.getId(), order.getDeliveryMethod());
-            return null;
+            throw new NovaPoshtaRejectedException("Order " + order.getId() + " has delivery method "
+                    + order.getDeliveryMethod() + ", but Nova Poshta expected");
         }
 
+        Map<String, Object> methodProperties;
         try {
-            Map<String, Object> methodProperties = buildDeliveryProperties(order);
-
-            NovaPoshtaRequest request = new NovaPoshtaRequest(
-                    config.getApiKey(),
-                    "InternetDocument",
-                    "save",
-                    methodProperties
-            );
-
-            // Логируем JSON запроса
-            String requestJson = objectMapper.writeValueAsString(request);
-            log.info("Sending request to NovaPoshta: {}", requestJson);
-
-            NovaPoshtaResponse<CreateDeliveryResponse> response = sendRequest(request,
-                    new ParameterizedTypeReference<NovaPoshtaResponse<CreateDeliveryResponse>>() {});
-
-            // Логируем JSON ответа
-            String responseJson = objectMapper.writeValueAsString(response);
-            log.info("Response from NovaPoshta: {}", responseJson);
-
-            if (response != null && response.isSuccess() && response.getData() != null && !response.getData().isEmpty()) {
-                CreateDeliveryResponse deliveryResponse = response.getData().get(0);
-                String ttnNumber = deliveryResponse.getIntDocNumber();
-                log.info("Successfully created delivery. TTN: {}", ttnNumber);
-                return ttnNumber;
-            } else {
-                log.error("Failed to create delivery for order {}. Errors: {}", order.getId(),
-                        response != null ? response.getErrors() : "null response");
-                return null;
+            methodProperties = buildDeliveryProperties(order);
+        } catch (IllegalArgumentException e) {
+            throw new NovaPoshtaRejectedException(e.getMessage(), e);
+        }
+
+        // Логируем параметры запроса (без API ключа)
+        log.info("Sending request to NovaPoshta: {}", toJson(methodProperties));
+
+        // Таймаут и обрыв связи пробрасываются: накладная могла создаться, вызывающий должен её поискать
+        NovaPoshtaResponse<CreateDeliveryResponse> response = apiClient.call("InternetDocument", "save",
+                methodProperties, CreateDeliveryResponse.class);
+
+        // Логируем JSON ответа
+        log.info("Response from NovaPoshta: {}", toJson(response));
+
+        if (!response.isSuccess()) {
+            throw new NovaPoshtaRejectedException("Failed to create delivery for order " + order.getId()
+                    + ". Errors: " + response.getErrors());
+        }
+
+        String ttnNumber = response.getData() != null && !response.getData().isEmpty()
+                ? response.getData().get(0).getIntDocNumber()
+                : null;
+        if (ttnNumber == null || ttnNumber.isBlank()) {
+            // Успех без номера — что создано, неизвестно
+            throw new NovaPoshtaApiException("Nova Poshta returned no TTN for order " + order.getId());
+        }
+
+        log.info("Successfully created delivery. TTN: {}", ttnNumber);
+        return ttnNumber;
+    }
+
+    @Override
+    public Optional<String> findDeliveryByOrder(OrderDTO order) {
+        String orderId = String.valueOf(order.getId());
+        LocalDate from = order.getCreatedAt() != null ? order.getCreatedAt().toLocalDate() : LocalDate.now().minusDays(30);
+
+        Map<String, Object> methodProperties = new HashMap<>();
+        methodProperties.put("DateTimeFrom", from.format(DOCUMENT_DATE_FORMAT));
+        methodProperties.put("DateTimeTo", LocalDate.now().format(DOCUMENT_DATE_FORMAT));
+        methodProperties.put("GetFullList", "1");
+
+        JsonNode rootNode = apiClient.callForTree("InternetDocument", "getDocumentList", methodProperties);
+        if (!rootNode.path("success").asBoolean(false)) {
+            throw new NovaPoshtaApiException("Nova Poshta document list failed for order " + orderId
+                    + ": " + rootNode.path("errors"));
+        }
+
+        for (JsonNode document : rootNode.path("data")) {
+            String ttnNumber = safeGetString(document, "IntDocNumber");
+            if (orderId.equals(safeGetString(document, "InfoRegClientBarcodes")) && ttnNumber != null) {
+                log.info("Found existing delivery for order {}: {}", orderId, ttnNumber);
+                return Optional.of(ttnNumber);
             }
+        }
+        return Optional.empty();
+    }
 
-        } catch (Exception e) {
-            log.error("Error creating delivery for order: " + order.getId(), e);
-            return null;
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            return String.valueOf(value);
         }
     }
 
@@ -473,50 +590,15 @@ public class NovaPoshtaService implements PoshtaService {
         }
 
         try {
-            // Формируем JSON запрос вручную
-            String requestJson = String.format("""
-            {
-                "apiKey": "%s",
-                "modelName": "TrackingDocument",
-                "calledMethod": "getStatusDocuments",
-                "methodProperties": {
-                    "Documents": [
-                        {
-                            "DocumentNumber": "%s",
-                            "Phone": ""
-                        }
-                    ]
-                }
-            }
-            """, config.getApiKey(), cleanTrackingNumber);
+            Map<String, Object> document = new HashMap<>();
+            document.put("DocumentNumber", cleanTrackingNumber);
+            document.put("Phone", "");
 
             log.debug("📤 Sending tracking request");
 
-            // Прямой HTTP запрос без использования sendRequest
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("User-Agent", "LandOfChokolate/1.0");
-
-            HttpEntity<String> entity = new HttpEntity<>(requestJson, headers);
-
-            // Получаем сырой JSON ответ
-            ResponseEntity<String> response = restTemplate.exchange(
-                    config.getApiUrl(),
-                    HttpMethod.POST,
-                    entity,
-                    String.class
-            );
-
-            String responseBody = response.getBody();
-            if (responseBody == null || responseBody.trim().isEmpty()) {
-                log.error("❌ Empty response from Nova Poshta");
-                throw new RuntimeException("Отримано порожню відповідь від Nova Пошта");
-            }
-
-            log.debug("📥 Response received: {} chars", responseBody.length());
-
-            // Парсим JSON вручную, избегая проблемных полей
-            JsonNode rootNode = objectMapper.readTree(responseBody);
+            // Разбираем в дерево, избегая проблемных полей
+            JsonNode rootNode = apiClient.callForTree("TrackingDocument", "getStatusDocuments",
+                    Map.of("Documents", List.of(document)));
 
             boolean success = rootNode.path("success").asBoolean(false);
             log.debug("✅ API success: {}", success);
@@ -549,12 +631,12 @@ public class NovaPoshtaService implements PoshtaService {
 
             return trackingInfo;
 
-        } catch (JsonProcessingException e) {
-            log.error("❌ JSON error for: " + cleanTrackingNumber, e);
-            throw new RuntimeException("Помилка обробки відповіді від Nova Пошта");
-        } catch (RestClientException e) {
+        } catch (NovaPoshtaApiException e) {
             log.error("❌ Network error for: " + cleanTrackingNumber, e);
-            if (e.getMessage().contains("timeout") || e.getMessage().contains("Connection")) {
+            if (e.getCause() instanceof JsonProcessingException) {
+                throw new RuntimeException("Помилка обробки відповіді від Nova Пошта");
+            }
+            if (e.getCause() instanceof java.io.IOException) {
                 throw new RuntimeException("Проблеми з підключенням до Nova Пошта");
             }
             throw new RuntimeException("Помилка зв'язку з Nova Пошта");
@@ -666,6 +748,7 @@ public class NovaPoshtaService implements PoshtaService {
         properties.put("ServiceType", "WarehouseWarehouse");
         properties.put("SeatsAmount", "1");
         properties.put("Description", "Заказ шоколада #" + order.getId());
+        properties.put("InfoRegClientBarcodes", String.valueOf(order.getId())); // Номер заказа — по нему ТТН находится в кабинете НП при повторе
         properties.put("Cost", order.getTotalAmount() != null ? order.getTotalAmount().toString() : "0");
 
         // ✅ Отправитель из конфигурации
@@ -779,31 +862,4 @@ public class NovaPoshtaService implements PoshtaService {
 
         return cleanPhone;
     }
-
-    private <T> NovaPoshtaResponse<T> sendRequest(NovaPoshtaRequest request,
-                                                  ParameterizedTypeReference<NovaPoshtaResponse<T>> responseType) {
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("User-Agent", "LandOfChokolate/1.0");
-
-            HttpEntity<NovaPoshtaRequest> entity = new HttpEntity<>(request, headers);
-
-            log.debug("Sending request to Nova Poshta API: {}", request.getCalledMethod());
-
-            return restTemplate.exchange(
-                    config.getApiUrl(),
-                    HttpMethod.POST,
-                    entity,
-                    responseType
-            ).getBody();
-
-        } catch (RestClientException e) {
-            log.error("REST client error while calling Nova Poshta API", e);
-            return null;
-        } catch (Exception e) {
-            log.error("Unexpected error while calling Nova Poshta API", e);
-            return null;
-        }
-    }
-}
\ No newline at end of file
+}
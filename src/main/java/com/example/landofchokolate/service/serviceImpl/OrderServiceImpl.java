@@ -17,8 +17,9 @@ import com.example.landofchokolate.repository.OrderItemRepository;
 import com.example.landofchokolate.repository.OrderRepository;
 import com.example.landofchokolate.repository.ProductRepository;
 import com.example.landofchokolate.service.CartService;
+import com.example.landofchokolate.service.DeliveryOutboxService;
 import com.example.landofchokolate.service.OrderService;
-import com.example.landofchokolate.service.PoshtaService;
+import com.example.landofchokolate.service.StockReservationService;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -27,7 +28,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,7 +42,8 @@ public class OrderServiceImpl implements OrderService {
     private final OrderMapper orderMapper;
     private final CartService cartService;
     private final ProductRepository productRepository;
-    private final PoshtaService poshtaService;
+    private final DeliveryOutboxService deliveryOutboxService;
+    private final StockReservationService stockReservationService;
 
     @Override
     @Transactional
@@ -55,8 +60,8 @@ public class OrderServiceImpl implements OrderService {
         // Шаг 2: Создаем заказ
         Order order = createOrderEntity(request);
 
-        // Шаг 3: Создаем OrderItems из CartItems
-        BigDecimal totalAmount = createOrderItemsFromCart(order, cartDto);
+        // Шаг 3: Создаем OrderItems из CartItems и атомарно списываем остатки
+        BigDecimal totalAmount = createOrderItemsFromCart(order, cartDto, session.getId());
         order.setTotalAmount(totalAmount);
 
         // Шаг 4: Сохраняем заказ
@@ -65,38 +70,10 @@ public class OrderServiceImpl implements OrderService {
         // Шаг 5: Конвертируем в DTO
         OrderDTO createdOrder = orderMapper.toDTO(savedOrder);
 
-        // ✅ Шаг 6: Новая логика для Nova Poshta
+        // ✅ Шаг 6: ТТН Nova Poshta создаётся асинхронно — событие outbox коммитится вместе с заказом
         if (createdOrder.getDeliveryMethod() == DeliveryMethod.NOVA_POSHTA) {
-            try {
-                log.info("Creating Nova Poshta delivery for order {}", createdOrder.getId());
-
-                String ttnNumber = poshtaService.createDelivery(createdOrder);
-
-                if (ttnNumber != null && !ttnNumber.trim().isEmpty()) {
-                    // Сохранить номер ТТН в заказе
-                    savedOrder.setTrackingNumber(ttnNumber);
-
-                    // Обновить в БД
-                    orderRepository.save(savedOrder);
-
-                    // Обновить DTO
-                    createdOrder.setTrackingNumber(ttnNumber);
-
-                    log.info("TTN created successfully for order {}: {}", createdOrder.getId(), ttnNumber);
-                } else {
-                    log.warn("Failed to create TTN for order {} - empty response from Nova Poshta", createdOrder.getId());
-
-                    savedOrder.setSomeNotes("Ошибка создания ТТН Nova Poshta");
-                    orderRepository.save(savedOrder);
-                }
-
-            } catch (Exception e) {
-                log.error("Error creating Nova Poshta delivery for order {}: {}", createdOrder.getId(), e.getMessage(), e);
-
-                // Можно добавить информацию об ошибке в заказ
-                savedOrder.setSomeNotes("Ошибка создания ТТН Nova Poshta: " + e.getMessage());
-                orderRepository.save(savedOrder);
-            }
+            deliveryOutboxService.enqueueTtnCreation(savedOrder);
+            log.info("Nova Poshta TTN creation queued for order {}", createdOrder.getId());
         }
 
         // Шаг 7: Очищаем корзину
@@ -105,6 +82,17 @@ public class OrderServiceImpl implements OrderService {
         return createdOrder;
     }
 
+    @Override
+    public void reserveStockForCheckout(HttpSession session) {
+        if (cartService.isCartEmpty(session)) {
+            return;
+        }
+        List<Long> unavailable = stockReservationService.reserve(session.getId(), cartQuantities(cartService.getCartDto(session)));
+        if (!unavailable.isEmpty()) {
+            log.info("Checkout hold: not enough stock for products {}", unavailable);
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<OrderDTO> getOrdersByPhoneNumber(String phoneNumber) {
@@ -169,13 +157,18 @@ public class OrderServiceImpl implements OrderService {
         return order;
     }
 
-    private BigDecimal createOrderItemsFromCart(Order order, CartDto cartDto) {
+    private BigDecimal createOrderItemsFromCart(Order order, CartDto cartDto, String holderKey) {
         BigDecimal totalAmount = BigDecimal.ZERO;
 
+        Map<Long, Integer> quantities = cartQuantities(cartDto);
+        Map<Long, Product> products = productRepository.findAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
         for (CartItemDto cartItem : cartDto.getItems()) {
-            Product product = productRepository.findById(cartItem.getProduct().getId())
-                    .orElseThrow(() -> new OrderCreationException(
-                            "Товар с ID " + cartItem.getProduct().getId() + " не найден"));
+            Product product = products.get(cartItem.getProduct().getId());
+            if (product == null) {
+                throw new OrderCreationException("Товар с ID " + cartItem.getProduct().getId() + " не найден");
+            }
 
             // Проверяем доступность товара
             validateProductAvailability(product, cartItem.getQuantity());
@@ -188,28 +181,41 @@ public class OrderServiceImpl implements OrderService {
             totalAmount = totalAmount.add(orderItem.getSubtotal());
         }
 
+        // 🔒 Списание остатков: условный UPDATE по каждой позиции одним batch (с учётом резерва корзины).
+        // Прочитанный выше остаток мог устареть — решает только результат UPDATE
+        List<Long> unavailable = stockReservationService.commit(holderKey, quantities);
+        if (!unavailable.isEmpty()) {
+            Product product = products.get(unavailable.get(0));
+            throw new OrderCreationException("Недостаточно товара '" + product.getName() + "' на складе. " +
+                    "Возможно, его только что купили — обновите корзину");
+        }
+
         return totalAmount;
     }
 
+    private Map<Long, Integer> cartQuantities(CartDto cartDto) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (CartItemDto cartItem : cartDto.getItems()) {
+            quantities.merge(cartItem.getProduct().getId(), cartItem.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
     private void validateProductAvailability(Product product, Integer quantity) {
         if (!Boolean.TRUE.equals(product.getIsActive())) {
             throw new OrderCreationException("Товар '" + product.getName() + "' больше не доступен");
         }
 
-        if (product.getStockQuantity() < quantity) {
-            throw new OrderCreationException(
-                    "Недостаточно товара '" + product.getName() + "' на складе. " +
-                            "Доступно: " + product.getStockQuantity() + ", запрошено: " + quantity);
+        if (quantity == null || quantity <= 0) {
+            throw new OrderCreationException("Неверное количество товара '" + product.getName() + "'");
         }
+        // Остаток здесь не проверяем: часть его может быть зарезервирована этой же корзиной,
+        // а актуальное значение знает только условный UPDATE при списании
     }
 
     private OrderItem createOrderItem(Order order, Product product, CartItemDto cartItem) {
         BigDecimal subtotal = cartItem.getPriceAtTime().multiply(BigDecimal.valueOf(cartItem.getQuantity()));
 
-        // Опционально: уменьшить остаток на складе
-         product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
-         productRepository.save(product);
-
         OrderItem orderItem = new OrderItem();
         orderItem.setOrder(order);
         orderItem.setProduct(product);
@@ -11,12 +11,18 @@ import com.example.landofchokolate.model.ProductImage;
 import com.example.landofchokolate.repository.BrandRepository;
 import com.example.landofchokolate.repository.CategoryRepository;
 import com.example.landofchokolate.repository.ProductRepository;
+import com.example.landofchokolate.service.CategoryPriceSummaryService;
+import com.example.landofchokolate.service.ProductCacheTags;
+import com.example.landofchokolate.service.ProductRecommendationService;
 import com.example.landofchokolate.service.ProductService;
 import com.example.landofchokolate.service.SlugService;
+import com.example.landofchokolate.service.search.ProductSearchService;
+import com.example.landofchokolate.util.ProductChangedEvent;
 import com.example.landofchokolate.util.StorageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -26,6 +32,9 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -34,8 +43,8 @@ import java.util.stream.Collectors;
 @Transactional
 @CacheConfig(
         cacheManager = "productCacheManager",
-        cacheNames = {"productById", "productBySlug", "allProducts", "filteredProducts",
-                "productsByCategory", "productsByBrand", "popularProducts",
+        cacheNames = {"productById", "productBySlug", "allProducts",
+                "productsByCategory", "productsByBrand",
                 "searchProducts", "relatedProducts", "productStats"}
 )
 public class ProductServiceImpl implements ProductService {
@@ -46,16 +55,17 @@ public class ProductServiceImpl implements ProductService {
     private final ProductMapper productMapper;
     private final StorageService storageService;
     private final SlugService slugService;
+    private final CategoryPriceSummaryService categoryPriceSummaryService;
+    private final ProductSearchService productSearchService;
+    private final ProductRecommendationService productRecommendationService;
+    private final ProductCacheTags productCacheTags;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private static final int SEARCH_RESULTS_LIMIT = 200;
 
 
     @Override
-    @Caching(
-            put = @CachePut(value = "productById", key = "#productId"),
-            evict = {
-                    @CacheEvict(value = "productBySlug", allEntries = true),
-                    @CacheEvict(value = "allProducts", allEntries = true)
-            }
-    )
+    @CachePut(value = "productById", key = "#productId")
     public ProductResponseDto addProductImage(Long productId, MultipartFile imageFile, String altText) {
         log.info("Adding image to product: {}", productId);
 
@@ -82,6 +92,7 @@ public class ProductServiceImpl implements ProductService {
             product.getImages().add(productImage);
 
             Product savedProduct = productRepository.save(product);
+            productCacheTags.productsChanged(List.of(ProductCacheTags.product(productId)), displayedIn(product));
 
             log.info("Image added successfully to product: {}", productId);
             return productMapper.toResponseDto(savedProduct);
@@ -93,13 +104,7 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
-    @Caching(
-            put = @CachePut(value = "productById", key = "#productId"),
-            evict = {
-                    @CacheEvict(value = "productBySlug", allEntries = true),
-                    @CacheEvict(value = "allProducts", allEntries = true)
-            }
-    )
+    @CachePut(value = "productById", key = "#productId")
     public ProductResponseDto removeProductImage(Long productId, Long imageId) {
         log.info("Removing image {} from product: {}", imageId, productId);
 
@@ -118,19 +123,14 @@ public class ProductServiceImpl implements ProductService {
         product.getImages().remove(imageToRemove);
 
         Product savedProduct = productRepository.save(product);
+        productCacheTags.productsChanged(List.of(ProductCacheTags.product(productId)), displayedIn(product));
 
         log.info("Image removed successfully from product: {}", productId);
         return productMapper.toResponseDto(savedProduct);
     }
 
     @Override
-    @Caching(
-            put = @CachePut(value = "productById", key = "#productId"),
-            evict = {
-                    @CacheEvict(value = "productBySlug", allEntries = true),
-                    @CacheEvict(value = "allProducts", allEntries = true)
-            }
-    )
+    @CachePut(value = "productById", key = "#productId")
     public ProductResponseDto setMainImage(Long productId, Long imageId) {
         log.info("Setting main image {} for product: {}", imageId, productId);
 
@@ -150,6 +150,7 @@ public class ProductServiceImpl implements ProductService {
         newMainImage.setIsMain(true);
 
         Product savedProduct = productRepository.save(product);
+        productCacheTags.productsChanged(List.of(ProductCacheTags.product(productId)), displayedIn(product));
 
         log.info("Main image set successfully for product: {}", productId);
         return productMapper.toResponseDto(savedProduct);
@@ -158,21 +159,7 @@ public class ProductServiceImpl implements ProductService {
     // Основные CRUD методы
 
     @Override
-    @Caching(
-            put = {
-                    @CachePut(value = "productById", key = "#result.id"),
-                    @CachePut(value = "productBySlug", key = "#result.slug")
-            },
-            evict = {
-                    @CacheEvict(value = "allProducts", allEntries = true),
-                    @CacheEvict(value = "filteredProducts", allEntries = true),
-                    @CacheEvict(value = "productsByCategory", allEntries = true),
-                    @CacheEvict(value = "productsByBrand", allEntries = true),
-                    @CacheEvict(value = "searchProducts", allEntries = true),
-                    @CacheEvict(value = "popularProducts", allEntries = true),
-                    @CacheEvict(value = "productStats", allEntries = true)
-            }
-    )
+    @CachePut(value = "productById", key = "#result.id")
     public ProductResponseDto createProduct(CreateProductDto createProductDto) {
         log.info("Creating new product: {}", createProductDto.getName());
 
@@ -197,26 +184,18 @@ public class ProductServiceImpl implements ProductService {
         // Сохраняем продукт
         Product savedProduct = productRepository.save(product);
 
+        categoryPriceSummaryService.productAdded(category.getId(), savedProduct.getPrice());
+        // Новый товар попадает в выборки своей категории, бренда и всего каталога
+        productCacheTags.productsChanged(List.of(ProductCacheTags.CATALOG,
+                ProductCacheTags.category(category.getId()), ProductCacheTags.brand(brand.getId())));
+        eventPublisher.publishEvent(new ProductChangedEvent(this, savedProduct.getId(), false));
+
         log.info("Product created successfully with ID: {} and slug: {}", savedProduct.getId(), savedProduct.getSlug());
         return productMapper.toResponseDto(savedProduct);
     }
 
     @Override
-    @Caching(
-            put = {
-                    @CachePut(value = "productById", key = "#id")
-            },
-            evict = {
-                    @CacheEvict(value = "productBySlug", allEntries = true),
-                    @CacheEvict(value = "allProducts", allEntries = true),
-                    @CacheEvict(value = "filteredProducts", allEntries = true),
-                    @CacheEvict(value = "productsByCategory", allEntries = true),
-                    @CacheEvict(value = "productsByBrand", allEntries = true),
-                    @CacheEvict(value = "searchProducts", allEntries = true),
-                    @CacheEvict(value = "relatedProducts", allEntries = true),
-                    @CacheEvict(value = "productStats", allEntries = true)
-            }
-    )
+    @CachePut(value = "productById", key = "#id")
     public ProductResponseDto updateProduct(Long id, UpdateProductDto updateProductDto) {
         log.info("Updating product with ID: {}", id);
 
@@ -230,6 +209,11 @@ public class ProductServiceImpl implements ProductService {
         Brand brand = brandRepository.findById(updateProductDto.getBrandId())
                 .orElseThrow(() -> new RuntimeException("Brand not found with id: " + updateProductDto.getBrandId()));
 
+        // Запоминаем цену и категорию до изменений — для сводки цен категории
+        Long oldCategoryId = existingProduct.getCategory() != null ? existingProduct.getCategory().getId() : null;
+        Long oldBrandId = existingProduct.getBrand() != null ? existingProduct.getBrand().getId() : null;
+        BigDecimal oldPrice = existingProduct.getPrice();
+
         // Обновляем основные поля
         String oldName = existingProduct.getName();
         existingProduct.setName(updateProductDto.getName());
@@ -273,22 +257,19 @@ public class ProductServiceImpl implements ProductService {
 
         Product savedProduct = productRepository.save(existingProduct);
 
+        categoryPriceSummaryService.productChanged(oldCategoryId, oldPrice, category.getId(), savedProduct.getPrice());
+        // Товар мог сменить категорию или бренд — сбрасываются выборки и старых, и новых
+        productCacheTags.productsChanged(List.of(ProductCacheTags.product(id), ProductCacheTags.CATALOG,
+                ProductCacheTags.category(oldCategoryId), ProductCacheTags.category(category.getId()),
+                ProductCacheTags.brand(oldBrandId), ProductCacheTags.brand(brand.getId())));
+        eventPublisher.publishEvent(new ProductChangedEvent(this, savedProduct.getId(), false));
+
         log.info("Product updated successfully: {}", savedProduct.getId());
         return productMapper.toResponseDto(savedProduct);
     }
 
     @Override
-    @Caching(evict = {
-            @CacheEvict(value = "productById", key = "#id"),
-            @CacheEvict(value = "productBySlug", allEntries = true),
-            @CacheEvict(value = "allProducts", allEntries = true),
-            @CacheEvict(value = "filteredProducts", allEntries = true),
-            @CacheEvict(value = "productsByCategory", allEntries = true),
-            @CacheEvict(value = "productsByBrand", allEntries = true),
-            @CacheEvict(value = "searchProducts", allEntries = true),
-            @CacheEvict(value = "relatedProducts", allEntries = true),
-            @CacheEvict(value = "productStats", allEntries = true)
-    })
+    @CacheEvict(value = "productById", key = "#id")
     public void deleteProduct(Long id) {
         log.info("Deleting product with ID: {}", id);
 
@@ -302,7 +283,13 @@ public class ProductServiceImpl implements ProductService {
             }
         }
 
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        Long brandId = product.getBrand() != null ? product.getBrand().getId() : null;
         productRepository.deleteById(id);
+        categoryPriceSummaryService.productRemoved(categoryId);
+        productCacheTags.productsChanged(List.of(ProductCacheTags.product(id), ProductCacheTags.CATALOG,
+                ProductCacheTags.category(categoryId), ProductCacheTags.brand(brandId)));
+        eventPublisher.publishEvent(new ProductChangedEvent(this, id, true));
 
         log.info("Product deleted successfully: {}", id);
     }
@@ -321,90 +308,113 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "allProducts", key = "'admin_all_products'")
     public List<ProductListDto> getAllProducts() {
-        log.info("Fetching all products for admin");
+        return productCacheTags.cached("allProducts", "admin_all_products", () -> {
+            log.info("Fetching all products for admin");
 
-        List<Product> products = productRepository.findAll();
-        return productMapper.toListDtoList(products);
+            List<Product> products = productRepository.findAll();
+            return productMapper.toListDtoList(products);
+        }, products -> productTags(products, ProductListDto::getId, ProductCacheTags.CATALOG));
     }
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "searchProducts", key = "'admin_search_' + #name")
     public List<ProductListDto> searchProductsByName(String name) {
+        return productCacheTags.cached("searchProducts", "admin_search_" + name,
+                () -> loadProductsByName(name),
+                products -> productTags(products, ProductListDto::getId, ProductCacheTags.CATALOG));
+    }
+
+    private List<ProductListDto> loadProductsByName(String name) {
         log.info("Searching products by name for admin: {}", name);
 
-        List<Product> products = productRepository.findByNameContainingIgnoreCase(name);
+        if (!productSearchService.isReady()) {
+            // Индекс ещё строится после старта
+            List<Product> products = productRepository.findByNameContainingIgnoreCase(name);
+            return productMapper.toListDtoList(products);
+        }
+
+        List<Long> rankedIds = productSearchService.search(name, SEARCH_RESULTS_LIMIT);
+        if (rankedIds.isEmpty()) {
+            return List.of();
+        }
+
+        // Один запрос за товарами с изображениями, порядок — по релевантности из индекса
+        Map<Long, Product> productsById = productRepository.findAllByIdInWithImages(rankedIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<Product> products = rankedIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .toList();
         return productMapper.toListDtoList(products);
     }
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "productsByCategory", key = "'admin_category_' + #categoryId")
     public List<ProductListDto> getProductsByCategory(Long categoryId) {
-        log.info("Fetching products by category for admin: {}", categoryId);
+        return productCacheTags.cached("productsByCategory", "admin_category_" + categoryId, () -> {
+            log.info("Fetching products by category for admin: {}", categoryId);
 
-        List<Product> products = productRepository.findByCategoryId(categoryId);
-        return productMapper.toListDtoList(products);
+            List<Product> products = productRepository.findByCategoryId(categoryId);
+            return productMapper.toListDtoList(products);
+        }, products -> productTags(products, ProductListDto::getId, ProductCacheTags.category(categoryId)));
     }
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "productsByBrand", key = "'admin_brand_' + #brandId")
     public List<ProductListDto> getProductsByBrand(Long brandId) {
-        log.info("Fetching products by brand for admin: {}", brandId);
+        return productCacheTags.cached("productsByBrand", "admin_brand_" + brandId, () -> {
+            log.info("Fetching products by brand for admin: {}", brandId);
 
-        List<Product> products = productRepository.findByBrandId(brandId);
-        return productMapper.toListDtoList(products);
+            List<Product> products = productRepository.findByBrandId(brandId);
+            return productMapper.toListDtoList(products);
+        }, products -> productTags(products, ProductListDto::getId, ProductCacheTags.brand(brandId)));
     }
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "productStats", key = "'price_range_' + #minPrice?.toString() + '_' + #maxPrice?.toString()")
     public List<ProductListDto> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
-        log.info("Fetching products by price range: {} - {}", minPrice, maxPrice);
+        return productCacheTags.cached("productStats", "price_range_" + minPrice + "_" + maxPrice, () -> {
+            log.info("Fetching products by price range: {} - {}", minPrice, maxPrice);
 
-        List<Product> products = productRepository.findByPriceBetween(minPrice, maxPrice);
-        return productMapper.toListDtoList(products);
+            List<Product> products = productRepository.findByPriceBetween(minPrice, maxPrice);
+            return productMapper.toListDtoList(products);
+        }, products -> productTags(products, ProductListDto::getId, ProductCacheTags.CATALOG));
     }
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "productStats", key = "'in_stock'")
     public List<ProductListDto> getProductsInStock() {
-        log.info("Fetching products in stock");
+        return productCacheTags.cached("productStats", "in_stock", () -> {
+            log.info("Fetching products in stock");
 
-        List<Product> products = productRepository.findByStockQuantityGreaterThan(0);
-        return productMapper.toListDtoList(products);
+            List<Product> products = productRepository.findByStockQuantityGreaterThan(0);
+            return productMapper.toListDtoList(products);
+        }, ProductServiceImpl::stockListTags);
     }
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "productStats", key = "'low_stock'")
     public List<ProductListDto> getProductsWithLowStock() {
-        log.info("Fetching products with low stock");
+        return productCacheTags.cached("productStats", "low_stock", () -> {
+            log.info("Fetching products with low stock");
 
-        List<Product> products = productRepository.findByStockQuantityBetween(1, 9);
-        return productMapper.toListDtoList(products);
+            List<Product> products = productRepository.findByStockQuantityBetween(1, 9);
+            return productMapper.toListDtoList(products);
+        }, ProductServiceImpl::stockListTags);
     }
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "productStats", key = "'out_of_stock'")
     public List<ProductListDto> getOutOfStockProducts() {
-        List<Product> products = productRepository.findByStockQuantity(0);
-        return productMapper.toListDtoList(products);
+        return productCacheTags.cached("productStats", "out_of_stock", () -> {
+            List<Product> products = productRepository.findByStockQuantity(0);
+            return productMapper.toListDtoList(products);
+        }, ProductServiceImpl::stockListTags);
     }
 
     @Override
-    @Caching(
-            put = @CachePut(value = "productById", key = "#productId"),
-            evict = {
-                    @CacheEvict(value = "allProducts", allEntries = true),
-                    @CacheEvict(value = "productStats", allEntries = true)
-            }
-    )
+    @CachePut(value = "productById", key = "#productId")
     public ProductResponseDto updateStock(Long productId, Integer newQuantity) {
 
         Product product = productRepository.findById(productId)
@@ -416,65 +426,60 @@ public class ProductServiceImpl implements ProductService {
 
         product.setStockQuantity(newQuantity);
         Product savedProduct = productRepository.save(product);
+        stockChanged(savedProduct);
 
         return productMapper.toResponseDto(savedProduct);
     }
 
     @Override
-    @Caching(
-            put = @CachePut(value = "productById", key = "#productId"),
-            evict = {
-                    @CacheEvict(value = "allProducts", allEntries = true),
-                    @CacheEvict(value = "productStats", allEntries = true)
-            }
-    )
+    @CachePut(value = "productById", key = "#productId")
     public ProductResponseDto increaseStock(Long productId, Integer quantity) {
 
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
-
         if (quantity <= 0) {
             throw new IllegalArgumentException("Increase quantity must be positive");
         }
 
-        product.setStockQuantity(product.getStockQuantity() + quantity);
-        Product savedProduct = productRepository.save(product);
+        // Один UPDATE вместо чтения-изменения-записи: параллельные списания не теряются
+        if (productRepository.incrementStock(productId, quantity) == 0) {
+            throw new RuntimeException("Product not found with id: " + productId);
+        }
 
-        return productMapper.toResponseDto(savedProduct);
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+        stockChanged(product);
+        return productMapper.toResponseDto(product);
     }
 
     @Override
-    @Caching(
-            put = @CachePut(value = "productById", key = "#productId"),
-            evict = {
-                    @CacheEvict(value = "allProducts", allEntries = true),
-                    @CacheEvict(value = "productStats", allEntries = true)
-            }
-    )
+    @CachePut(value = "productById", key = "#productId")
     public ProductResponseDto decreaseStock(Long productId, Integer quantity) {
 
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
-
         if (quantity <= 0) {
             throw new IllegalArgumentException("Decrease quantity must be positive");
         }
 
-        int newQuantity = product.getStockQuantity() - quantity;
-        if (newQuantity < 0) {
+        // Условный UPDATE: остаток не уйдёт в минус даже при одновременных списаниях
+        int updated = productRepository.decrementStockIfAvailable(productId, quantity);
+
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+
+        if (updated == 0) {
             throw new IllegalArgumentException("Insufficient stock. Available: " + product.getStockQuantity());
         }
+        stockChanged(product);
 
-        product.setStockQuantity(newQuantity);
-        Product savedProduct = productRepository.save(product);
-
-        return productMapper.toResponseDto(savedProduct);
+        return productMapper.toResponseDto(product);
     }
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "productStats", key = "'statistics'")
     public ProductStatistics getProductStatistics() {
+        return productCacheTags.cached("productStats", "statistics", this::loadProductStatistics,
+                statistics -> List.of(ProductCacheTags.STOCK, ProductCacheTags.CATALOG));
+    }
+
+    private ProductStatistics loadProductStatistics() {
 
         long totalProducts = productRepository.count();
         long inStockProducts = productRepository.countByStockQuantityGreaterThan(0);
@@ -491,29 +496,26 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
-    @Cacheable(value = "productsByCategory",
-            key = "#id + '_page_' + #page + '_' + #size")
     public Page<Product> getProductsByCategoryPage(Long id, int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("name").ascending());
-        return productRepository.findByCategoryIdAndIsActiveTrue(id, pageable);
+        return productCacheTags.cached("productsByCategory", id + "_page_" + page + "_" + size,
+                () -> productRepository.findByCategoryIdAndIsActiveTrue(id, pageable),
+                products -> productTags(products.getContent(), Product::getId, ProductCacheTags.category(id)));
     }
 
     @Override
-    @Cacheable(value = "productBySlug", key = "'v2_' + #slug")
     public ProductDetailDto getProductBySlug(String slug) {
+        return productCacheTags.cached("productBySlug", "v2_" + slug, () -> {
+            Product product = productRepository.findBySlug(slug)
+                    .orElseThrow(() -> new ProductNotFoundException("Product not found with slug: " + slug));
 
-        Product product = productRepository.findBySlug(slug)
-                .orElseThrow(() -> new ProductNotFoundException("Product not found with slug: " + slug));
-
-        // Увеличиваем счетчик кликов при просмотре продукта
-        incrementClickCount(product.getId());
-
-        return productMapper.toDetailDto(product);
+            // Клик считает контроллер через ProductClickCounterService — здесь он терялся бы для ответов из кеша
+            return productMapper.toDetailDto(product);
+        }, ProductServiceImpl::detailTags);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = {"productBySlug", "allProducts", "searchProducts"}, allEntries = true)
     public void generateMissingSlugForAllProducts() {
 
         List<Product> productsWithoutSlug = productRepository.findBySlugIsNull();
@@ -523,17 +525,28 @@ public class ProductServiceImpl implements ProductService {
             product.setSlug(slug);
             productRepository.save(product);
         }
+        if (!productsWithoutSlug.isEmpty()) {
+            productCacheTags.productsChangedAll();
+        }
     }
 
     @Override
-    @Cacheable(value = "relatedProducts", key = "'v2_' + #slug + '_' + #limit")
     public List<RelatedProductDto> getRelatedProducts(String slug, int limit) {
+        // Теги собираются при загрузке: текущий товар и его категория в результат не входят
+        List<String> sourceTags = new ArrayList<>();
+        return productCacheTags.cached("relatedProducts", "v2_" + slug + "_" + limit,
+                () -> loadRelatedProducts(slug, limit, sourceTags),
+                related -> productTags(related, RelatedProductDto::getId, sourceTags.toArray(String[]::new)));
+    }
 
+    private List<RelatedProductDto> loadRelatedProducts(String slug, int limit, List<String> sourceTags) {
         try {
             // Находим текущий товар
             Product currentProduct = productRepository.findBySlug(slug)
                     .orElseThrow(() -> new RuntimeException("Product not found with slug: " + slug));
 
+            sourceTags.add(ProductCacheTags.product(currentProduct.getId()));
+
             // Проверяем есть ли категория у товара
             if (currentProduct.getCategory() == null) {
                 log.warn("Product {} has no category, returning empty related products list", slug);
@@ -541,6 +554,7 @@ public class ProductServiceImpl implements ProductService {
             }
 
             // Находим похожие товары из той же категории (исключая текущий товар)
+            sourceTags.add(ProductCacheTags.category(currentProduct.getCategory().getId()));
             List<Product> allCategoryProducts = productRepository.findByCategoryAndIsActiveTrueOrderByIdDesc(
                     currentProduct.getCategory()
             );
@@ -560,19 +574,21 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
-    @Cacheable(value = "popularProducts", key = "'recommendations_' + #limit")
     public List<ProductListRecommendationDto> getProductListRecommendations(int limit) {
-
-        return productRepository.findAllRecommendationProducts()
-                .stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+        // Готовый снимок, пересчитывается в фоне
+        return productRecommendationService.getRecommendations(limit);
     }
 
     @Override
-    @Cacheable(value = "productStats",
-            key = "'clicks_page_' + #pageable.pageNumber + '_' + #pageable.pageSize")
     public PagedResponse<ProductListClickDto> getProductsClick(Pageable pageable) {
+        return productCacheTags.cached("productStats",
+                "clicks_page_" + pageable.getPageNumber() + "_" + pageable.getPageSize(),
+                () -> loadProductsClick(pageable),
+                response -> productTags(response.getContent(), ProductListClickDto::getId,
+                        ProductCacheTags.CLICKS, ProductCacheTags.CATALOG));
+    }
+
+    private PagedResponse<ProductListClickDto> loadProductsClick(Pageable pageable) {
 
         // Сортировка по количеству кликов (по убыванию)
         Pageable sortedPageable = PageRequest.of(
@@ -592,18 +608,24 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<CategoryProductDto> getProductCardsByCategoryPage(Long categoryId, int page, int size) {
-        List<Product> products = productRepository.findByCategoryId(categoryId);
-
-        List<CategoryProductDto> dtos = products.stream()
-                .map(productMapper::toCardDtoCategoryList)
-                .collect(Collectors.toList());
+        return getProductCardsByCategoryPage(categoryId, page, size, null);
+    }
 
-        int start = Math.min(page * size, dtos.size());
-        int end = Math.min(start + size, dtos.size());
-        List<CategoryProductDto> pageContent = dtos.subList(start, end);
+    @Override
+    @Transactional(readOnly = true)
+    public Page<CategoryProductDto> getProductCardsByCategoryPage(Long categoryId, int page, int size, Long afterId) {
+        if (afterId == null) {
+            // LIMIT/OFFSET + COUNT в БД, в память попадает только запрошенная страница
+            return productRepository.findProductCardsByCategoryId(categoryId, PageRequest.of(page, size));
+        }
 
-        return new PageImpl<>(pageContent, PageRequest.of(page, size), dtos.size());
+        // Keyset: "следующая страница" по последнему показанному id — без пропуска page * size строк
+        List<CategoryProductDto> content = productRepository.findProductCardsByCategoryIdAfter(
+                categoryId, afterId, PageRequest.of(0, size));
+        long total = productRepository.countByCategoryId(categoryId);
+        return new PageImpl<>(content, PageRequest.of(page, size), total);
     }
 
     @Override
@@ -614,19 +636,45 @@ public class ProductServiceImpl implements ProductService {
 
 
 
+    // Приватные методы
+
     /**
-     * Приватный метод для увеличения счетчика кликов продукта
+     * 🏷️ Остаток товара изменился: его записи и выборки по остаткам, версии его категории и бренда
      */
-    @CacheEvict(value = "productStats", allEntries = true)
-    public void incrementClickCount(Long productId) {
-        try {
-            productRepository.incrementClickCount(productId);
-        } catch (Exception e) {
-            log.error("Failed to increment click count for product id: {}", productId, e);
+    private void stockChanged(Product product) {
+        productCacheTags.productsChanged(List.of(ProductCacheTags.product(product.getId()), ProductCacheTags.STOCK),
+                displayedIn(product));
+    }
+
+    private static List<String> displayedIn(Product product) {
+        return ProductCacheTags.displayedIn(product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getBrand() != null ? product.getBrand().getId() : null);
+    }
+
+    private static <T> List<String> productTags(List<T> items, Function<T, Long> idExtractor, String... extraTags) {
+        List<String> tags = new ArrayList<>(items.size() + extraTags.length);
+        tags.addAll(List.of(extraTags));
+        for (T item : items) {
+            tags.add(ProductCacheTags.product(idExtractor.apply(item)));
         }
+        return tags;
     }
 
-    // Приватные методы
+    private static List<String> stockListTags(List<ProductListDto> products) {
+        return productTags(products, ProductListDto::getId, ProductCacheTags.STOCK, ProductCacheTags.CATALOG);
+    }
+
+    private static List<String> detailTags(ProductDetailDto product) {
+        List<String> tags = new ArrayList<>();
+        tags.add(ProductCacheTags.product(product.getId()));
+        if (product.getCategory() != null) {
+            tags.add(ProductCacheTags.category(product.getCategory().getId()));
+        }
+        if (product.getBrand() != null) {
+            tags.add(ProductCacheTags.brand(product.getBrand().getId()));
+        }
+        return tags;
+    }
 
     /**
      * Получить главное изображение продукта
@@ -1,5 +1,6 @@
 package com.example.landofchokolate.service.serviceImpl;
 
+import com.example.landofchokolate.config.caffeine.RefreshAheadCaches;
 import com.example.landofchokolate.dto.product.PagedResponse;
 import com.example.landofchokolate.dto.storeReview.CreateStoreReviewDTO;
 import com.example.landofchokolate.dto.storeReview.StoreReviewResponseDTO;
@@ -32,6 +33,7 @@ public class StoreReviewServiceImpl implements StoreReviewService {
 
     private final StoreReviewMapper storeReviewMapper;
     private final StoreReviewRepository storeReviewRepository;
+    private final RefreshAheadCaches refreshAheadCaches;
 
     // Очищаем оба кеша при создании отзыва
     @CacheEvict(value = {"storeReviewsList", "storeReviewsMainPage"}, allEntries = true)
@@ -73,11 +75,13 @@ public class StoreReviewServiceImpl implements StoreReviewService {
         return new PagedResponse<>(reviewDTOs, reviewPage);
     }
 
-    // Кешируем последние отзывы для главной страницы
-    @Cacheable(value = "storeReviewsMainPage",
-            key = "'latest_' + #limit")
+    // Кешируем последние отзывы для главной страницы — кеш обновляется в фоне (RefreshAheadCaches)
     @Override
     public List<StoreReviewResponseDTO> getLatestReviews(int limit) {
+        return refreshAheadCaches.get("storeReviewsMainPage", "latest_" + limit, () -> loadLatestReviews(limit));
+    }
+
+    private List<StoreReviewResponseDTO> loadLatestReviews(int limit) {
         log.info("Загрузка последних {} отзывов из БД", limit);
         Pageable pageable = PageRequest.of(0, limit, Sort.by("created").descending());
         Page<StoreReview> reviews = storeReviewRepository.findAll(pageable);
@@ -2,6 +2,7 @@ package com.example.landofchokolate.service.serviceImpl;
 
 import com.example.landofchokolate.dto.card.CartDto;
 import com.example.landofchokolate.dto.wishlis.WishlistDto;
+import com.example.landofchokolate.dto.wishlis.WishlistSnapshot;
 import com.example.landofchokolate.enums.WishlistStatus;
 import com.example.landofchokolate.mapper.WishlistMapper;
 import com.example.landofchokolate.model.*;
@@ -14,7 +15,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.hibernate.LazyInitializationException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
@@ -22,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Primary
@@ -52,8 +53,14 @@ public class WishlistServiceDatabaseImpl implements WishlistService {
         try {
             log.debug("Getting wishlist DTO for session: {}", session.getId());
 
-            Wishlist wishlist = getWishlistReadOnly(session);
-            WishlistDto wishlistDto = wishlistMapper.toDto(wishlist);
+            WishlistSnapshot snapshot = getWishlistSnapshot(session);
+
+            // Для отображения товары читаются из БД — в сессии только их id
+            Map<Long, Product> products = snapshot.isEmpty()
+                    ? Map.of()
+                    : productRepository.findAllByIdInWithImages(snapshot.getProductIds()).stream()
+                    .collect(Collectors.toMap(Product::getId, Function.identity()));
+            WishlistDto wishlistDto = wishlistMapper.toDto(snapshot, products);
 
             log.debug("Retrieved wishlist DTO: totalItems={}, availableItems={}, total={}",
                     wishlistDto.getTotalItems(), wishlistDto.getAvailableItems(), wishlistDto.getTotal());
@@ -74,7 +81,7 @@ public class WishlistServiceDatabaseImpl implements WishlistService {
         log.debug("=== {} ===", methodName);
 
         // Проверяем сессию
-        Wishlist sessionWishlist = getWishlistFromSession(session);
+        WishlistSnapshot sessionWishlist = getSnapshotFromSession(session);
         log.debug("Session wishlist: {}", sessionWishlist != null ? sessionWishlist.getWishlistUuid() : "null");
 
         // Проверяем cookie
@@ -134,10 +141,7 @@ public class WishlistServiceDatabaseImpl implements WishlistService {
             setWishlistCookie(wishlist.getWishlistUuid());
         }
 
-        // Принудительно инициализируем данные перед сохранением в сессию
-        initializeWishlistData(wishlist);
-
-        // Обновляем wishlist в сессии
+        // Обновляем снимок wishlist в сессии
         updateWishlistInSession(session, wishlist);
 
         log.debug("Товар {} добавлен в избранное, wishlist UUID: {}", productId, wishlist.getWishlistUuid());
@@ -152,7 +156,7 @@ public class WishlistServiceDatabaseImpl implements WishlistService {
         Map<String, Object> result = new HashMap<>();
 
         try {
-            Wishlist sessionWishlist = getWishlistFromSession(session);
+            WishlistSnapshot sessionWishlist = getSnapshotFromSession(session);
             String cookieUuid = getWishlistUuidFromCookie();
 
             result.put("sessionUuid", sessionWishlist != null ? sessionWishlist.getWishlistUuid() : null);
@@ -207,8 +211,7 @@ public class WishlistServiceDatabaseImpl implements WishlistService {
         if (productId == null) {
             return false;
         }
-        Wishlist wishlist = getWishlistReadOnly(session);
-        return containsProduct(wishlist, productId);
+        return getWishlistSnapshot(session).contains(productId);
     }
 
     @Override
@@ -225,15 +228,13 @@ public class WishlistServiceDatabaseImpl implements WishlistService {
     @Override
     @Transactional(readOnly = true)
     public int getWishlistItemCount(HttpSession session) {
-        Wishlist wishlist = getWishlistReadOnly(session);
-        return getItemCount(wishlist);
+        return getWishlistSnapshot(session).size();
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean isWishlistEmpty(HttpSession session) {
-        Wishlist wishlist = getWishlistReadOnly(session);
-        return isWishlistEmpty(wishlist);
+        return getWishlistSnapshot(session).isEmpty();
     }
 
     @Override
@@ -249,10 +250,7 @@ public class WishlistServiceDatabaseImpl implements WishlistService {
     @Override
     @Transactional(readOnly = true)
     public List<Long> getWishlistProductIds(HttpSession session) {
-        Wishlist wishlist = getWishlistReadOnly(session);
-        return wishlist.getItems().stream()
-                .map(item -> item.getProduct().getId())
-                .collect(Collectors.toList());
+        return getWishlistSnapshot(session).getProductIds();
     }
 
     @Override
@@ -306,14 +304,6 @@ public class WishlistServiceDatabaseImpl implements WishlistService {
         }
     }
 
-    private int getItemCount(Wishlist wishlist) {
-        return wishlist.getItems() != null ? wishlist.getItems().size() : 0;
-    }
-
-    private boolean isWishlistEmpty(Wishlist wishlist) {
-        return wishlist.getItems() == null || wishlist.getItems().isEmpty();
-    }
-
     private boolean isWishlistExpired(Wishlist wishlist) {
         return wishlist.getExpiresAt() != null && LocalDateTime.now().isAfter(wishlist.getExpiresAt());
     }
@@ -380,16 +370,14 @@ public class WishlistServiceDatabaseImpl implements WishlistService {
     protected Wishlist getOrCreateWishlist(HttpSession session) {
         debugWishlistState("getOrCreateWishlist - START", session);
 
-        // 1. Проверяем сессию
-        Wishlist cachedWishlist = getWishlistFromSession(session);
-        if (cachedWishlist != null && !isWishlistExpired(cachedWishlist)) {
-            log.debug("Используем wishlist из сессии: {}", cachedWishlist.getWishlistUuid());
-            return cachedWishlist;
-        }
+        // 1. Сущность загружается только на запись: UUID берём из снимка в сессии, иначе из cookie
+        WishlistSnapshot snapshot = getSnapshotFromSession(session);
+        String wishlistUuid = snapshot != null && snapshot.isPersisted() && !snapshot.isExpired()
+                ? snapshot.getWishlistUuid()
+                : getWishlistUuidFromCookie();
+        log.debug("UUID wishlist для записи: {}", wishlistUuid);
 
-        // 2. Проверяем cookie и загружаем из БД
-        String wishlistUuid = getWishlistUuidFromCookie();
-        log.debug("UUID из cookie: {}", wishlistUuid);
+        // 2. Загружаем из БД
 
         if (wishlistUuid != null && !wishlistUuid.isEmpty() && !wishlistUuid.startsWith("temp-")) {
             try {
@@ -406,10 +394,7 @@ public class WishlistServiceDatabaseImpl implements WishlistService {
                         updateWishlistActivity(wishlist);
                         wishlist = wishlistRepository.save(wishlist);
 
-                        // ВАЖНО: Принудительно инициализируем данные
-                        initializeWishlistData(wishlist);
-
-                        // Восстанавливаем в сессии
+                        // Восстанавливаем снимок в сессии
                         updateWishlistInSession(session, wishlist);
 
                         log.debug("Wishlist успешно восстановлен из БД");
@@ -510,18 +495,20 @@ public class WishlistServiceDatabaseImpl implements WishlistService {
 
     // ========== МЕТОДЫ ДЛЯ РАБОТЫ С СЕССИЕЙ И COOKIE ==========
 
-    private Wishlist getWishlistFromSession(HttpSession session) {
-        try {
-            return (Wishlist) session.getAttribute(WISHLIST_SESSION_KEY);
-        } catch (ClassCastException e) {
-            log.warn("Invalid wishlist object in session, removing", e);
-            session.removeAttribute(WISHLIST_SESSION_KEY);
-            return null;
+    private WishlistSnapshot getSnapshotFromSession(HttpSession session) {
+        Object attribute = session.getAttribute(WISHLIST_SESSION_KEY);
+        if (attribute == null || attribute instanceof WishlistSnapshot) {
+            return (WishlistSnapshot) attribute;
         }
+        log.warn("Invalid wishlist object in session ({}), removing", attribute.getClass().getSimpleName());
+        session.removeAttribute(WISHLIST_SESSION_KEY);
+        return null;
     }
 
-    private void updateWishlistInSession(HttpSession session, Wishlist wishlist) {
-        session.setAttribute(WISHLIST_SESSION_KEY, wishlist);
+    private WishlistSnapshot updateWishlistInSession(HttpSession session, Wishlist wishlist) {
+        WishlistSnapshot snapshot = WishlistSnapshot.of(wishlist);
+        session.setAttribute(WISHLIST_SESSION_KEY, snapshot);
+        return snapshot;
     }
 
     private void clearWishlistFromSession(HttpSession session) {
@@ -607,22 +594,17 @@ public class WishlistServiceDatabaseImpl implements WishlistService {
                 userAgent.substring(0, 500) : userAgent;
     }
     /**
-     * ИСПРАВЛЕННЫЙ метод getWishlistReadOnly с принудительной загрузкой из БД
+     * Снимок wishlist для чтения: из сессии, иначе из БД по cookie
      */
     @Transactional(readOnly = true)
-    protected Wishlist getWishlistReadOnly(HttpSession session) {
-        debugWishlistState("getWishlistReadOnly - START", session);
-
+    protected WishlistSnapshot getWishlistSnapshot(HttpSession session) {
         // 1. Проверяем сессию
-        Wishlist cachedWishlist = getWishlistFromSession(session);
-        if (cachedWishlist != null && !isWishlistExpired(cachedWishlist)) {
-            if (isWishlistFullyLoaded(cachedWishlist)) {
-                log.debug("Используем полностью загруженный wishlist из сессии");
-                return cachedWishlist;
-            }
+        WishlistSnapshot cached = getSnapshotFromSession(session);
+        if (cached != null && !cached.isExpired()) {
+            return cached;
         }
 
-        // 2. Принудительно загружаем из БД по cookie
+        // 2. Загружаем из БД по cookie
         String wishlistUuid = getWishlistUuidFromCookie();
         log.debug("Загружаем из БД по cookie UUID: {}", wishlistUuid);
 
@@ -630,98 +612,15 @@ public class WishlistServiceDatabaseImpl implements WishlistService {
             Optional<Wishlist> wishlistOpt = wishlistRepository.findByWishlistUuidAndStatusWithItems(
                     wishlistUuid, WishlistStatus.ACTIVE);
 
-            if (wishlistOpt.isPresent()) {
-                Wishlist wishlist = wishlistOpt.get();
-                log.debug("Найден wishlist в БД для чтения, товаров: {}", wishlist.getItems().size());
-
-                if (!isWishlistExpired(wishlist)) {
-                    // Принудительно инициализируем все proxy-объекты
-                    initializeWishlistData(wishlist);
-
-                    // Сохраняем в сессии для последующих обращений
-                    updateWishlistInSession(session, wishlist);
-                    return wishlist;
-                }
+            if (wishlistOpt.isPresent() && !isWishlistExpired(wishlistOpt.get())) {
+                log.debug("Найден wishlist в БД для чтения, товаров: {}", wishlistOpt.get().getItems().size());
+                return updateWishlistInSession(session, wishlistOpt.get());
             }
         }
 
-        // 3. Возвращаем пустой wishlist
+        // 3. Запоминаем пустой wishlist, чтобы не ходить в БД на каждом запросе
         log.debug("Возвращаем пустой wishlist");
-        Wishlist emptyWishlist = createEmptyWishlist();
-        updateWishlistInSession(session, emptyWishlist);
-        return emptyWishlist;
-    }
-
-    /**
-     * Улучшенная инициализация данных wishlist
-     */
-    private void initializeWishlistData(Wishlist wishlist) {
-        log.debug("Инициализируем данные wishlist с {} элементами",
-                wishlist.getItems() != null ? wishlist.getItems().size() : 0);
-
-        if (wishlist.getItems() != null) {
-            for (WishlistItem item : wishlist.getItems()) {
-                if (item.getProduct() != null) {
-                    try {
-                        // Принудительно инициализируем proxy Product
-                        Product product = item.getProduct();
-                        product.getId();
-                        product.getName();
-                        product.getPrice();
-                        product.getStockQuantity();
-                        product.getIsActive();
-                        product.getSlug();
-
-                        // 🔄 ОБНОВЛЕНО: инициализируем изображения вместо одного imageUrl
-                        if (product.getImages() != null) {
-                            // Принудительно загружаем коллекцию изображений
-                            product.getImages().size(); // Загружает Lazy коллекцию
-
-                            // Инициализируем каждое изображение
-                            for (ProductImage image : product.getImages()) {
-                                image.getId();
-                                image.getImageUrl();
-                                image.getImageId();
-                                image.getIsMain();
-                                image.getSortOrder();
-                                image.getAltText();
-                            }
-
-                            log.debug("Инициализировано {} изображений для товара: {}",
-                                    product.getImages().size(), product.getName());
-                        }
-
-                        log.debug("Инициализирован товар: {} - {}", product.getId(), product.getName());
-                    } catch (Exception e) {
-                        log.error("Ошибка при инициализации товара в wishlist", e);
-                    }
-                }
-            }
-        }
-    }
-
-    /**
-     * Улучшенная проверка полной загрузки wishlist
-     */
-    private boolean isWishlistFullyLoaded(Wishlist wishlist) {
-        if (wishlist.getItems() == null) {
-            return true;
-        }
-
-        try {
-            for (WishlistItem item : wishlist.getItems()) {
-                if (item.getProduct() != null) {
-                    // Пытаемся обратиться к данным продукта
-                    item.getProduct().getName();
-                    item.getProduct().getPrice();
-                }
-            }
-            log.debug("Wishlist полностью загружен");
-            return true;
-        } catch (LazyInitializationException e) {
-            log.debug("Wishlist не полностью загружен: {}", e.getMessage());
-            return false;
-        }
+        return updateWishlistInSession(session, createEmptyWishlist());
     }
 
 
@@ -731,9 +630,9 @@ public class WishlistServiceDatabaseImpl implements WishlistService {
         Map<String, Object> debug = new HashMap<>();
 
         // Информация о сессии
-        Wishlist sessionWishlist = getWishlistFromSession(session);
+        WishlistSnapshot sessionWishlist = getSnapshotFromSession(session);
         debug.put("sessionWishlistUuid", sessionWishlist != null ? sessionWishlist.getWishlistUuid() : null);
-        debug.put("sessionItemCount", sessionWishlist != null ? getItemCount(sessionWishlist) : 0);
+        debug.put("sessionItemCount", sessionWishlist != null ? sessionWishlist.size() : 0);
 
         // Информация о cookie
         String cookieUuid = getWishlistUuidFromCookie();
@@ -755,8 +654,8 @@ public class WishlistServiceDatabaseImpl implements WishlistService {
     @Transactional
     @Override
     public void updateWishlistCookie(HttpSession session) {
-        Wishlist wishlist = getWishlistFromSession(session);
-        if (wishlist != null && wishlist.getWishlistUuid() != null && !wishlist.getWishlistUuid().isEmpty()) {
+        WishlistSnapshot wishlist = getSnapshotFromSession(session);
+        if (wishlist != null && !wishlist.getWishlistUuid().isEmpty()) {
             // Очищаем старый cookie
             clearWishlistCookie();
 
@@ -772,9 +671,9 @@ public class WishlistServiceDatabaseImpl implements WishlistService {
         Map<String, Object> debug = new HashMap<>();
 
         // Информация о сессии
-        Wishlist sessionWishlist = getWishlistFromSession(session);
+        WishlistSnapshot sessionWishlist = getSnapshotFromSession(session);
         debug.put("sessionWishlistUuid", sessionWishlist != null ? sessionWishlist.getWishlistUuid() : null);
-        debug.put("sessionItemCount", sessionWishlist != null ? getItemCount(sessionWishlist) : 0);
+        debug.put("sessionItemCount", sessionWishlist != null ? sessionWishlist.size() : 0);
 
         // Информация о cookie
         String cookieUuid = getWishlistUuidFromCookie();
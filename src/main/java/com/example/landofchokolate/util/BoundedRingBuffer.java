@@ -0,0 +1,125 @@
+package com.example.landofchokolate.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Ограниченный lock-free кольцевой буфер (алгоритм Вьюкова, MPMC).
+ *
+ * Каждая ячейка хранит свой sequence: производитель захватывает слот CAS-ом по tail,
+ * потребитель — CAS-ом по head. Никаких блокировок, offer() никогда не ждёт:
+ * если буфер полон, он просто возвращает false и решение принимает вызывающий код.
+ */
+public class BoundedRingBuffer<T> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    public BoundedRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("Ёмкость буфера должна быть не меньше 2");
+        }
+        this.capacity = roundUpToPowerOfTwo(requestedCapacity);
+        this.mask = capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Добавить элемент. Возвращает false, если буфер заполнен.
+     */
+    public boolean offer(T item) {
+        if (item == null) {
+            throw new NullPointerException("Элемент буфера не может быть null");
+        }
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long sequence = sequences.get(index);
+            long diff = sequence - position;
+
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer.lazySet(index, item);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Забрать элемент. Возвращает null, если буфер пуст.
+     */
+    public T poll() {
+        while (true) {
+            long position = head.get();
+            int index = (int) (position & mask);
+            long sequence = sequences.get(index);
+            long diff = sequence - (position + 1);
+
+            if (diff == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    T item = buffer.get(index);
+                    buffer.lazySet(index, null);
+                    sequences.set(index, position + capacity);
+                    return item;
+                }
+            } else if (diff < 0) {
+                return null;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Забрать до maxItems элементов, передавая каждый в consumer.
+     *
+     * @return количество забранных элементов
+     */
+    public int drain(Consumer<T> consumer, int maxItems) {
+        int drained = 0;
+        T item;
+        while (drained < maxItems && (item = poll()) != null) {
+            consumer.accept(item);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Приблизительный размер (точен только в отсутствие конкурентных операций)
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        if (size < 0) {
+            return 0;
+        }
+        return (int) Math.min(size, capacity);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private static int roundUpToPowerOfTwo(int value) {
+        int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.landofchokolate.util;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Заказ с доставкой Новой Почтой сохранён, событие на создание ТТН записано в outbox
+ */
+@Getter
+public class DeliveryRequestedEvent extends ApplicationEvent {
+    private final Long orderId;
+
+    public DeliveryRequestedEvent(Object source, Long orderId) {
+        super(source);
+        this.orderId = orderId;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.landofchokolate.util;
+
+import com.example.landofchokolate.dto.visitor.GeoLocationInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 🗺️ Локальная таблица диапазонов IPv4 → геолокация.
+ *
+ * Диапазоны хранятся в отсортированных примитивных массивах (long[] начала/концы,
+ * int[] индекс в справочнике), поиск — бинарный. Одинаковые страна/город/провайдер
+ * хранятся одним объектом, поэтому таблица на сотни тысяч строк занимает единицы МБ.
+ *
+ * Формат CSV (заголовок и строки с '#' пропускаются):
+ * <pre>start_ip,end_ip,country,city,isp</pre>
+ * где start_ip/end_ip — либо "1.2.3.0", либо десятичное число.
+ */
+@Slf4j
+public class IpRangeTable {
+
+    private final long[] rangeStarts;
+    private final long[] rangeEnds;
+    private final int[] infoIndexes;
+    private final GeoLocationInfo[] infos;
+
+    private IpRangeTable(long[] rangeStarts, long[] rangeEnds, int[] infoIndexes, GeoLocationInfo[] infos) {
+        this.rangeStarts = rangeStarts;
+        this.rangeEnds = rangeEnds;
+        this.infoIndexes = infoIndexes;
+        this.infos = infos;
+    }
+
+    /**
+     * Загрузить таблицу из CSV файла
+     */
+    public static IpRangeTable load(Path path) throws IOException {
+        List<long[]> ranges = new ArrayList<>();
+        Map<String, Integer> infoIds = new HashMap<>();
+        List<GeoLocationInfo> infoList = new ArrayList<>();
+        int skipped = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(",", -1);
+                if (parts.length < 5) {
+                    skipped++;
+                    continue;
+                }
+
+                long start = parseIp(unquote(parts[0]));
+                long end = parseIp(unquote(parts[1]));
+                if (start < 0 || end < 0 || end < start) {
+                    skipped++;   // в том числе строка-заголовок
+                    continue;
+                }
+
+                String country = unquote(parts[2]);
+                String city = unquote(parts[3]);
+                String isp = unquote(parts[4]);
+                String infoKey = country + '\u0000' + city + '\u0000' + isp;
+
+                Integer infoId = infoIds.get(infoKey);
+                if (infoId == null) {
+                    infoId = infoList.size();
+                    infoIds.put(infoKey, infoId);
+                    infoList.add(new GeoLocationInfo(country, city, isp));
+                }
+                ranges.add(new long[]{start, end, infoId});
+            }
+        }
+
+        ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        int size = ranges.size();
+        long[] starts = new long[size];
+        long[] ends = new long[size];
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            long[] range = ranges.get(i);
+            starts[i] = range[0];
+            ends[i] = range[1];
+            indexes[i] = (int) range[2];
+        }
+
+        log.info("🗺️ Загружено {} диапазонов IP ({} уникальных локаций, пропущено строк: {}) из {}",
+                size, infoList.size(), skipped, path);
+        return new IpRangeTable(starts, ends, indexes, infoList.toArray(new GeoLocationInfo[0]));
+    }
+
+    /**
+     * Найти локацию по IPv4 адресу. Возвращает null, если адрес не попал ни в один диапазон
+     * или это не IPv4.
+     */
+    public GeoLocationInfo lookup(String ipAddress) {
+        long ip = parseIp(ipAddress);
+        if (ip < 0 || rangeStarts.length == 0) {
+            return null;
+        }
+
+        int position = Arrays.binarySearch(rangeStarts, ip);
+        if (position < 0) {
+            position = -position - 2;   // последний диапазон с началом < ip
+        }
+        if (position < 0 || ip > rangeEnds[position]) {
+            return null;
+        }
+        return infos[infoIndexes[position]];
+    }
+
+    public int size() {
+        return rangeStarts.length;
+    }
+
+    /**
+     * Разбор IPv4 ("1.2.3.4" или десятичное число) в беззнаковый long. -1 при ошибке.
+     */
+    static long parseIp(String value) {
+        if (value == null || value.isEmpty()) {
+            return -1;
+        }
+        if (value.indexOf('.') < 0) {
+            try {
+                long numeric = Long.parseLong(value);
+                return numeric >= 0 && numeric <= 0xFFFFFFFFL ? numeric : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        long result = 0;
+        int octets = 0;
+        int current = -1;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                current = (current < 0 ? 0 : current * 10) + (c - '0');
+                if (current > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && current >= 0 && octets < 3) {
+                result = (result << 8) | current;
+                octets++;
+                current = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (octets != 3 || current < 0) {
+            return -1;
+        }
+        return (result << 8) | current;
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+}
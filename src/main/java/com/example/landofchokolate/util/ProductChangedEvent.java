@@ -0,0 +1,19 @@
+package com.example.landofchokolate.util;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Товар создан, изменён или удалён — для обновления поискового индекса после коммита
+ */
+@Getter
+public class ProductChangedEvent extends ApplicationEvent {
+    private final Long productId;
+    private final boolean deleted;
+
+    public ProductChangedEvent(Object source, Long productId, boolean deleted) {
+        super(source);
+        this.productId = productId;
+        this.deleted = deleted;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.landofchokolate.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 🔤 Транслитерация кириллицы (укр/рус) в латиницу и нормализация для поиска.
+ *
+ * {@link #transliterate(String)} и {@link #toSlug(String)} (генерация slug-ов) используют одну таблицу.
+ * {@link #searchKey(String)} дополнительно схлопывает варианты написания
+ * (Kyiv/Київ, Kharkiv/Харків, Odessa/Одеса), чтобы запрос на любой раскладке
+ * совпадал с названием на любом языке.
+ */
+public final class Transliterator {
+
+    private static final Map<Character, String> CYRILLIC_TO_LATIN = new HashMap<>();
+
+    static {
+        String[][] table = {
+                {"а", "a"}, {"б", "b"}, {"в", "v"}, {"г", "g"}, {"д", "d"}, {"е", "e"},
+                {"ё", "e"}, {"ж", "zh"}, {"з", "z"}, {"и", "i"}, {"й", "y"}, {"к", "k"},
+                {"л", "l"}, {"м", "m"}, {"н", "n"}, {"о", "o"}, {"п", "p"}, {"р", "r"},
+                {"с", "s"}, {"т", "t"}, {"у", "u"}, {"ф", "f"}, {"х", "h"}, {"ц", "ts"},
+                {"ч", "ch"}, {"ш", "sh"}, {"щ", "sch"}, {"ъ", ""}, {"ы", "y"}, {"ь", ""},
+                {"э", "e"}, {"ю", "yu"}, {"я", "ya"},
+                // Украинские буквы
+                {"і", "i"}, {"ї", "yi"}, {"є", "ye"}, {"ґ", "g"}
+        };
+        for (String[] pair : table) {
+            CYRILLIC_TO_LATIN.put(pair[0].charAt(0), pair[1]);
+        }
+    }
+
+    // Порядок важен: длинные сочетания раньше коротких. После замены y → i
+    // "yi"/"ya" (ї, я) и "i"/"ia" (латиница) сходятся после схлопывания двойных букв
+    private static final String[][] SEARCH_FOLDS = {
+            {"shch", "sh"}, {"sch", "sh"}, {"kh", "h"},
+            {"y", "i"}, {"w", "v"}
+    };
+
+    private Transliterator() {
+    }
+
+    /**
+     * Нижний регистр + кириллица → латиница. Всё, что не буква/цифра, заменяется пробелом,
+     * пробелы схлопываются.
+     */
+    public static String transliterate(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+
+        String lower = text.toLowerCase();
+        StringBuilder result = new StringBuilder(lower.length() + 8);
+        boolean lastSpace = true;
+
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            String mapped = CYRILLIC_TO_LATIN.get(c);
+            if (mapped != null) {
+                result.append(mapped);
+                lastSpace = false;
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                result.append(c);
+                lastSpace = false;
+            } else if (c == '\'' || c == '’' || c == 'ʼ' || c == '`') {
+                // апостроф внутри слова (Мар'янівка) не разрывает слово
+            } else if (!lastSpace) {
+                result.append(' ');
+                lastSpace = true;
+            }
+        }
+
+        int length = result.length();
+        if (length > 0 && result.charAt(length - 1) == ' ') {
+            result.setLength(length - 1);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Slug: кириллица → латиница, всё кроме латиницы и цифр выбрасывается, пробелы → дефисы
+     */
+    public static String toSlug(String text) {
+        if (text == null) {
+            return "";
+        }
+
+        String lower = text.toLowerCase().trim();
+        StringBuilder result = new StringBuilder(lower.length() + 8);
+        boolean pendingDash = false;
+
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            String mapped = CYRILLIC_TO_LATIN.get(c);
+            if (mapped == null && ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9'))) {
+                mapped = String.valueOf(c);
+            }
+            if (mapped != null && !mapped.isEmpty()) {
+                if (pendingDash && !result.isEmpty()) {
+                    result.append('-');
+                }
+                result.append(mapped);
+                pendingDash = false;
+            } else if (c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r') {
+                // Те же пробельные символы, что \s в регулярных выражениях
+                pendingDash = true;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Ключ для поиска: транслитерация + схлопывание вариантов написания и двойных букв
+     */
+    public static String searchKey(String text) {
+        String key = transliterate(text);
+        if (key.isEmpty()) {
+            return key;
+        }
+
+        for (String[] fold : SEARCH_FOLDS) {
+            if (key.contains(fold[0])) {
+                key = key.replace(fold[0], fold[1]);
+            }
+        }
+
+        StringBuilder collapsed = new StringBuilder(key.length());
+        char previous = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c != previous || c == ' ' || Character.isDigit(c)) {
+                collapsed.append(c);
+            }
+            previous = c;
+        }
+        return collapsed.toString();
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.landofchokolate.config;
+
+import com.example.landofchokolate.dto.card.CartSummary;
+import com.example.landofchokolate.service.CartService;
+import com.example.landofchokolate.service.CategoryService;
+import com.example.landofchokolate.service.HtmlFragmentCacheService;
+import com.example.landofchokolate.service.WishlistService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.ui.ExtendedModelMap;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.thymeleaf.context.ILazyContextVariable;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Сколько раз за один просмотр страницы шапка обращается к корзине и избранному:
+ * одно чтение корзины (количество и сумма вместе), одно избранного, для JSON и AJAX — ни одного.
+ * Пока шаблон не прочитал значения (ответ 304) — тоже ни одного.
+ */
+class NavigationControllerAdviceTest {
+
+    private CartService cartService;
+    private WishlistService wishlistService;
+    private CategoryService categoryService;
+    private HtmlFragmentCacheService htmlFragmentCacheService;
+    private MockHttpSession session;
+
+    @BeforeEach
+    void setUp() {
+        cartService = mock(CartService.class);
+        wishlistService = mock(WishlistService.class);
+        categoryService = mock(CategoryService.class);
+        htmlFragmentCacheService = mock(HtmlFragmentCacheService.class);
+        session = new MockHttpSession();
+
+        when(cartService.getCartSummary(any())).thenReturn(new CartSummary(3, new BigDecimal("437.70")));
+        when(wishlistService.getWishlistItemCount(any())).thenReturn(2);
+        when(categoryService.getNavigationCategories(anyInt())).thenReturn(List.of());
+    }
+
+    @Test
+    void pageViewResolvesCartAndWishlistOnce() throws Exception {
+        ExtendedModelMap model = new ExtendedModelMap();
+        advice().addNavigationAttributes(model, pageRequest("viewPage"));
+
+        assertThat(rendered(model, "cartCount")).isEqualTo(3);
+        assertThat(rendered(model, "cartTotal")).isEqualTo(new BigDecimal("437.70"));
+        assertThat(rendered(model, "favoritesCount")).isEqualTo(2);
+        // Шаблон может читать значение несколько раз
+        assertThat(rendered(model, "cartCount")).isEqualTo(3);
+
+        verify(cartService, times(1)).getCartSummary(any());
+        verify(cartService, never()).getCartItemCount(any());
+        verify(cartService, never()).getCartTotal(any());
+        verify(wishlistService, times(1)).getWishlistItemCount(any());
+    }
+
+    @Test
+    void notModifiedResponseSkipsNavigationWork() throws Exception {
+        ExtendedModelMap model = new ExtendedModelMap();
+        advice().addNavigationAttributes(model, pageRequest("viewPage"));
+
+        // Обработчик ответил 304 — шаблон не рендерится и ленивые значения никто не читает
+        assertThat(model).containsKeys("navigationCategories", "navigationCategoriesHtml",
+                "cartCount", "cartTotal", "favoritesCount");
+        verifyNoInteractions(cartService, wishlistService, categoryService, htmlFragmentCacheService);
+    }
+
+    @Test
+    void jsonEndpointsSkipNavigationWork() throws Exception {
+        ExtendedModelMap model = new ExtendedModelMap();
+        advice().addNavigationAttributes(model, pageRequest("jsonEndpoint"));
+
+        assertThat(model).isEmpty();
+
+        verifyNoInteractions(cartService, wishlistService, categoryService);
+    }
+
+    @Test
+    void ajaxRequestsSkipNavigationWork() throws Exception {
+        MockHttpServletRequest request = pageRequest("viewPage");
+        request.addHeader("X-Requested-With", "XMLHttpRequest");
+
+        ExtendedModelMap model = new ExtendedModelMap();
+        advice().addNavigationAttributes(model, request);
+
+        assertThat(model).isEmpty();
+        verifyNoInteractions(cartService, wishlistService, categoryService);
+    }
+
+    /**
+     * Новый NavigationState на каждый просмотр — как request scope
+     */
+    private NavigationControllerAdvice advice() {
+        return new NavigationControllerAdvice(categoryService, new NavigationState(cartService, wishlistService, session),
+                htmlFragmentCacheService);
+    }
+
+    /**
+     * Значение атрибута так, как его получает шаблон
+     */
+    private static Object rendered(ExtendedModelMap model, String name) {
+        return ((ILazyContextVariable<?>) model.get(name)).getValue();
+    }
+
+    private MockHttpServletRequest pageRequest(String handlerMethodName) throws NoSuchMethodException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/product/all");
+        request.setSession(session);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+                new HandlerMethod(new SampleController(), SampleController.class.getMethod(handlerMethodName)));
+        return request;
+    }
+
+    static class SampleController {
+        public String viewPage() {
+            return "client/product/all";
+        }
+
+        @ResponseBody
+        public String jsonEndpoint() {
+            return "{}";
+        }
+    }
+}
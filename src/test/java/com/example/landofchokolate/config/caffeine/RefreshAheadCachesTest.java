@@ -0,0 +1,163 @@
+package com.example.landofchokolate.config.caffeine;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Горячие кеши каталога после истечения интервала обновления.
+ * Раньше: expireAfterWrite — запись удалялась, и первый запрос (а при наплыве все одновременные) ждал БД.
+ * Теперь: запрос сразу получает текущее значение, в фоне идёт ровно одна перезагрузка ключа.
+ */
+class RefreshAheadCachesTest {
+
+    private static final String CACHE = "navigationCategories";
+    private static final Duration REFRESH_AFTER = Duration.ofMinutes(5);
+    private static final int CONCURRENT_READS = 200;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+
+    private RefreshAheadCaches refreshAheadCaches;
+    private LoadingCache<Object, Object> cache;
+    private ExecutorService readers;
+
+    @BeforeEach
+    void setUp() {
+        refreshAheadCaches = new RefreshAheadCaches(new CacheMetrics(),
+                new StaticListableBeanFactory().getBeanProvider(PlatformTransactionManager.class),
+                Duration.ofHours(24), 2);
+        cache = refreshAheadCaches.build(CACHE, Caffeine.newBuilder().ticker(ticker).maximumSize(10), REFRESH_AFTER);
+        readers = Executors.newFixedThreadPool(16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        readers.shutdownNow();
+    }
+
+    @Test
+    void readsAfterRefreshIntervalNeverWaitForReload() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch reloadStarted = new CountDownLatch(1);
+        CountDownLatch releaseReload = new CountDownLatch(1);
+        Supplier<String> loader = () -> {
+            if (loads.incrementAndGet() == 1) {
+                return "v1";
+            }
+            reloadStarted.countDown();
+            await(releaseReload);
+            return "v2";
+        };
+
+        assertThat(read(loader)).isEqualTo("v1");
+        advance(REFRESH_AFTER.plusMinutes(1));
+
+        // Перезагрузка заблокирована до конца проверки: ждущий её запрос не уложился бы в таймаут
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_READS; i++) {
+            results.add(readers.submit(() -> read(loader)));
+        }
+        for (Future<String> result : results) {
+            assertThat(result.get(1, TimeUnit.SECONDS)).isEqualTo("v1");
+        }
+        assertThat(reloadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(loads.get()).isEqualTo(2);
+
+        releaseReload.countDown();
+        assertThat(eventually(() -> read(loader).equals("v2"))).isTrue();
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cacheStats().get("refreshes")).isEqualTo(1L);
+    }
+
+    @Test
+    void failedReloadKeepsServingCurrentValue() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<String> loader = () -> {
+            if (loads.incrementAndGet() == 1) {
+                return "v1";
+            }
+            throw new IllegalStateException("database unavailable");
+        };
+
+        assertThat(read(loader)).isEqualTo("v1");
+        advance(REFRESH_AFTER.plusMinutes(1));
+
+        assertThat(read(loader)).isEqualTo("v1");
+        assertThat(eventually(() -> cacheStats().get("refreshFailures").equals(1L))).isTrue();
+        // Неудачное обновление записало прежнее значение заново — отсчёт интервала начался с нуля
+        assertThat(eventually(() -> entryAge().isZero())).isTrue();
+        assertThat(read(loader)).isEqualTo("v1");
+
+        // Следующая попытка — только через интервал, а не на каждом чтении
+        assertThat(loads.get()).isEqualTo(2);
+        advance(REFRESH_AFTER.plusMinutes(1));
+        assertThat(read(loader)).isEqualTo("v1");
+        assertThat(eventually(() -> loads.get() == 3)).isTrue();
+    }
+
+    @Test
+    void springCacheLookupWithoutLoaderIsPlainMiss() {
+        // CaffeineCache.lookup у LoadingCache вызывает get(key) — без загрузчика это промах, а не исключение
+        CaffeineCache springCache = new CaffeineCache(CACHE, cache);
+
+        assertThat(springCache.get(42)).isNull();
+
+        springCache.put(42, "put by @Cacheable");
+        assertThat(springCache.get(42, String.class)).isEqualTo("put by @Cacheable");
+    }
+
+    private String read(Supplier<String> loader) {
+        return refreshAheadCaches.get(CACHE, 20, loader);
+    }
+
+    private Duration entryAge() {
+        return cache.policy().refreshAfterWrite().orElseThrow().ageOf(20).orElseThrow();
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> cacheStats() {
+        return (Map<String, Object>) ((Map<String, Object>) refreshAheadCaches.getStats().get("caches")).get(CACHE);
+    }
+
+    private static boolean eventually(Callable<Boolean> condition) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (condition.call()) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
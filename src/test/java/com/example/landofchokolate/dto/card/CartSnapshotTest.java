@@ -0,0 +1,132 @@
+package com.example.landofchokolate.dto.card;
+
+import com.example.landofchokolate.model.Cart;
+import com.example.landofchokolate.model.CartItem;
+import com.example.landofchokolate.model.Product;
+import com.example.landofchokolate.model.ProductImage;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Что лежит в HttpSession вместо графа сущностей Cart: только UUID, id товаров, количества,
+ * цены и отметки времени — без CartItem, Product и их изображений.
+ */
+class CartSnapshotTest {
+
+    private static final int ITEMS_PER_CART = 3;
+    private static final int IMAGES_PER_PRODUCT = 3;
+
+    @Test
+    void snapshotHoldsOnlyIdsQuantitiesAndPrices() {
+        Cart cart = buildCart(7);
+        CartSnapshot snapshot = CartSnapshot.of(cart);
+
+        assertThat(snapshot.getCartUuid()).isEqualTo(cart.getCartUuid());
+        assertThat(snapshot.size()).isEqualTo(ITEMS_PER_CART);
+        for (int i = 0; i < ITEMS_PER_CART; i++) {
+            CartItem item = cart.getItems().get(i);
+            assertThat(snapshot.productIdAt(i)).isEqualTo(item.getProduct().getId());
+            assertThat(snapshot.quantityAt(i)).isEqualTo(item.getQuantity());
+            assertThat(snapshot.priceAt(i)).isEqualByComparingTo(item.getPriceAtTime());
+        }
+
+        // Ни одной ссылки на сущности: поля — строка, числа и примитивные массивы
+        List<Class<?>> fieldTypes = Arrays.stream(CartSnapshot.class.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers()))
+                .map(Field::getType)
+                .distinct()
+                .toList();
+        assertThat(fieldTypes).containsOnly(String.class, long.class, long[].class, int[].class);
+    }
+
+    @Test
+    void snapshotKeepsTotals() {
+        Cart cart = buildCart(1);
+        CartSnapshot snapshot = CartSnapshot.of(cart);
+
+        assertThat(snapshot.getTotalQuantity()).isEqualTo(1 + 2 + 3);
+        assertThat(snapshot.getTotalPrice()).isEqualByComparingTo("883.40");
+        assertThat(snapshot.getQuantities()).containsKeys(1_000L, 1_001L, 1_002L);
+    }
+
+    @Test
+    void snapshotSkipsItemsWithoutProduct() {
+        Cart cart = buildCart(2);
+        cart.getItems().get(1).setProduct(null);
+
+        CartSnapshot snapshot = CartSnapshot.of(cart);
+
+        assertThat(snapshot.getProductIds()).containsExactly(1_000L, 1_002L);
+        assertThat(snapshot.getTotalQuantity()).isEqualTo(1 + 3);
+    }
+
+    static Cart buildCart(int session) {
+        LocalDateTime now = LocalDateTime.now();
+        Cart cart = new Cart();
+        cart.setId((long) session);
+        cart.setCartUuid(UUID.randomUUID().toString());
+        cart.setIpAddress("192.168.1." + session % 255);
+        cart.setUserAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 "
+                + "(KHTML, like Gecko) Chrome/126.0 Safari/537.36");
+        cart.setExpiresAt(now.plusDays(30));
+
+        List<CartItem> items = new ArrayList<>();
+        for (int i = 0; i < ITEMS_PER_CART; i++) {
+            Product product = buildProduct(1_000L + i);
+            CartItem item = new CartItem();
+            item.setId((long) session * ITEMS_PER_CART + i);
+            item.setCart(cart);
+            item.setProduct(product);
+            item.setQuantity(i + 1);
+            item.setPriceAtTime(product.getPrice());
+            item.setAddedAt(now);
+            item.setUpdatedAt(now);
+            items.add(item);
+        }
+        cart.setItems(items);
+        return cart;
+    }
+
+    static Product buildProduct(long id) {
+        LocalDateTime now = LocalDateTime.now();
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Молочный шоколад с фундуком " + id);
+        product.setSlug("molochnyi-shokolad-s-fundukom-" + id);
+        product.setPrice(new BigDecimal("145.90").add(BigDecimal.valueOf(id - 1_000)));
+        product.setStockQuantity(42);
+        product.setMetaTitle("Молочный шоколад с фундуком — купить");
+        product.setMetaDescription("Бельгийский молочный шоколад с цельным фундуком, 100 г. Доставка по Украине.");
+        product.setDescription("Нежный молочный шоколад с цельным обжаренным фундуком. ".repeat(8));
+        product.setSeoKeywords("шоколад, фундук, молочный шоколад");
+        product.setCreatedAt(now);
+        product.setUpdatedAt(now);
+
+        List<ProductImage> images = new ArrayList<>();
+        for (int i = 0; i < IMAGES_PER_PRODUCT; i++) {
+            ProductImage image = new ProductImage();
+            image.setId(id * 10 + i);
+            image.setImageUrl("https://res.cloudinary.com/landofchokolate/image/upload/v1/products/" + id + "_" + i + ".jpg");
+            image.setImageId("products/" + id + "_" + i);
+            image.setSortOrder(i);
+            image.setIsMain(i == 0);
+            image.setAltText("Шоколад " + id);
+            image.setProduct(product);
+            image.setCreatedAt(now);
+            image.setUpdatedAt(now);
+            images.add(image);
+        }
+        product.setImages(images);
+        return product;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.landofchokolate.dto.card;
+
+import com.example.landofchokolate.model.Cart;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 📏 Сколько heap удерживают 1 000 сессий: граф сущностей Cart → CartItem → Product → ProductImage
+ * против CartSnapshot. Размер считает JOL по достижимому графу объектов — без GC и замеров времени,
+ * поэтому результат повторяем на одной и той же JVM.
+ *
+ * Не входит в обычный прогон (тег benchmark), запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class SessionCartFootprintBenchmarkTest {
+
+    private static final int SESSIONS = 1_000;
+
+    @Test
+    void snapshotsRetainFarLessHeapThanEntityGraphs() {
+        // У каждой сессии свой persistence context, поэтому и свои экземпляры Product
+        List<Cart> carts = new ArrayList<>(SESSIONS);
+        List<CartSnapshot> snapshots = new ArrayList<>(SESSIONS);
+        for (int session = 0; session < SESSIONS; session++) {
+            Cart cart = CartSnapshotTest.buildCart(session);
+            carts.add(cart);
+            snapshots.add(CartSnapshot.of(cart));
+        }
+
+        long entityGraphBytes = GraphLayout.parseInstance(carts).totalSize();
+        long snapshotBytes = GraphLayout.parseInstance(snapshots).totalSize();
+
+        // Снимок — UUID и три коротких массива; граф тянет тексты товаров и изображения
+        assertThat(snapshotBytes * 10 < entityGraphBytes).isTrue();
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.landofchokolate.repository;
+
+import com.example.landofchokolate.dto.category.CategoryProductDto;
+import com.example.landofchokolate.mapper.ProductMapper;
+import com.example.landofchokolate.model.Category;
+import com.example.landofchokolate.model.Product;
+import com.example.landofchokolate.model.ProductImage;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 📊 Одна глубокая страница категории тремя способами — старый путь (вся категория в память,
+ * маппинг с ленивой загрузкой images и subList), OFFSET и keyset. Сравнивается число SQL-запросов
+ * и прочитанных строк по статистике Hibernate, без замеров времени; итоги уходят в TestReporter.
+ *
+ * Не входит в обычный прогон (тег benchmark), запуск: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(ProductMapper.class)
+class CategoryCardsPagingBenchmarkTest {
+
+    private static final int PAGE_SIZE = 12;
+    private static final int IMAGES_PER_PRODUCT = 2;
+    private static final int FLUSH_EVERY = 500;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @ParameterizedTest(name = "{0} товаров в категории")
+    @ValueSource(ints = {1_000, 10_000})
+    void deepPageCostByPagingStrategy(int productsInCategory, TestReporter reporter) {
+        Category category = entityManager.persist(category("truffles"));
+        List<Long> productIds = seed(category, productsInCategory);
+
+        // Последняя полная страница: OFFSET пропускает почти всю категорию, COUNT не отбрасывается
+        int page = productsInCategory / PAGE_SIZE - 1;
+        Long afterId = productIds.get(page * PAGE_SIZE - 1);
+        List<Long> expectedIds = productIds.subList(page * PAGE_SIZE, (page + 1) * PAGE_SIZE);
+
+        Statistics statistics = statistics();
+
+        statistics.clear();
+        List<CategoryProductDto> legacy = legacyPage(category.getId(), page);
+        long legacyStatements = statistics.getPrepareStatementCount();
+        // Строки товаров и всех их изображений, поднятые в persistence context
+        long legacyRows = statistics.getEntityLoadCount();
+
+        entityManager.clear();
+        statistics.clear();
+        Page<CategoryProductDto> offset = productRepository.findProductCardsByCategoryId(
+                category.getId(), PageRequest.of(page, PAGE_SIZE));
+        long offsetStatements = statistics.getPrepareStatementCount();
+        // Карточки страницы плюс строка COUNT
+        long offsetRows = offset.getNumberOfElements() + 1L;
+
+        entityManager.clear();
+        statistics.clear();
+        List<CategoryProductDto> keyset = productRepository.findProductCardsByCategoryIdAfter(
+                category.getId(), afterId, PageRequest.of(0, PAGE_SIZE));
+        long keysetStatements = statistics.getPrepareStatementCount();
+        long keysetRows = keyset.size();
+
+        reporter.publishEntry("legacy.statements", String.valueOf(legacyStatements));
+        reporter.publishEntry("legacy.rows", String.valueOf(legacyRows));
+        reporter.publishEntry("offset.statements", String.valueOf(offsetStatements));
+        reporter.publishEntry("offset.rows", String.valueOf(offsetRows));
+        reporter.publishEntry("keyset.statements", String.valueOf(keysetStatements));
+        reporter.publishEntry("keyset.rows", String.valueOf(keysetRows));
+
+        // OFFSET и keyset отдают одну и ту же страницу; у старого пути порядок не задан — сверяется только размер
+        assertThat(ids(offset.getContent())).isEqualTo(expectedIds);
+        assertThat(keyset).isEqualTo(offset.getContent());
+        assertThat(legacy.size()).isEqualTo(PAGE_SIZE);
+
+        // Старый путь: запрос категории и по запросу на images каждого товара
+        assertThat(legacyStatements).isEqualTo(1L + productsInCategory);
+        assertThat(legacyRows).isEqualTo((long) productsInCategory * (1 + IMAGES_PER_PRODUCT));
+        // OFFSET: страница и COUNT; keyset: один запрос — объём не зависит от размера категории
+        assertThat(offsetStatements).isEqualTo(2L);
+        assertThat(offsetRows).isEqualTo(PAGE_SIZE + 1L);
+        assertThat(keysetStatements).isEqualTo(1L);
+        assertThat(keysetRows).isEqualTo(PAGE_SIZE);
+    }
+
+    /**
+     * Путь до пагинации в БД: вся категория, маппинг каждой карточки и subList
+     */
+    private List<CategoryProductDto> legacyPage(Long categoryId, int page) {
+        List<CategoryProductDto> dtos = productRepository.findByCategoryId(categoryId).stream()
+                .map(productMapper::toCardDtoCategoryList)
+                .toList();
+        int start = Math.min(page * PAGE_SIZE, dtos.size());
+        int end = Math.min(start + PAGE_SIZE, dtos.size());
+        return dtos.subList(start, end);
+    }
+
+    private List<Long> seed(Category category, int products) {
+        List<Long> productIds = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            Product product = product(category, "truffle-" + i);
+            for (int j = 0; j < IMAGES_PER_PRODUCT; j++) {
+                addImage(product, "truffle-" + i + "-" + j + ".jpg", j == 0);
+            }
+            productIds.add(entityManager.persist(product).getId());
+            if ((i + 1) % FLUSH_EVERY == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return productIds;
+    }
+
+    private Statistics statistics() {
+        return entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+    }
+
+    private static List<Long> ids(List<CategoryProductDto> cards) {
+        return cards.stream().map(CategoryProductDto::getId).toList();
+    }
+
+    private static Category category(String slug) {
+        Category category = new Category();
+        category.setName("Категорія " + slug);
+        category.setSlug(slug);
+        return category;
+    }
+
+    private static Product product(Category category, String slug) {
+        Product product = new Product();
+        product.setName("Товар " + slug);
+        product.setSlug(slug);
+        product.setPrice(BigDecimal.valueOf(75));
+        product.setStockQuantity(5);
+        product.setCategory(category);
+        return product;
+    }
+
+    private static void addImage(Product product, String url, boolean main) {
+        ProductImage image = new ProductImage();
+        image.setImageUrl(url);
+        image.setAltText(product.getName());
+        image.setSortOrder(product.getImages().size());
+        image.setIsMain(main);
+        image.setProduct(product);
+        product.getImages().add(image);
+    }
+}
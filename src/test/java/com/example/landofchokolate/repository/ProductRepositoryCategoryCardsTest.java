@@ -0,0 +1,141 @@
+package com.example.landofchokolate.repository;
+
+import com.example.landofchokolate.dto.category.CategoryProductDto;
+import com.example.landofchokolate.model.Category;
+import com.example.landofchokolate.model.Product;
+import com.example.landofchokolate.model.ProductImage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Карточки категории постранично в БД: состав и порядок страниц, итоги,
+ * выбор главного изображения и непрерывность keyset-страниц
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+class ProductRepositoryCategoryCardsTest {
+
+    private static final int PRODUCTS_IN_CATEGORY = 30;
+    private static final int PAGE_SIZE = 12;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Category category;
+    private List<Long> productIds;
+
+    @BeforeEach
+    void createCatalog() {
+        category = entityManager.persist(category("truffles"));
+        Category otherCategory = entityManager.persist(category("caramel"));
+
+        productIds = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS_IN_CATEGORY; i++) {
+            Product product = product(category, "truffle-" + i);
+            if (i % 3 == 0) {
+                // Главное изображение не первое
+                addImage(product, "truffle-" + i + "-first.jpg", false);
+                addImage(product, "truffle-" + i + "-main.jpg", true);
+            } else if (i % 3 == 1) {
+                // Без главного — берётся первое
+                addImage(product, "truffle-" + i + "-first.jpg", false);
+                addImage(product, "truffle-" + i + "-second.jpg", false);
+            }
+            productIds.add(entityManager.persist(product).getId());
+        }
+        entityManager.persist(product(otherCategory, "caramel-0"));
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void offsetPagesFollowIdOrderWithTotals() {
+        Page<CategoryProductDto> first = productRepository.findProductCardsByCategoryId(
+                category.getId(), PageRequest.of(0, PAGE_SIZE));
+        Page<CategoryProductDto> last = productRepository.findProductCardsByCategoryId(
+                category.getId(), PageRequest.of(2, PAGE_SIZE));
+
+        assertThat(first.getTotalElements()).isEqualTo(PRODUCTS_IN_CATEGORY);
+        assertThat(first.getTotalPages()).isEqualTo(3);
+        assertThat(ids(first.getContent())).isEqualTo(productIds.subList(0, PAGE_SIZE));
+        assertThat(ids(last.getContent())).isEqualTo(productIds.subList(2 * PAGE_SIZE, PRODUCTS_IN_CATEGORY));
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    void cardsCarryMainImageOtherwiseFirst() {
+        List<CategoryProductDto> cards = productRepository.findProductCardsByCategoryId(
+                category.getId(), PageRequest.of(0, 3)).getContent();
+
+        assertThat(cards).extracting(CategoryProductDto::getMainImageUrl)
+                .containsExactly("truffle-0-main.jpg", "truffle-1-first.jpg", null);
+        assertThat(cards.get(0).getSlug()).isEqualTo("truffle-0");
+    }
+
+    @Test
+    void keysetPagesContinueOffsetPagesWithoutGapsOrDuplicates() {
+        List<Long> walked = new ArrayList<>();
+        List<CategoryProductDto> page = productRepository.findProductCardsByCategoryId(
+                category.getId(), PageRequest.of(0, PAGE_SIZE)).getContent();
+        int pageNumber = 0;
+        while (!page.isEmpty()) {
+            List<CategoryProductDto> offsetPage = productRepository.findProductCardsByCategoryId(
+                    category.getId(), PageRequest.of(pageNumber, PAGE_SIZE)).getContent();
+            assertThat(page).isEqualTo(offsetPage);
+
+            walked.addAll(ids(page));
+            Long lastId = page.get(page.size() - 1).getId();
+            page = productRepository.findProductCardsByCategoryIdAfter(
+                    category.getId(), lastId, PageRequest.of(0, PAGE_SIZE));
+            pageNumber++;
+        }
+
+        assertThat(pageNumber).isEqualTo(3);
+        assertThat(walked).isEqualTo(productIds);
+    }
+
+    private static List<Long> ids(List<CategoryProductDto> cards) {
+        return cards.stream().map(CategoryProductDto::getId).toList();
+    }
+
+    private static Category category(String slug) {
+        Category category = new Category();
+        category.setName("Категорія " + slug);
+        category.setSlug(slug);
+        return category;
+    }
+
+    private static Product product(Category category, String slug) {
+        Product product = new Product();
+        product.setName("Товар " + slug);
+        product.setSlug(slug);
+        product.setPrice(BigDecimal.valueOf(75));
+        product.setStockQuantity(5);
+        product.setCategory(category);
+        return product;
+    }
+
+    private static void addImage(Product product, String url, boolean main) {
+        ProductImage image = new ProductImage();
+        image.setImageUrl(url);
+        image.setAltText(product.getName());
+        image.setSortOrder(product.getImages().size());
+        image.setIsMain(main);
+        image.setProduct(product);
+        product.getImages().add(image);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.landofchokolate.service;
+
+import com.example.landofchokolate.config.caffeine.CacheDataVersions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Изменение одного товара (резерв на оформлении, остаток) меняет версии только его товара, категории и бренда —
+ * фрагменты и ETag остального каталога остаются прежними
+ */
+class ProductCacheTagsTest {
+
+    private CacheDataVersions cacheDataVersions;
+    private ProductCacheTags productCacheTags;
+
+    @BeforeEach
+    void setUp() {
+        cacheDataVersions = new CacheDataVersions();
+        productCacheTags = new ProductCacheTags(new ConcurrentMapCacheManager("productBySlug"), cacheDataVersions);
+    }
+
+    @Test
+    void stockChangeBumpsOnlyOwnProductCategoryAndBrand() {
+        productCacheTags.productsChanged(List.of(ProductCacheTags.product(1L), ProductCacheTags.STOCK),
+                ProductCacheTags.displayedIn(10L, 20L));
+
+        assertThat(cacheDataVersions.version(ProductCacheTags.product(1L))).isEqualTo(1L);
+        assertThat(cacheDataVersions.version(ProductCacheTags.category(10L))).isEqualTo(1L);
+        assertThat(cacheDataVersions.version(ProductCacheTags.brand(20L))).isEqualTo(1L);
+
+        assertThat(cacheDataVersions.version(ProductCacheTags.DATA_VERSION)).isEqualTo(0L);
+        assertThat(cacheDataVersions.version(ProductCacheTags.product(2L))).isEqualTo(0L);
+        assertThat(cacheDataVersions.version(ProductCacheTags.category(11L))).isEqualTo(0L);
+    }
+
+    @Test
+    void displayedInEvictsNothingTaggedWithCategory() {
+        String categoryTag = ProductCacheTags.category(10L);
+        List<String> cards = productCacheTags.cached("productBySlug", "category_10_page_0",
+                () -> List.of("card"), value -> List.of(categoryTag));
+
+        productCacheTags.productsChanged(List.of(ProductCacheTags.product(1L)), List.of(categoryTag));
+
+        // Выборка категории без этого товара осталась в кеше
+        assertThat(productCacheTags.cached("productBySlug", "category_10_page_0",
+                () -> List.of("reloaded"), value -> List.of(categoryTag))).isEqualTo(cards);
+    }
+
+    @Test
+    void bulkChangeBumpsCatalogWideVersion() {
+        productCacheTags.productsChangedAll();
+
+        assertThat(cacheDataVersions.version(ProductCacheTags.DATA_VERSION)).isEqualTo(1L);
+    }
+}
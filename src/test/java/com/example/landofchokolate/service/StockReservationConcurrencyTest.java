@@ -0,0 +1,153 @@
+package com.example.landofchokolate.service;
+
+import com.example.landofchokolate.model.Product;
+import com.example.landofchokolate.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сотни параллельных заказов на товар с маленьким остатком: продано ровно столько, сколько было.
+ *
+ * Своя PostgreSQL в контейнере (DELETE ... RETURNING и построчные блокировки — как в проде),
+ * не база приложения. Транзакция теста отключена: параллельные потоки должны видеть закоммиченный товар
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers
+@Import(StockReservationService.class)
+class StockReservationConcurrencyTest {
+
+    private static final int INITIAL_STOCK = 50;
+    private static final int PARALLEL_ORDERS = 300;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    // Сброс кешей здесь не проверяется
+    @MockitoBean
+    private ProductCacheTags productCacheTags;
+
+    @MockitoBean(name = "brandCacheManager")
+    private CacheManager brandCacheManager;
+
+    private final Queue<String> holderKeys = new ConcurrentLinkedQueue<>();
+    private Long productId;
+
+    @BeforeEach
+    void createProduct() {
+        Product product = new Product();
+        product.setName("Пралине — тест остатков " + System.nanoTime());
+        product.setPrice(BigDecimal.TEN);
+        product.setStockQuantity(INITIAL_STOCK);
+        productId = productRepository.save(product).getId();
+    }
+
+    @AfterEach
+    void deleteProduct() {
+        // Снимаются только резервы этого теста
+        holderKeys.forEach(stockReservationService::release);
+        productRepository.deleteById(productId);
+    }
+
+    @Test
+    void parallelOrdersNeverOversell() throws Exception {
+        AtomicInteger sold = new AtomicInteger();
+        runInParallel(PARALLEL_ORDERS, i -> {
+            if (stockReservationService.commit("order-" + i, Map.of(productId, 1)).isEmpty()) {
+                sold.incrementAndGet();
+            }
+        });
+
+        assertThat(sold.get()).isEqualTo(INITIAL_STOCK);
+        assertThat(currentStock()).isZero();
+    }
+
+    @Test
+    void parallelCheckoutHoldsNeverExceedStockAndReleaseBack() throws Exception {
+        AtomicInteger held = new AtomicInteger();
+        runInParallel(PARALLEL_ORDERS, i -> {
+            if (reserve("session-" + i, 1).isEmpty()) {
+                held.incrementAndGet();
+            }
+        });
+
+        assertThat(held.get()).isEqualTo(INITIAL_STOCK);
+        assertThat(currentStock()).isZero();
+
+        holderKeys.forEach(stockReservationService::release);
+        assertThat(currentStock()).isEqualTo(INITIAL_STOCK);
+    }
+
+    @Test
+    void orderConsumesOwnHoldInsteadOfTakingStockTwice() {
+        assertThat(reserve("session-own", 3)).isEmpty();
+        assertThat(currentStock()).isEqualTo(INITIAL_STOCK - 3);
+
+        assertThat(stockReservationService.commit("session-own", Map.of(productId, 2))).isEmpty();
+        assertThat(currentStock()).isEqualTo(INITIAL_STOCK - 2);
+    }
+
+    private List<Long> reserve(String holderKey, int quantity) {
+        holderKeys.add(holderKey);
+        return stockReservationService.reserve(holderKey, Map.of(productId, quantity));
+    }
+
+    private int currentStock() {
+        return productRepository.findById(productId).orElseThrow().getStockQuantity();
+    }
+
+    private void runInParallel(int tasks, IntTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < tasks; i++) {
+            int index = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run(index);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    @FunctionalInterface
+    private interface IntTask {
+        void run(int index) throws Exception;
+    }
+}